@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * Copyright (C) 2019 DSG at University of Athens
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package gr.uoa.di.dsg.broadcast;
+
+import gr.uoa.di.dsg.utils.LongHashMap;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The state of the active broadcasts of a broadcast primitive, indexed by the
+ * broadcast they belong to.
+ * <p>
+ * Like {@link CompletedBroadcasts}, the broadcasts are grouped per
+ * application (IC instance) and the keys of each application are packed in
+ * a primitive map whenever possible (see {@link BroadcastKey#pack()}). The
+ * lookups take the message itself, so that no {@link BroadcastKey} is created
+ * on the path of a received message, unless the key cannot be packed.
+ * Releasing an application drops all of its broadcasts at once.
+ * 
+ * @param <V> the type of the state of a broadcast.
+ */
+public class ActiveBroadcasts<V> {
+	
+	/**
+	 * The active broadcasts of each application.
+	 */
+	private Map<String, ActivePerApplication<V>> activePerApplication = new HashMap<>();
+	
+	/**
+	 * The total number of active broadcasts.
+	 */
+	private int size = 0;
+	
+	/**
+	 * @param message a message of the broadcast.
+	 * @return the state of the broadcast, or <em>null</em> if it is not active.
+	 */
+	public V get(BroadcastMessage message) {
+		ActivePerApplication<V> active = activePerApplication.get(message.getApplicationID());
+		if(active == null)
+			return null;
+		
+		if(BroadcastKey.isPackable(message.getNodeID(), message.getBroadcastID()))
+			return active.packedKeys.get(BroadcastKey.pack(message.getConsensusID(), message.getNodeID(), message.getBroadcastID()));
+		
+		return (active.otherKeys == null) ? null : active.otherKeys.get(message.getKey());
+	}
+	
+	/**
+	 * Stores the state of a broadcast.
+	 * 
+	 * @param message a message of the broadcast.
+	 * @param state the state of the broadcast.
+	 */
+	public void put(BroadcastMessage message, V state) {
+		ActivePerApplication<V> active = activePerApplication.get(message.getApplicationID());
+		if(active == null) {
+			active = new ActivePerApplication<>();
+			activePerApplication.put(message.getApplicationID(), active);
+		}
+		
+		V previous;
+		if(BroadcastKey.isPackable(message.getNodeID(), message.getBroadcastID()))
+			previous = active.packedKeys.put(BroadcastKey.pack(message.getConsensusID(), message.getNodeID(), message.getBroadcastID()), state);
+		else {
+			if(active.otherKeys == null)
+				active.otherKeys = new HashMap<>();
+			previous = active.otherKeys.put(message.getKey(), state);
+		}
+		
+		if(previous == null)
+			++size;
+	}
+	
+	/**
+	 * Drops the state of a broadcast.
+	 * 
+	 * @param message a message of the broadcast.
+	 * @return the state of the broadcast, or <em>null</em> if it was not active.
+	 */
+	public V remove(BroadcastMessage message) {
+		ActivePerApplication<V> active = activePerApplication.get(message.getApplicationID());
+		if(active == null)
+			return null;
+		
+		V previous;
+		if(BroadcastKey.isPackable(message.getNodeID(), message.getBroadcastID()))
+			previous = active.packedKeys.remove(BroadcastKey.pack(message.getConsensusID(), message.getNodeID(), message.getBroadcastID()));
+		else
+			previous = (active.otherKeys == null) ? null : active.otherKeys.remove(message.getKey());
+		
+		if(previous != null) {
+			--size;
+			if(active.size() == 0)
+				activePerApplication.remove(message.getApplicationID());
+		}
+		
+		return previous;
+	}
+	
+	/**
+	 * Drops the state of every broadcast of the specified application.
+	 * 
+	 * @param applicationID the application to be released.
+	 */
+	public void release(String applicationID) {
+		ActivePerApplication<V> active = activePerApplication.remove(applicationID);
+		if(active != null)
+			size -= active.size();
+	}
+	
+	/**
+	 * @return the number of active broadcasts.
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * The active broadcasts of a single application. Packable keys are stored
+	 * as primitive values, while all other keys are stored as is.
+	 */
+	private static class ActivePerApplication<V> {
+		private final LongHashMap<V> packedKeys = new LongHashMap<>();
+		private Map<BroadcastKey, V> otherKeys = null;
+		
+		int size() {
+			return packedKeys.size() + (otherKeys == null ? 0 : otherKeys.size());
+		}
+	}
+}
@@ -0,0 +1,127 @@
+/*******************************************************************************
+ * Copyright (C) 2019 DSG at University of Athens
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package gr.uoa.di.dsg.broadcast;
+
+import gr.uoa.di.dsg.communicator.Message;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+
+/**
+ * A message that carries a batch of serialized messages, along with their
+ * types (see {@link MessageBatcher}).
+ * <p>
+ * The wire format is the one of the <em>Batch</em> message of
+ * protofiles/batch.proto.
+ */
+public class BatchMessage extends Message {
+
+	public static BatchMessageType myType = BatchMessageType.BATCH;
+
+	private List<Integer> types = null;
+	private List<byte[]> messages = null;
+
+	public BatchMessage(List<Integer> types, List<byte[]> messages) {
+		super("");
+		this.types = types;
+		this.messages = messages;
+	}
+
+	/**
+	 * @return the types of the messages of the batch.
+	 */
+	public List<Integer> getTypes() {
+		return types;
+	}
+
+	/**
+	 * @return the serialized messages of the batch.
+	 */
+	public List<byte[]> getMessages() {
+		return messages;
+	}
+
+	@Override
+	public int getType() {
+		return myType.getValue();
+	}
+
+	@Override
+	public byte[] serialize() {
+		int size = 0;
+		for(int i = 0; i < types.size(); ++i)
+			size += CodedOutputStream.computeInt32Size(1, types.get(i)) + CodedOutputStream.computeByteArraySize(2, messages.get(i));
+
+		byte[] data = new byte[size];
+		try {
+			CodedOutputStream output = CodedOutputStream.newInstance(data);
+			for(int i = 0; i < types.size(); ++i) {
+				output.writeInt32(1, types.get(i));
+				output.writeByteArray(2, messages.get(i));
+			}
+			output.checkNoSpaceLeft();
+		}
+		catch (IOException e) {
+			e.printStackTrace();
+			return null;
+		}
+		return data;
+	}
+
+	/**
+	 * A message deserializer to re-create the BatchMessage object from binary
+	 * data.
+	 * 
+	 * @param rawData
+	 *            the serialized message.
+	 * @return the message, or <em>null</em> if the data are malformed.
+	 */
+	public static BatchMessage deserialize(byte[] rawData) {
+		List<Integer> types = new ArrayList<>();
+		List<byte[]> messages = new ArrayList<>();
+
+		try {
+			CodedInputStream input = CodedInputStream.newInstance(rawData);
+			input.setSizeLimit(Integer.MAX_VALUE);
+			for(int tag = input.readTag(); tag != 0; tag = input.readTag()) {
+				switch(tag >>> 3) {
+					case 1: types.add(input.readInt32()); break;
+					case 2: messages.add(input.readByteArray()); break;
+					default: input.skipField(tag); break;
+				}
+			}
+		}
+		catch (IOException e) {
+			e.printStackTrace();
+			return null;
+		}
+
+		if(types.size() != messages.size())
+			return null;
+
+		return new BatchMessage(types, messages);
+	}
+
+	@Override
+	public String toString() {
+		return "BatchMessage <" + types.size() + " messages>";
+	}
+}
@@ -17,13 +17,40 @@
 package gr.uoa.di.dsg.broadcast;
 
 import gr.uoa.di.dsg.broadcast.bracha.BBMessageType;
+import gr.uoa.di.dsg.consensus.bracha.BinaryVote;
 
 public class BroadcastAccept extends BroadcastMessage {
 
+	/** The binary vote carried by the value, decoded upon its first use. */
+	private transient byte vote = BinaryVote.INVALID;
+	private transient boolean voteDecoded = false;
+
 	public BroadcastAccept(String icid, int cid, int pid, int bid, String value) {
 		super(icid, cid, pid, bid, value);
 	}
 
+	/**
+	 * Returns the value of this message as a vote of a binary Consensus
+	 * instance. The value is decoded once and reused by all subsequent calls.
+	 * 
+	 * @return the vote, or {@link BinaryVote#INVALID} if the value does not
+	 *         encode a vote.
+	 */
+	public byte getVote() {
+		if(!voteDecoded) {
+			vote = BinaryVote.decode(this.value);
+			voteDecoded = true;
+		}
+		
+		return vote;
+	}
+	
+	@Override
+	public void setValue(String value) {
+		super.setValue(value);
+		this.voteDecoded = false;
+	}
+
 	public static BBMessageType myType = BBMessageType.ACCEPT;
 	
 	@Override
@@ -0,0 +1,127 @@
+/*******************************************************************************
+ * Copyright (C) 2019 DSG at University of Athens
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package gr.uoa.di.dsg.broadcast;
+
+/**
+ * An immutable key that uniquely describes a broadcast, i.e. the tuple
+ * &lt;applicationID, consensusID, nodeID, broadcastID&gt;. It replaces the
+ * "icid:cid:pid:bid" strings as the key of all lookup structures, since it is
+ * created only once per message and its hash code is computed in advance.
+ * <p>
+ * The consensusID, nodeID and broadcastID of a key can also be packed in a
+ * single <code>long</code>, as long as the nodeID and the broadcastID fit in
+ * 16 bits each (see {@link #isPackable()}).
+ */
+public final class BroadcastKey {
+	
+	private final String applicationID;
+	private final int consensusID;
+	private final int nodeID;
+	private final int broadcastID;
+	private final int hash;
+	
+	public BroadcastKey(String applicationID, int consensusID, int nodeID, int broadcastID) {
+		this.applicationID = applicationID;
+		this.consensusID = consensusID;
+		this.nodeID = nodeID;
+		this.broadcastID = broadcastID;
+		
+		int h = applicationID.hashCode();
+		h = 31 * h + consensusID;
+		h = 31 * h + nodeID;
+		h = 31 * h + broadcastID;
+		this.hash = h;
+	}
+	
+	public String getApplicationID() {
+		return applicationID;
+	}
+	
+	public int getConsensusID() {
+		return consensusID;
+	}
+	
+	public int getNodeID() {
+		return nodeID;
+	}
+	
+	public int getBroadcastID() {
+		return broadcastID;
+	}
+	
+	/**
+	 * Checks whether the consensusID, nodeID and broadcastID of this key can
+	 * be packed in a single <code>long</code>.
+	 * @return <em>true</em> if the key can be packed, <em>false</em> otherwise.
+	 */
+	public boolean isPackable() {
+		return isPackable(nodeID, broadcastID);
+	}
+	
+	/**
+	 * Checks whether the key of a broadcast can be packed in a single
+	 * <code>long</code>, without creating the key.
+	 * @return <em>true</em> if the key can be packed, <em>false</em> otherwise.
+	 */
+	public static boolean isPackable(int nodeID, int broadcastID) {
+		return nodeID >= 0 && nodeID <= 0xFFFF && broadcastID >= Short.MIN_VALUE && broadcastID <= Short.MAX_VALUE;
+	}
+	
+	/**
+	 * Packs the consensusID, nodeID and broadcastID of this key in a single
+	 * <code>long</code>. The result is unique among the keys of the same
+	 * application, only if the key is packable.
+	 * @return the packed representation of this key.
+	 */
+	public long pack() {
+		return pack(consensusID, nodeID, broadcastID);
+	}
+	
+	/**
+	 * Packs the key of a broadcast in a single <code>long</code>, without
+	 * creating the key (see {@link #pack()}).
+	 * @return the packed representation of the key.
+	 */
+	public static long pack(int consensusID, int nodeID, int broadcastID) {
+		return ((long) consensusID << 32) | ((long) (nodeID & 0xFFFF) << 16) | (broadcastID & 0xFFFF);
+	}
+	
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+	
+	@Override
+	public boolean equals(Object obj) {
+		if(this == obj)
+			return true;
+		if(!(obj instanceof BroadcastKey))
+			return false;
+		
+		BroadcastKey other = (BroadcastKey) obj;
+		return hash == other.hash && consensusID == other.consensusID && nodeID == other.nodeID
+				&& broadcastID == other.broadcastID && applicationID.equals(other.applicationID);
+	}
+	
+	/**
+	 * Returns the key in the "icid:cid:pid:bid" form.
+	 */
+	@Override
+	public String toString() {
+		return applicationID + ":" + consensusID + ":" + nodeID + ":" + broadcastID;
+	}
+}
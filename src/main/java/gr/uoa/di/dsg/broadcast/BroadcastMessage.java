@@ -18,6 +18,8 @@ package gr.uoa.di.dsg.broadcast;
 
 import gr.uoa.di.dsg.communicator.Message;
 
+import java.nio.ByteBuffer;
+
 /**
  * 
  * @author panos
@@ -30,6 +32,9 @@ public abstract class BroadcastMessage extends Message
 	protected int consensusID;
 	protected String value;
 	
+	/** The key of this broadcast, created upon its first use. */
+	private transient BroadcastKey key = null;
+	
 	public BroadcastMessage(String appId, int cid, int pid, int bid, String value) {
 		super(appId);
 		this.broadcastID = bid;
@@ -38,13 +43,33 @@ public abstract class BroadcastMessage extends Message
 		this.value = value;
 	}
 
+	/**
+	 * Returns the key that uniquely describes the broadcast of this message.
+	 * The key is created once and reused by all subsequent calls.
+	 */
+	public BroadcastKey getKey() {
+		if(key == null)
+			key = new BroadcastKey(this.applicationID, this.consensusID, this.nodeID, this.broadcastID);
+		
+		return key;
+	}
+
 	public String getUUID() {
 		return this.applicationID + ":" + this.consensusID + ":" + this.nodeID + ":" + this.broadcastID;
 	}
 
+	/**
+	 * Returns the content that the nodes sign for this broadcast, encoded
+	 * by {@link SigningPayload} into the buffer of the current thread.
+	 */
+	public ByteBuffer getSigningPayload() {
+		return SigningPayload.encode(this.applicationID, this.consensusID, this.nodeID, this.broadcastID, this.value);
+	}
+
 	public void setBroadcastID(int broadcastUID) 
 	{
 		this.broadcastID = broadcastUID;
+		this.key = null;
 	}
 	
 	public int getBroadcastID() {
@@ -53,6 +78,7 @@ public abstract class BroadcastMessage extends Message
 
 	public void setNodeID(int processUID) {
 		this.nodeID = processUID;
+		this.key = null;
 	}
 	
 	public int getNodeID() {
@@ -61,6 +87,7 @@ public abstract class BroadcastMessage extends Message
 
 	public void setConsensusID(int consensusUID) {
 		this.consensusID = consensusUID;
+		this.key = null;
 	}
 	
 	public int getConsensusID() {
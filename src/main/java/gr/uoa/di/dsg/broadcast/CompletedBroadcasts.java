@@ -0,0 +1,317 @@
+/*******************************************************************************
+ * Copyright (C) 2019 DSG at University of Athens
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package gr.uoa.di.dsg.broadcast;
+
+import gr.uoa.di.dsg.communicator.AbstractCommunicator;
+import gr.uoa.di.dsg.utils.LongHashSet;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps track of the broadcasts that have been completed by a broadcast
+ * primitive, so that late or duplicate messages can be ignored.
+ * <p>
+ * The completed broadcasts are grouped per application (IC instance). As long
+ * as an application is running, the keys of its completed broadcasts are
+ * stored explicitly, packed in a primitive set whenever possible (see
+ * {@link BroadcastKey#pack()}). Once the application is released through
+ * {@link #release(String)}, all of its keys are dropped and the application
+ * is marked as released instead. Applications are identified by increasing
+ * numeric IDs, so released IDs are folded into a low watermark: every
+ * application with an ID lower than the watermark is considered completed and
+ * any message destined for it is rejected without any further lookup. IDs
+ * that are released out of order are kept in a small set until the watermark
+ * reaches them. Non-numeric application IDs are simply remembered in a set of
+ * released applications.
+ * <p>
+ * A shard of a {@link ShardedEngine} owns every <em>S</em>-th numeric ID, so
+ * its tracker folds with a stride of <em>S</em>, starting from the index of
+ * the shard (see {@link #forShard(AbstractCommunicator)}); the numeric IDs of
+ * other shards are remembered in the set of non-numeric ones.
+ */
+public class CompletedBroadcasts {
+	
+	/**
+	 * The completed broadcasts for each application that has not been
+	 * released yet.
+	 */
+	private Map<String, CompletedPerApplication> completedPerApplication = new HashMap<>();
+	
+	/**
+	 * The distance between two consecutive numeric IDs that are folded.
+	 */
+	private final int stride;
+	
+	/**
+	 * All numeric application IDs lower than this value, and congruent to it
+	 * modulo the stride, have been released.
+	 */
+	private long lowWatermark;
+	
+	/**
+	 * The numeric application IDs that have been released, but are higher
+	 * than the current low watermark.
+	 */
+	private Set<Long> releasedAboveWatermark = new HashSet<>();
+	
+	/**
+	 * The non-numeric application IDs that have been released.
+	 */
+	private Set<String> releasedOtherApplications = new HashSet<>();
+	
+	/**
+	 * The total number of keys that are currently stored.
+	 */
+	private int totalStoredBroadcasts = 0;
+	
+	/**
+	 * Creates a tracker that folds all numeric application IDs.
+	 */
+	public CompletedBroadcasts() {
+		this(1, 0);
+	}
+	
+	/**
+	 * Creates a tracker that folds the numeric application IDs <em>base</em>,
+	 * <em>base + stride</em>, <em>base + 2 * stride</em>, etc.
+	 * 
+	 * @param stride the distance between two consecutive folded IDs.
+	 * @param base the lowest folded ID, lower than the stride.
+	 */
+	public CompletedBroadcasts(int stride, int base) {
+		if(stride < 1 || base < 0 || base >= stride)
+			throw new IllegalArgumentException("Invalid stride " + stride + " or base " + base);
+		
+		this.stride = stride;
+		this.lowWatermark = base;
+	}
+	
+	/**
+	 * Creates the tracker of a broadcast module that is being initialized on
+	 * the specified communicator. Within
+	 * {@link ShardedEngine#initializeShard(int, Runnable)}, the tracker folds
+	 * the numeric IDs of that shard; otherwise, all numeric IDs.
+	 * 
+	 * @param communicator the communicator of the broadcast module.
+	 * @return the tracker.
+	 */
+	public static CompletedBroadcasts forShard(AbstractCommunicator communicator) {
+		ShardedEngine engine = ShardedEngine.getEngine(communicator);
+		int shard = (engine == null) ? -1 : engine.getInitializingShard();
+		if(shard < 0)
+			return new CompletedBroadcasts();
+		
+		return new CompletedBroadcasts(engine.getNumShards(), shard);
+	}
+	
+	/**
+	 * Checks whether the specified broadcast has been completed.
+	 * 
+	 * @param key the key of the broadcast.
+	 * @return <em>true</em> if the broadcast has been completed, or the whole
+	 *         application has been released, <em>false</em> otherwise.
+	 */
+	public boolean contains(BroadcastKey key) {
+		if(isReleased(key.getApplicationID()))
+			return true;
+		
+		CompletedPerApplication completed = completedPerApplication.get(key.getApplicationID());
+		return completed != null && completed.contains(key);
+	}
+	
+	/**
+	 * Checks whether the broadcast of the specified message has been
+	 * completed. Contrary to {@link #contains(BroadcastKey)}, it creates no
+	 * key, unless the key cannot be packed.
+	 * 
+	 * @param message a message of the broadcast.
+	 * @return <em>true</em> if the broadcast has been completed, or the whole
+	 *         application has been released, <em>false</em> otherwise.
+	 */
+	public boolean contains(BroadcastMessage message) {
+		String applicationID = message.getApplicationID();
+		if(isReleased(applicationID))
+			return true;
+		
+		CompletedPerApplication completed = completedPerApplication.get(applicationID);
+		if(completed == null)
+			return false;
+		
+		if(BroadcastKey.isPackable(message.getNodeID(), message.getBroadcastID()))
+			return completed.packedKeys.contains(BroadcastKey.pack(message.getConsensusID(), message.getNodeID(), message.getBroadcastID()));
+		
+		return completed.contains(message.getKey());
+	}
+	
+	/**
+	 * Marks the specified broadcast as completed. Broadcasts of already
+	 * released applications are ignored.
+	 * 
+	 * @param key the key of the broadcast.
+	 */
+	public void add(BroadcastKey key) {
+		if(isReleased(key.getApplicationID()))
+			return;
+		
+		CompletedPerApplication completed = completedPerApplication.get(key.getApplicationID());
+		if(completed == null) {
+			completed = new CompletedPerApplication();
+			completedPerApplication.put(key.getApplicationID(), completed);
+		}
+		
+		if(completed.add(key))
+			++totalStoredBroadcasts;
+	}
+	
+	/**
+	 * Releases all information about the specified application. From now on,
+	 * every broadcast of this application is considered completed.
+	 * 
+	 * @param applicationID the application to be released.
+	 */
+	public void release(String applicationID) {
+		CompletedPerApplication completed = completedPerApplication.remove(applicationID);
+		if(completed != null)
+			totalStoredBroadcasts -= completed.size();
+		
+		long numericID = toFoldedID(applicationID);
+		if(numericID < 0) {
+			releasedOtherApplications.add(applicationID);
+			return;
+		}
+		
+		if(numericID < lowWatermark)
+			return;
+		
+		releasedAboveWatermark.add(numericID);
+		
+		/* Advance the watermark over all consecutive released IDs. */
+		while(releasedAboveWatermark.remove(lowWatermark))
+			lowWatermark += stride;
+	}
+	
+	/**
+	 * Checks whether the specified application has been released.
+	 * 
+	 * @param applicationID the application ID to check.
+	 * @return <em>true</em> if the application has been released, <em>false</em> otherwise.
+	 */
+	public boolean isReleased(String applicationID) {
+		long numericID = toFoldedID(applicationID);
+		if(numericID < 0)
+			return releasedOtherApplications.contains(applicationID);
+		
+		return numericID < lowWatermark || (!releasedAboveWatermark.isEmpty() && releasedAboveWatermark.contains(numericID));
+	}
+	
+	/**
+	 * Returns the current low watermark.
+	 * @return every folded application ID lower than this value has been released.
+	 */
+	public long getLowWatermark() {
+		return lowWatermark;
+	}
+	
+	/**
+	 * Returns the number of broadcast keys that are currently stored explicitly.
+	 * @return the number of broadcast keys that are currently stored explicitly.
+	 */
+	public int getTotalStoredBroadcasts() {
+		return totalStoredBroadcasts;
+	}
+	
+	/**
+	 * Returns the number of released application IDs that could not be folded
+	 * into the low watermark yet.
+	 * @return the number of released application IDs above the watermark.
+	 */
+	public int getTotalReleasedAboveWatermark() {
+		return releasedAboveWatermark.size() + releasedOtherApplications.size();
+	}
+	
+	/**
+	 * @param applicationID the application ID to parse.
+	 * @return the numeric value of the ID, or -1 if the ID is not a
+	 *         non-negative number or is not folded by this tracker.
+	 */
+	private long toFoldedID(String applicationID) {
+		long numericID = toNumericID(applicationID);
+		if(numericID < 0 || numericID % stride != lowWatermark % stride)
+			return -1;
+		
+		return numericID;
+	}
+	
+	/**
+	 * Parses the specified application ID as a non-negative number, without
+	 * throwing an exception for non-numeric IDs.
+	 * 
+	 * @param applicationID the application ID to parse.
+	 * @return the numeric value of the ID, or -1 if the ID is not a non-negative number.
+	 */
+	static long toNumericID(String applicationID) {
+		int length = applicationID.length();
+		if(length == 0 || length > 18)
+			return -1;
+		
+		long value = 0;
+		for(int i = 0; i < length; ++i) {
+			char c = applicationID.charAt(i);
+			if(c < '0' || c > '9')
+				return -1;
+			value = value * 10 + (c - '0');
+		}
+		
+		/* Only canonical representations are folded, e.g. "01" is not the same ID as "1". */
+		if(length > 1 && applicationID.charAt(0) == '0')
+			return -1;
+		
+		return value;
+	}
+	
+	/**
+	 * The completed broadcasts of a single application. Packable keys are
+	 * stored as primitive values, while all other keys are stored as is.
+	 */
+	private static class CompletedPerApplication {
+		private final LongHashSet packedKeys = new LongHashSet();
+		private Set<BroadcastKey> otherKeys = null;
+		
+		boolean contains(BroadcastKey key) {
+			if(key.isPackable())
+				return packedKeys.contains(key.pack());
+			
+			return otherKeys != null && otherKeys.contains(key);
+		}
+		
+		boolean add(BroadcastKey key) {
+			if(key.isPackable())
+				return packedKeys.add(key.pack());
+			
+			if(otherKeys == null)
+				otherKeys = new HashSet<>();
+			return otherKeys.add(key);
+		}
+		
+		int size() {
+			return packedKeys.size() + (otherKeys == null ? 0 : otherKeys.size());
+		}
+	}
+}
@@ -0,0 +1,365 @@
+/*******************************************************************************
+ * Copyright (C) 2019 DSG at University of Athens
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package gr.uoa.di.dsg.broadcast;
+
+import gr.uoa.di.dsg.communicator.AbstractCommunicator;
+import gr.uoa.di.dsg.utils.GlobalVariables;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Runs the asynchronous signing and verification work of the broadcast
+ * modules on a dedicated pool of {@link GlobalVariables#CRYPTO_THREADS}
+ * threads, in place of the background tasks of the communicator.
+ * <p>
+ * Pending tasks are served by priority: the verification of final messages
+ * comes first, since a verified certificate completes a broadcast, then the
+ * verification of echoes and, last, the signing of new echoes. The queue is
+ * bounded by {@link GlobalVariables#CRYPTO_QUEUE_CAPACITY}: the tasks of
+ * running broadcasts are always accepted, but once the queue is full the
+ * broadcast modules hold back new broadcasts until it has drained to half of
+ * its capacity (see {@link #isSaturated()} and {@link #onDrained(Runnable)}).
+ * <p>
+ * For every priority, the executor keeps a histogram of the time that tasks
+ * wait in the queue and of the time they take to run, which tells whether a
+ * node is bound by its cryptographic work or by the network (see
+ * {@link #report()}). All broadcast modules that share a communicator also
+ * share its executor.
+ */
+public class CryptoExecutor {
+
+	/**
+	 * The priorities of the tasks, from the most urgent to the least.
+	 */
+	public enum Priority {
+		VERIFY_FINAL,
+		VERIFY_ECHO,
+		SIGN_ECHO
+	}
+
+	/**
+	 * A histogram of durations, with power-of-two buckets in microseconds.
+	 */
+	public static class Histogram {
+		private static final int BUCKETS = 32;
+
+		private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+		private final AtomicLong count = new AtomicLong();
+		private final AtomicLong totalNanos = new AtomicLong();
+		private final AtomicLong maxNanos = new AtomicLong();
+
+		/**
+		 * Records a duration.
+		 * 
+		 * @param nanos
+		 *            the duration, in nanoseconds.
+		 */
+		public void record(long nanos) {
+			long micros = Math.max(nanos / 1000, 0);
+			int bucket = Math.min(64 - Long.numberOfLeadingZeros(micros), BUCKETS - 1);
+
+			buckets.incrementAndGet(bucket);
+			count.incrementAndGet();
+			totalNanos.addAndGet(nanos);
+			maxNanos.accumulateAndGet(nanos, Math::max);
+		}
+
+		/**
+		 * @return the number of recorded durations.
+		 */
+		public long getCount() {
+			return count.get();
+		}
+
+		/**
+		 * @return the mean of the recorded durations, in microseconds.
+		 */
+		public double getMean() {
+			long total = count.get();
+			return (total == 0) ? 0 : totalNanos.get() / 1000.0 / total;
+		}
+
+		/**
+		 * @return the longest recorded duration, in microseconds.
+		 */
+		public double getMax() {
+			return maxNanos.get() / 1000.0;
+		}
+
+		/**
+		 * @param percentile
+		 *            a percentile, between 0 and 100.
+		 * @return an upper bound of the percentile, in microseconds, i.e. the
+		 *         upper end of the bucket that contains it.
+		 */
+		public long getPercentile(double percentile) {
+			long target = (long) Math.ceil(count.get() * percentile / 100.0);
+			long seen = 0;
+
+			for(int i = 0; i < BUCKETS; ++i) {
+				seen += buckets.get(i);
+				if(seen >= target && seen > 0)
+					return (1L << i) - 1;
+			}
+
+			return 0;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("count=%d, mean=%.1fus, p50<=%dus, p99<=%dus, max=%.1fus", getCount(), getMean(), getPercentile(50), getPercentile(99), getMax());
+		}
+	}
+
+	/**
+	 * A task along with its priority, ordered by priority and then by
+	 * submission.
+	 */
+	private class PrioritizedTask implements Runnable, Comparable<PrioritizedTask> {
+		private final Priority priority;
+		private final long sequence;
+		private final long submitTime = System.nanoTime();
+		private final Runnable task;
+
+		PrioritizedTask(Priority priority, long sequence, Runnable task) {
+			this.priority = priority;
+			this.sequence = sequence;
+			this.task = task;
+		}
+
+		@Override
+		public void run() {
+			long start = System.nanoTime();
+			queueWait[priority.ordinal()].record(start - submitTime);
+			onDequeued();
+
+			try {
+				task.run();
+			}
+			catch (Throwable ex) {
+				System.err.println("An exception " + ex.getClass() + " was caught: " + ex.getMessage());
+				ex.printStackTrace();
+			}
+			finally {
+				serviceTime[priority.ordinal()].record(System.nanoTime() - start);
+			}
+		}
+
+		@Override
+		public int compareTo(PrioritizedTask other) {
+			if(priority != other.priority)
+				return priority.compareTo(other.priority);
+
+			return Long.compare(sequence, other.sequence);
+		}
+	}
+
+	/**
+	 * The executor of each communicator.
+	 */
+	private static Map<AbstractCommunicator, CryptoExecutor> executors = new WeakHashMap<>();
+
+	/**
+	 * The threads that run the tasks.
+	 */
+	private final ThreadPoolExecutor pool;
+
+	/**
+	 * The maximum number of queued tasks before new broadcasts are held back.
+	 */
+	private final int capacity;
+
+	/**
+	 * The number of queued tasks.
+	 */
+	private final AtomicInteger queued = new AtomicInteger();
+
+	/**
+	 * The order of submission of the tasks.
+	 */
+	private final AtomicLong sequence = new AtomicLong();
+
+	/**
+	 * The time spent in the queue, by priority.
+	 */
+	private final Histogram[] queueWait = new Histogram[Priority.values().length];
+
+	/**
+	 * The time spent running, by priority.
+	 */
+	private final Histogram[] serviceTime = new Histogram[Priority.values().length];
+
+	/**
+	 * The callbacks to run once the queue has drained.
+	 */
+	private final List<Runnable> drainListeners = new ArrayList<>();
+
+	/**
+	 * Creates an executor.
+	 * 
+	 * @param threads
+	 *            the number of threads.
+	 * @param capacity
+	 *            the number of queued tasks above which the executor is
+	 *            saturated.
+	 */
+	public CryptoExecutor(int threads, int capacity) {
+		this.capacity = capacity;
+		for(int i = 0; i < queueWait.length; ++i) {
+			queueWait[i] = new Histogram();
+			serviceTime[i] = new Histogram();
+		}
+
+		AtomicInteger threadCounter = new AtomicInteger();
+		this.pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<Runnable>(), (Runnable r) -> {
+			Thread thread = new Thread(r, "crypto-" + threadCounter.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * @param communicator
+	 *            a communicator.
+	 * @return the executor of the communicator, created upon its first use,
+	 *         or <em>null</em> if the background tasks of the communicator are
+	 *         used instead.
+	 */
+	public static synchronized CryptoExecutor getExecutor(AbstractCommunicator communicator) {
+		if(GlobalVariables.CRYPTO_THREADS <= 0)
+			return null;
+
+		CryptoExecutor executor = executors.get(communicator);
+		if(executor == null) {
+			executor = new CryptoExecutor(GlobalVariables.CRYPTO_THREADS, GlobalVariables.CRYPTO_QUEUE_CAPACITY);
+			executors.put(communicator, executor);
+		}
+
+		return executor;
+	}
+
+	/**
+	 * Queues a task. Tasks are never refused, since they belong to broadcasts
+	 * that are already running.
+	 * 
+	 * @param priority
+	 *            the priority of the task.
+	 * @param task
+	 *            the task.
+	 */
+	public void execute(Priority priority, Runnable task) {
+		queued.incrementAndGet();
+		pool.execute(new PrioritizedTask(priority, sequence.getAndIncrement(), task));
+	}
+
+	/**
+	 * @return <em>true</em> if the queue is full and new broadcasts must be
+	 *         held back.
+	 */
+	public boolean isSaturated() {
+		return queued.get() >= capacity;
+	}
+
+	/**
+	 * Registers a callback to run, once, on a thread of the executor as soon
+	 * as the queue has drained to half of its capacity. If the queue has
+	 * already drained, the callback runs immediately.
+	 * 
+	 * @param listener
+	 *            the callback.
+	 */
+	public void onDrained(Runnable listener) {
+		synchronized (drainListeners) {
+			if(queued.get() > capacity / 2) {
+				drainListeners.add(listener);
+				return;
+			}
+		}
+
+		listener.run();
+	}
+
+	private void onDequeued() {
+		if(queued.decrementAndGet() > capacity / 2)
+			return;
+
+		List<Runnable> listeners;
+		synchronized (drainListeners) {
+			if(drainListeners.isEmpty())
+				return;
+
+			listeners = new ArrayList<>(drainListeners);
+			drainListeners.clear();
+		}
+
+		for(Runnable listener: listeners)
+			listener.run();
+	}
+
+	/**
+	 * @return the number of queued tasks.
+	 */
+	public int getQueueDepth() {
+		return queued.get();
+	}
+
+	/**
+	 * @return the histogram of the time that tasks of the priority wait in
+	 *         the queue.
+	 */
+	public Histogram getQueueWait(Priority priority) {
+		return queueWait[priority.ordinal()];
+	}
+
+	/**
+	 * @return the histogram of the time that tasks of the priority take to
+	 *         run.
+	 */
+	public Histogram getServiceTime(Priority priority) {
+		return serviceTime[priority.ordinal()];
+	}
+
+	/**
+	 * @return a summary of the queue depth and of the histograms of every
+	 *         priority.
+	 */
+	public String report() {
+		StringBuilder builder = new StringBuilder("[CryptoExecutor]: queue depth " + getQueueDepth() + "\n");
+		for(Priority priority: Priority.values()) {
+			builder.append("  ").append(priority).append(" wait: ").append(getQueueWait(priority)).append("\n");
+			builder.append("  ").append(priority).append(" service: ").append(getServiceTime(priority)).append("\n");
+		}
+
+		return builder.toString();
+	}
+
+	/**
+	 * Stops the threads of the executor.
+	 */
+	public void shutdown() {
+		pool.shutdownNow();
+	}
+}
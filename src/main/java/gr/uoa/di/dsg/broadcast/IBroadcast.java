@@ -80,4 +80,15 @@ public interface IBroadcast {
 	 * @return The instance of Communicator that is used for message dispatching
 	 */
 	public AbstractCommunicator getCommunicator();
+	
+	/**
+	 * The releaseApplication function is invoked once an application has
+	 * finished and its broadcasts are no longer needed by any node. It drops
+	 * all the information kept for that application, while any late message
+	 * destined for it is still ignored.
+	 * 
+	 * @param icid
+	 *            The application id to be released
+	 */
+	public void releaseApplication(String icid);
 }
@@ -0,0 +1,262 @@
+/*******************************************************************************
+ * Copyright (C) 2019 DSG at University of Athens
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package gr.uoa.di.dsg.broadcast;
+
+import gr.uoa.di.dsg.communicator.AbstractCommunicator;
+import gr.uoa.di.dsg.communicator.Message;
+import gr.uoa.di.dsg.communicator.Node;
+import gr.uoa.di.dsg.utils.GlobalVariables;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Batches the messages that the broadcast modules send through a communicator.
+ * The messages bound for the same group, or the same node, are collected for
+ * up to {@link GlobalVariables#BATCH_WINDOW} milliseconds, or until they
+ * exceed {@link GlobalVariables#BATCH_SIZE} bytes, and are then sent as a
+ * single {@link BatchMessage}. Upon receipt, the batch is unpacked and every
+ * message is handed to the handler it was registered with.
+ * <p>
+ * Batching is disabled when BATCH_WINDOW is zero. Otherwise, all broadcast
+ * modules that share a communicator also share its batcher, so that the steps
+ * of different instances and different broadcast primitives travel together.
+ * On a sharded node, the event loops of all shards share the batcher.
+ */
+public class MessageBatcher {
+
+	/**
+	 * Re-creates a message from binary data.
+	 */
+	public interface Deserializer {
+		public Message deserialize(byte[] data);
+	}
+
+	/**
+	 * Handles a message received from a node.
+	 */
+	public interface Handler {
+		public void handle(Message msg, Node source);
+	}
+
+	/**
+	 * The messages collected for a single destination.
+	 */
+	private class PendingBatch {
+		private List<Integer> types = new ArrayList<>();
+		private List<byte[]> messages = new ArrayList<>();
+		private int size = 0;
+		private Object timeout = null;
+		private String group = null;
+		private Node node = null;
+	}
+
+	/**
+	 * The batcher of each communicator.
+	 */
+	private static Map<AbstractCommunicator, MessageBatcher> batchers = new WeakHashMap<>();
+
+	/**
+	 * The communicator instance
+	 */
+	private AbstractCommunicator communicator = null;
+
+	/**
+	 * The deserializers of the messages that may be part of a batch, by type.
+	 */
+	private Map<Integer, Deserializer> deserializers = new HashMap<>();
+
+	/**
+	 * The handlers of the messages that may be part of a batch, by type.
+	 */
+	private Map<Integer, Handler> handlers = new HashMap<>();
+
+	/**
+	 * The messages collected for each group.
+	 */
+	private Map<String, PendingBatch> groupBatches = new HashMap<>();
+
+	/**
+	 * The messages collected for each node.
+	 */
+	private Map<Integer, PendingBatch> nodeBatches = new HashMap<>();
+
+	private MessageBatcher(AbstractCommunicator communicator) {
+		this.communicator = communicator;
+		communicator.registerMessage(BatchMessageType.BATCH.getValue(), (byte[] data) -> BatchMessage.deserialize(data), (Message msg, Node source) -> onBatchMessage((BatchMessage) msg, source));
+	}
+
+	/**
+	 * @param communicator
+	 *            a communicator.
+	 * @return the batcher of the communicator, created upon its first use, or
+	 *         <em>null</em> if batching is disabled.
+	 */
+	public static synchronized MessageBatcher getBatcher(AbstractCommunicator communicator) {
+		if(GlobalVariables.BATCH_WINDOW <= 0)
+			return null;
+
+		MessageBatcher batcher = batchers.get(communicator);
+		if(batcher == null) {
+			batcher = new MessageBatcher(communicator);
+			batchers.put(communicator, batcher);
+		}
+		return batcher;
+	}
+
+	/**
+	 * Registers a message with the communicator and, if batching is enabled,
+	 * with the batcher of the communicator, so that the message is also
+	 * handled when it arrives as part of a batch. On a sharded node, the
+	 * handler runs on the event loop of the {@link ShardedEngine} that owns the
+	 * application of the message.
+	 * 
+	 * @param communicator
+	 *            the communicator.
+	 * @param type
+	 *            the type of the message.
+	 * @param deserializer
+	 *            the deserializer of the message.
+	 * @param handler
+	 *            the handler of the message.
+	 */
+	public static void registerMessage(AbstractCommunicator communicator, int type, Deserializer deserializer, Handler handler) {
+		/* On a sharded node, the message is handed to the event loop that owns its application. */
+		ShardedEngine engine = ShardedEngine.getEngine(communicator);
+		if(engine != null)
+			handler = engine.route(type, handler);
+		
+		final Handler registeredHandler = handler;
+		communicator.registerMessage(type, (byte[] data) -> deserializer.deserialize(data), (Message msg, Node source) -> registeredHandler.handle(msg, source));
+
+		MessageBatcher batcher = getBatcher(communicator);
+		if(batcher != null) {
+			batcher.deserializers.put(type, deserializer);
+			batcher.handlers.put(type, registeredHandler);
+		}
+	}
+
+	/**
+	 * Adds a message to the batch of a group.
+	 * 
+	 * @param group
+	 *            the group that the message is bound for.
+	 * @param msg
+	 *            the message.
+	 */
+	public synchronized void sendGroup(String group, Message msg) {
+		PendingBatch batch = groupBatches.get(group);
+		if(batch == null) {
+			batch = new PendingBatch();
+			batch.group = group;
+			groupBatches.put(group, batch);
+		}
+		add(batch, msg);
+	}
+
+	/**
+	 * Adds a message to the batch of a node.
+	 * 
+	 * @param node
+	 *            the node that the message is bound for.
+	 * @param msg
+	 *            the message.
+	 */
+	public synchronized void send(Node node, Message msg) {
+		PendingBatch batch = nodeBatches.get(node.getNodeId());
+		if(batch == null) {
+			batch = new PendingBatch();
+			batch.node = node;
+			nodeBatches.put(node.getNodeId(), batch);
+		}
+		add(batch, msg);
+	}
+
+	/**
+	 * Sends all collected messages.
+	 */
+	public synchronized void flush() {
+		for(PendingBatch batch : groupBatches.values())
+			flush(batch);
+		for(PendingBatch batch : nodeBatches.values())
+			flush(batch);
+	}
+
+	private void add(PendingBatch batch, Message msg) {
+		byte[] data = msg.serialize();
+		batch.types.add(msg.getType());
+		batch.messages.add(data);
+		batch.size += data.length;
+
+		if(batch.size >= GlobalVariables.BATCH_SIZE)
+			flush(batch);
+		else if(batch.timeout == null)
+			batch.timeout = communicator.setTimeout(GlobalVariables.BATCH_WINDOW, () -> onTimeout(batch));
+	}
+
+	private synchronized void onTimeout(PendingBatch batch) {
+		batch.timeout = null;
+		flush(batch);
+	}
+
+	private void flush(PendingBatch batch) {
+		if(batch.timeout != null) {
+			communicator.cancelTimeout(batch.timeout);
+			batch.timeout = null;
+		}
+
+		if(batch.types.isEmpty())
+			return;
+
+		BatchMessage msg = new BatchMessage(batch.types, batch.messages);
+		batch.types = new ArrayList<>();
+		batch.messages = new ArrayList<>();
+		batch.size = 0;
+
+		if(batch.group != null)
+			communicator.sendGroup(batch.group, msg);
+		else
+			communicator.send(batch.node, msg);
+	}
+
+	/**
+	 * The handler of the batches. Every message of the batch is deserialized
+	 * and handed to its handler, in the order that it was sent.
+	 * 
+	 * @param batch
+	 *            the batch.
+	 * @param source
+	 *            the sender of the batch.
+	 */
+	private void onBatchMessage(BatchMessage batch, Node source) {
+		for(int i = 0; i < batch.getTypes().size(); ++i) {
+			int type = batch.getTypes().get(i);
+			Deserializer deserializer = deserializers.get(type);
+			if(deserializer == null) {
+				System.err.println("[MessageBatcher, Node: " + communicator.getCurrentNode().getNodeId() + "]: Ignoring a batched message of unknown type " + type + " from Node " + source.getNodeId());
+				continue;
+			}
+
+			Message msg = deserializer.deserialize(batch.getMessages().get(i));
+			if(msg != null)
+				handlers.get(type).handle(msg, source);
+		}
+	}
+}
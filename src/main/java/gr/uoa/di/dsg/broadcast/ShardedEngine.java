@@ -0,0 +1,276 @@
+/*******************************************************************************
+ * Copyright (C) 2019 DSG at University of Athens
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package gr.uoa.di.dsg.broadcast;
+
+import gr.uoa.di.dsg.communicator.AbstractCommunicator;
+import gr.uoa.di.dsg.communicator.AsynchronousTaskResultMessage;
+import gr.uoa.di.dsg.communicator.Message;
+import gr.uoa.di.dsg.communicator.Node;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Partitions the protocol state of a node across a number of event loops, by
+ * hashing the application identifier of every message. Each event loop is a
+ * single thread that owns its own broadcast modules and applications, so the
+ * protocol classes stay free of locks, while distinct instances run on
+ * distinct cores.
+ * <p>
+ * The modules of a shard are initialized inside
+ * {@link #initializeShard(int, Runnable)}. The messages that they register
+ * through {@link MessageBatcher#registerMessage} are then deserialized by the
+ * dispatch thread of the communicator and handed to the event loop that owns
+ * the application of the message. Timeouts that are set from within an event
+ * loop must be wrapped with {@link #bind(Runnable)}, so that they fire on the
+ * same event loop.
+ */
+public class ShardedEngine {
+
+	/**
+	 * The engine of each communicator.
+	 */
+	private static Map<AbstractCommunicator, ShardedEngine> engines = new WeakHashMap<>();
+
+	/**
+	 * The event loop that the current thread belongs to, if any.
+	 */
+	private static final ThreadLocal<ExecutorService> currentLoop = new ThreadLocal<>();
+
+	/**
+	 * The communicator instance
+	 */
+	private AbstractCommunicator communicator = null;
+
+	/**
+	 * The event loops, one per shard.
+	 */
+	private ExecutorService[] loops = null;
+
+	/**
+	 * The handler of each shard, by message type.
+	 */
+	private Map<Integer, MessageBatcher.Handler[]> handlers = new HashMap<>();
+
+	/**
+	 * The shard whose modules are being initialized, or -1.
+	 */
+	private int initializingShard = -1;
+
+	private ShardedEngine(AbstractCommunicator communicator, int numShards) {
+		this.communicator = communicator;
+		this.loops = new ExecutorService[numShards];
+		for(int i = 0; i < numShards; ++i) {
+			final int shard = i;
+			loops[i] = Executors.newSingleThreadExecutor((Runnable r) -> {
+				Thread thread = new Thread(() -> {
+					currentLoop.set(loops[shard]);
+					r.run();
+				}, "Shard-" + communicator.getCurrentNode().getNodeId() + "-" + shard);
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+	}
+
+	/**
+	 * Creates the engine of a communicator.
+	 * 
+	 * @param communicator
+	 *            the communicator.
+	 * @param numShards
+	 *            the number of event loops.
+	 * @return the engine of the communicator.
+	 */
+	public static synchronized ShardedEngine createEngine(AbstractCommunicator communicator, int numShards) {
+		if(engines.containsKey(communicator))
+			throw new IllegalStateException("A sharded engine already exists for the communicator");
+
+		ShardedEngine engine = new ShardedEngine(communicator, numShards);
+		engines.put(communicator, engine);
+		return engine;
+	}
+
+	/**
+	 * @param communicator
+	 *            a communicator.
+	 * @return the engine of the communicator, or <em>null</em> if the node is
+	 *         not sharded.
+	 */
+	public static synchronized ShardedEngine getEngine(AbstractCommunicator communicator) {
+		return engines.get(communicator);
+	}
+
+	/**
+	 * @return <em>true</em> if the current thread is the event loop of a
+	 *         shard.
+	 */
+	public static boolean inShard() {
+		return currentLoop.get() != null;
+	}
+
+	/**
+	 * Binds a task to the event loop of the current thread. The returned task
+	 * may be run by any thread, e.g. as a timeout of the communicator, and runs
+	 * the original task on the event loop. Outside of an event loop, the task
+	 * is returned as is.
+	 * 
+	 * @param task
+	 *            the task.
+	 * @return the bound task.
+	 */
+	public static Runnable bind(Runnable task) {
+		ExecutorService loop = currentLoop.get();
+		if(loop == null)
+			return task;
+
+		return () -> loop.execute(guard(task));
+	}
+
+	/**
+	 * @return the number of shards.
+	 */
+	public int getNumShards() {
+		return loops.length;
+	}
+
+	/**
+	 * Numeric application IDs are assigned round-robin, so that each shard
+	 * owns a run of IDs with a fixed stride and its completed broadcasts fold
+	 * into a low watermark (see {@link CompletedBroadcasts#forShard(AbstractCommunicator)}).
+	 * Any other ID is assigned by its hash code.
+	 * 
+	 * @param applicationID
+	 *            an application identifier.
+	 * @return the shard that owns the application.
+	 */
+	public int getShard(String applicationID) {
+		long numericID = CompletedBroadcasts.toNumericID(applicationID);
+		if(numericID >= 0)
+			return (int) (numericID % loops.length);
+		
+		return Math.floorMod(applicationID.hashCode(), loops.length);
+	}
+	
+	/**
+	 * @return the shard whose modules are being initialized by the current
+	 *         call of {@link #initializeShard(int, Runnable)}, or -1 if none.
+	 */
+	public synchronized int getInitializingShard() {
+		return initializingShard;
+	}
+
+	/**
+	 * Initializes the modules of a shard. The messages registered by the
+	 * modules during the initialization are routed to the shard.
+	 * 
+	 * @param shard
+	 *            the shard.
+	 * @param initializer
+	 *            the initialization of the modules.
+	 */
+	public synchronized void initializeShard(int shard, Runnable initializer) {
+		initializingShard = shard;
+		try {
+			initializer.run();
+		}
+		finally {
+			initializingShard = -1;
+		}
+	}
+
+	/**
+	 * Records the handler of a message for the shard being initialized.
+	 * 
+	 * @param type
+	 *            the type of the message.
+	 * @param handler
+	 *            the handler of the message.
+	 * @return a handler that hands every message to the handler of the shard
+	 *         that owns the application of the message, or the given handler
+	 *         if no shard is being initialized.
+	 */
+	public synchronized MessageBatcher.Handler route(int type, MessageBatcher.Handler handler) {
+		if(initializingShard < 0)
+			return handler;
+
+		MessageBatcher.Handler[] shardHandlers = handlers.get(type);
+		if(shardHandlers == null) {
+			shardHandlers = new MessageBatcher.Handler[loops.length];
+			handlers.put(type, shardHandlers);
+		}
+		shardHandlers[initializingShard] = handler;
+
+		final MessageBatcher.Handler[] routes = shardHandlers;
+		return (Message msg, Node source) -> {
+			int shard = getShard(msg.getApplicationID());
+			MessageBatcher.Handler shardHandler = routes[shard];
+			if(shardHandler == null) {
+				System.err.println("[ShardedEngine, Node: " + communicator.getCurrentNode().getNodeId() + "]: No handler for message type " + type + " in shard " + shard);
+				return;
+			}
+			loops[shard].execute(guard(() -> shardHandler.handle(msg, source)));
+		};
+	}
+
+	/**
+	 * Runs a task on the event loop that owns an application.
+	 * 
+	 * @param applicationID
+	 *            the application.
+	 * @param task
+	 *            the task.
+	 */
+	public void execute(String applicationID, Runnable task) {
+		loops[getShard(applicationID)].execute(guard(task));
+	}
+
+	/**
+	 * Runs a task on the dispatch thread of the communicator, e.g. for
+	 * updating state that all shards share.
+	 * 
+	 * @param task
+	 *            the task.
+	 */
+	public void executeOnDispatcher(Runnable task) {
+		communicator.inputEnqueue(communicator.getCurrentNode(),
+				new AsynchronousTaskResultMessage("shardTask", "", Message.DEFAULT_SUBJECT, System.currentTimeMillis(), communicator.getCurrentMessageOrder(), task));
+	}
+
+	/**
+	 * Stops all event loops.
+	 */
+	public void shutdown() {
+		for(ExecutorService loop : loops)
+			loop.shutdown();
+	}
+
+	private static Runnable guard(Runnable task) {
+		return () -> {
+			try {
+				task.run();
+			}
+			catch(RuntimeException ex) {
+				System.err.println("A " + ex.getClass().getSimpleName() + " was caught in a shard: " + ex.getMessage());
+				ex.printStackTrace();
+			}
+		};
+	}
+}
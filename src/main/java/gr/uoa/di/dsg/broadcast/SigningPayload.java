@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright (C) 2019 DSG at University of Athens
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package gr.uoa.di.dsg.broadcast;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The canonical binary encoding of the content that the nodes sign for a
+ * broadcast: the length-prefixed UTF-8 bytes of the application ID, the
+ * consensus, process and broadcast IDs as fixed-width integers and, finally,
+ * the length-prefixed UTF-8 bytes of the value. Unlike the concatenation of
+ * {@link BroadcastMessage#getUUID()} with the value, the encoding does not
+ * depend on the platform charset and is written straight into a buffer that
+ * each thread reuses, without any intermediate copy of the value.
+ * 
+ * The returned buffer is only valid until the next encoding on the same
+ * thread; it must be consumed (or copied) by the thread that requested it.
+ */
+public class SigningPayload {
+	
+	/**
+	 * The initial capacity of the buffer of each thread.
+	 */
+	private final static int INITIAL_CAPACITY = 4 * 1024;
+	
+	private final static ThreadLocal<ByteBuffer> buffers = ThreadLocal.withInitial(() -> ByteBuffer.allocate(INITIAL_CAPACITY));
+	
+	private final static ThreadLocal<CharsetEncoder> encoders = ThreadLocal.withInitial(() -> StandardCharsets.UTF_8.newEncoder());
+	
+	/**
+	 * Encodes the content signed for a broadcast.
+	 * 
+	 * @param applicationID the ID of the application.
+	 * @param consensusID the ID of the consensus instance.
+	 * @param nodeID the original sender of the broadcast.
+	 * @param broadcastID the ID of the broadcast.
+	 * @param value the broadcast value.
+	 * @return a read-only buffer with the encoded content, positioned at its
+	 *         start.
+	 */
+	public static ByteBuffer encode(String applicationID, int consensusID, int nodeID, int broadcastID, String value) {
+		CharsetEncoder encoder = encoders.get();
+		int maxLength = 4 * Integer.BYTES + 2 * Integer.BYTES
+				+ (int) Math.ceil(encoder.maxBytesPerChar() * ((long) applicationID.length() + value.length()));
+		
+		ByteBuffer buffer = buffers.get();
+		if(buffer.capacity() < maxLength) {
+			buffer = ByteBuffer.allocate(Math.max(maxLength, 2 * buffer.capacity()));
+			buffers.set(buffer);
+		}
+		
+		buffer.clear();
+		putString(buffer, encoder, applicationID);
+		buffer.putInt(consensusID).putInt(nodeID).putInt(broadcastID);
+		putString(buffer, encoder, value);
+		buffer.flip();
+		
+		return buffer.asReadOnlyBuffer();
+	}
+	
+	/**
+	 * @return a copy of the encoded content, which remains valid after
+	 *         further encodings.
+	 */
+	public static byte[] toByteArray(ByteBuffer payload) {
+		byte[] data = new byte[payload.remaining()];
+		payload.duplicate().get(data);
+		
+		return data;
+	}
+	
+	private static void putString(ByteBuffer buffer, CharsetEncoder encoder, String value) {
+		int lengthPosition = buffer.position();
+		buffer.position(lengthPosition + Integer.BYTES);
+		
+		encoder.reset();
+		CoderResult result = encoder.encode(CharBuffer.wrap(value), buffer, true);
+		if(!result.isUnderflow() || !encoder.flush(buffer).isUnderflow())
+			throw new IllegalStateException("[SigningPayload]: The value couldn't be encoded!");
+		
+		buffer.putInt(lengthPosition, buffer.position() - lengthPosition - Integer.BYTES);
+	}
+}
@@ -0,0 +1,413 @@
+/*******************************************************************************
+ * Copyright (C) 2019 DSG at University of Athens
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package gr.uoa.di.dsg.broadcast.avid;
+
+import gr.uoa.di.dsg.broadcast.ActiveBroadcasts;
+import gr.uoa.di.dsg.broadcast.BroadcastAccept;
+import gr.uoa.di.dsg.broadcast.BroadcastMessage;
+import gr.uoa.di.dsg.broadcast.CompletedBroadcasts;
+import gr.uoa.di.dsg.broadcast.IBroadcast;
+import gr.uoa.di.dsg.broadcast.MessageBatcher;
+import gr.uoa.di.dsg.communicator.AbstractCommunicator;
+import gr.uoa.di.dsg.communicator.Message;
+import gr.uoa.di.dsg.communicator.Node;
+import gr.uoa.di.dsg.ic.ApplicationGetter;
+import gr.uoa.di.dsg.utils.GlobalVariables;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * An erasure-coded reliable broadcast, in the spirit of the asynchronous
+ * verifiable information dispersal (AVID) of Cachin and Tessaro. Instead of
+ * echoing the whole value, every node echoes a single fragment of it.
+ * <p>
+ * The outline of the broadcast primitive is roughly as follows:
+ * <ul>
+ * <li>The sender encodes the value into <em>n</em> fragments with a
+ * {@link ReedSolomonCodec}, so that any <em>n - 2f</em> of them rebuild the
+ * value. It then builds a {@link MerkleTree} over the fragments and sends to
+ * each node its own fragment along with the root and the proof of the
+ * fragment (<em>Disperse</em>).</li>
+ * <li>Each node that receives a valid fragment for its own position echoes it,
+ * along with the root and the proof, to all nodes (<em>Echo</em>).</li>
+ * <li>Each node that has gathered <em>n - f</em> valid Echo messages or
+ * <em>f + 1</em> Ready messages for a root sends a <em>Ready</em> message for
+ * that root.</li>
+ * <li>After gathering <em>2f + 1</em> Ready messages and <em>n - 2f</em> valid
+ * fragments for a root, a node rebuilds the value and concludes the
+ * broadcast.</li>
+ * </ul>
+ * The rebuilt value is encoded again and its root is compared against the
+ * delivered root. A mismatch reveals a faulty sender that dispersed fragments
+ * of no single value; no correct node delivers such a broadcast.
+ */
+public class AVIDBroadcast implements IBroadcast
+{
+	/**
+	 * The total number of nodes in the system
+	 */
+	private int numNodes = 0;
+	
+	/**
+	 * The number of total tolerated faults. This is calculated by a simple formula: (numNodes - 1)/3
+	 */
+	private int toleratedFaults = 0;
+
+	/**
+	 * The communicator instance
+	 */
+	private transient AbstractCommunicator communicator = null;
+
+	/**
+	 * The applicationGetter instance
+	 */
+	private transient ApplicationGetter applicationGetter = null;
+	
+	/**
+	 * A map that stores all the active broadcasts.
+	 */
+	private ActiveBroadcasts<AVIDBroadcastState> activeBroadcasts = null;
+	
+	/**
+	 * The set of broadcast that have been completed. This structure is used for
+	 * ignoring messages destined for already completed broadcasts.
+	 */
+	private CompletedBroadcasts completedBroadcasts = null;
+	
+	/**
+	 * The communication group that this broadcast module belongs.
+	 */
+	private String nodeGroup = null;
+	
+	/**
+	 * The erasure code of the values; n - 2f out of n fragments rebuild a value.
+	 */
+	private ReedSolomonCodec codec = null;
+	
+	/**
+	 * The message digest used for the Merkle trees.
+	 */
+	private MessageDigest messageDigest = null;
+
+	/**
+	 * The batcher of the communicator, or <em>null</em> if batching is disabled.
+	 */
+	private MessageBatcher batcher = null;
+
+	/**
+	 * Constructor for proper initialization
+	 */
+	public AVIDBroadcast() {}
+	
+	/**
+	 * The initialize function of the IBroadcast interface. It is used for
+	 * registering a series of message handlers to the communicator for the
+	 * deserialization and handling of messages.
+	 */
+	@Override
+	public void initialize(AbstractCommunicator comm, ApplicationGetter appCr, String nodeGroup, int numNodes)
+	{
+		MessageBatcher.registerMessage(comm, AVIDMessageType.DISPERSE.getValue(), (byte[] data) -> AVIDFragmentMessage.deserialize(data, AVIDMessageType.DISPERSE) , (Message msg, Node source) -> OnDisperseMessage((AVIDFragmentMessage)msg, source));
+		MessageBatcher.registerMessage(comm, AVIDMessageType.ECHO.getValue(), (byte[] data) -> AVIDFragmentMessage.deserialize(data, AVIDMessageType.ECHO) , (Message msg, Node source) -> OnEchoMessage((AVIDFragmentMessage)msg, source));
+		MessageBatcher.registerMessage(comm, AVIDMessageType.READY.getValue(), (byte[] data) -> AVIDReadyMessage.deserialize(data) , (Message msg, Node source) -> OnReadyMessage((AVIDReadyMessage)msg, source));
+		
+		this.communicator = comm;
+		this.batcher = MessageBatcher.getBatcher(comm);
+		this.applicationGetter = appCr;
+		this.nodeGroup = nodeGroup;
+		this.numNodes = numNodes;
+		
+		this.toleratedFaults = (this.numNodes - 1)/3;
+		this.activeBroadcasts = new ActiveBroadcasts<>();
+		this.completedBroadcasts = CompletedBroadcasts.forShard(comm);
+		this.codec = new ReedSolomonCodec(this.numNodes - 2 * this.toleratedFaults, this.numNodes);
+		
+		try {
+			this.messageDigest = MessageDigest.getInstance(GlobalVariables.DIGEST_ALGORITHM);
+		}
+		catch (NoSuchAlgorithmException ex) {
+			System.err.println("[AVIDBroadcast, Node: " + comm.getCurrentNode().getNodeId() + "]: Caught a NoSuchAlgorithmException while attempting to get an instance of the SHA-256 message digest algorithm!");
+			ex.printStackTrace();
+		}
+	}
+	
+	/**
+	 * The broadcast function of the IBroadcast interface. It encodes the value
+	 * and disperses one fragment to each node of the group.
+	 */
+	@Override
+	public void broadcast(String icid, int cid, int pid, int bid, String value)
+	{
+		byte[][] fragments = codec.encode(value.getBytes(StandardCharsets.UTF_8));
+		MerkleTree tree = new MerkleTree(fragments, messageDigest);
+		byte[] root = tree.getRoot();
+		
+		if(GlobalVariables.HIGH_VERBOSE)
+			System.out.println("[AVIDBroadcast, Node: " + pid + "]: Starting a broadcast for <" + icid + ", " + cid + ", " + pid + ", " + bid + "> in " + fragments.length + " fragments of " + fragments[0].length + " bytes");
+		
+		int currentNodeID = this.communicator.getCurrentNode().getNodeId();
+		for(Integer nodeID : this.communicator.getNodeIDsOfGroup(nodeGroup))
+		{
+			if(nodeID < 0 || nodeID >= this.numNodes)
+				continue;
+			
+			Node node = (nodeID == currentNodeID) ? this.communicator.getCurrentNode() : this.communicator.getOtherNode(nodeID);
+			send(node, new AVIDFragmentMessage(AVIDMessageType.DISPERSE, icid, cid, pid, bid, root, nodeID, fragments[nodeID], tree.getProof(nodeID)));
+		}
+	}
+
+	/**
+	 * The releaseApplication function of the IBroadcast interface. It folds the
+	 * completed broadcasts of the application into the low watermark and drops
+	 * any broadcast of the application that is still active.
+	 */
+	@Override
+	public void releaseApplication(String icid)
+	{
+		this.completedBroadcasts.release(icid);
+		this.activeBroadcasts.release(icid);
+	}
+	
+	/**
+	 * The handler of the Disperse messages. In case the message comes from the
+	 * sender of the broadcast and carries a valid fragment for the position of
+	 * this node, the node echoes the fragment to all nodes. Any subsequent
+	 * Disperse message of the broadcast is ignored.
+	 * 
+	 * @param msg
+	 *            The actual Disperse message to be processed.
+	 * @param source
+	 *            The sender of that message.
+	 */
+	public void OnDisperseMessage(AVIDFragmentMessage msg, Node source)
+	{
+		if(GlobalVariables.HIGH_VERBOSE)
+			System.out.println("[AVIDBroadcast, Node: " + communicator.getCurrentNode().getNodeId() + "]: A DisperseMessage was received: " + msg.toString() + " from Node " + source.getNodeId());
+		
+		if(this.completedBroadcasts.contains(msg))
+			return;
+		
+		int currentNodeID = this.communicator.getCurrentNode().getNodeId();
+		if(source.getNodeId() != msg.getNodeID() || msg.getIndex() != currentNodeID || !isValidFragment(msg))
+		{
+			System.err.println("[AVIDBroadcast, Node: " + currentNodeID + "]: Ignoring an invalid " + msg.toString() + " from Node " + source.getNodeId());
+			return;
+		}
+		
+		AVIDBroadcastState state = getState(msg);
+		if(state.isEchoSent())
+			return;
+		
+		state.setEchoSent();
+		sendGroup(new AVIDFragmentMessage(AVIDMessageType.ECHO, msg.getApplicationID(), msg.getConsensusID(), msg.getNodeID(), msg.getBroadcastID(), msg.getRoot(), currentNodeID, msg.getFragment(), msg.getProof()));
+	}
+	
+	/**
+	 * The handler of the Echo messages. A valid fragment echoed by the node of
+	 * its position is stored under its root. Once <em>n - f</em> fragments have
+	 * been gathered for a root, the node sends a Ready message for that root.
+	 * 
+	 * @param msg
+	 *            The actual Echo message to be processed.
+	 * @param source
+	 *            The sender of that message.
+	 */
+	public void OnEchoMessage(AVIDFragmentMessage msg, Node source)
+	{
+		if(GlobalVariables.HIGH_VERBOSE)
+			System.out.println("[AVIDBroadcast, Node: " + communicator.getCurrentNode().getNodeId() + "]: An EchoMessage was received: " + msg.toString() + " from Node " + source.getNodeId());
+		
+		if(this.completedBroadcasts.contains(msg))
+			return;
+		
+		if(!isValidSource(source))
+			return;
+		
+		if(msg.getIndex() != source.getNodeId() || !isValidFragment(msg))
+		{
+			System.err.println("[AVIDBroadcast, Node: " + communicator.getCurrentNode().getNodeId() + "]: Ignoring an invalid " + msg.toString() + " from Node " + source.getNodeId());
+			return;
+		}
+		
+		AVIDBroadcastState state = getState(msg);
+		if(!state.addEchoNode(source.getNodeId()))
+			return;
+		
+		AVIDBroadcastInfo info = state.getInfo(msg.getRoot());
+		info.addFragment(msg.getIndex(), msg.getFragment());
+		
+		if(info.getNumberOfFragments() == this.numNodes - this.toleratedFaults && !state.isReadySent())
+			sendReady(msg, msg.getRoot(), state);
+		
+		deliverIfPossible(msg, msg.getRoot(), info);
+	}
+	
+	/**
+	 * The handler of the Ready messages. Once <em>f + 1</em> Ready messages
+	 * have been gathered for a root, the node sends its own Ready message for
+	 * that root, if it has not done so already. Once <em>2f + 1</em> Ready
+	 * messages have been gathered, the broadcast concludes as soon as enough
+	 * fragments are available.
+	 * 
+	 * @param msg
+	 *            The actual Ready message to be processed.
+	 * @param source
+	 *            The sender of that message.
+	 */
+	public void OnReadyMessage(AVIDReadyMessage msg, Node source)
+	{
+		if(GlobalVariables.HIGH_VERBOSE)
+			System.out.println("[AVIDBroadcast, Node: " + communicator.getCurrentNode().getNodeId() + "]: A ReadyMessage was received: " + msg.toString() + " from Node " + source.getNodeId());
+		
+		if(this.completedBroadcasts.contains(msg))
+			return;
+		
+		if(!isValidSource(source))
+			return;
+		
+		AVIDBroadcastState state = getState(msg);
+		if(!state.addReadyNode(source.getNodeId()))
+			return;
+		
+		AVIDBroadcastInfo info = state.getInfo(msg.getRoot());
+		info.increaseNumberOfReadyM();
+		
+		if(info.getNumberOfReadyM() == this.toleratedFaults + 1 && !state.isReadySent())
+			sendReady(msg, msg.getRoot(), state);
+		
+		deliverIfPossible(msg, msg.getRoot(), info);
+	}
+	
+	/**
+	 * Sends the Ready message of this node for a root.
+	 */
+	private void sendReady(BroadcastMessage msg, byte[] root, AVIDBroadcastState state)
+	{
+		state.setReadySent();
+		sendGroup(new AVIDReadyMessage(msg.getApplicationID(), msg.getConsensusID(), msg.getNodeID(), msg.getBroadcastID(), root));
+	}
+	
+	/**
+	 * Concludes the broadcast in case <em>2f + 1</em> Ready messages and
+	 * <em>n - 2f</em> fragments have been gathered for a root. The value is
+	 * delivered only if it re-encodes to the same root.
+	 * 
+	 * @param msg
+	 *            The last message of the broadcast.
+	 * @param root
+	 *            The Merkle root.
+	 * @param info
+	 *            The information of the broadcast regarding the root.
+	 */
+	private void deliverIfPossible(BroadcastMessage msg, byte[] root, AVIDBroadcastInfo info)
+	{
+		if(info.getNumberOfReadyM() < 2 * this.toleratedFaults + 1 || info.getNumberOfFragments() < this.codec.getDataShards())
+			return;
+		
+		this.completedBroadcasts.add(msg.getKey());
+		this.activeBroadcasts.remove(msg);
+		
+		byte[] data = this.codec.decode(info.getFragments());
+		if(data == null || !Arrays.equals(root, new MerkleTree(this.codec.encode(data), messageDigest).getRoot()))
+		{
+			System.err.println("[AVIDBroadcast, Node: " + communicator.getCurrentNode().getNodeId() + "]: The fragments of <" + msg.getApplicationID() + ", " + msg.getConsensusID() + ", " + msg.getNodeID() + ", " + msg.getBroadcastID() + "> do not encode a single value; the sender is faulty!");
+			return;
+		}
+		
+		BroadcastAccept acc = new BroadcastAccept(msg.getApplicationID(), msg.getConsensusID(), msg.getNodeID(), msg.getBroadcastID(), new String(data, StandardCharsets.UTF_8));
+		
+		if(GlobalVariables.HIGH_VERBOSE)
+			System.out.println("[AVIDBroadcast, Node: " + communicator.getCurrentNode().getNodeId() + "]: Accepting message " + acc.toString());
+		
+		applicationGetter.getApp(acc.getApplicationID()).process(acc);
+	}
+	
+	/**
+	 * @return the state of an active broadcast, created upon its first use.
+	 */
+	private AVIDBroadcastState getState(BroadcastMessage msg)
+	{
+		AVIDBroadcastState state = this.activeBroadcasts.get(msg);
+		if(state == null)
+		{
+			state = new AVIDBroadcastState(this.numNodes);
+			this.activeBroadcasts.put(msg, state);
+		}
+		return state;
+	}
+	
+	/**
+	 * @return <em>true</em> if the fragment of the message belongs to the
+	 *         Merkle tree of the message, <em>false</em> in any other case.
+	 */
+	private boolean isValidFragment(AVIDFragmentMessage msg)
+	{
+		return MerkleTree.verify(msg.getRoot(), this.numNodes, msg.getIndex(), msg.getFragment(), msg.getProof(), messageDigest);
+	}
+	
+	/**
+	 * This function is used to check that the sender of a message is one of
+	 * the nodes of the system, since the Echo and Ready messages are tracked
+	 * per node identifier.
+	 */
+	private boolean isValidSource(Node source)
+	{
+		if(source.getNodeId() >= 0 && source.getNodeId() < this.numNodes)
+			return true;
+		
+		System.err.println("[AVIDBroadcast, Node: " + communicator.getCurrentNode().getNodeId() + "]: Ignoring a message from unknown Node " + source.getNodeId());
+		return false;
+	}
+
+	@Override
+	public AbstractCommunicator getCommunicator() {
+		return this.communicator;
+	}
+
+	/**
+	 * Sends a message to all nodes of the group, through the batcher of the
+	 * communicator if batching is enabled.
+	 * 
+	 * @param msg
+	 *            the message.
+	 */
+	private void sendGroup(Message msg) {
+		if(batcher != null)
+			batcher.sendGroup(nodeGroup, msg);
+		else
+			communicator.sendGroup(nodeGroup, msg);
+	}
+
+	/**
+	 * Sends a message to a single node, through the batcher of the
+	 * communicator if batching is enabled.
+	 * 
+	 * @param node
+	 *            the destination node.
+	 * @param msg
+	 *            the message.
+	 */
+	private void send(Node node, Message msg) {
+		if(batcher != null)
+			batcher.send(node, msg);
+		else
+			communicator.send(node, msg);
+	}
+}
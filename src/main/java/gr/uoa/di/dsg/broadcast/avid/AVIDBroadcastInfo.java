@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (C) 2019 DSG at University of Athens
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package gr.uoa.di.dsg.broadcast.avid;
+
+/**
+ * The information of an {@link AVIDBroadcast} regarding a single Merkle root:
+ * the fragments received through Echo messages and the number of Ready
+ * messages.
+ */
+public class AVIDBroadcastInfo {
+
+	/**
+	 * The verified fragments, indexed by the identifier of the node that echoed
+	 * them.
+	 */
+	private byte[][] fragments = null;
+
+	/**
+	 * The number of verified fragments
+	 */
+	private int numberOfFragments = 0;
+
+	/**
+	 * The number of Ready messages
+	 */
+	private int numberOfReadyM = 0;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param numNodes
+	 *            the total number of nodes in the system.
+	 */
+	public AVIDBroadcastInfo(int numNodes) {
+		this.fragments = new byte[numNodes][];
+	}
+
+	/**
+	 * Stores a verified fragment.
+	 * 
+	 * @param index
+	 *            the position of the fragment.
+	 * @param fragment
+	 *            the fragment.
+	 */
+	public void addFragment(int index, byte[] fragment) {
+		if(fragments[index] != null)
+			return;
+
+		fragments[index] = fragment;
+		this.numberOfFragments++;
+	}
+
+	/**
+	 * @return the fragments, indexed by their position; a missing fragment is
+	 *         <em>null</em>.
+	 */
+	public byte[][] getFragments() {
+		return fragments;
+	}
+
+	public int getNumberOfFragments() {
+		return numberOfFragments;
+	}
+
+	public int getNumberOfReadyM() {
+		return numberOfReadyM;
+	}
+
+	/**
+	 * Increases the number of Ready messages by one.
+	 */
+	public void increaseNumberOfReadyM() {
+		this.numberOfReadyM++;
+	}
+}
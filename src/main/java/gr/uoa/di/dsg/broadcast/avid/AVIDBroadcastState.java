@@ -0,0 +1,123 @@
+/*******************************************************************************
+ * Copyright (C) 2019 DSG at University of Athens
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package gr.uoa.di.dsg.broadcast.avid;
+
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+import java.util.HashMap;
+
+/**
+ * The state of a single active {@link AVIDBroadcast}. It holds the
+ * {@link AVIDBroadcastInfo} of every Merkle root seen for the broadcast. Every
+ * node is counted at most once for the Echo and once for the Ready messages of
+ * the broadcast, regardless of the root.
+ */
+public class AVIDBroadcastState {
+
+	/**
+	 * The information of the broadcast for each Merkle root
+	 */
+	private HashMap<ByteBuffer, AVIDBroadcastInfo> perRootMap = null;
+
+	/**
+	 * The nodes that have sent an Echo message
+	 */
+	private BitSet echoNodes = null;
+
+	/**
+	 * The nodes that have sent a Ready message
+	 */
+	private BitSet readyNodes = null;
+
+	/**
+	 * Whether this node has echoed its fragment
+	 */
+	private boolean echoSent = false;
+
+	/**
+	 * Whether this node has sent a Ready message
+	 */
+	private boolean readySent = false;
+
+	/**
+	 * The total number of nodes in the system
+	 */
+	private int numNodes = 0;
+
+	public AVIDBroadcastState(int numNodes) {
+		this.numNodes = numNodes;
+		this.perRootMap = new HashMap<>(2);
+		this.echoNodes = new BitSet(numNodes);
+		this.readyNodes = new BitSet(numNodes);
+	}
+
+	/**
+	 * @param root
+	 *            a Merkle root of the broadcast.
+	 * @return the information of the broadcast regarding the root, created
+	 *         upon its first use.
+	 */
+	public AVIDBroadcastInfo getInfo(byte[] root) {
+		ByteBuffer key = ByteBuffer.wrap(root);
+		AVIDBroadcastInfo info = perRootMap.get(key);
+		if(info == null) {
+			info = new AVIDBroadcastInfo(numNodes);
+			perRootMap.put(key, info);
+		}
+		return info;
+	}
+
+	/**
+	 * @return <em>true</em> if the node had not sent an Echo message before,
+	 *         <em>false</em> in any other case.
+	 */
+	public boolean addEchoNode(int nodeID) {
+		if(echoNodes.get(nodeID))
+			return false;
+
+		echoNodes.set(nodeID);
+		return true;
+	}
+
+	/**
+	 * @return <em>true</em> if the node had not sent a Ready message before,
+	 *         <em>false</em> in any other case.
+	 */
+	public boolean addReadyNode(int nodeID) {
+		if(readyNodes.get(nodeID))
+			return false;
+
+		readyNodes.set(nodeID);
+		return true;
+	}
+
+	public boolean isEchoSent() {
+		return echoSent;
+	}
+
+	public void setEchoSent() {
+		this.echoSent = true;
+	}
+
+	public boolean isReadySent() {
+		return readySent;
+	}
+
+	public void setReadySent() {
+		this.readySent = true;
+	}
+}
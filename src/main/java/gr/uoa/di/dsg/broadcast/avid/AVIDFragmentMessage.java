@@ -0,0 +1,159 @@
+/*******************************************************************************
+ * Copyright (C) 2019 DSG at University of Athens
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package gr.uoa.di.dsg.broadcast.avid;
+
+import gr.uoa.di.dsg.broadcast.BroadcastMessage;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+
+/**
+ * A message of {@link AVIDBroadcast} that carries a fragment of an encoded
+ * value along with its Merkle proof. The sender of a broadcast uses it for
+ * dispersing the fragment of each node ({@link AVIDMessageType#DISPERSE}),
+ * while each node uses it for echoing its own fragment to all other nodes
+ * ({@link AVIDMessageType#ECHO}).
+ * <p>
+ * The wire format is the one of the <em>AVIDFragment</em> message of
+ * protofiles/avid.proto.
+ */
+public class AVIDFragmentMessage extends BroadcastMessage {
+
+	private AVIDMessageType type = null;
+	private byte[] root = null;
+	private int index = 0;
+	private byte[] fragment = null;
+	private byte[][] proof = null;
+
+	public AVIDFragmentMessage(AVIDMessageType type, String icid, int cid, int pid, int bid, byte[] root, int index, byte[] fragment, byte[][] proof) {
+		super(icid, cid, pid, bid, null);
+		this.type = type;
+		this.root = root;
+		this.index = index;
+		this.fragment = fragment;
+		this.proof = proof;
+	}
+
+	public byte[] getRoot() {
+		return root;
+	}
+
+	public int getIndex() {
+		return index;
+	}
+
+	public byte[] getFragment() {
+		return fragment;
+	}
+
+	public byte[][] getProof() {
+		return proof;
+	}
+
+	@Override
+	public int getType() {
+		return type.getValue();
+	}
+
+	@Override
+	public byte[] serialize() {
+		int size = CodedOutputStream.computeStringSize(1, getApplicationID())
+				+ CodedOutputStream.computeInt32Size(2, getConsensusID())
+				+ CodedOutputStream.computeInt32Size(3, getNodeID())
+				+ CodedOutputStream.computeInt32Size(4, getBroadcastID())
+				+ CodedOutputStream.computeByteArraySize(5, root)
+				+ CodedOutputStream.computeInt32Size(6, index)
+				+ CodedOutputStream.computeByteArraySize(7, fragment);
+		for(byte[] hash : proof)
+			size += CodedOutputStream.computeByteArraySize(8, hash);
+
+		byte[] data = new byte[size];
+		try {
+			CodedOutputStream output = CodedOutputStream.newInstance(data);
+			output.writeString(1, getApplicationID());
+			output.writeInt32(2, getConsensusID());
+			output.writeInt32(3, getNodeID());
+			output.writeInt32(4, getBroadcastID());
+			output.writeByteArray(5, root);
+			output.writeInt32(6, index);
+			output.writeByteArray(7, fragment);
+			for(byte[] hash : proof)
+				output.writeByteArray(8, hash);
+
+			output.checkNoSpaceLeft();
+		}
+		catch (IOException e) {
+			e.printStackTrace();
+			return null;
+		}
+		return data;
+	}
+
+	/**
+	 * A message deserializer to re-create the AVIDFragmentMessage object from
+	 * binary data.
+	 * 
+	 * @param rawData
+	 *            the serialized message.
+	 * @param type
+	 *            the type of the message.
+	 * @return the message, or <em>null</em> if the data are malformed.
+	 */
+	public static AVIDFragmentMessage deserialize(byte[] rawData, AVIDMessageType type) {
+		String icid = null;
+		int cid = 0, pid = 0, bid = 0, index = 0;
+		byte[] root = null, fragment = null;
+		List<byte[]> proof = new ArrayList<>();
+
+		try {
+			CodedInputStream input = CodedInputStream.newInstance(rawData);
+			for(int tag = input.readTag(); tag != 0; tag = input.readTag()) {
+				switch(tag >>> 3) {
+					case 1: icid = input.readString(); break;
+					case 2: cid = input.readInt32(); break;
+					case 3: pid = input.readInt32(); break;
+					case 4: bid = input.readInt32(); break;
+					case 5: root = input.readByteArray(); break;
+					case 6: index = input.readInt32(); break;
+					case 7: fragment = input.readByteArray(); break;
+					case 8: proof.add(input.readByteArray()); break;
+					default: input.skipField(tag); break;
+				}
+			}
+		}
+		catch (IOException e) {
+			e.printStackTrace();
+			return null;
+		}
+
+		if(icid == null || root == null || fragment == null)
+			return null;
+
+		return new AVIDFragmentMessage(type, icid, cid, pid, bid, root, index, fragment, proof.toArray(new byte[proof.size()][]));
+	}
+
+	@Override
+	public String toString() {
+		return "AVIDFragmentMessage(" + type + ") <" + applicationID + ", " + consensusID + ", " + nodeID + ", " + broadcastID + ", "
+				+ Base64.getEncoder().encodeToString(root) + ", " + index + ", " + fragment.length + " bytes>";
+	}
+}
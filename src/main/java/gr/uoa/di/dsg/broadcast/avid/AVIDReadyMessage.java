@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Copyright (C) 2019 DSG at University of Athens
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package gr.uoa.di.dsg.broadcast.avid;
+
+import gr.uoa.di.dsg.broadcast.BroadcastMessage;
+
+import java.io.IOException;
+import java.util.Base64;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+
+/**
+ * The Ready message of {@link AVIDBroadcast}. It carries the Merkle root of the
+ * encoded value that the sender is ready to deliver.
+ * <p>
+ * The wire format is the one of the <em>AVIDReady</em> message of
+ * protofiles/avid.proto.
+ */
+public class AVIDReadyMessage extends BroadcastMessage {
+
+	public static AVIDMessageType myType = AVIDMessageType.READY;
+
+	private byte[] root = null;
+
+	public AVIDReadyMessage(String icid, int cid, int pid, int bid, byte[] root) {
+		super(icid, cid, pid, bid, null);
+		this.root = root;
+	}
+
+	public byte[] getRoot() {
+		return root;
+	}
+
+	@Override
+	public int getType() {
+		return myType.getValue();
+	}
+
+	@Override
+	public byte[] serialize() {
+		int size = CodedOutputStream.computeStringSize(1, getApplicationID())
+				+ CodedOutputStream.computeInt32Size(2, getConsensusID())
+				+ CodedOutputStream.computeInt32Size(3, getNodeID())
+				+ CodedOutputStream.computeInt32Size(4, getBroadcastID())
+				+ CodedOutputStream.computeByteArraySize(5, root);
+
+		byte[] data = new byte[size];
+		try {
+			CodedOutputStream output = CodedOutputStream.newInstance(data);
+			output.writeString(1, getApplicationID());
+			output.writeInt32(2, getConsensusID());
+			output.writeInt32(3, getNodeID());
+			output.writeInt32(4, getBroadcastID());
+			output.writeByteArray(5, root);
+			output.checkNoSpaceLeft();
+		}
+		catch (IOException e) {
+			e.printStackTrace();
+			return null;
+		}
+		return data;
+	}
+
+	/**
+	 * A message deserializer to re-create the AVIDReadyMessage object from
+	 * binary data.
+	 * 
+	 * @param rawData
+	 *            the serialized message.
+	 * @return the message, or <em>null</em> if the data are malformed.
+	 */
+	public static AVIDReadyMessage deserialize(byte[] rawData) {
+		String icid = null;
+		int cid = 0, pid = 0, bid = 0;
+		byte[] root = null;
+
+		try {
+			CodedInputStream input = CodedInputStream.newInstance(rawData);
+			for(int tag = input.readTag(); tag != 0; tag = input.readTag()) {
+				switch(tag >>> 3) {
+					case 1: icid = input.readString(); break;
+					case 2: cid = input.readInt32(); break;
+					case 3: pid = input.readInt32(); break;
+					case 4: bid = input.readInt32(); break;
+					case 5: root = input.readByteArray(); break;
+					default: input.skipField(tag); break;
+				}
+			}
+		}
+		catch (IOException e) {
+			e.printStackTrace();
+			return null;
+		}
+
+		if(icid == null || root == null)
+			return null;
+
+		return new AVIDReadyMessage(icid, cid, pid, bid, root);
+	}
+
+	@Override
+	public String toString() {
+		return "AVIDReadyMessage <" + applicationID + ", " + consensusID + ", " + nodeID + ", " + broadcastID + ", " + Base64.getEncoder().encodeToString(root) + ">";
+	}
+}
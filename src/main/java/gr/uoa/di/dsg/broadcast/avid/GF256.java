@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright (C) 2019 DSG at University of Athens
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package gr.uoa.di.dsg.broadcast.avid;
+
+/**
+ * Arithmetic over the Galois field GF(2^8), generated by the primitive
+ * polynomial x^8 + x^4 + x^3 + x^2 + 1 (0x11d). Addition and subtraction are
+ * both the exclusive or of the operands, while multiplication and division use
+ * logarithm tables. A full multiplication table is also provided for the inner
+ * loops of the {@link ReedSolomonCodec}.
+ */
+public final class GF256 {
+
+	/** The primitive polynomial of the field. */
+	private static final int PRIMITIVE_POLYNOMIAL = 0x11d;
+
+	/** The powers of the generator 2; doubled in size to avoid a modulo. */
+	private static final int[] EXP = new int[512];
+
+	/** The logarithms of the non-zero elements of the field. */
+	private static final int[] LOG = new int[256];
+
+	/** MUL_TABLE[a][b] holds the product of a and b. */
+	public static final byte[][] MUL_TABLE = new byte[256][256];
+
+	static {
+		int x = 1;
+		for(int i = 0; i < 255; ++i) {
+			EXP[i] = x;
+			LOG[x] = i;
+			x <<= 1;
+			if(x >= 256)
+				x ^= PRIMITIVE_POLYNOMIAL;
+		}
+		for(int i = 255; i < EXP.length; ++i)
+			EXP[i] = EXP[i - 255];
+
+		for(int a = 0; a < 256; ++a)
+			for(int b = 0; b < 256; ++b)
+				MUL_TABLE[a][b] = (byte) mul(a, b);
+	}
+
+	private GF256() {}
+
+	/**
+	 * @return the sum (and difference) of a and b.
+	 */
+	public static int add(int a, int b) {
+		return a ^ b;
+	}
+
+	/**
+	 * @return the product of a and b.
+	 */
+	public static int mul(int a, int b) {
+		if(a == 0 || b == 0)
+			return 0;
+
+		return EXP[LOG[a] + LOG[b]];
+	}
+
+	/**
+	 * @return the quotient of a and b.
+	 * @throws ArithmeticException
+	 *             if b is zero.
+	 */
+	public static int div(int a, int b) {
+		if(b == 0)
+			throw new ArithmeticException("Division by zero in GF(256)");
+		if(a == 0)
+			return 0;
+
+		return EXP[LOG[a] + 255 - LOG[b]];
+	}
+
+	/**
+	 * @return the multiplicative inverse of a.
+	 * @throws ArithmeticException
+	 *             if a is zero.
+	 */
+	public static int inv(int a) {
+		return div(1, a);
+	}
+
+	/**
+	 * @return a raised to the power of n.
+	 */
+	public static int pow(int a, int n) {
+		if(n == 0)
+			return 1;
+		if(a == 0)
+			return 0;
+
+		return EXP[(LOG[a] * n) % 255];
+	}
+}
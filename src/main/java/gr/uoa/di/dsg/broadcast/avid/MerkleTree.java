@@ -0,0 +1,140 @@
+/*******************************************************************************
+ * Copyright (C) 2019 DSG at University of Athens
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package gr.uoa.di.dsg.broadcast.avid;
+
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+/**
+ * A Merkle tree over the fragments of an encoded value. The leaves are padded
+ * to a power of two. Leaves and inner nodes are hashed with distinct prefixes,
+ * so that an inner node can never pass for a leaf.
+ */
+public class MerkleTree {
+
+	private static final byte LEAF_PREFIX = 0;
+	private static final byte NODE_PREFIX = 1;
+
+	/**
+	 * The levels of the tree; levels[0] holds the hashes of the leaves and the
+	 * last level holds the root.
+	 */
+	private byte[][][] levels = null;
+
+	/**
+	 * Builds the tree over a set of leaves.
+	 * 
+	 * @param leaves
+	 *            the fragments of an encoded value.
+	 * @param digest
+	 *            the message digest used for hashing.
+	 */
+	public MerkleTree(byte[][] leaves, MessageDigest digest) {
+		int depth = depth(leaves.length);
+		levels = new byte[depth + 1][][];
+
+		levels[0] = new byte[1 << depth][];
+		for(int i = 0; i < levels[0].length; ++i)
+			levels[0][i] = hashLeaf((i < leaves.length) ? leaves[i] : new byte[0], digest);
+
+		for(int level = 1; level <= depth; ++level) {
+			byte[][] below = levels[level - 1];
+			levels[level] = new byte[below.length / 2][];
+			for(int i = 0; i < levels[level].length; ++i)
+				levels[level][i] = hashNode(below[2 * i], below[2 * i + 1], digest);
+		}
+	}
+
+	/**
+	 * @return the root of the tree.
+	 */
+	public byte[] getRoot() {
+		return levels[levels.length - 1][0];
+	}
+
+	/**
+	 * @param index
+	 *            the position of a leaf.
+	 * @return the hashes of the siblings on the path from the leaf to the
+	 *         root.
+	 */
+	public byte[][] getProof(int index) {
+		byte[][] proof = new byte[levels.length - 1][];
+		for(int level = 0; level < proof.length; ++level) {
+			proof[level] = levels[level][index ^ 1];
+			index >>>= 1;
+		}
+		return proof;
+	}
+
+	/**
+	 * Checks that a leaf belongs to the tree with the specified root.
+	 * 
+	 * @param root
+	 *            the root of the tree.
+	 * @param totalLeaves
+	 *            the number of leaves of the tree.
+	 * @param index
+	 *            the position of the leaf.
+	 * @param leaf
+	 *            the leaf.
+	 * @param proof
+	 *            the hashes of the siblings on the path from the leaf to the
+	 *            root.
+	 * @param digest
+	 *            the message digest used for hashing.
+	 * @return <em>true</em> if the proof is valid, <em>false</em> in any other
+	 *         case.
+	 */
+	public static boolean verify(byte[] root, int totalLeaves, int index, byte[] leaf, byte[][] proof, MessageDigest digest) {
+		if(root == null || leaf == null || proof == null || index < 0 || index >= totalLeaves || proof.length != depth(totalLeaves))
+			return false;
+
+		byte[] hash = hashLeaf(leaf, digest);
+		for(byte[] sibling : proof) {
+			if((index & 1) == 0)
+				hash = hashNode(hash, sibling, digest);
+			else
+				hash = hashNode(sibling, hash, digest);
+
+			index >>>= 1;
+		}
+		return Arrays.equals(hash, root);
+	}
+
+	/**
+	 * @return the depth of a tree with the specified number of leaves.
+	 */
+	private static int depth(int totalLeaves) {
+		int depth = 0;
+		while((1 << depth) < totalLeaves)
+			++depth;
+
+		return depth;
+	}
+
+	private static byte[] hashLeaf(byte[] leaf, MessageDigest digest) {
+		digest.update(LEAF_PREFIX);
+		return digest.digest(leaf);
+	}
+
+	private static byte[] hashNode(byte[] left, byte[] right, MessageDigest digest) {
+		digest.update(NODE_PREFIX);
+		digest.update(left);
+		return digest.digest(right);
+	}
+}
@@ -0,0 +1,242 @@
+/*******************************************************************************
+ * Copyright (C) 2019 DSG at University of Athens
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package gr.uoa.di.dsg.broadcast.avid;
+
+/**
+ * A systematic Reed-Solomon erasure code over GF(256). A value is split into
+ * <em>dataShards</em> fragments, which are extended with
+ * <em>totalShards - dataShards</em> parity fragments, so that the value can be
+ * rebuilt from any <em>dataShards</em> of the <em>totalShards</em> fragments.
+ * <p>
+ * The encoding matrix is derived from a Vandermonde matrix, whose top square
+ * is turned into the identity. Every square sub-matrix made of its rows is
+ * therefore invertible. The encoded value is prefixed by its length, so that
+ * the padding of the last data fragment can be removed upon decoding.
+ */
+public class ReedSolomonCodec {
+
+	/** The number of fragments needed for rebuilding a value. */
+	private int dataShards = 0;
+
+	/** The total number of fragments that a value is encoded into. */
+	private int totalShards = 0;
+
+	/** The totalShards x dataShards encoding matrix. */
+	private int[][] matrix = null;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param dataShards
+	 *            the number of fragments needed for rebuilding a value.
+	 * @param totalShards
+	 *            the total number of fragments that a value is encoded into;
+	 *            at most 256.
+	 */
+	public ReedSolomonCodec(int dataShards, int totalShards) {
+		if(dataShards < 1 || totalShards < dataShards || totalShards > 256)
+			throw new IllegalArgumentException("Invalid number of shards: " + dataShards + " out of " + totalShards);
+
+		this.dataShards = dataShards;
+		this.totalShards = totalShards;
+
+		int[][] vandermonde = new int[totalShards][dataShards];
+		for(int i = 0; i < totalShards; ++i)
+			for(int j = 0; j < dataShards; ++j)
+				vandermonde[i][j] = GF256.pow(i, j);
+
+		int[][] top = new int[dataShards][];
+		for(int i = 0; i < dataShards; ++i)
+			top[i] = vandermonde[i];
+
+		this.matrix = multiply(vandermonde, invert(top));
+	}
+
+	public int getDataShards() {
+		return dataShards;
+	}
+
+	public int getTotalShards() {
+		return totalShards;
+	}
+
+	/**
+	 * Encodes a value into totalShards fragments of equal length.
+	 * 
+	 * @param data
+	 *            the value to be encoded.
+	 * @return the fragments; the first dataShards of them hold the value
+	 *         itself.
+	 */
+	public byte[][] encode(byte[] data) {
+		int payloadLength = data.length + 4;
+		int shardLength = Math.max(1, (payloadLength + dataShards - 1) / dataShards);
+
+		byte[] payload = new byte[shardLength * dataShards];
+		payload[0] = (byte) (data.length >>> 24);
+		payload[1] = (byte) (data.length >>> 16);
+		payload[2] = (byte) (data.length >>> 8);
+		payload[3] = (byte) data.length;
+		System.arraycopy(data, 0, payload, 4, data.length);
+
+		byte[][] shards = new byte[totalShards][];
+		for(int i = 0; i < dataShards; ++i) {
+			shards[i] = new byte[shardLength];
+			System.arraycopy(payload, i * shardLength, shards[i], 0, shardLength);
+		}
+
+		for(int i = dataShards; i < totalShards; ++i)
+			shards[i] = combine(matrix[i], shards, null, shardLength);
+
+		return shards;
+	}
+
+	/**
+	 * Rebuilds a value from its fragments.
+	 * 
+	 * @param shards
+	 *            the fragments of the value, indexed by their position; a
+	 *            missing fragment is <em>null</em>.
+	 * @return the value, or <em>null</em> if fewer than dataShards fragments
+	 *         are present, their lengths differ or the encoded length is
+	 *         invalid.
+	 */
+	public byte[] decode(byte[][] shards) {
+		int[] present = new int[dataShards];
+		int found = 0;
+		int shardLength = -1;
+		for(int i = 0; i < shards.length && i < totalShards && found < dataShards; ++i) {
+			if(shards[i] == null)
+				continue;
+			if(shardLength == -1)
+				shardLength = shards[i].length;
+			else if(shards[i].length != shardLength)
+				return null;
+
+			present[found++] = i;
+		}
+
+		if(found < dataShards || shardLength == 0)
+			return null;
+
+		/* Rebuild the missing data fragments from the sub-matrix of the present rows. */
+		int[][] subMatrix = new int[dataShards][];
+		for(int i = 0; i < dataShards; ++i)
+			subMatrix[i] = matrix[present[i]];
+
+		int[][] decodeMatrix = invert(subMatrix);
+		byte[] payload = new byte[shardLength * dataShards];
+		for(int i = 0; i < dataShards; ++i) {
+			byte[] shard = (i < shards.length) ? shards[i] : null;
+			if(shard == null)
+				shard = combine(decodeMatrix[i], shards, present, shardLength);
+
+			System.arraycopy(shard, 0, payload, i * shardLength, shardLength);
+		}
+
+		int length = ((payload[0] & 0xff) << 24) | ((payload[1] & 0xff) << 16) | ((payload[2] & 0xff) << 8) | (payload[3] & 0xff);
+		if(length < 0 || length > payload.length - 4)
+			return null;
+
+		byte[] data = new byte[length];
+		System.arraycopy(payload, 4, data, 0, length);
+		return data;
+	}
+
+	/**
+	 * Computes the linear combination of a set of fragments.
+	 * 
+	 * @param coefficients
+	 *            the coefficients of the combination.
+	 * @param shards
+	 *            the fragments.
+	 * @param indices
+	 *            the positions of the fragments that correspond to the
+	 *            coefficients, or <em>null</em> for the first ones.
+	 * @param shardLength
+	 *            the length of the fragments.
+	 */
+	private static byte[] combine(int[] coefficients, byte[][] shards, int[] indices, int shardLength) {
+		byte[] output = new byte[shardLength];
+		for(int j = 0; j < coefficients.length; ++j) {
+			if(coefficients[j] == 0)
+				continue;
+
+			byte[] row = GF256.MUL_TABLE[coefficients[j]];
+			byte[] input = shards[(indices == null) ? j : indices[j]];
+			for(int b = 0; b < shardLength; ++b)
+				output[b] ^= row[input[b] & 0xff];
+		}
+		return output;
+	}
+
+	private static int[][] multiply(int[][] a, int[][] b) {
+		int[][] result = new int[a.length][b[0].length];
+		for(int i = 0; i < a.length; ++i)
+			for(int j = 0; j < b[0].length; ++j) {
+				int value = 0;
+				for(int k = 0; k < b.length; ++k)
+					value ^= GF256.mul(a[i][k], b[k][j]);
+
+				result[i][j] = value;
+			}
+		return result;
+	}
+
+	/**
+	 * Inverts a square matrix through Gauss-Jordan elimination.
+	 */
+	private static int[][] invert(int[][] matrix) {
+		int size = matrix.length;
+		int[][] work = new int[size][2 * size];
+		for(int i = 0; i < size; ++i) {
+			System.arraycopy(matrix[i], 0, work[i], 0, size);
+			work[i][size + i] = 1;
+		}
+
+		for(int column = 0; column < size; ++column) {
+			int pivot = column;
+			while(pivot < size && work[pivot][column] == 0)
+				++pivot;
+			if(pivot == size)
+				throw new IllegalArgumentException("Singular matrix");
+
+			int[] swap = work[pivot];
+			work[pivot] = work[column];
+			work[column] = swap;
+
+			int scale = GF256.inv(work[column][column]);
+			for(int j = 0; j < 2 * size; ++j)
+				work[column][j] = GF256.mul(work[column][j], scale);
+
+			for(int i = 0; i < size; ++i) {
+				int factor = work[i][column];
+				if(i == column || factor == 0)
+					continue;
+
+				for(int j = 0; j < 2 * size; ++j)
+					work[i][j] ^= GF256.mul(factor, work[column][j]);
+			}
+		}
+
+		int[][] inverse = new int[size][size];
+		for(int i = 0; i < size; ++i)
+			System.arraycopy(work[i], size, inverse[i], 0, size);
+
+		return inverse;
+	}
+}
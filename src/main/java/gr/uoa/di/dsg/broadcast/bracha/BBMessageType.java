@@ -23,7 +23,11 @@ public enum BBMessageType implements GenericMessageType
 	INIT(0),
 	ECHO(1),
 	READY(2),
-	ACCEPT(3);
+	ACCEPT(3),
+	ECHO_DIGEST(4),
+	READY_DIGEST(5),
+	VALUE_REQUEST(6),
+	VALUE_RESPONSE(7);
 
 	int value;
 	BBMessageType( int value){
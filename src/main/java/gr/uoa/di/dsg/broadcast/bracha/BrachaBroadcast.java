@@ -16,18 +16,25 @@
  ******************************************************************************/
 package gr.uoa.di.dsg.broadcast.bracha;
 
+import gr.uoa.di.dsg.broadcast.ActiveBroadcasts;
 import gr.uoa.di.dsg.broadcast.BroadcastAccept;
+import gr.uoa.di.dsg.broadcast.BroadcastKey;
+import gr.uoa.di.dsg.broadcast.BroadcastMessage;
+import gr.uoa.di.dsg.broadcast.CompletedBroadcasts;
 import gr.uoa.di.dsg.broadcast.IBroadcast;
+import gr.uoa.di.dsg.broadcast.MessageBatcher;
+import gr.uoa.di.dsg.broadcast.ShardedEngine;
 import gr.uoa.di.dsg.communicator.AbstractCommunicator;
 import gr.uoa.di.dsg.communicator.Message;
 import gr.uoa.di.dsg.communicator.Node;
 import gr.uoa.di.dsg.ic.ApplicationGetter;
 import gr.uoa.di.dsg.utils.GlobalVariables;
 
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.BitSet;
 
 /**
  * @author Panos
@@ -61,6 +68,12 @@ import java.util.Set;
  *          two different values corresponding to the same ID. However, due to
  *          the protocol's structure only one of those broadcasts will be
  *          eventually completed while all others will never terminate.
+ *          <p>
+ *          In the digest-only mode only the <em>Init</em> message carries the
+ *          value, while the <em>Echo</em> and <em>Ready</em> messages carry its
+ *          digest. A node that gathers a sufficient number of <em>Ready</em>
+ *          messages without holding the value requests it from the senders of
+ *          those messages and checks the answer against the digest.
  */
 public class BrachaBroadcast implements IBroadcast
 {
@@ -88,24 +101,66 @@ public class BrachaBroadcast implements IBroadcast
 	 * A map that stores all the active consensus where messages pending to be 
 	 * delivered.
 	 */
-	private Map<String, HashMap<String,BroadcastInfo> > activeBroadcasts = null;
+	private ActiveBroadcasts<BroadcastState> activeBroadcasts = null;
 	
 	/**
 	 * The set of broadcast that have been completed. This structure is used for
 	 * ignoring messages destined for already completed broadcasts.
 	 */
-	private Set<String> completedBroadcasts = null;
+	private CompletedBroadcasts completedBroadcasts = null;
 	
 	/**
 	 * The communication group that this broadcast module belongs.
 	 */
 	private String nodeGroup = null;
+	
+	/**
+	 * Whether the Echo and Ready messages carry the digest of the value
+	 * instead of the value itself.
+	 */
+	private boolean digestMode = false;
+	
+	/**
+	 * The message digest used for computing the digests of the values in the
+	 * digest-only mode.
+	 */
+	private MessageDigest messageDigest = null;
+	
+	/**
+	 * The values of the completed broadcasts in the digest-only mode. They are
+	 * kept for answering the value requests of nodes that lag behind, until
+	 * the application is released.
+	 */
+	private ActiveBroadcasts<String> deliveredValues = null;
+
+	/**
+	 * The batcher of the communicator, or <em>null</em> if batching is disabled.
+	 */
+	private MessageBatcher batcher = null;
+	
+	/**
+	 * The step of a broadcast that has gathered a sufficient number of
+	 * <em>Ready</em> messages in the digest-only mode, but whose value has not
+	 * been received yet.
+	 */
+	private static final int AWAITING_VALUE_STEP = 4;
 
 	/**
 	 * Constructor for proper initialization
 	 */
 	public BrachaBroadcast() {}
 	
+	/**
+	 * Constructor for proper initialization
+	 * 
+	 * @param digestMode
+	 *            whether the Echo and Ready messages carry the digest of the
+	 *            value instead of the value itself.
+	 */
+	public BrachaBroadcast(boolean digestMode) {
+		this.digestMode = digestMode;
+	}
+	
 	/**
 	 * The initialize function of the IBroadcast interface. It is used for
 	 * registering a series of message handlers to the communicator for the
@@ -114,40 +169,78 @@ public class BrachaBroadcast implements IBroadcast
 	@Override
 	public void initialize(AbstractCommunicator comm, ApplicationGetter appCr, String nodeGroup, int numNodes)
 	{
-		comm.registerMessage(BBMessageType.INIT.getValue(), (byte[] data) -> InitMessage.deserialize(data) , (Message msg, Node source) -> OnInitMessage((InitMessage)msg, source));
-		comm.registerMessage(BBMessageType.ECHO.getValue(), (byte[] data) -> EchoMessage.deserialize(data) , (Message msg, Node source) -> OnEchoMessage((EchoMessage)msg, source));
-		comm.registerMessage(BBMessageType.READY.getValue(), (byte[] data) -> ReadyMessage.deserialize(data) , (Message msg, Node source) -> OnReadyMessage((ReadyMessage)msg, source));
+		MessageBatcher.registerMessage(comm, BBMessageType.INIT.getValue(), (byte[] data) -> InitMessage.deserialize(data) , (Message msg, Node source) -> OnInitMessage((InitMessage)msg, source));
+		if(digestMode) {
+			MessageBatcher.registerMessage(comm, BBMessageType.ECHO_DIGEST.getValue(), (byte[] data) -> EchoDigestMessage.deserialize(data) , (Message msg, Node source) -> OnEchoMessage((EchoMessage)msg, source));
+			MessageBatcher.registerMessage(comm, BBMessageType.READY_DIGEST.getValue(), (byte[] data) -> ReadyDigestMessage.deserialize(data) , (Message msg, Node source) -> OnReadyMessage((ReadyMessage)msg, source));
+			MessageBatcher.registerMessage(comm, BBMessageType.VALUE_REQUEST.getValue(), (byte[] data) -> ValueRequestMessage.deserialize(data) , (Message msg, Node source) -> OnValueRequestMessage((ValueRequestMessage)msg, source));
+			MessageBatcher.registerMessage(comm, BBMessageType.VALUE_RESPONSE.getValue(), (byte[] data) -> ValueResponseMessage.deserialize(data) , (Message msg, Node source) -> OnValueResponseMessage((ValueResponseMessage)msg, source));
+		}
+		else {
+			MessageBatcher.registerMessage(comm, BBMessageType.ECHO.getValue(), (byte[] data) -> EchoMessage.deserialize(data) , (Message msg, Node source) -> OnEchoMessage((EchoMessage)msg, source));
+			MessageBatcher.registerMessage(comm, BBMessageType.READY.getValue(), (byte[] data) -> ReadyMessage.deserialize(data) , (Message msg, Node source) -> OnReadyMessage((ReadyMessage)msg, source));
+		}
 		
 		this.communicator = comm;
+		this.batcher = MessageBatcher.getBatcher(comm);
 		this.applicationGetter = appCr;
 		this.nodeGroup = nodeGroup;
 		this.numNodes = numNodes;
 		
 		this.toleratedFaults = (this.numNodes - 1)/3;
-		this.activeBroadcasts = new HashMap<>();
-		this.completedBroadcasts = new HashSet<>();
+		this.activeBroadcasts = new ActiveBroadcasts<>();
+		this.completedBroadcasts = CompletedBroadcasts.forShard(comm);
+		
+		if(digestMode) {
+			this.deliveredValues = new ActiveBroadcasts<>();
+			try {
+				this.messageDigest = MessageDigest.getInstance(GlobalVariables.DIGEST_ALGORITHM);
+			}
+			catch (NoSuchAlgorithmException ex) {
+				System.err.println("[BrachaBroadcast, Node: " + comm.getCurrentNode().getNodeId() + "]: Caught a NoSuchAlgorithmException while attempting to get an instance of the SHA-256 message digest algorithm!");
+				ex.printStackTrace();
+			}
+		}
 	}
 	
 	/**
 	 * The broadcast function of the IBroadcast interface. It is used for the
-	 * dissemination of values. It constructs a unique ID that describes the
-	 * broadcast by appending the different ids using the ":" as delimiter (e.g
-	 * "icid:cid:pid:bid" )
+	 * dissemination of values. The broadcast is uniquely described by the
+	 * tuple &lt;icid, cid, pid, bid&gt; (see {@link BroadcastKey}).
 	 */
 	@Override
 	public void broadcast(String icid, int cid, int pid, int bid, String value)
 	{	 
+		InitMessage msg = new InitMessage(icid, cid, pid, bid, value);
+		String entry = getEntry(value);
+		
 		//To check if a message is for a broadcast that we are not participating!
-		String UUID = icid + ":" + cid + ":" + pid + ":" + bid;
-		addedNowOnBroadcasts(UUID, value, pid);
+		addedNowOnBroadcasts(msg, entry, pid);
 		
-		InitMessage msg = new InitMessage(icid, cid, pid, bid, value);
 		if(GlobalVariables.HIGH_VERBOSE)
 			System.out.println("[BrachaBroadcast, Node: " + pid + "]: Starting a broadcast for " + msg.toString());
 		
 		//Actual Broadcast code!
-		this.communicator.sendGroup(nodeGroup, msg);
-		this.activeBroadcasts.get(UUID).get(value).setStep(1);
+		sendGroup(msg);
+		BroadcastState state = this.activeBroadcasts.get(msg);
+		BroadcastInfo info = state.get(entry);
+		state.setStep(info, 1);
+		if(digestMode)
+			info.setValue(value);
+	}
+
+	/**
+	 * The releaseApplication function of the IBroadcast interface. It folds the
+	 * completed broadcasts of the application into the low watermark and drops
+	 * any broadcast of the application that is still active.
+	 */
+	@Override
+	public void releaseApplication(String icid)
+	{
+		this.completedBroadcasts.release(icid);
+		this.activeBroadcasts.release(icid);
+		if(digestMode)
+			this.deliveredValues.release(icid);
 	}
 
 	/**
@@ -167,7 +260,12 @@ public class BrachaBroadcast implements IBroadcast
 			System.out.println("[BrachaBroadcast, Node: " + communicator.getCurrentNode().getNodeId() + "]: An InitMessage was received: " + msg.toString() + " from Node " + source.getNodeId());
 		
 		//check if the broadcast is completed
-		if(this.completedBroadcasts.contains(msg.getUUID())) {
+		String entry = getEntry(msg.getValue());
+		if(this.completedBroadcasts.contains(msg)) {
+			//a broadcast may still be waiting for its value in the digest-only mode
+			if(digestMode)
+				acceptValue(msg, entry);
+			
 			if(GlobalVariables.HIGH_VERBOSE)
 				System.out.println("[BrachaBroadcast, Node: " + communicator.getCurrentNode().getNodeId() + "]: IGNORE_1 " + msg.toString() + " from Node " + source.getNodeId());
 			
@@ -175,20 +273,26 @@ public class BrachaBroadcast implements IBroadcast
 		}
 		
 		//to check if a message is for a broadcast that we are not participating!
-		if(addedNowOnBroadcasts(msg.getUUID(), msg.getValue(),msg.getNodeID()))
-			this.activeBroadcasts.get(msg.getUUID()).get(msg.getValue()).setStep(1);
+		boolean addedNow = addedNowOnBroadcasts(msg, entry, msg.getNodeID());
+		BroadcastState state = this.activeBroadcasts.get(msg);
+		BroadcastInfo info = state.get(entry);
+		if(addedNow)
+			state.setStep(info, 1);
+		
+		if(digestMode && info.getValue() == null)
+			onValueReceived(msg, info, msg.getValue());
 		
 		//Actual Broadcast code
-		if(this.activeBroadcasts.get(msg.getUUID()).get(msg.getValue()).getStep() ==  1)
+		if(info.getStep() ==  1)
 		{
-			this.communicator.sendGroup(nodeGroup, new EchoMessage(msg.getApplicationID(), msg.getConsensusID(), msg.getNodeID() , msg.getBroadcastID(), msg.getValue()));
-			this.activeBroadcasts.get(msg.getUUID()).get(msg.getValue()).setStep(2);
-			//this.activeBroadcasts.get(msg.getUUID()).get(msg.getValue()).addNode(source.getProcessID());
+			sendGroup(createEchoMessage(msg, entry));
+			state.setStep(info, 2);
+			//info.addNode(source.getProcessID());
 		}
 		else {
 			if(GlobalVariables.HIGH_VERBOSE)
 				System.out.println("[BrachaBroadcast, Node: " + communicator.getCurrentNode().getNodeId() + "]: IGNORE_2 " + msg.toString() + " from Node " + source.getNodeId()
-					+ ", at STEP: " + this.activeBroadcasts.get(msg.getUUID()).get(msg.getValue()).getStep());
+					+ ", at STEP: " + info.getStep());
 		}
 	}
 	
@@ -211,36 +315,41 @@ public class BrachaBroadcast implements IBroadcast
 			System.out.println("[BrachaBroadcast, Node: " + communicator.getCurrentNode().getNodeId() + "]: An EchoMessage was received: " + msg.toString() + " from Node " + source.getNodeId());
 		
 		//check if the broadcast is completed
-		if(this.completedBroadcasts.contains(msg.getUUID()))
+		if(this.completedBroadcasts.contains(msg))
+			return;
+		
+		if(!isValidSource(source))
 			return;
 		
 		//to check if a message is for a broadcast that we are not participating!
-		if(addedNowOnBroadcasts(msg.getUUID(), msg.getValue(),msg.getNodeID()))
-			this.activeBroadcasts.get(msg.getUUID()).get(msg.getValue()).setStep(1);
-	
+		boolean addedNow = addedNowOnBroadcasts(msg, msg.getValue(),msg.getNodeID());
+		BroadcastState state = this.activeBroadcasts.get(msg);
+		BroadcastInfo info = state.get(msg.getValue());
+		if(addedNow)
+			state.setStep(info, 1);
 		
-		//To update the structures that this broadcast for all values that this node supports
-		if( anyOtherPhaseCompleted(msg.getUUID(), msg.getValue(),2) == false)
-		{
-			this.activeBroadcasts.get(msg.getUUID()).get(msg.getValue()).addEchoNode(source.getNodeId());
-			this.activeBroadcasts.get(msg.getUUID()).get(msg.getValue()).increaseNumberOfEchoM();
-			updateOtherStructures(msg.getUUID(), msg.getValue(), source.getNodeId(),BBMessageType.ECHO);
-		}
+		/*
+		 * Once any value has moved past the second step echo messages are no
+		 * longer counted. A duplicate echo leaves the counters unchanged, so it
+		 * cannot cross a threshold either.
+		 */
+		if(anyOtherPhaseCompleted(state, 2) || !state.addEcho(info, source.getNodeId()))
+			return;
 		
 		//Actual Broadcast code
-		int numberOfEchoM = this.activeBroadcasts.get(msg.getUUID()).get(msg.getValue()).getNumberOfEchoM();
-		int numberOfSteps = this.activeBroadcasts.get(msg.getUUID()).get(msg.getValue()).getStep();
+		int numberOfEchoM = info.getNumberOfEchoM();
+		int numberOfSteps = info.getStep();
 		if(numberOfEchoM == Math.ceil((this.numNodes + this.toleratedFaults)/2))
 		{
 			if(numberOfSteps == 1)
 			{
-				this.communicator.sendGroup(nodeGroup, new EchoMessage(msg.getApplicationID(), msg.getConsensusID(), msg.getNodeID() , msg.getBroadcastID(), msg.getValue()));
-				this.activeBroadcasts.get(msg.getUUID()).get(msg.getValue()).setStep(2);
+				sendGroup(createEchoMessage(msg, msg.getValue()));
+				state.setStep(info, 2);
 			}
 			else if(numberOfSteps == 2)
 			{
-				this.communicator.sendGroup(nodeGroup, new ReadyMessage(msg.getApplicationID(), msg.getConsensusID(), msg.getNodeID() , msg.getBroadcastID(), msg.getValue()));
-				this.activeBroadcasts.get(msg.getUUID()).get(msg.getValue()).setStep(3);
+				sendGroup(createReadyMessage(msg, msg.getValue()));
+				state.setStep(info, 3);
 			}
 		}
 	}
@@ -266,79 +375,332 @@ public class BrachaBroadcast implements IBroadcast
 			System.out.println("[BrachaBroadcast, Node: " + communicator.getCurrentNode().getNodeId() + "]: A ReadyMessage was received: " + msg.toString() + " from Node " + source.getNodeId());
 		
 		//check if the broadcast is completed
-		if(this.completedBroadcasts.contains(msg.getUUID()))
+		if(this.completedBroadcasts.contains(msg))
 		{
 			return;
 		}
 		
+		if(!isValidSource(source))
+			return;
+		
 		//to check if a message is for a broadcast that we are not participating!
-		if(addedNowOnBroadcasts(msg.getUUID(), msg.getValue(),msg.getNodeID()))
-			this.activeBroadcasts.get(msg.getUUID()).get(msg.getValue()).setStep(1);
+		boolean addedNow = addedNowOnBroadcasts(msg, msg.getValue(),msg.getNodeID());
+		BroadcastState state = this.activeBroadcasts.get(msg);
+		BroadcastInfo info = state.get(msg.getValue());
+		if(addedNow)
+			state.setStep(info, 1);
 		
-		//To update the structures that this broadcast for all values that this node supports
-		this.activeBroadcasts.get(msg.getUUID()).get(msg.getValue()).addReadyNode(source.getNodeId());
-		this.activeBroadcasts.get(msg.getUUID()).get(msg.getValue()).increaseNumberOfReadyM();
-		updateOtherStructures(msg.getUUID(), msg.getValue(), source.getNodeId(),BBMessageType.READY);
+		//A duplicate ready leaves the counters unchanged, so it cannot cross a threshold
+		if(!state.addReady(info, source.getNodeId()))
+			return;
 		
 		//Actual Broadcast code
-		int numberOfReadyM = this.activeBroadcasts.get(msg.getUUID()).get(msg.getValue()).getNumberOfReadyM();
-		int numberOfSteps = this.activeBroadcasts.get(msg.getUUID()).get(msg.getValue()).getStep();
+		int numberOfReadyM = info.getNumberOfReadyM();
+		int numberOfSteps = info.getStep();
 	
 		if(numberOfReadyM == this.toleratedFaults + 1)
 		{
 			if(numberOfSteps == 1)
 			{
-				this.communicator.sendGroup(nodeGroup, new EchoMessage(msg.getApplicationID(), msg.getConsensusID(), msg.getNodeID(), msg.getBroadcastID(), msg.getValue()));
-				this.activeBroadcasts.get(msg.getUUID()).get(msg.getValue()).setStep(2);
+				sendGroup(createEchoMessage(msg, msg.getValue()));
+				state.setStep(info, 2);
 			}
 			else if( numberOfSteps == 2)
 			{
-				this.communicator.sendGroup(nodeGroup, new ReadyMessage(msg.getApplicationID(), msg.getConsensusID(), msg.getNodeID(), msg.getBroadcastID(), msg.getValue()));
-				this.activeBroadcasts.get(msg.getUUID()).get(msg.getValue()).setStep(3);
+				sendGroup(createReadyMessage(msg, msg.getValue()));
+				state.setStep(info, 3);
 			}
 		}
 		else if( numberOfReadyM == 2 * this.toleratedFaults +1)
 		{
 			if(numberOfSteps ==  3)
 			{
-				this.completedBroadcasts.add(msg.getUUID());
-				this.activeBroadcasts.remove(msg.getUUID());
-				BroadcastAccept acc = new BroadcastAccept(msg.getApplicationID(), msg.getConsensusID(), msg.getNodeID() , msg.getBroadcastID(), msg.getValue());
-				
+				this.completedBroadcasts.add(msg.getKey());
+				if(!digestMode)
+					deliver(msg, msg.getValue());
+				else if(info.getValue() != null)
+					deliver(msg, info.getValue());
+				else {
+					state.setStep(info, AWAITING_VALUE_STEP);
+					requestValue(msg, info);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * The handler of the value requests of the digest-only mode. The node
+	 * answers with the value of the broadcast, if it holds it. Otherwise, it
+	 * records the request and answers as soon as it receives the value.
+	 * 
+	 * @param msg
+	 *            The actual value request to be processed; its value is the
+	 *            requested digest.
+	 * @param source
+	 *            The sender of the message.
+	 */
+	public void OnValueRequestMessage(ValueRequestMessage msg, Node source)
+	{
+		if(GlobalVariables.HIGH_VERBOSE)
+			System.out.println("[BrachaBroadcast, Node: " + communicator.getCurrentNode().getNodeId() + "]: A ValueRequestMessage was received: " + msg.toString() + " from Node " + source.getNodeId());
+		
+		if(!isValidSource(source))
+			return;
+		
+		String value = this.deliveredValues.get(msg);
+		if(value == null)
+		{
+			BroadcastState state = this.activeBroadcasts.get(msg);
+			BroadcastInfo info = (state == null) ? null : state.get(msg.getValue());
+			if(info == null)
+			{
 				if(GlobalVariables.HIGH_VERBOSE)
-					System.out.println("[BrachaBroadcast, Node: " + communicator.getCurrentNode().getNodeId() + "]: Accepting message " + acc.toString());
+					System.out.println("[BrachaBroadcast, Node: " + communicator.getCurrentNode().getNodeId() + "]: IGNORE " + msg.toString() + " from Node " + source.getNodeId());
 				
-				applicationGetter.getApp(acc.getApplicationID()).process(acc);
+				return;
+			}
+			
+			value = info.getValue();
+			if(value == null)
+			{
+				info.addValueRequest(source.getNodeId());
+				return;
 			}
 		}
+		
+		send(source, new ValueResponseMessage(msg.getApplicationID(), msg.getConsensusID(), msg.getNodeID(), msg.getBroadcastID(), value));
+	}
+	
+	/**
+	 * The handler of the value responses of the digest-only mode. The value is
+	 * accepted only if its digest matches a digest of the broadcast that this
+	 * node has not received the value for.
+	 * 
+	 * @param msg
+	 *            The actual value response to be processed.
+	 * @param source
+	 *            The sender of the message.
+	 */
+	public void OnValueResponseMessage(ValueResponseMessage msg, Node source)
+	{
+		if(GlobalVariables.HIGH_VERBOSE)
+			System.out.println("[BrachaBroadcast, Node: " + communicator.getCurrentNode().getNodeId() + "]: A ValueResponseMessage was received: " + msg.toString() + " from Node " + source.getNodeId());
+		
+		acceptValue(msg, getEntry(msg.getValue()));
+	}
+	
+	/**
+	 * Accepts the value carried by a message, in case the broadcast is still
+	 * active and the node has not received the value that matches the digest.
+	 * 
+	 * @param msg
+	 *            The message that carries the value.
+	 * @param digest
+	 *            The digest of the value.
+	 */
+	private void acceptValue(BroadcastMessage msg, String digest)
+	{
+		BroadcastState state = this.activeBroadcasts.get(msg);
+		BroadcastInfo info = (state == null) ? null : state.get(digest);
+		if(info == null || info.getValue() != null)
+			return;
+		
+		onValueReceived(msg, info, msg.getValue());
+	}
+	
+	/**
+	 * Stores the value of a broadcast in the digest-only mode, answers the
+	 * pending value requests and delivers the broadcast, if it was waiting for
+	 * the value.
+	 * 
+	 * @param msg
+	 *            The message that carried the value.
+	 * @param info
+	 *            The information of the broadcast regarding the digest of the
+	 *            value.
+	 * @param value
+	 *            The value of the broadcast.
+	 */
+	private void onValueReceived(BroadcastMessage msg, BroadcastInfo info, String value)
+	{
+		info.setValue(value);
+		
+		BitSet requests = info.getValueRequests();
+		if(requests != null)
+		{
+			for(int nodeID = requests.nextSetBit(0); nodeID >= 0; nodeID = requests.nextSetBit(nodeID + 1))
+				send(this.communicator.getOtherNode(nodeID), new ValueResponseMessage(msg.getApplicationID(), msg.getConsensusID(), msg.getNodeID(), msg.getBroadcastID(), value));
+		}
+		
+		if(info.getStep() == AWAITING_VALUE_STEP)
+			deliver(msg, value);
+	}
+	
+	/**
+	 * Requests the value of a broadcast from toleratedFaults + 1 nodes,
+	 * preferring those that have sent an <em>Echo</em> message for its digest
+	 * and then those that have sent a <em>Ready</em> one. A correct node may
+	 * send both messages through amplification, without holding the value,
+	 * so the requested nodes may all be waiting for the value themselves. In
+	 * case the value has not arrived once the timeout expires, it is
+	 * requested from every other node: the first correct node to echo the
+	 * digest has received the <em>Init</em> message, so at least one correct
+	 * node holds the value.
+	 * 
+	 * @param msg
+	 *            The last Ready message of the broadcast.
+	 * @param info
+	 *            The information of the broadcast regarding the digest.
+	 */
+	private void requestValue(BroadcastMessage msg, BroadcastInfo info)
+	{
+		BitSet requested = new BitSet(this.numNodes);
+		requested.set(this.communicator.getCurrentNode().getNodeId());
+		
+		int remaining = this.toleratedFaults + 1;
+		remaining = requestValue(msg, info.getEchoNodes(), requested, remaining);
+		requestValue(msg, info.getReadyNodes(), requested, remaining);
+		
+		this.communicator.setTimeout(GlobalVariables.TIMEOUT, ShardedEngine.bind(() -> {
+			if(info.getValue() != null || this.activeBroadcasts.get(msg) == null)
+				return;
+			
+			BitSet others = new BitSet(this.numNodes);
+			others.set(0, this.numNodes);
+			requestValue(msg, others, requested, this.numNodes);
+		}));
+	}
+	
+	/**
+	 * Requests the value of a broadcast from up to a number of candidate
+	 * nodes that have not been requested yet.
+	 * 
+	 * @param msg
+	 *            The last Ready message of the broadcast.
+	 * @param candidates
+	 *            The candidate nodes.
+	 * @param requested
+	 *            The nodes that have already been requested; it is updated
+	 *            with the newly requested nodes.
+	 * @param remaining
+	 *            The maximum number of nodes to request.
+	 * @return the number of nodes that remain to be requested.
+	 */
+	private int requestValue(BroadcastMessage msg, BitSet candidates, BitSet requested, int remaining)
+	{
+		for(int nodeID = candidates.nextSetBit(0); nodeID >= 0 && remaining > 0; nodeID = candidates.nextSetBit(nodeID + 1))
+		{
+			if(requested.get(nodeID))
+				continue;
+			
+			requested.set(nodeID);
+			send(this.communicator.getOtherNode(nodeID), new ValueRequestMessage(msg.getApplicationID(), msg.getConsensusID(), msg.getNodeID(), msg.getBroadcastID(), msg.getValue()));
+			--remaining;
+		}
+		
+		return remaining;
+	}
+	
+	/**
+	 * Delivers a completed broadcast to the application.
+	 * 
+	 * @param msg
+	 *            The message that completed the broadcast.
+	 * @param value
+	 *            The value of the broadcast.
+	 */
+	private void deliver(BroadcastMessage msg, String value)
+	{
+		this.activeBroadcasts.remove(msg);
+		if(digestMode)
+			this.deliveredValues.put(msg, value);
+		
+		BroadcastAccept acc = new BroadcastAccept(msg.getApplicationID(), msg.getConsensusID(), msg.getNodeID() , msg.getBroadcastID(), value);
+		
+		if(GlobalVariables.HIGH_VERBOSE)
+			System.out.println("[BrachaBroadcast, Node: " + communicator.getCurrentNode().getNodeId() + "]: Accepting message " + acc.toString());
+		
+		applicationGetter.getApp(acc.getApplicationID()).process(acc);
+	}
+	
+	/**
+	 * @param value
+	 *            The value of a broadcast.
+	 * @return the value itself, or its digest in the digest-only mode. This is
+	 *         the entry that the Echo and Ready messages carry.
+	 */
+	private String getEntry(String value)
+	{
+		if(!digestMode)
+			return value;
+		
+		return Base64.getEncoder().encodeToString(this.messageDigest.digest(value.getBytes(StandardCharsets.UTF_8)));
+	}
+	
+	/**
+	 * Creates the Echo message of a broadcast.
+	 * 
+	 * @param msg
+	 *            A message of the broadcast.
+	 * @param entry
+	 *            The value of the broadcast, or its digest in the digest-only
+	 *            mode.
+	 * @return the Echo message.
+	 */
+	private EchoMessage createEchoMessage(BroadcastMessage msg, String entry)
+	{
+		if(digestMode)
+			return new EchoDigestMessage(msg.getApplicationID(), msg.getConsensusID(), msg.getNodeID(), msg.getBroadcastID(), entry);
+		
+		return new EchoMessage(msg.getApplicationID(), msg.getConsensusID(), msg.getNodeID(), msg.getBroadcastID(), entry);
+	}
+	
+	/**
+	 * Creates the Ready message of a broadcast.
+	 * 
+	 * @param msg
+	 *            A message of the broadcast.
+	 * @param entry
+	 *            The value of the broadcast, or its digest in the digest-only
+	 *            mode.
+	 * @return the Ready message.
+	 */
+	private ReadyMessage createReadyMessage(BroadcastMessage msg, String entry)
+	{
+		if(digestMode)
+			return new ReadyDigestMessage(msg.getApplicationID(), msg.getConsensusID(), msg.getNodeID(), msg.getBroadcastID(), entry);
+		
+		return new ReadyMessage(msg.getApplicationID(), msg.getConsensusID(), msg.getNodeID(), msg.getBroadcastID(), entry);
 	}
 	
 	/**
 	 * This function is used to add active broadcast to the appropriate
-	 * structure. It utilizes a Map strucure that map a UUID with different
-	 * values.
+	 * structure. It utilizes an {@link ActiveBroadcasts} structure that maps
+	 * a broadcast with the state of the broadcast for its different values.
 	 * 
-	 * @param broadcastUUID
-	 *            The id that uniquely describes a broadcast
+	 * @param msg
+	 *            A message of the broadcast
 	 * @param value
-	 *            The actual value that corresponds to the broadcastUUID
+	 *            The actual value that corresponds to the broadcast
 	 * @param processID
 	 *            The initial sender of the message, since a message can be
 	 *            echoed by another node.
-	 * @return <em>true</em> if the tuple <broadcastUUID, value> did not existed
+	 * @return <em>true</em> if the tuple <broadcast, value> did not existed
 	 *         in the the structure, <em>false</em> in any other case.
 	 */
-	private boolean addedNowOnBroadcasts(String broadcastUUID, String value, int processID)
+	private boolean addedNowOnBroadcasts(BroadcastMessage msg, String value, int processID)
 	{
-		if(!this.activeBroadcasts.containsKey(broadcastUUID))
+		BroadcastState state = this.activeBroadcasts.get(msg);
+		if(state == null)
 		{
-			this.activeBroadcasts.put(broadcastUUID, new HashMap<>());
-			this.activeBroadcasts.get(broadcastUUID).put(value, new BroadcastInfo(processID));
+			state = new BroadcastState(this.numNodes);
+			state.add(value, processID);
+			this.activeBroadcasts.put(msg, state);
 			return true;
 		}
-		else if(!this.activeBroadcasts.get(broadcastUUID).containsKey(value))
+		else if(state.get(value) == null)
 		{
-			this.activeBroadcasts.get(broadcastUUID).put(value, new BroadcastInfo(processID));
+			state.add(value, processID);
 			return true;
 		}
 		return false;
@@ -346,68 +708,37 @@ public class BrachaBroadcast implements IBroadcast
 	
 	/**
 	 * This function is used to check if a step regarding a value of a specific
-	 * uuid has been completed. In these cases we need to disregard the message
+	 * broadcast has been completed. In these cases we need to disregard the message
 	 * destined for that step.
 	 * 
-	 * @param uuid
-	 *            The id that uniquely describes the broadcast
-	 * @param value
-	 *            The value that maps to the uuid
+	 * @param state
+	 *            The state of the broadcast
 	 * @param greaterThanStep
 	 *            The step that the broadcast regarding that value is.
 	 * @return <em>true</em> if the phase regarding the tuple <uuid, value> has
 	 *         been completed, <em>false</em> in any other case
 	 */
-	private boolean anyOtherPhaseCompleted(String uuid, String value, int greaterThanStep)
+	private boolean anyOtherPhaseCompleted(BroadcastState state, int greaterThanStep)
 	{	
-		for (String valueAsKey : this.activeBroadcasts.get(uuid).keySet()) 
-		{
-			if(this.activeBroadcasts.get(uuid).get(valueAsKey).getStep() > greaterThanStep)
-				return true;
-		}
-		return false;
+		return state.getHighestStep() > greaterThanStep;
 	}
 	
 	/**
-	 * This function is used to update the number of echo and ready messages
-	 * regarding a value of a specific broadcast id.
+	 * This function is used to check that the sender of a message is one of
+	 * the nodes of the system, since the echo and ready messages are tracked
+	 * per node identifier.
 	 * 
-	 * @param uuid
-	 *            The id that uniquely describes the broadcast
-	 * @param value
-	 *            The value that maps to the uuid
-	 * @param processID
-	 *            The initial sender of the message, since a message can be
-	 *            echoed by another node.
-	 * @param step
-	 *            The type of the message a.k.a Init, Echo, Ready.
-	 * @return <em>true</em> in case the update was successful, <em>false</em>
-	 *         in any other case.
+	 * @param source
+	 *            The sender of the message.
+	 * @return <em>true</em> if the identifier of the sender is within [0,
+	 *         numNodes), <em>false</em> in any other case.
 	 */
-	private boolean updateOtherStructures(String uuid, String value, Integer processID, BBMessageType step)
-	{	
-		for (String valueAsKey : this.activeBroadcasts.get(uuid).keySet()) 
-		{
-			if( !valueAsKey.equals(value) )
-		    {
-				switch(step){
-					case ECHO:
-							if(this.activeBroadcasts.get(uuid).get(valueAsKey).removeEchoNode(processID)){
-								this.activeBroadcasts.get(uuid).get(valueAsKey).descreaseNumberOfEchoM();
-								return true;
-							}
-						break;
-					case READY:
-							if(this.activeBroadcasts.get(uuid).get(valueAsKey).removeReadyNode(processID)){
-								this.activeBroadcasts.get(uuid).get(valueAsKey).descreaseNumberOfReadyM();
-								return true;
-							}
-						break;
-					default:
-						break;
-				}
-		    }
-		}
+	private boolean isValidSource(Node source)
+	{
+		if(source.getNodeId() >= 0 && source.getNodeId() < this.numNodes)
+			return true;
+		
+		System.err.println("[BrachaBroadcast, Node: " + communicator.getCurrentNode().getNodeId() + "]: Ignoring a message from unknown Node " + source.getNodeId());
 		return false;
 	}
 
@@ -415,4 +746,34 @@ public class BrachaBroadcast implements IBroadcast
 	public AbstractCommunicator getCommunicator() {
 		return this.communicator;
 	}
+
+	/**
+	 * Sends a message to all nodes of the group, through the batcher of the
+	 * communicator if batching is enabled.
+	 * 
+	 * @param msg
+	 *            the message.
+	 */
+	private void sendGroup(Message msg) {
+		if(batcher != null)
+			batcher.sendGroup(nodeGroup, msg);
+		else
+			communicator.sendGroup(nodeGroup, msg);
+	}
+
+	/**
+	 * Sends a message to a single node, through the batcher of the
+	 * communicator if batching is enabled.
+	 * 
+	 * @param node
+	 *            the destination node.
+	 * @param msg
+	 *            the message.
+	 */
+	private void send(Node node, Message msg) {
+		if(batcher != null)
+			batcher.send(node, msg);
+		else
+			communicator.send(node, msg);
+	}
 }
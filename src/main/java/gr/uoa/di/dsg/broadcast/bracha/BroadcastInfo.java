@@ -16,8 +16,7 @@
  ******************************************************************************/
 package gr.uoa.di.dsg.broadcast.bracha;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.BitSet;
 
 /**
  * @author Panos
@@ -50,14 +49,27 @@ public class BroadcastInfo {
 	private int step = 0;
 
 	/**
-	 * The nodes that have sent echo message
+	 * The nodes that have sent echo message, as a bitmap of their identifiers
 	 */
-	private Set<Integer> nodesSendEcho = null;
+	private BitSet nodesSendEcho = null;
 
 	/**
-	 * The nodes that have sent ready message
+	 * The nodes that have sent ready message, as a bitmap of their identifiers
 	 */
-	private Set<Integer> nodesSendReady = null;
+	private BitSet nodesSendReady = null;
+
+	/**
+	 * The value of the broadcast, in the digest-only mode of
+	 * {@link BrachaBroadcast}. It is <em>null</em> until the value is
+	 * received through an Init message or a value response.
+	 */
+	private String value = null;
+
+	/**
+	 * The nodes that have requested the value of the broadcast before this
+	 * node held it, in the digest-only mode of {@link BrachaBroadcast}.
+	 */
+	private BitSet valueRequests = null;
 
 	/**
 	 * Initializes the data structures for a specific value.
@@ -67,10 +79,7 @@ public class BroadcastInfo {
 	 *            to
 	 */
 	public BroadcastInfo(int processID) {
-		this.processID = processID;
-		this.step = 1;
-		this.nodesSendEcho = new HashSet<>();
-		this.nodesSendReady = new HashSet<>();
+		this(1, processID);
 	}
 
 	/**
@@ -84,6 +93,8 @@ public class BroadcastInfo {
 	public BroadcastInfo(int step, int processID) {
 		this.processID = processID;
 		this.step = step;
+		this.nodesSendEcho = new BitSet();
+		this.nodesSendReady = new BitSet();
 	}
 
 	/**
@@ -112,15 +123,6 @@ public class BroadcastInfo {
 		return numberOfEchoM;
 	}
 
-	/**
-	 * @deprecated Mutator for the number of echo messages.
-	 * @param numberOfEchoM
-	 *            the number of echo messages.
-	 */
-	public void setNumberOfEchoM(int numberOfEchoM) {
-		this.numberOfEchoM = numberOfEchoM;
-	}
-
 	/**
 	 * Accessor for the number of ready messages.
 	 * 
@@ -130,15 +132,6 @@ public class BroadcastInfo {
 		return numberOfReadyM;
 	}
 
-	/**
-	 * @deprecated Mutator for the number of ready messages
-	 * @param numberOfReadyM
-	 *            the number of ready messages.
-	 */
-	public void setNumberOfReadyM(int numberOfReadyM) {
-		this.numberOfReadyM = numberOfReadyM;
-	}
-
 	/**
 	 * Accessor for the step that the broadcast is currently in.
 	 * 
@@ -158,45 +151,23 @@ public class BroadcastInfo {
 		this.step = step;
 	}
 
-	/**
-	 * Increases the number of Echo messages by one.
-	 */
-	public void increaseNumberOfEchoM() {
-		this.numberOfEchoM++;
-	}
-
-	/**
-	 * Decreases the number of Echo messages by one.
-	 */
-	public void descreaseNumberOfEchoM() {
-		this.numberOfEchoM--;
-	}
-
-	/**
-	 * Increases the number of Ready messages by one.
-	 */
-	public void increaseNumberOfReadyM() {
-		this.numberOfReadyM++;
-	}
-
-	/**
-	 * Decreases the number of Ready messaeges by one.
-	 */
-	public void descreaseNumberOfReadyM() {
-		this.numberOfReadyM--;
-	}
-
 	/**
 	 * Adds a sender node to the set of the nodes that have sent an Echo message
-	 * regarding the tuple <bid, val>.
+	 * regarding the tuple <bid, val> and increases the number of Echo
+	 * messages, unless the sender was already in the set.
 	 * 
 	 * @param source
 	 *            the identifier of the sender of an echo message.
 	 * @return <em>true</em> if the set does not contain the sender of the echo
 	 *         message, <em>false</em> in any other case.
 	 */
-	public boolean addEchoNode(Integer source) {
-		return nodesSendEcho.add(source);
+	public boolean addEchoNode(int source) {
+		if(nodesSendEcho.get(source))
+			return false;
+		
+		nodesSendEcho.set(source);
+		this.numberOfEchoM++;
+		return true;
 	}
 
 	/**
@@ -208,34 +179,46 @@ public class BroadcastInfo {
 	 * @return <em>true</em> if the set contained the sender of the message,
 	 *         <em>false</em> in any other case.
 	 */
-	public boolean containsEchoNode(Integer source) {
-		return nodesSendEcho.contains(source);
+	public boolean containsEchoNode(int source) {
+		return nodesSendEcho.get(source);
 	}
 
 	/**
 	 * Removes the sender of the echo message from the set of the senders
-	 * regarding the tuple <bid, val>
+	 * regarding the tuple <bid, val> and decreases the number of Echo
+	 * messages accordingly.
 	 * 
 	 * @param source
 	 *            the identifier of the sender of an echo message.
 	 * @return <em>true</em> if the set contained the sender of the message,
 	 *         <em>false</em> in any other case
 	 */
-	public boolean removeEchoNode(Integer source) {
-		return nodesSendEcho.remove(source);
+	public boolean removeEchoNode(int source) {
+		if(!nodesSendEcho.get(source))
+			return false;
+		
+		nodesSendEcho.clear(source);
+		this.numberOfEchoM--;
+		return true;
 	}
 
 	/**
 	 * Adds that sender of a Ready message to the set of the senders of Ready
-	 * messages.
+	 * messages and increases the number of Ready messages, unless the sender
+	 * was already in the set.
 	 * 
 	 * @param source
 	 *            the identfier of the sender of the Ready message.
 	 * @return <em>true</em> if the set does not contain the sender of the
 	 *         message <em>false</em> in any other case.
 	 */
-	public boolean addReadyNode(Integer source) {
-		return nodesSendReady.add(source);
+	public boolean addReadyNode(int source) {
+		if(nodesSendReady.get(source))
+			return false;
+		
+		nodesSendReady.set(source);
+		this.numberOfReadyM++;
+		return true;
 	}
 
 	/**
@@ -247,21 +230,80 @@ public class BroadcastInfo {
 	 * @return <em>true</em> if the set contained the sender of the message,
 	 *         <em>false</em> in any other case.
 	 */
-	public boolean containsReadyNode(Integer source) {
-		return nodesSendReady.contains(source);
+	public boolean containsReadyNode(int source) {
+		return nodesSendReady.get(source);
 	}
 
 	/**
 	 * Removes the sender of the Ready message from the set of the senders of
-	 * Ready messages.
+	 * Ready messages and decreases the number of Ready messages accordingly.
 	 * 
 	 * @param source
 	 *            the identfier of the sender of the Ready message.
 	 * @return <em>true</em> if the set contained the sender of the message,
 	 *         <em>false</em> in any other case
 	 */
-	public boolean removeReadyNode(Integer source) {
-		return nodesSendReady.remove(source);
+	public boolean removeReadyNode(int source) {
+		if(!nodesSendReady.get(source))
+			return false;
+		
+		nodesSendReady.clear(source);
+		this.numberOfReadyM--;
+		return true;
+	}
+
+	/**
+	 * @return the nodes that have sent an Echo message regarding the tuple
+	 *         <bid, val>.
+	 */
+	public BitSet getEchoNodes() {
+		return nodesSendEcho;
+	}
+
+	/**
+	 * @return the nodes that have sent a Ready message regarding the tuple
+	 *         <bid, val>.
+	 */
+	public BitSet getReadyNodes() {
+		return nodesSendReady;
+	}
+
+	/**
+	 * @return the value of the broadcast, or <em>null</em> if the node does
+	 *         not hold it yet.
+	 */
+	public String getValue() {
+		return value;
+	}
+
+	/**
+	 * @param value
+	 *            the value of the broadcast
+	 */
+	public void setValue(String value) {
+		this.value = value;
+	}
+
+	/**
+	 * Records a node that has requested the value of the broadcast before
+	 * this node held it.
+	 * 
+	 * @param source
+	 *            the identifier of the node that requested the value.
+	 */
+	public void addValueRequest(int source) {
+		if(valueRequests == null)
+			valueRequests = new BitSet();
+		
+		valueRequests.set(source);
+	}
+
+	/**
+	 * @return the nodes that have requested the value of the broadcast, or
+	 *         <em>null</em> if there are none.
+	 */
+	public BitSet getValueRequests() {
+		return valueRequests;
 	}
 
 	/**
@@ -275,11 +317,11 @@ public class BroadcastInfo {
 		msg += "\n#Echo Messages : " + numberOfEchoM;
 		msg += "\n#Ready Messages : " + numberOfReadyM;
 		msg += "\nNodes voted Echo :";
-		for (Integer i : nodesSendEcho) {
+		for (int i = nodesSendEcho.nextSetBit(0); i >= 0; i = nodesSendEcho.nextSetBit(i + 1)) {
 			msg += " " + i;
 		}
 		msg += "\nNodes voted Ready :";
-		for (Integer i : nodesSendReady) {
+		for (int i = nodesSendReady.nextSetBit(0); i >= 0; i = nodesSendReady.nextSetBit(i + 1)) {
 			msg += " " + i;
 		}
 		return msg;
@@ -0,0 +1,161 @@
+/*******************************************************************************
+ * Copyright (C) 2019 DSG at University of Athens
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package gr.uoa.di.dsg.broadcast.bracha;
+
+import java.util.HashMap;
+
+/**
+ * The state of a single active broadcast (see
+ * {@link gr.uoa.di.dsg.broadcast.BroadcastKey}). It holds the
+ * {@link BroadcastInfo} of every value proposed for the broadcast, along with
+ * the highest step reached by any of those values and, for each sender, the
+ * value its <em>Echo</em> and <em>Ready</em> messages are currently counted
+ * for. Together they make the quorum checks and the cross-value updates of
+ * {@link BrachaBroadcast} constant-time, regardless of the number of values.
+ */
+public class BroadcastState {
+
+	/**
+	 * The information of the broadcast for each value
+	 */
+	private HashMap<String, BroadcastInfo> perValueMap = null;
+
+	/**
+	 * The highest step that the broadcast has reached for any value
+	 */
+	private int highestStep = 0;
+
+	/**
+	 * The value, indexed by node identifier, that each node has sent an echo
+	 * message for.
+	 */
+	private BroadcastInfo[] echoedValues = null;
+
+	/**
+	 * The value, indexed by node identifier, that each node has sent a ready
+	 * message for.
+	 */
+	private BroadcastInfo[] readiedValues = null;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param numNodes
+	 *            the total number of nodes in the system.
+	 */
+	public BroadcastState(int numNodes) {
+		this.perValueMap = new HashMap<>(2);
+		this.echoedValues = new BroadcastInfo[numNodes];
+		this.readiedValues = new BroadcastInfo[numNodes];
+	}
+
+	/**
+	 * @param value
+	 *            the value of the broadcast.
+	 * @return the information of the broadcast regarding the value, or
+	 *         <em>null</em> if the value has not been seen yet.
+	 */
+	public BroadcastInfo get(String value) {
+		return perValueMap.get(value);
+	}
+
+	/**
+	 * Adds a new value to the broadcast.
+	 *
+	 * @param value
+	 *            the value of the broadcast.
+	 * @param processID
+	 *            the initial sender of the broadcast.
+	 * @return the information of the broadcast regarding the value.
+	 */
+	public BroadcastInfo add(String value, int processID) {
+		BroadcastInfo info = new BroadcastInfo(processID);
+		perValueMap.put(value, info);
+		if(info.getStep() > highestStep)
+			highestStep = info.getStep();
+
+		return info;
+	}
+
+	/**
+	 * Sets the step of a value of the broadcast, keeping the highest step of
+	 * the broadcast up to date.
+	 *
+	 * @param info
+	 *            the information of the broadcast regarding the value.
+	 * @param step
+	 *            the new step.
+	 */
+	public void setStep(BroadcastInfo info, int step) {
+		info.setStep(step);
+		if(step > highestStep)
+			highestStep = step;
+	}
+
+	/**
+	 * @return the highest step that the broadcast has reached for any value.
+	 */
+	public int getHighestStep() {
+		return highestStep;
+	}
+
+	/**
+	 * Counts the echo message of a node for a value. If the node had sent an
+	 * echo message for a different value, that message stops being counted.
+	 *
+	 * @param info
+	 *            the information of the broadcast regarding the value.
+	 * @param nodeID
+	 *            the sender of the echo message.
+	 * @return <em>true</em> if the echo message was counted, <em>false</em> if
+	 *         the node had already sent an echo message for the value.
+	 */
+	public boolean addEcho(BroadcastInfo info, int nodeID) {
+		if(!info.addEchoNode(nodeID))
+			return false;
+
+		BroadcastInfo previous = echoedValues[nodeID];
+		if(previous != null)
+			previous.removeEchoNode(nodeID);
+
+		echoedValues[nodeID] = info;
+		return true;
+	}
+
+	/**
+	 * Counts the ready message of a node for a value. If the node had sent a
+	 * ready message for a different value, that message stops being counted.
+	 *
+	 * @param info
+	 *            the information of the broadcast regarding the value.
+	 * @param nodeID
+	 *            the sender of the ready message.
+	 * @return <em>true</em> if the ready message was counted, <em>false</em>
+	 *         if the node had already sent a ready message for the value.
+	 */
+	public boolean addReady(BroadcastInfo info, int nodeID) {
+		if(!info.addReadyNode(nodeID))
+			return false;
+
+		BroadcastInfo previous = readiedValues[nodeID];
+		if(previous != null)
+			previous.removeReadyNode(nodeID);
+
+		readiedValues[nodeID] = info;
+		return true;
+	}
+}
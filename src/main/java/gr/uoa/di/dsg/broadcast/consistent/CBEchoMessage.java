@@ -18,9 +18,8 @@ package gr.uoa.di.dsg.broadcast.consistent;
 
 import gr.uoa.di.dsg.broadcast.BroadcastMessage;
 import gr.uoa.di.dsg.broadcast.consistent.ConsistentBroadcastMessage.CBandRBSEcho;
+import gr.uoa.di.dsg.crypto.AuthenticatorVector;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
 
@@ -83,37 +82,25 @@ public class CBEchoMessage extends BroadcastMessage {
 	}
 	
 	public byte[] getSignature(int selfNodeID, int digestLength) {
-		int offset = 0;
+		byte[] nodeSignature = AuthenticatorVector.get(signature, selfNodeID);
+		if(nodeSignature == null || nodeSignature.length != digestLength)
+			throw new RuntimeException("[CBEchoMessasge]: The nodeID " + selfNodeID + " was not found in the array of signatures!");
 		
-		while(offset < signature.length) {
-			int currentNodeID = (int) signature[offset];
-			if(currentNodeID == selfNodeID) {
-				byte[] nodeSignature = new byte[digestLength];
-				System.arraycopy(signature, offset + 1, nodeSignature, 0, digestLength);
-				
-				return nodeSignature;
-			}
-			
-			offset += (digestLength + 1);
-		}
-		
-		throw new RuntimeException("[CBEchoMessasge]: The nodeID " + selfNodeID + " was not found in the array of signatures!");
+		return nodeSignature;
 	}
 	
 	public void setSignature(byte[] signature) {
 		this.signature = signature;
 	}
 	
-	public void setSignature(List<Integer> nodeIDs, List<byte[]> signatures) throws IOException {
-		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-		
-		for(int i = 0; i < nodeIDs.size(); ++i) {
-			int currentNodeID = nodeIDs.get(i);
-			outputStream.write((byte) currentNodeID);
-			outputStream.write(signatures.get(i));
-		}
-		
-		signature = outputStream.toByteArray();
+	/**
+	 * Packs the authenticators of the specified nodes into the signature of
+	 * this message (see {@link AuthenticatorVector}).
+	 * @param nodeIDs the identifiers of the recipients
+	 * @param signatures the authenticator for each recipient
+	 */
+	public void setSignature(List<Integer> nodeIDs, List<byte[]> signatures) {
+		signature = AuthenticatorVector.encode(nodeIDs, signatures);
 	}
 
 	/**
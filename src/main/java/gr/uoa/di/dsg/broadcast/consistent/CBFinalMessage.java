@@ -20,6 +20,7 @@ import gr.uoa.di.dsg.broadcast.BroadcastMessage;
 import gr.uoa.di.dsg.broadcast.consistent.ConsistentBroadcastMessage.CBandRBSFinal;
 import gr.uoa.di.dsg.broadcast.consistent.ConsistentBroadcastMessage.CBandRBSFinal.Builder;
 import gr.uoa.di.dsg.broadcast.consistent.ConsistentBroadcastMessage.CBandRBSFinal.OwnerAndSignatureTuple;
+import gr.uoa.di.dsg.crypto.AuthenticatorVector;
 
 import java.util.Arrays;
 import java.util.HashMap;
@@ -98,23 +99,11 @@ public class CBFinalMessage extends BroadcastMessage {
 	}
 	
 	public byte[] getSignature(int origNodeID, int selfNodeID, int digestLength) {
-		byte[] origSignature = signatures.get(origNodeID);
+		byte[] nodeSignature = AuthenticatorVector.get(signatures.get(origNodeID), selfNodeID);
+		if(nodeSignature == null || nodeSignature.length != digestLength)
+			throw new RuntimeException("[CBFinalMessasge]: The nodeID " + selfNodeID + " was not found in the array of signatures!");
 		
-		int offset = 0;
-		
-		while(offset < origSignature.length) {
-			int currentNodeID = (int) origSignature[offset];
-			if(currentNodeID == selfNodeID) {
-				byte[] nodeSignature = new byte[digestLength];
-				System.arraycopy(origSignature, offset + 1, nodeSignature, 0, digestLength);
-				
-				return nodeSignature;
-			}
-			
-			offset += (digestLength + 1);
-		}
-		
-		throw new RuntimeException("[CBFinalMessasge]: The nodeID " + nodeID + " was not found in the array of signatures!");
+		return nodeSignature;
 	}
 
 	/**
@@ -17,7 +17,11 @@
 package gr.uoa.di.dsg.broadcast.consistent;
 
 import gr.uoa.di.dsg.broadcast.BroadcastAccept;
+import gr.uoa.di.dsg.broadcast.ActiveBroadcasts;
+import gr.uoa.di.dsg.broadcast.CompletedBroadcasts;
 import gr.uoa.di.dsg.broadcast.reliable.ReliableBroadcastWithSignatures;
+import gr.uoa.di.dsg.broadcast.CryptoExecutor;
+import gr.uoa.di.dsg.broadcast.MessageBatcher;
 import gr.uoa.di.dsg.communicator.AbstractCommunicator;
 import gr.uoa.di.dsg.communicator.Message;
 import gr.uoa.di.dsg.communicator.Node;
@@ -25,8 +29,6 @@ import gr.uoa.di.dsg.crypto.CryptographyModule;
 import gr.uoa.di.dsg.ic.ApplicationGetter;
 import gr.uoa.di.dsg.utils.GlobalVariables;
 
-import java.util.HashMap;
-import java.util.HashSet;
 
 /**
  * This class enhances the functionality provided by the {@link ConsistentBroadcast} protocol,
@@ -85,18 +87,20 @@ public class ConsistentBroadcast extends GenericBroadcastWithSignatures {
 	
 	@Override
 	public void initialize(AbstractCommunicator comm, ApplicationGetter appGetter, String nodeGroup, int numNodes) {
-		comm.registerMessage(BrodacastWithSignaturesMessageType.CBSEND.getValue(), (byte[] data) -> CBSendMessage.deserialize(data), (Message msg, Node source) -> onCBSend((CBSendMessage) msg, source));
-		comm.registerMessage(BrodacastWithSignaturesMessageType.CBECHO.getValue(), (byte[] data) -> CBEchoMessage.deserialize(data), (Message msg, Node source) -> onCBEcho((CBEchoMessage) msg, source));
-		comm.registerMessage(BrodacastWithSignaturesMessageType.CBFINAL.getValue(), (byte[] data) -> CBFinalMessage.deserialize(data), (Message msg, Node source) -> onCBFinal((CBFinalMessage) msg, source));
+		MessageBatcher.registerMessage(comm, BrodacastWithSignaturesMessageType.CBSEND.getValue(), (byte[] data) -> CBSendMessage.deserialize(data), (Message msg, Node source) -> onCBSend((CBSendMessage) msg, source));
+		MessageBatcher.registerMessage(comm, BrodacastWithSignaturesMessageType.CBECHO.getValue(), (byte[] data) -> CBEchoMessage.deserialize(data), (Message msg, Node source) -> onCBEcho((CBEchoMessage) msg, source));
+		MessageBatcher.registerMessage(comm, BrodacastWithSignaturesMessageType.CBFINAL.getValue(), (byte[] data) -> CBFinalMessage.deserialize(data), (Message msg, Node source) -> onCBFinal((CBFinalMessage) msg, source));
 		
 		this.communicator = comm;
+		this.batcher = MessageBatcher.getBatcher(comm);
+		this.cryptoExecutor = CryptoExecutor.getExecutor(comm);
 		this.applicationGetter = appGetter;
 		this.nodeGroup = nodeGroup;
 		this.totalNodes = numNodes;
 		
 		/* Initialize all data structures. */
-		this.activeBroadcasts = new HashMap<>();
-		this.completedBroadcasts = new HashSet<>();
+		this.activeBroadcasts = new ActiveBroadcasts<>();
+		this.completedBroadcasts = CompletedBroadcasts.forShard(comm);
 		
 		/* Specify the maximum number of faults. */
 		this.faults = (int) Math.floor((totalNodes - 1) / 3.0);
@@ -146,26 +150,22 @@ public class ConsistentBroadcast extends GenericBroadcastWithSignatures {
 			return;
 		}
 		
-		/* Create a unique ID, based on the message's parameters. */
-		String UUID = message.getUUID();
-		if(completedBroadcasts.contains(UUID))
+		/* Check whether the message's broadcast has been completed. */
+		if(completedBroadcasts.contains(message))
 			return;
 		
-		String content = message.getUUID() + message.getValue();
-		
 		/* Verify the validity of the received message. */
-		this.verifySignaturesAsync(message, source, content, communicator.getCurrentNode().getNodeId(), (msg, src) -> processCBFinal((CBFinalMessage) msg, src));
+		this.verifySignaturesAsync(message, source, communicator.getCurrentNode().getNodeId(), (msg, src) -> processCBFinal((CBFinalMessage) msg, src));
 	}
 	
 	private void processCBFinal(CBFinalMessage message, Node source) {
-		/* Create a unique ID, based on the message's parameters. */
-		String UUID = message.getUUID();
-		if(completedBroadcasts.contains(UUID))
+		/* Check whether the message's broadcast has been completed. */
+		if(completedBroadcasts.contains(message))
 			return;
 		
 		/* Mark the broadcast as completed and remove all associated information. */
-		this.completedBroadcasts.add(UUID);
-		this.activeBroadcasts.remove(UUID);
+		this.completedBroadcasts.add(message.getKey());
+		this.activeBroadcasts.remove(message);
 		
 		/* Make an up-call with the delivered message. */
 		BroadcastAccept deliverMessage = new ConsistentBroadcastAccept(message.getApplicationID(), message.getConsensusID(), message.getNodeID() , message.getBroadcastID(), message.getValue(), message.getSignatures());
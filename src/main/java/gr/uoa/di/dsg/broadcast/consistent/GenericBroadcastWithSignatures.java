@@ -16,24 +16,34 @@
  ******************************************************************************/
 package gr.uoa.di.dsg.broadcast.consistent;
 
+import gr.uoa.di.dsg.broadcast.ActiveBroadcasts;
 import gr.uoa.di.dsg.broadcast.BroadcastMessage;
+import gr.uoa.di.dsg.broadcast.CompletedBroadcasts;
+import gr.uoa.di.dsg.broadcast.CryptoExecutor;
+import gr.uoa.di.dsg.broadcast.CryptoExecutor.Priority;
 import gr.uoa.di.dsg.broadcast.IBroadcast;
+import gr.uoa.di.dsg.broadcast.MessageBatcher;
+import gr.uoa.di.dsg.broadcast.ShardedEngine;
+import gr.uoa.di.dsg.broadcast.SigningPayload;
 import gr.uoa.di.dsg.communicator.AbstractCommunicator;
 import gr.uoa.di.dsg.communicator.AsynchronousTaskResultMessage;
 import gr.uoa.di.dsg.communicator.Message;
 import gr.uoa.di.dsg.communicator.Node;
 import gr.uoa.di.dsg.crypto.CryptographyModule;
 import gr.uoa.di.dsg.crypto.DigitalSignatureCryptographyModule;
+import gr.uoa.di.dsg.crypto.MerkleCryptographyModule;
 import gr.uoa.di.dsg.ic.ApplicationGetter;
 import gr.uoa.di.dsg.utils.GlobalVariables;
 
-import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.security.Key;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public abstract class GenericBroadcastWithSignatures implements IBroadcast {
 	/**
@@ -49,12 +59,12 @@ public abstract class GenericBroadcastWithSignatures implements IBroadcast {
 	/**
 	 * A map that stores all necessary information for each broadcast.
 	 */
-	protected Map<String, Map<String, CBandRBSBroadcastInfo>> activeBroadcasts = null;
+	protected ActiveBroadcasts<Map<String, CBandRBSBroadcastInfo>> activeBroadcasts = null;
 	
 	/**
 	 * The set of all completed broadcasts.
 	 */
-	protected Set<String> completedBroadcasts = null;
+	protected CompletedBroadcasts completedBroadcasts = null;
 	
 	/**
 	 * The total number of nodes in the system.
@@ -73,6 +83,46 @@ public abstract class GenericBroadcastWithSignatures implements IBroadcast {
 	
 	/** The communication group that this broadcast module belongs. */
 	protected String nodeGroup = null;
+	
+	/**
+	 * The batcher of the communicator, or <em>null</em> if batching is disabled.
+	 */
+	protected MessageBatcher batcher = null;
+	
+	/**
+	 * The executor of the asynchronous cryptographic work, or <em>null</em> if
+	 * the background tasks of the communicator are used.
+	 */
+	protected CryptoExecutor cryptoExecutor = null;
+	
+	/**
+	 * The broadcasts held back while the {@link #cryptoExecutor} is saturated.
+	 */
+	private List<CBSendMessage> deferredBroadcasts = new ArrayList<>();
+	
+	/**
+	 * The echoes that wait to be signed together, when their signatures are
+	 * batched (see {@link GlobalVariables#SIGNING_BATCH_WINDOW}).
+	 */
+	private List<PendingEcho> pendingEchoes = new ArrayList<>();
+	
+	/**
+	 * The timeout that signs the pending echoes, or <em>null</em> if none is set.
+	 */
+	private Object signingTimeout = null;
+	
+	/**
+	 * An echo that waits for its signature, along with its destination.
+	 */
+	private static class PendingEcho {
+		private final CBEchoMessage echoMessage;
+		private final Node source;
+		
+		PendingEcho(CBEchoMessage echoMessage, Node source) {
+			this.echoMessage = echoMessage;
+			this.source = source;
+		}
+	}
 
 	/**
 	 * Returns the number of nodes participating in the protocol.
@@ -145,20 +195,62 @@ public abstract class GenericBroadcastWithSignatures implements IBroadcast {
 			System.out.println("[" + this.getClass().getName() + ", Node: " + pid + "]: Starting a broadcast for " + msg.toString());
 		
 		// Mark my broadcast as active.
-		String UUID = msg.getUUID();
 		Map<String, CBandRBSBroadcastInfo> perValueMap = new HashMap<>();
 		perValueMap.put(value, new CBandRBSBroadcastInfo());
-		activeBroadcasts.put(UUID, perValueMap);
+		activeBroadcasts.put(msg, perValueMap);
 		
-		this.communicator.sendGroup(nodeGroup, msg);
+		/* Hold back new broadcasts while the cryptographic work is saturated. */
+		if(cryptoExecutor != null && !ShardedEngine.inShard() && (cryptoExecutor.isSaturated() || !deferredBroadcasts.isEmpty())) {
+			deferredBroadcasts.add(msg);
+			if(deferredBroadcasts.size() == 1)
+				awaitDrain();
+			
+			return;
+		}
+		
+		sendGroup(msg);
+	}
+	
+	/**
+	 * Releases the held back broadcasts on the communicator thread, once the
+	 * queue of the {@link #cryptoExecutor} has drained.
+	 */
+	private void awaitDrain() {
+		long requestTime = System.currentTimeMillis();
+		int currentMessageOrder = communicator.getCurrentMessageOrder();
+		cryptoExecutor.onDrained(() -> 
+			communicator.inputEnqueue(communicator.getCurrentNode(), 
+				new AsynchronousTaskResultMessage("releaseBroadcasts", "", Message.DEFAULT_SUBJECT, requestTime, currentMessageOrder,
+						() -> releaseDeferredBroadcasts())
+			)
+		);
+	}
+	
+	private void releaseDeferredBroadcasts() {
+		int released = 0;
+		while(released < deferredBroadcasts.size() && !cryptoExecutor.isSaturated())
+			sendGroup(deferredBroadcasts.get(released++));
+		
+		deferredBroadcasts.subList(0, released).clear();
+		if(!deferredBroadcasts.isEmpty())
+			awaitDrain();
 	}
 	
-	protected CBandRBSBroadcastInfo getCBandRBSBroadcastInfo(String UUID, String value) {
-		Map<String, CBandRBSBroadcastInfo> perValueMap = activeBroadcasts.get(UUID);
+	@Override
+	public void releaseApplication(String icid) {
+		this.completedBroadcasts.release(icid);
+		
+		/* Drop every broadcast of this application that never completed. */
+		this.activeBroadcasts.release(icid);
+		this.deferredBroadcasts.removeIf(msg -> msg.getApplicationID().equals(icid));
+	}
+	
+	protected CBandRBSBroadcastInfo getCBandRBSBroadcastInfo(BroadcastMessage message, String value) {
+		Map<String, CBandRBSBroadcastInfo> perValueMap = activeBroadcasts.get(message);
 		if(perValueMap == null) {
 			perValueMap = new HashMap<>();
 			perValueMap.put(value, new CBandRBSBroadcastInfo());
-			activeBroadcasts.put(UUID, perValueMap);
+			activeBroadcasts.put(message, perValueMap);
 		}
 		
 		CBandRBSBroadcastInfo broadcastInfo = perValueMap.get(value);
@@ -170,19 +262,19 @@ public abstract class GenericBroadcastWithSignatures implements IBroadcast {
 		return broadcastInfo;
 	}
 	
-	protected void signMessageAsync(BroadcastMessage msg, Node source, String sourceAlias, String content, Key key, SignatureResultProcessor processor) {
-		if(!GlobalVariables.ENABLE_ASYNC_WORK) {
+	protected void signMessageAsync(BroadcastMessage msg, Node source, String sourceAlias, Key key, SignatureResultProcessor processor) {
+		if(!GlobalVariables.ENABLE_ASYNC_WORK || ShardedEngine.inShard()) {
 			CBEchoMessage echoMessage = (CBEchoMessage) msg;
-			echoMessage.setSignature(cryptoModule.sign(content, key));
+			echoMessage.setSignature(cryptoModule.sign(msg.getSigningPayload(), key));
 			processor.processResult(echoMessage, source);
 		}
 		else {
 			long requestTime = System.currentTimeMillis();
 			int currentMessageOrder = communicator.getCurrentMessageOrder();
-			communicator.submitBackgroundTask( () -> 
+			submitCryptoTask(Priority.SIGN_ECHO, () -> 
 			{
 				CBEchoMessage echoMessage = (CBEchoMessage) msg;
-				echoMessage.setSignature(cryptoModule.sign(content, key));
+				echoMessage.setSignature(cryptoModule.sign(msg.getSigningPayload(), key));
 				
 				communicator.inputEnqueue(communicator.getCurrentNode(), 
 					new AsynchronousTaskResultMessage("signMessage", "", Message.DEFAULT_SUBJECT, requestTime, currentMessageOrder,
@@ -194,12 +286,13 @@ public abstract class GenericBroadcastWithSignatures implements IBroadcast {
 		}
 	}
 	
-	protected void signMessageAuthenticatorAsync(BroadcastMessage msg, Node source, String content, SignatureResultProcessor processor) {
-		if(!GlobalVariables.ENABLE_ASYNC_WORK) {
+	protected void signMessageAuthenticatorAsync(BroadcastMessage msg, Node source, SignatureResultProcessor processor) {
+		if(!GlobalVariables.ENABLE_ASYNC_WORK || ShardedEngine.inShard()) {
 			CBEchoMessage echoMessage = (CBEchoMessage) msg;
 
 			List<Integer> nodeIDs = new ArrayList<>(totalNodes);
 			List<byte[]> signatures = new ArrayList<>(totalNodes);
+			ByteBuffer content = msg.getSigningPayload();
 			
 			for(int i = 0; i < totalNodes; ++i) {
 				Key key = this.communicator.getCurrentNode().getSymmetricKey(i);
@@ -207,38 +300,27 @@ public abstract class GenericBroadcastWithSignatures implements IBroadcast {
 				signatures.add(cryptoModule.sign(content, key));
 			}
 			
-			try {
-				echoMessage.setSignature(nodeIDs, signatures);
-			}
-			catch (IOException ex) {
-				System.err.println("An IOException was caught: " + ex.getMessage());
-				ex.printStackTrace();
-			}
+			echoMessage.setSignature(nodeIDs, signatures);
 			
 			processor.processResult(echoMessage, source);
 		}
 		else {
 			long requestTime = System.currentTimeMillis();
 			int currentMessageOrder = communicator.getCurrentMessageOrder();
-			communicator.submitBackgroundTask( () -> 
+			submitCryptoTask(Priority.SIGN_ECHO, () -> 
 			{
 				CBEchoMessage echoMessage = (CBEchoMessage) msg;
 
 				List<Integer> nodeIDs = new ArrayList<>(totalNodes);
 				List<byte[]> signatures = new ArrayList<>(totalNodes);
+				ByteBuffer content = msg.getSigningPayload();
 				
 				for(int i = 0; i < totalNodes; ++i) {
 					nodeIDs.add(i);
 					signatures.add(cryptoModule.sign(content, this.communicator.getCurrentNode().getSymmetricKey(i)));
 				}
 				
-				try {
-					echoMessage.setSignature(nodeIDs, signatures);
-				}
-				catch (IOException ex) {
-					System.err.println("An IOException was caught: " + ex.getMessage());
-					ex.printStackTrace();
-				}
+				echoMessage.setSignature(nodeIDs, signatures);
 				
 				communicator.inputEnqueue(communicator.getCurrentNode(), 
 					new AsynchronousTaskResultMessage("signMessage", "", Message.DEFAULT_SUBJECT, requestTime, currentMessageOrder,
@@ -250,89 +332,229 @@ public abstract class GenericBroadcastWithSignatures implements IBroadcast {
 		}
 	}
 	
-	protected void verifySignaturesAsync(CBFinalMessage message, Node source, String content, int selfID, VerificationResultProcessor processor) {
-		if(!GlobalVariables.ENABLE_ASYNC_WORK) {
-			Key key = null;
-			
-			//System.out.println("Trying to verify message: " + message.toString());
-			for(Integer currentNodeID: message.getNodeIDsInSignature()) {
-				byte[] signature = null;
+	/**
+	 * Queues an echo to be signed along with the other echoes that arrive
+	 * within {@link GlobalVariables#SIGNING_BATCH_WINDOW} milliseconds. The
+	 * whole batch is covered by a single signature over the root of a Merkle
+	 * tree (see {@link MerkleCryptographyModule}).
+	 */
+	protected void signEchoBatched(CBEchoMessage echoMessage, Node source) {
+		pendingEchoes.add(new PendingEcho(echoMessage, source));
+		
+		if(pendingEchoes.size() >= GlobalVariables.SIGNING_BATCH_SIZE)
+			flushPendingEchoes();
+		else if(signingTimeout == null)
+			signingTimeout = communicator.setTimeout(GlobalVariables.SIGNING_BATCH_WINDOW, ShardedEngine.bind(() -> {
+				signingTimeout = null;
+				flushPendingEchoes();
+			}));
+	}
+	
+	/**
+	 * Signs all pending echoes with a single signature and sends them.
+	 */
+	protected void flushPendingEchoes() {
+		if(signingTimeout != null) {
+			communicator.cancelTimeout(signingTimeout);
+			signingTimeout = null;
+		}
+		
+		if(pendingEchoes.isEmpty())
+			return;
+		
+		List<PendingEcho> batch = pendingEchoes;
+		pendingEchoes = new ArrayList<>();
+		Key key = communicator.getCurrentNode().getPrivateKey();
+		
+		if(!GlobalVariables.ENABLE_ASYNC_WORK || ShardedEngine.inShard()) {
+			signEchoBatch(batch, key);
+			for(PendingEcho pending: batch)
+				processCBSend(pending.echoMessage, pending.source);
+		}
+		else {
+			long requestTime = System.currentTimeMillis();
+			int currentMessageOrder = communicator.getCurrentMessageOrder();
+			submitCryptoTask(Priority.SIGN_ECHO, () -> 
+			{
+				signEchoBatch(batch, key);
 				
-				if(cryptoModule instanceof DigitalSignatureCryptographyModule) {
-					key = communicator.getOtherNode(currentNodeID).getPublicKey();
-					signature = message.getSignature(currentNodeID);
-				}
-				else {
-					key = this.communicator.getCurrentNode().getSymmetricKey(currentNodeID);
-					signature = message.getSignature(currentNodeID, selfID, cryptoModule.getDigestLength());
-				}
-
-				if(!cryptoModule.verify(content, key, signature)) {
-					System.err.println("[" + communicator.getCurrentNode().getNodeId() + "]: The CBFinalMessage: " + message.toString()
-							+ " received from Node " + source.getNodeId() + " couldn't be verified!");
-					return;
-				}
+				communicator.inputEnqueue(communicator.getCurrentNode(), 
+					new AsynchronousTaskResultMessage("signMessageBatch", "", Message.DEFAULT_SUBJECT, requestTime, currentMessageOrder,
+							() -> {
+								for(PendingEcho pending: batch)
+									processCBSend(pending.echoMessage, pending.source);
+							})
+				);
+			});
+		}
+	}
+	
+	private void signEchoBatch(List<PendingEcho> batch, Key key) {
+		List<byte[]> data = new ArrayList<>(batch.size());
+		for(PendingEcho pending: batch)
+			data.add(SigningPayload.toByteArray(pending.echoMessage.getSigningPayload()));
+		
+		List<byte[]> signatures = ((MerkleCryptographyModule) cryptoModule).signBatch(data, key);
+		for(int i = 0; i < batch.size(); ++i)
+			batch.get(i).echoMessage.setSignature(signatures == null ? null : signatures.get(i));
+	}
+	
+	/**
+	 * Runs cryptographic work in the background, on the {@link #cryptoExecutor}
+	 * if there is one.
+	 */
+	private void submitCryptoTask(Priority priority, Runnable task) {
+		if(cryptoExecutor != null)
+			cryptoExecutor.execute(priority, task);
+		else
+			communicator.submitBackgroundTask(task);
+	}
+	
+	protected void verifySignaturesAsync(CBFinalMessage message, Node source, int selfID, VerificationResultProcessor processor) {
+		if(!GlobalVariables.ENABLE_ASYNC_WORK || ShardedEngine.inShard()) {
+			//System.out.println("Trying to verify message: " + message.toString());
+			if(!verifyCertificate(message, selfID)) {
+				System.err.println("[" + communicator.getCurrentNode().getNodeId() + "]: The CBFinalMessage: " + message.toString()
+						+ " received from Node " + source.getNodeId() + " couldn't be verified!");
+				return;
 			}
 			//System.out.println("Message: " + message.toString() + " verified!");
 			
 			processor.processResult(message, source);
 		}
+		else if(GlobalVariables.PARALLEL_VERIFICATION) {
+			verifySignaturesParallel(message, source, selfID, processor);
+		}
 		else {
 			long requestTime = System.currentTimeMillis();
 			int currentMessageOrder = communicator.getCurrentMessageOrder();
-			communicator.submitBackgroundTask( () -> 
+			submitCryptoTask(Priority.VERIFY_FINAL, () -> 
 			{
-				Key key = null;
-				boolean isValid = true;
-				
 				//System.out.println("Trying to verify message: " + message.toString());
-				for(Integer currentNodeID: message.getNodeIDsInSignature()) {
-					byte[] signature = null;
-					
-					if(cryptoModule instanceof DigitalSignatureCryptographyModule) {
-						key = communicator.getOtherNode(currentNodeID).getPublicKey();
-						signature = message.getSignature(currentNodeID);
-					}
-					else {
-						key = this.communicator.getCurrentNode().getSymmetricKey(currentNodeID);
-						signature = message.getSignature(currentNodeID, selfID, cryptoModule.getDigestLength());
-					}
-
-					if(!cryptoModule.verify(content, key, signature)) {
-						isValid = false;
-						break;
-					}
-				}
+				boolean isValid = verifyCertificate(message, selfID);
 				//System.out.println("Message: " + message.toString() + " verified!");
 				
-				if(!isValid) {
-					communicator.inputEnqueue(communicator.getCurrentNode(), 
-							new AsynchronousTaskResultMessage("verifySignatures", "", Message.DEFAULT_SUBJECT, requestTime, currentMessageOrder,
-									() -> {
-										//if(GlobalVariables.HIGH_VERBOSE)
-										System.err.println("[" + communicator.getCurrentNode().getNodeId() + "]: The CBFinalMessage: " + message.toString()
-											+ " received from Node " + source.getNodeId() + " couldn't be verified!");
-										return;
-									})
-					);
-				}
-				else {
-					communicator.inputEnqueue(communicator.getCurrentNode(), 
-							new AsynchronousTaskResultMessage("verifySignatures", "", Message.DEFAULT_SUBJECT, requestTime, currentMessageOrder,
-									() -> {
-										processor.processResult(message, source);
-									})
-					);
-				}
+				postVerificationResult(message, source, isValid, requestTime, currentMessageOrder, processor);
 			});
 		}
 		
 		return;
 	}
 	
-	private void verifySignatureAsync(BroadcastMessage message, Node source, String content, Key key, byte[] signature, VerificationResultProcessor processor) {
-		if(!GlobalVariables.ENABLE_ASYNC_WORK) {
-			if(!cryptoModule.verify(content, key, signature)) {
+	/**
+	 * Verifies the signatures of a certificate in parallel. The signers are
+	 * split into one batch per cryptographic thread, and each batch is
+	 * verified by a {@link Priority#VERIFY_FINAL} task. Once a batch fails, the
+	 * tasks that have not started yet skip their verification. The last task
+	 * to finish posts the outcome back to the communicator.
+	 */
+	private void verifySignaturesParallel(CBFinalMessage message, Node source, int selfID, VerificationResultProcessor processor) {
+		long requestTime = System.currentTimeMillis();
+		int currentMessageOrder = communicator.getCurrentMessageOrder();
+		
+		List<Integer> nodeIDs = new ArrayList<>(message.getNodeIDsInSignature());
+		if(nodeIDs.isEmpty()) {
+			processor.processResult(message, source);
+			return;
+		}
+		
+		int threads = (GlobalVariables.CRYPTO_THREADS > 0) ? GlobalVariables.CRYPTO_THREADS : Runtime.getRuntime().availableProcessors();
+		int batchSize = (nodeIDs.size() + threads - 1) / threads;
+		
+		AtomicBoolean failed = new AtomicBoolean(false);
+		AtomicInteger remaining = new AtomicInteger((nodeIDs.size() + batchSize - 1) / batchSize);
+		
+		for(int from = 0; from < nodeIDs.size(); from += batchSize) {
+			List<Integer> batch = nodeIDs.subList(from, Math.min(from + batchSize, nodeIDs.size()));
+			submitCryptoTask(Priority.VERIFY_FINAL, () ->
+			{
+				if(!failed.get() && !verifyCertificate(message, batch, selfID))
+					failed.set(true);
+				
+				if(remaining.decrementAndGet() == 0)
+					postVerificationResult(message, source, !failed.get(), requestTime, currentMessageOrder, processor);
+			});
+		}
+	}
+	
+	/**
+	 * Verifies all signatures of a certificate at once, through
+	 * {@link CryptographyModule#verifyBatch(ByteBuffer, List, List)}.
+	 * 
+	 * @return <em>true</em> if all signatures are valid.
+	 */
+	private boolean verifyCertificate(CBFinalMessage message, int selfID) {
+		return verifyCertificate(message, message.getNodeIDsInSignature(), selfID);
+	}
+	
+	/**
+	 * Verifies the signatures of the specified nodes in a certificate at once.
+	 * 
+	 * @return <em>true</em> if all these signatures are valid.
+	 */
+	private boolean verifyCertificate(CBFinalMessage message, Collection<Integer> nodeIDs, int selfID) {
+		List<Key> keys = new ArrayList<>(nodeIDs.size());
+		List<byte[]> signatures = new ArrayList<>(nodeIDs.size());
+		
+		for(Integer currentNodeID: nodeIDs) {
+			keys.add(getVerificationKey(currentNodeID));
+			signatures.add(getCertificateSignature(message, currentNodeID, selfID));
+		}
+		
+		return cryptoModule.verifyBatch(message.getSigningPayload(), keys, signatures);
+	}
+	
+	/**
+	 * @return the key that verifies the signatures of a node: its public key,
+	 *         or the symmetric key that it shares with this node.
+	 */
+	private Key getVerificationKey(int currentNodeID) {
+		if(cryptoModule instanceof DigitalSignatureCryptographyModule)
+			return communicator.getOtherNode(currentNodeID).getPublicKey();
+		else
+			return this.communicator.getCurrentNode().getSymmetricKey(currentNodeID);
+	}
+	
+	/**
+	 * @return the signature of a node in a certificate; for authenticators,
+	 *         only the MAC destined for this node.
+	 */
+	private byte[] getCertificateSignature(CBFinalMessage message, int currentNodeID, int selfID) {
+		if(cryptoModule instanceof DigitalSignatureCryptographyModule)
+			return message.getSignature(currentNodeID);
+		else
+			return message.getSignature(currentNodeID, selfID, cryptoModule.getDigestLength());
+	}
+	
+	/**
+	 * Hands the outcome of an asynchronous certificate verification to the
+	 * communicator, which runs the processor on its dispatch thread.
+	 */
+	private void postVerificationResult(CBFinalMessage message, Node source, boolean isValid, long requestTime, int currentMessageOrder, VerificationResultProcessor processor) {
+		if(!isValid) {
+			communicator.inputEnqueue(communicator.getCurrentNode(), 
+					new AsynchronousTaskResultMessage("verifySignatures", "", Message.DEFAULT_SUBJECT, requestTime, currentMessageOrder,
+							() -> {
+								//if(GlobalVariables.HIGH_VERBOSE)
+								System.err.println("[" + communicator.getCurrentNode().getNodeId() + "]: The CBFinalMessage: " + message.toString()
+									+ " received from Node " + source.getNodeId() + " couldn't be verified!");
+								return;
+							})
+			);
+		}
+		else {
+			communicator.inputEnqueue(communicator.getCurrentNode(), 
+					new AsynchronousTaskResultMessage("verifySignatures", "", Message.DEFAULT_SUBJECT, requestTime, currentMessageOrder,
+							() -> {
+								processor.processResult(message, source);
+							})
+			);
+		}
+	}
+	
+	private void verifySignatureAsync(BroadcastMessage message, Node source, Key key, byte[] signature, VerificationResultProcessor processor) {
+		if(!GlobalVariables.ENABLE_ASYNC_WORK || ShardedEngine.inShard()) {
+			if(!cryptoModule.verify(message.getSigningPayload(), key, signature)) {
 				System.err.println("[" + communicator.getCurrentNode().getNodeId() + "]: The CBEchoMessage: " + message.toString()
 					+ " received from Node " + source.getNodeId() + " couldn't be verified!");
 				
@@ -344,9 +566,9 @@ public abstract class GenericBroadcastWithSignatures implements IBroadcast {
 		else {
 			long requestTime = System.currentTimeMillis();
 			int currentMessageOrder = communicator.getCurrentMessageOrder();
-			communicator.submitBackgroundTask( () -> 
+			submitCryptoTask(Priority.VERIFY_ECHO, () -> 
 			{
-				final boolean isValid = cryptoModule.verify(content, key, signature);
+				final boolean isValid = cryptoModule.verify(message.getSigningPayload(), key, signature);
 				if(!isValid) {
 					communicator.inputEnqueue(communicator.getCurrentNode(), 
 							new AsynchronousTaskResultMessage("verifySignature", "", Message.DEFAULT_SUBJECT, requestTime, currentMessageOrder,
@@ -389,26 +611,25 @@ public abstract class GenericBroadcastWithSignatures implements IBroadcast {
 		}
 		
 		/* Get the stored information for the specified broadcast. */
-		String UUID = message.getUUID();
-		if(completedBroadcasts.contains(UUID))
+		if(completedBroadcasts.contains(message))
 			return;
 		
 		/* If the broadcast is mine, endorse without any more checks.
 		 * Else, verify we have not endorsed any other value.  */
 		CBandRBSBroadcastInfo cbInfo = null;
 		if(message.getNodeID() != communicator.getCurrentNode().getNodeId()) {
-			Map<String, CBandRBSBroadcastInfo> perValueMap = activeBroadcasts.get(UUID);
+			Map<String, CBandRBSBroadcastInfo> perValueMap = activeBroadcasts.get(message);
 			if(perValueMap == null) {
 				perValueMap = new HashMap<>();
 				cbInfo = new CBandRBSBroadcastInfo();
 				perValueMap.put(message.getValue(), cbInfo);
-				activeBroadcasts.put(UUID, perValueMap);
+				activeBroadcasts.put(message, perValueMap);
 			}
 			else
 				return;
 		}
 		else {
-			cbInfo = getCBandRBSBroadcastInfo(UUID, message.getValue());
+			cbInfo = getCBandRBSBroadcastInfo(message, message.getValue());
 		}
 		
 		/* Update the current state for this broadcast. */
@@ -418,18 +639,18 @@ public abstract class GenericBroadcastWithSignatures implements IBroadcast {
 		CBEchoMessage echoMessage = getEchoMessage(message.getApplicationID(), message.getConsensusID(), message.getNodeID(), message.getBroadcastID(), message.getValue());
 		
 		/* Compute the message's signature and send the reply. */
-		String content = echoMessage.getUUID() + echoMessage.getValue();
-		
-		if(cryptoModule instanceof DigitalSignatureCryptographyModule) {
+		if(cryptoModule instanceof MerkleCryptographyModule && GlobalVariables.SIGNING_BATCH_WINDOW > 0)
+			this.signEchoBatched(echoMessage, source);
+		else if(cryptoModule instanceof DigitalSignatureCryptographyModule) {
 			Node current = this.communicator.getCurrentNode();
-			this.signMessageAsync(echoMessage, source, String.valueOf(current.getNodeId()), content, current.getPrivateKey(), (newMessage, src) -> processCBSend((CBEchoMessage) newMessage, src));
+			this.signMessageAsync(echoMessage, source, String.valueOf(current.getNodeId()), current.getPrivateKey(), (newMessage, src) -> processCBSend((CBEchoMessage) newMessage, src));
 		}
 		else
-			this.signMessageAuthenticatorAsync(echoMessage, source, content, (newMessage, src) -> processCBSend((CBEchoMessage) newMessage, src));
+			this.signMessageAuthenticatorAsync(echoMessage, source, (newMessage, src) -> processCBSend((CBEchoMessage) newMessage, src));
 	}
 	
 	protected void processCBSend(CBEchoMessage echoMessage, Node source) {	
-		this.communicator.send(source, echoMessage);
+		send(source, echoMessage);
 	}
 	
 	/**
@@ -451,12 +672,10 @@ public abstract class GenericBroadcastWithSignatures implements IBroadcast {
 			return;
 		}
 		
-		/* Create a unique ID, based on the message's parameters. */
-		String UUID = message.getUUID();
-		if(completedBroadcasts.contains(UUID))
+		/* Check whether the message's broadcast has been completed. */
+		if(completedBroadcasts.contains(message))
 			return;
 		
-		String content = message.getUUID() + message.getValue();
 		Key key = null;
 		byte[] signature = null;
 		
@@ -470,14 +689,15 @@ public abstract class GenericBroadcastWithSignatures implements IBroadcast {
 			signature = message.getSignature(this.communicator.getCurrentNode().getNodeId(), cryptoModule.getDigestLength());
 		}
 		
-		this.verifySignatureAsync(message, source, content, key, signature, (msg, src) -> processCBEcho((CBEchoMessage) msg, src));		
+		this.verifySignatureAsync(message, source, key, signature, (msg, src) -> processCBEcho((CBEchoMessage) msg, src));		
 	}
 	
 	protected void processCBEcho(CBEchoMessage message, Node source) {
-		String UUID = message.getUUID();
+		if(completedBroadcasts.contains(message))
+			return;
 		
 		/* Get the stored information for the specified broadcast. */
-		CBandRBSBroadcastInfo cbInfo = getCBandRBSBroadcastInfo(UUID, message.getValue());
+		CBandRBSBroadcastInfo cbInfo = getCBandRBSBroadcastInfo(message, message.getValue());
 		if(cbInfo.currentState <= 2) {
 			/* Store the first message from each node. */
 			if(cbInfo.incomingSignatures.containsKey(source.getNodeId()) == false)
@@ -491,7 +711,7 @@ public abstract class GenericBroadcastWithSignatures implements IBroadcast {
 				for(Integer owner: cbInfo.incomingSignatures.keySet())
 					finalMessage.addSignature(owner, cbInfo.incomingSignatures.get(owner));
 				
-				/* Remove all messages associated with this UUID. */
+				/* Remove all messages associated with this broadcast. */
 				cbInfo.incomingSignatures.clear();
 				
 				/* Update the current state for this broadcast. */
@@ -501,8 +721,38 @@ public abstract class GenericBroadcastWithSignatures implements IBroadcast {
 				++(cbInfo.totalFinalMessages);
 				
 				/* Send a CBFinal message to all nodes of the system. */
-				this.communicator.sendGroup(nodeGroup, finalMessage);
+				sendGroup(finalMessage);
 			}
 		}
 	}
+
+	/**
+	 * Sends a message to all nodes of the group, through the batcher of the
+	 * communicator if batching is enabled.
+	 * 
+	 * @param msg
+	 *            the message.
+	 */
+	protected void sendGroup(Message msg) {
+		if(batcher != null)
+			batcher.sendGroup(nodeGroup, msg);
+		else
+			communicator.sendGroup(nodeGroup, msg);
+	}
+
+	/**
+	 * Sends a message to a single node, through the batcher of the
+	 * communicator if batching is enabled.
+	 * 
+	 * @param node
+	 *            the destination node.
+	 * @param msg
+	 *            the message.
+	 */
+	protected void send(Node node, Message msg) {
+		if(batcher != null)
+			batcher.send(node, msg);
+		else
+			communicator.send(node, msg);
+	}
 }
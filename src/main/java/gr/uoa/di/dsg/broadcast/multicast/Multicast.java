@@ -17,7 +17,9 @@
 package gr.uoa.di.dsg.broadcast.multicast;
 
 import gr.uoa.di.dsg.broadcast.BroadcastAccept;
+import gr.uoa.di.dsg.broadcast.CompletedBroadcasts;
 import gr.uoa.di.dsg.broadcast.IBroadcast;
+import gr.uoa.di.dsg.broadcast.MessageBatcher;
 import gr.uoa.di.dsg.communicator.AbstractCommunicator;
 import gr.uoa.di.dsg.communicator.Message;
 import gr.uoa.di.dsg.communicator.Node;
@@ -26,10 +28,9 @@ import gr.uoa.di.dsg.consensus.multivalued.messages.MVMessageType;
 import gr.uoa.di.dsg.ic.ApplicationGetter;
 import gr.uoa.di.dsg.utils.GlobalVariables;
 
+import java.util.BitSet;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Set;
 
 /**
  * 
@@ -52,21 +53,39 @@ public class Multicast implements IBroadcast {
 	private transient ApplicationGetter applicationGetter = null;
 	
 	/** 
-	 * The set of incoming MVInitialMessage.
+	 * The set of incoming MVInitialMessage for each application. The bit
+	 * <code>nodeID * totalNodes + sourceID</code> is set once the message
+	 * of nodeID has been received from sourceID.
 	 */
-	private Map<String, Set<Integer>> storedMessages = null;
+	private Map<String, BitSet> storedMessages = null;
+	
+	/** The total number of nodes in the system. */
+	private int totalNodes;
+	
+	/**
+	 * The applications that have been released.
+	 */
+	private CompletedBroadcasts completedBroadcasts = null;
 	
 	/** The communication group that this broadcast module belongs. */
 	private String nodeGroup = null;
+
+	/**
+	 * The batcher of the communicator, or <em>null</em> if batching is disabled.
+	 */
+	private MessageBatcher batcher = null;
 	
 	@Override
 	public void initialize(AbstractCommunicator comm, ApplicationGetter appGetter, String nodeGroup, int numNodes) {
-		comm.registerMessage(MVMessageType.MVINITIAL.getValue(), (byte[] data) -> MVInitialMessage.deserialize(data), (Message msg, Node source) -> onMVInitial((MVInitialMessage) msg, source));
+		MessageBatcher.registerMessage(comm, MVMessageType.MVINITIAL.getValue(), (byte[] data) -> MVInitialMessage.deserialize(data), (Message msg, Node source) -> onMVInitial((MVInitialMessage) msg, source));
 		
 		this.communicator = comm;
+		this.batcher = MessageBatcher.getBatcher(comm);
 		this.applicationGetter = appGetter;
 		this.nodeGroup = nodeGroup;
+		this.totalNodes = numNodes;
 		this.storedMessages = new HashMap<>();
+		this.completedBroadcasts = CompletedBroadcasts.forShard(comm);
 	}
 
 	@Override
@@ -76,7 +95,7 @@ public class Multicast implements IBroadcast {
 		if(GlobalVariables.HIGH_VERBOSE)
 			System.out.println("[Multicast, Node: " + pid + "]: Starting a broadcast for " + msg.toString());
 		
-		this.communicator.sendGroup(nodeGroup, msg);
+		sendGroup(msg);
 	}
 	
 	@Override
@@ -84,6 +103,12 @@ public class Multicast implements IBroadcast {
 		return this.communicator;
 	}
 	
+	@Override
+	public void releaseApplication(String icid) {
+		this.completedBroadcasts.release(icid);
+		this.storedMessages.remove(icid);
+	}
+	
 	/**
 	 * The handler for the {@link MVInitialMessage}. The recipient node process the received message,
 	 * extracts its proposed value and stores the message.
@@ -98,26 +123,48 @@ public class Multicast implements IBroadcast {
 		/* Verify that the message meets its specification. */
 		//assert message.getBroadcastID() == BroadcastID.MVINITIAL_BROADCAST_ID.getValue();
 		
-		/* Create a unique ID, based on the message's parameters. */
-		String UUID = message.getApplicationID() + ":" + message.getNodeID() + ":" + MVMessageType.MVINITIAL;
+		/* Ignore messages of released applications. */
+		if(completedBroadcasts.isReleased(message.getApplicationID()))
+			return;
+		
+		/* Ignore messages of unknown nodes. */
+		if(message.getNodeID() < 0 || message.getNodeID() >= totalNodes) {
+			System.err.println("The node with ID: " + communicator.getCurrentNode().getNodeId() + " received an MVInitialMessage with an invalid nodeID from node with ID: " + source.getNodeId());
+			return;
+		}
 		
 		/* Get the current set of stored messages. */
-		Set<Integer> storedNodeIDs = storedMessages.get(UUID);
+		BitSet storedNodeIDs = storedMessages.get(message.getApplicationID());
 		if(storedNodeIDs == null) {
-			storedNodeIDs = new HashSet<>();
-			storedMessages.put(UUID, storedNodeIDs);
+			storedNodeIDs = new BitSet(totalNodes * totalNodes);
+			storedMessages.put(message.getApplicationID(), storedNodeIDs);
 		}
 		
 		/* Ignore duplicate or faulty messages. */
-		if(storedNodeIDs.contains(source.getNodeId())) {
+		int index = message.getNodeID() * totalNodes + source.getNodeId();
+		if(storedNodeIDs.get(index)) {
 			System.err.println("The node with ID: " + communicator.getCurrentNode().getNodeId() + " received another MVInitialMessage from node with ID: " + source.getNodeId());
 			return;
 		}
 		else
-			storedNodeIDs.add(source.getNodeId());
+			storedNodeIDs.set(index);
 		
 		/* Make an up-call with the delivered message. */
 		BroadcastAccept deliverMessage = new BroadcastAccept(message.getApplicationID(), message.getConsensusID(), message.getNodeID() , message.getBroadcastID(), message.getValue());
 		applicationGetter.getApp(message.getApplicationID()).process(deliverMessage);
 	}
+
+	/**
+	 * Sends a message to all nodes of the group, through the batcher of the
+	 * communicator if batching is enabled.
+	 * 
+	 * @param msg
+	 *            the message.
+	 */
+	private void sendGroup(Message msg) {
+		if(batcher != null)
+			batcher.sendGroup(nodeGroup, msg);
+		else
+			communicator.sendGroup(nodeGroup, msg);
+	}
 }
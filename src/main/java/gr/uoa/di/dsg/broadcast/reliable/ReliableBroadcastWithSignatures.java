@@ -16,10 +16,10 @@
  ******************************************************************************/
 package gr.uoa.di.dsg.broadcast.reliable;
 
-import java.util.HashMap;
-import java.util.HashSet;
 
 import gr.uoa.di.dsg.broadcast.BroadcastAccept;
+import gr.uoa.di.dsg.broadcast.ActiveBroadcasts;
+import gr.uoa.di.dsg.broadcast.CompletedBroadcasts;
 import gr.uoa.di.dsg.broadcast.consistent.CBandRBSBroadcastInfo;
 import gr.uoa.di.dsg.broadcast.consistent.CBEchoMessage;
 import gr.uoa.di.dsg.broadcast.consistent.CBFinalMessage;
@@ -30,6 +30,8 @@ import gr.uoa.di.dsg.broadcast.consistent.GenericBroadcastWithSignatures;
 import gr.uoa.di.dsg.broadcast.consistent.RBSEchoMessage;
 import gr.uoa.di.dsg.broadcast.consistent.RBSFinalMessage;
 import gr.uoa.di.dsg.broadcast.consistent.RBSSendMessage;
+import gr.uoa.di.dsg.broadcast.CryptoExecutor;
+import gr.uoa.di.dsg.broadcast.MessageBatcher;
 import gr.uoa.di.dsg.communicator.AbstractCommunicator;
 import gr.uoa.di.dsg.communicator.Message;
 import gr.uoa.di.dsg.communicator.Node;
@@ -58,6 +60,17 @@ import gr.uoa.di.dsg.utils.GlobalVariables;
 
 public class ReliableBroadcastWithSignatures extends GenericBroadcastWithSignatures {
 	
+	/**
+	 * The maximum number of verified certificates kept by each node.
+	 */
+	private static final int CERTIFICATE_CACHE_CAPACITY = 4096;
+	
+	/**
+	 * The certificates that have already been verified, so that the relayed
+	 * copies of a RBSFinalMessage are not verified again.
+	 */
+	private VerifiedCertificateCache verifiedCertificates = new VerifiedCertificateCache(CERTIFICATE_CACHE_CAPACITY);
+	
 	/**
 	 * Creates an instance of the {@link ReliableBroadcastWithSignatures} protocol that
 	 * uses digital signatures, in order to authenticate all exchanged messages.
@@ -85,18 +98,20 @@ public class ReliableBroadcastWithSignatures extends GenericBroadcastWithSignatu
 	public void initialize(AbstractCommunicator comm, ApplicationGetter appGetter, String nodeGroup, int numNodes) {
 		/* Notice: We keep the same class and wire format, by reusing the CBxxxMessage classes.
 		 * However, the handlers are distinct from CB. */
-		comm.registerMessage(BrodacastWithSignaturesMessageType.RBSSEND.getValue(), (byte[] data) -> RBSSendMessage.deserialize(data), (Message msg, Node source) -> onRBSSend((CBSendMessage) msg, source));
-		comm.registerMessage(BrodacastWithSignaturesMessageType.RBSECHO.getValue(), (byte[] data) -> RBSEchoMessage.deserialize(data), (Message msg, Node source) -> onRBSEcho((CBEchoMessage) msg, source));
-		comm.registerMessage(BrodacastWithSignaturesMessageType.RBSFINAL.getValue(), (byte[] data) -> RBSFinalMessage.deserialize(data), (Message msg, Node source) -> onRBSFinal((CBFinalMessage) msg, source));
+		MessageBatcher.registerMessage(comm, BrodacastWithSignaturesMessageType.RBSSEND.getValue(), (byte[] data) -> RBSSendMessage.deserialize(data), (Message msg, Node source) -> onRBSSend((CBSendMessage) msg, source));
+		MessageBatcher.registerMessage(comm, BrodacastWithSignaturesMessageType.RBSECHO.getValue(), (byte[] data) -> RBSEchoMessage.deserialize(data), (Message msg, Node source) -> onRBSEcho((CBEchoMessage) msg, source));
+		MessageBatcher.registerMessage(comm, BrodacastWithSignaturesMessageType.RBSFINAL.getValue(), (byte[] data) -> RBSFinalMessage.deserialize(data), (Message msg, Node source) -> onRBSFinal((CBFinalMessage) msg, source));
 		
 		this.communicator = comm;
+		this.batcher = MessageBatcher.getBatcher(comm);
+		this.cryptoExecutor = CryptoExecutor.getExecutor(comm);
 		this.applicationGetter = appGetter;
 		this.nodeGroup = nodeGroup;
 		this.totalNodes = numNodes;
 		
 		/* Initialize all data structures. */
-		this.activeBroadcasts = new HashMap<>();
-		this.completedBroadcasts = new HashSet<>();
+		this.activeBroadcasts = new ActiveBroadcasts<>();
+		this.completedBroadcasts = CompletedBroadcasts.forShard(comm);
 		
 		/* Update the maximum number of faults. */
 		this.faults = (int) Math.floor((totalNodes - 1) / 3.0);
@@ -142,34 +157,47 @@ public class ReliableBroadcastWithSignatures extends GenericBroadcastWithSignatu
 			return;
 		}
 		
-		/* Create a unique ID, based on the message's parameters. */
-		String UUID = message.getUUID();
-		if(completedBroadcasts.contains(UUID))
+		/* Check whether the message's broadcast has been completed. */
+		if(completedBroadcasts.contains(message))
 			return;
 		
-		String content = message.getUUID() + message.getValue();
+		/* A relayed copy of an already verified certificate needs no verification. */
+		if(verifiedCertificates.isVerified(message)) {
+			processRBSFinal((RBSFinalMessage) message, source);
+			return;
+		}
 		
 		/* Verify the validity of the received message. */
-		this.verifySignaturesAsync(message, source, content, communicator.getCurrentNode().getNodeId(), (msg, src) -> processRBSFinal((RBSFinalMessage) msg, src));
+		this.verifySignaturesAsync(message, source, communicator.getCurrentNode().getNodeId(), (msg, src) -> {
+			verifiedCertificates.markVerified((CBFinalMessage) msg);
+			processRBSFinal((RBSFinalMessage) msg, src);
+		});
+	}
+	
+	/**
+	 * Returns the cache of the verified certificates, along with its hit and miss counters.
+	 * @return the cache of the verified certificates.
+	 */
+	public VerifiedCertificateCache getVerifiedCertificateCache() {
+		return verifiedCertificates;
 	}
 	
 	private void processRBSFinal(RBSFinalMessage message, Node source) {
-		/* Create a unique ID, based on the message's parameters. */
-		String UUID = message.getUUID();
-		if(completedBroadcasts.contains(UUID))
+		/* Check whether the message's broadcast has been completed. */
+		if(completedBroadcasts.contains(message))
 			return;
 		
 		/* Get the stored information for the specified broadcast. */
-		CBandRBSBroadcastInfo cbInfo = getCBandRBSBroadcastInfo(UUID, message.getValue());
+		CBandRBSBroadcastInfo cbInfo = getCBandRBSBroadcastInfo(message, message.getValue());
 		
 		/* Multicast a CBFinalMessage to all nodes of the system, only once. */
 		if((++cbInfo.totalFinalMessages) == 1)
-			communicator.sendGroup(nodeGroup, message);
+			sendGroup(message);
 		
 		if (cbInfo.totalFinalMessages == (this.getTotalNodes() - this.getFaults())) {
 			/* Mark the broadcast as completed and remove all associated information. */
-			this.completedBroadcasts.add(UUID);
-			this.activeBroadcasts.remove(UUID);
+			this.completedBroadcasts.add(message.getKey());
+			this.activeBroadcasts.remove(message);
 			
 			/* Make an up-call with the delivered message. */
 			BroadcastAccept deliverMessage = new BroadcastAccept(message.getApplicationID(), message.getConsensusID(), message.getNodeID(), message.getBroadcastID(), message.getValue());
@@ -0,0 +1,192 @@
+/*******************************************************************************
+ * Copyright (C) 2019 DSG at University of Athens
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package gr.uoa.di.dsg.broadcast.reliable;
+
+import gr.uoa.di.dsg.broadcast.consistent.CBFinalMessage;
+import gr.uoa.di.dsg.utils.GlobalVariables;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A bounded cache of the certificates, i.e. the signature sets of
+ * {@link CBFinalMessage}s, that a node has already verified. Every node relays
+ * the final message of a broadcast once, so up to <em>n</em> copies of the
+ * same certificate arrive; with the cache, only the first copy has its
+ * signatures verified, while the rest need a single digest comparison.
+ * <p>
+ * A certificate is identified by the UUID of its broadcast, the digest of its
+ * value and the set of its signers. A copy is accepted only if the digest of
+ * its signatures matches the digest of the verified signatures as well. The
+ * least recently used certificates are evicted first.
+ */
+public class VerifiedCertificateCache {
+
+	/**
+	 * The identity of a certificate.
+	 */
+	private static final class CertificateKey {
+		private final String uuid;
+		private final byte[] valueDigest;
+		private final BitSet signers;
+		private final int hashCode;
+
+		private CertificateKey(String uuid, byte[] valueDigest, BitSet signers) {
+			this.uuid = uuid;
+			this.valueDigest = valueDigest;
+			this.signers = signers;
+			this.hashCode = 31 * (31 * uuid.hashCode() + Arrays.hashCode(valueDigest)) + signers.hashCode();
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if(this == obj)
+				return true;
+			if(!(obj instanceof CertificateKey))
+				return false;
+
+			CertificateKey other = (CertificateKey) obj;
+			return uuid.equals(other.uuid) && Arrays.equals(valueDigest, other.valueDigest) && signers.equals(other.signers);
+		}
+	}
+
+	/**
+	 * The digest of the signatures of each verified certificate.
+	 */
+	private final Map<CertificateKey, byte[]> verifiedCertificates;
+
+	/**
+	 * The message digest used for the values and the signatures.
+	 */
+	private MessageDigest messageDigest = null;
+
+	/**
+	 * The number of copies that were found in the cache.
+	 */
+	private long hits = 0;
+
+	/**
+	 * The number of copies that had to be verified.
+	 */
+	private long misses = 0;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param capacity
+	 *            the maximum number of certificates kept in the cache.
+	 */
+	public VerifiedCertificateCache(int capacity) {
+		this.verifiedCertificates = new LinkedHashMap<CertificateKey, byte[]>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<CertificateKey, byte[]> eldest) {
+				return size() > capacity;
+			}
+		};
+
+		try {
+			this.messageDigest = MessageDigest.getInstance(GlobalVariables.DIGEST_ALGORITHM);
+		}
+		catch (NoSuchAlgorithmException ex) {
+			System.err.println("A NoSuchAlgorithmException was caught: " + ex.getMessage());
+			ex.printStackTrace();
+		}
+	}
+
+	/**
+	 * Checks whether the certificate of a message has already been verified,
+	 * updating the hit and miss counters.
+	 *
+	 * @param message
+	 *            the message.
+	 * @return <em>true</em> if the same certificate has been verified.
+	 */
+	public boolean isVerified(CBFinalMessage message) {
+		byte[] signaturesDigest = verifiedCertificates.get(getKey(message));
+		if(signaturesDigest != null && MessageDigest.isEqual(signaturesDigest, getSignaturesDigest(message))) {
+			++hits;
+			return true;
+		}
+
+		++misses;
+		return false;
+	}
+
+	/**
+	 * Records that the certificate of a message has been verified.
+	 *
+	 * @param message
+	 *            the message.
+	 */
+	public void markVerified(CBFinalMessage message) {
+		verifiedCertificates.put(getKey(message), getSignaturesDigest(message));
+	}
+
+	/**
+	 * @return the number of copies that were found in the cache.
+	 */
+	public long getHits() {
+		return hits;
+	}
+
+	/**
+	 * @return the number of copies that had to be verified.
+	 */
+	public long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * @return the number of certificates in the cache.
+	 */
+	public int size() {
+		return verifiedCertificates.size();
+	}
+
+	private CertificateKey getKey(CBFinalMessage message) {
+		BitSet signers = new BitSet();
+		for(Integer nodeID : message.getNodeIDsInSignature())
+			signers.set(nodeID);
+
+		return new CertificateKey(message.getUUID(), messageDigest.digest(message.getValue().getBytes(StandardCharsets.UTF_8)), signers);
+	}
+
+	private byte[] getSignaturesDigest(CBFinalMessage message) {
+		List<Integer> nodeIDs = new ArrayList<>(message.getNodeIDsInSignature());
+		Collections.sort(nodeIDs);
+
+		for(Integer nodeID : nodeIDs)
+			messageDigest.update(message.getSignature(nodeID));
+
+		return messageDigest.digest();
+	}
+}
@@ -20,21 +20,25 @@ import gr.uoa.di.dsg.broadcast.BroadcastAccept;
 import gr.uoa.di.dsg.ic.Application;
 import gr.uoa.di.dsg.utils.GlobalVariables;
 
-import java.security.SecureRandom;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class BBConsensus {
 
 	Application parent = null;
 	//Validation de-module
-	protected Map<Integer, List<BroadcastAccept>> nonValidatedMessages = null;
-	protected Map<Integer, Map<String,List<BroadcastAccept>>> validatedMessages = null;
+	/**
+	 * The messages that have not been validated yet, indexed by the dependency
+	 * they wait on: the broadcast ID and the value of the previous round, along
+	 * with the number of validated messages that the value must reach (see
+	 * {@link #getDependency(BroadcastAccept)}).
+	 */
+	protected Map<Long, List<BroadcastAccept>> nonValidatedMessages = null;
+	/** The number of validated messages per broadcast ID, indexed by {@link BinaryVote}. */
+	protected Map<Integer, int[]> validatedMessages = null;
 
 	String icid;
 	int cid;
@@ -43,289 +47,326 @@ public class BBConsensus {
 	int round = -1;
 	int numNodes = 0;
 	int toleratedFaults = 0;
-	String value = null;
+	byte value = BinaryVote.INVALID;
+	
+	/** The coin used by the instances that are not given one. */
+	private static volatile CommonCoin defaultCoin = new LocalCoin();
+	
+	/** The coin tossed when a phase ends without a decided value. */
+	private final CommonCoin coin;
+	
+	/** The validated votes of the previous round that a round 1 message needs. */
+	private int firstRoundThreshold = 0;
+	/** The validated votes of the previous round that a decided round 2 message needs. */
+	private int decidedThreshold = 0;
+	/** The votes of the first round for a value that decide it at once, see {@link #getFastThreshold(int, int)}. */
+	private int fastThreshold = 0;
+	
+	/**
+	 * The decided vote that 2t+1 validated messages of the third round of some
+	 * phase carry. Since every correct node eventually validates the same
+	 * messages, it decides on the value regardless of the phase it has reached.
+	 * The votes of the first round of a phase may decide a value as well, when
+	 * they reach the fast threshold.
+	 */
+	private byte decision = BinaryVote.INVALID;
+	private boolean terminated = false;
 
 	//Validation procedures
-	public void attemptToValidatePreviousMessages() {
+	/**
+	 * Validates the specified message, or keeps it until the dependency it
+	 * waits on is satisfied. Since the number of validated messages only
+	 * grows, a dependency is satisfied exactly once: when the
+	 * count of its value reaches the threshold. Only the messages waiting on
+	 * that count are then validated, in turn releasing those that wait on
+	 * them.
+	 */
+	public void validateMessage(BroadcastAccept acc) {
+		/* The messages of the first round of a phase are valid by themselves, while negative IDs belong to no round. */
+		if(acc.getBroadcastID() < 0)
+			return;
+		else if(acc.getBroadcastID() % 3 == 0) {
+			this.addToValidatedMessages(acc);
+			return;
+		}
 		
-		if(this.nonValidatedMessages.isEmpty())
+		long dependency = getDependency(acc);
+		if(getDependencyCount(dependency) >= getDependencyThreshold(dependency)) {
+			this.addToValidatedMessages(acc);
 			return;
+		}
 		
-		for(Integer key : this.nonValidatedMessages.keySet()){
-			Iterator<BroadcastAccept> itr = this.nonValidatedMessages.get(key).iterator();
-			while(itr.hasNext()){
-				BroadcastAccept acc = itr.next();
-				if(validateProcedure(acc)){
-					//System.out.println("Entering here!"+acc.toString());
-					this.addToValidatedMessages(acc);
-					itr.remove();
-				}
-			}
+		List<BroadcastAccept> waiting = this.nonValidatedMessages.get(dependency);
+		if(waiting == null){
+			waiting = new ArrayList<>();
+			this.nonValidatedMessages.put(dependency, waiting);
 		}
+		waiting.add(acc);
 	}
 	
-	public void validateMessage(BroadcastAccept acc, int phase, int round) {
-			
-			int mRound = acc.getBroadcastID()%3;
-			if(validateProcedure(acc)){
-				this.addToValidatedMessages(acc);
-			}else{
-				this.addToNonValidatedMessages(acc);
-			}
-			iterativeRevalidationProc(mRound, round);
-	}
-	
-	private void iterativeRevalidationProc(int messageRound, int currentRound) {
+	/**
+	 * Returns the dependency of a message of the second or third round of a
+	 * phase, encoded as the broadcast ID of the previous round, the threshold
+	 * and the value bit.
+	 */
+	private long getDependency(BroadcastAccept acc) {
+		int messageRound = acc.getBroadcastID() % 3;
+		byte vote = acc.getVote();
+		int threshold = 1;
+		if(messageRound == 1)
+			threshold = this.firstRoundThreshold;
+		else if(BinaryVote.isDecided(vote))
+			threshold = this.decidedThreshold;
 		
-		for(int i = messageRound+1; i <= currentRound; i++) {
-			
-			if(!this.nonValidatedMessages.containsKey(i))
-				continue;
-			
-			Iterator<BroadcastAccept> itr = this.nonValidatedMessages.get(i).iterator();
-			while(itr.hasNext()){
-				BroadcastAccept acc = itr.next();
-				if(validateProcedure(acc)){
-					this.addToValidatedMessages(acc);
-					itr.remove();
-				}
-			}
-		}
+		return getDependency(acc.getBroadcastID() - 1, threshold, BinaryVote.valueOf(vote));
 	}
 	
-	public boolean validateProcedure(BroadcastAccept acc) {
-		int mRound = acc.getBroadcastID()%3;
-	
-		if(mRound ==  0)
-			return true;
-		return protocolFunctionN(acc, mRound);
+	private static long getDependency(int bid, int threshold, byte vote) {
+		return ((long) bid << 32) | ((long) threshold << 1) | vote;
 	}
 	
-	public boolean protocolFunctionN(BroadcastAccept acc, int messageRound)
-	{
-		//If previous bid does not exists return false
-		if(!this.validatedMessages.containsKey(acc.getBroadcastID()-1))
-			return false;
-		
-		if(!this.validatedMessages.get(acc.getBroadcastID()-1).containsKey(BBConsensus.getActualValue(acc.getValue(),"(d,",")")))
-			return false;
-		
-		int cardinalityValue = getCardinality(acc.getBroadcastID()-1, BBConsensus.getActualValue(acc.getValue(),"(d,",")"));
-		if(messageRound == 1){
-			if(cardinalityValue >= Math.ceil( (this.numNodes - this.toleratedFaults) / 2.0) )
-					return true;
-		}
-		else if(messageRound == 2){
-			if(acc.getValue().contains("(d,")){
-				if( cardinalityValue >= Math.floor(this.numNodes / 2.0) + 1)
-					return true;
-			}
-			else if(cardinalityValue >= 1){
-				return true;
-			}
-		}
-		return false;
+	private static int getDependencyThreshold(long dependency) {
+		return ((int) dependency) >>> 1;
 	}
 	
-	private int getCardinality(int round, String value) {
-		return this.validatedMessages.get(round).get(value).size();
+	private int getDependencyCount(long dependency) {
+		int[] counters = this.validatedMessages.get((int) (dependency >>> 32));
+		if(counters == null)
+			return 0;
+		return counters[(int) dependency & BinaryVote.ONE];
 	}
 
-	public Map<Integer, Map<String,List<BroadcastAccept>>> getValidatedMessage() {
+	public Map<Integer, int[]> getValidatedMessage() {
 		return this.validatedMessages;
 	}
 	
-	private void addToNonValidatedMessages(BroadcastAccept acc) {
-		if(!nonValidatedMessages.containsKey(acc.getBroadcastID()))
-			this.nonValidatedMessages.put(acc.getBroadcastID(), new ArrayList<>());
-		this.nonValidatedMessages.get(acc.getBroadcastID()).add(acc);
-	}
-
 	private void addToValidatedMessages(BroadcastAccept acc) {
-		
-		if(!validatedMessages.containsKey(acc.getBroadcastID())){
-			this.validatedMessages.put(acc.getBroadcastID(), new HashMap<>());
-			this.validatedMessages.get(acc.getBroadcastID()).put(acc.getValue(), new ArrayList<>());
-		}
-		else if(!this.validatedMessages.get(acc.getBroadcastID()).containsKey(acc.getValue())){
-			this.validatedMessages.get(acc.getBroadcastID()).put(acc.getValue(), new ArrayList<>());
+		ArrayDeque<BroadcastAccept> released = null;
+		while(acc != null) {
+			int bid = acc.getBroadcastID();
+			byte vote = acc.getVote();
+			int[] counters = this.validatedMessages.get(bid);
+			if(counters == null){
+				counters = new int[BinaryVote.TOTAL_VOTES];
+				this.validatedMessages.put(bid, counters);
+			}
+			
+			/* Only undecided votes are counted by the messages of the next round. */
+			int count = ++counters[vote];
+			if(BinaryVote.isDecided(vote) && bid % 3 == 2 && count == 2 * this.toleratedFaults + 1 && this.decision == BinaryVote.INVALID)
+				this.decision = vote;
+			else if(!BinaryVote.isDecided(vote) && bid % 3 == 0 && count == this.fastThreshold && this.decision == BinaryVote.INVALID)
+				this.decision = BinaryVote.decide(vote);
+			else if(!BinaryVote.isDecided(vote) && !this.nonValidatedMessages.isEmpty()) {
+				List<BroadcastAccept> waiting = this.nonValidatedMessages.remove(getDependency(bid, count, vote));
+				if(waiting != null) {
+					if(released == null)
+						released = new ArrayDeque<>();
+					released.addAll(waiting);
+				}
+			}
+			
+			acc = (released == null) ? null : released.poll();
 		}
-		this.validatedMessages.get(acc.getBroadcastID()).get(acc.getValue()).add(acc);
 	}
 	
 	//actual consensus algorithm
 	public BBConsensus(Application p, String appID, int nodeID, int cid, int numNodes) {
+		this(p, appID, nodeID, cid, numNodes, defaultCoin);
+	}
+	
+	public BBConsensus(Application p, String appID, int nodeID, int cid, int numNodes, CommonCoin coin) {
 		this.parent = p;
+		this.coin = coin;
 		this.cid = cid;
 		this.icid = appID;
 		this.pid =  nodeID;
 		this.numNodes = numNodes;
 		this.toleratedFaults = (this.numNodes - 1) / 3;
+		this.firstRoundThreshold = (int) Math.ceil( (this.numNodes - this.toleratedFaults) / 2.0);
+		this.decidedThreshold = (int) Math.floor(this.numNodes / 2.0) + 1;
+		this.fastThreshold = getFastThreshold(this.numNodes, this.toleratedFaults);
 		nonValidatedMessages = new HashMap<>();
 		validatedMessages = new HashMap<>();
 	}
 
+	/**
+	 * Starts the Consensus instance.
+	 *
+	 * @param value the proposal of this node, either "0" or "1".
+	 */
 	public void start(String value) {
-		this.value = value;
+		byte vote = BinaryVote.parse(value);
+		if(vote == BinaryVote.INVALID)
+			throw new IllegalArgumentException("[BBConsensus, Node: " + pid + "]: The proposal of a binary Consensus must be either 0 or 1, not " + value);
+		
+		this.value = vote;
 		this.phase = 0;
 		this.round = 0;
 		int bid = 3 * this.phase + this.round;
 		
 		if(GlobalVariables.HIGH_VERBOSE)
-			System.out.println("[BBConsensus, Node: " + pid + "]: Starting a broadcast for <" + icid + ", " + cid + ", " + bid + ", " + value + ">");
+			System.out.println("[BBConsensus, Node: " + pid + "]: Starting a broadcast for <" + icid + ", " + cid + ", " + bid + ", " + BinaryVote.toString(this.value) + ">");
 
-		this.parent.getBroadcast().broadcast(this.icid, this.cid, this.pid, bid, value);
-		this.attemptToValidatePreviousMessages();
+		broadcast(bid);
+		this.advance();
 	}
 	
-	private int getTotalValidatedMessages(int bid, String value) {
-		List<BroadcastAccept> sizeList = this.getValidatedMessage().get(bid).get(value);
-		
-		if(sizeList == null)
-			return 0;
-		return sizeList.size();
+	private void broadcast(int bid) {
+		this.parent.getBroadcast().broadcast(this.icid, this.cid, this.pid, bid, BinaryVote.encode(this.value));
+	}
+	
+	private int getTotalValidatedMessages(int bid, byte vote) {
+		return this.validatedMessages.get(bid)[vote];
 	}
 
 	public void process(BroadcastAccept acc) {
 		if(GlobalVariables.HIGH_VERBOSE)
 			System.out.println("[BBConsensus, Node: " + pid + "]: A BroadcastAccept message was received: " + acc.toString());
 		
-		//This means that we have received a message from a previous phase
-		if(phase>0 && acc.getBroadcastID() < 3 * this.phase )
-		{
+		if(acc.getVote() == BinaryVote.INVALID) {
 			if(GlobalVariables.HIGH_VERBOSE)
-				System.out.println("The consensus has advanced to another phase. Ignoring message "+acc.toString());
+				System.out.println("[BBConsensus, Node: " + pid + "]: Ignoring a message that does not carry a binary vote: " + acc.toString());
 			
 			return;
 		}
-		this.attemptToValidatePreviousMessages();
-//		System.out.println("ICID: "+this.icid+" CID: "+this.cid + " Phase & Round: "+this.phase+" "+this.round+
-//						   " NON Valid:"+Arrays.asList(this.validationModule.nonValidatedMessages).toString()+
-//						   " Valid :"+Arrays.asList(this.validationModule.validatedMessages).toString()+
-//						   " ValNumNodes :"+this.validationModule.numNodes);
 		
-		// try to validate message
-		this.validateMessage(acc, this.phase, this.round);
-		boolean enoughValidatedMessages = hasNminusTMessages();
-		
-//		if(validatedValue == null){
-//			System.out.println("ICID: "+this.icid+" CID: "+this.cid + " Phase & Round: "+this.phase+" "+this.round+
-//			   " NON Valid:"+Arrays.asList(this.validationModule.nonValidatedMessages).toString()+
-//			   " Valid :"+Arrays.asList(this.validationModule.validatedMessages).toString()+
-//			   " ValNumNodes :"+this.validationModule.numNodes);
-//		}
+		if(this.terminated)
+			return;
 		
-		if ( enoughValidatedMessages ) {
+		// try to validate message
+		this.validateMessage(acc);
+		this.advance();
+	}
+	
+	/**
+	 * Moves through the rounds for which enough messages have been validated.
+	 * The messages of a later round may have been validated before this node
+	 * reached it, so more than one round may be completed at once.
+	 */
+	private void advance() {
+		while(this.round >= 0 && !this.terminated) {
+			if(this.decision != BinaryVote.INVALID) {
+				terminate(this.decision);
+				return;
+			}
+			
+			if(!hasNminusTMessages())
+				return;
+			
 			if (this.round == 0) {
-				String newValue =  getMajorityValue();
+				byte newValue =  getMajorityValue();
 				int bid = 3 * this.phase + this.round;
 				
-				if(!this.value.equals(newValue)) {
+				if(this.value != newValue) {
 					if(getTotalValidatedMessages(bid, newValue) > getTotalValidatedMessages(bid, value)) {
 						this.value = newValue;
 					}
 				}
 				
 				this.round++;
-				this.parent.getBroadcast().broadcast(this.icid, this.cid, this.pid, 3 * this.phase + this.round, value);
+				broadcast(3 * this.phase + this.round);
 			}
 			else if (this.round == 1) {
-				String newValue =  getMajorityValue();
-				if(getTotalValidatedMessages(3* this.phase + this.round, newValue) >= Math.floor(this.numNodes/2.0) + 1 )
-					this.value="(d,"+newValue+")";
+				byte newValue =  getMajorityValue();
+				if(getTotalValidatedMessages(3* this.phase + this.round, newValue) >= this.decidedThreshold )
+					this.value = BinaryVote.decide(newValue);
 				
 				this.round++;
-				this.parent.getBroadcast().broadcast(this.icid, this.cid, this.pid, 3* this.phase + this.round, value);
+				broadcast(3* this.phase + this.round);
 			}
 			else if(this.round == 2){
-				String newValue =  getMajorityValue();
-				int totalMessages = getTotalValidatedMessages(3* this.phase + this.round, newValue);
+				/* Only one value can be decided in a phase, since it needs the votes of a majority in the previous round. */
+				int bid = 3* this.phase + this.round;
+				byte decided = BinaryVote.decide(BinaryVote.ZERO);
+				if(getTotalValidatedMessages(bid, BinaryVote.decide(BinaryVote.ONE)) > getTotalValidatedMessages(bid, decided))
+					decided = BinaryVote.decide(BinaryVote.ONE);
 				
-				//System.out.println(this.cid+"        "+newValue+"        "+totalMessages);
-				if(newValue.contains("(d,")) {
-					//call the upper level since consensus concluded
-					if( totalMessages >= 2*this.toleratedFaults + 1){
-						this.value = BBConsensus.getActualValue(newValue,"(d,",")");
-						
-						if(GlobalVariables.HIGH_VERBOSE)
-							System.out.println("[BBConsensus, Node: " + pid + "]: In round 2, with value " + value + ", the Consensus is terminating...");
-						
-						//this.phase = 0;
-						//this.round = 0;
-						this.parent.processConsensusResult(this.cid, this.value);
-						
-					}
-					//go to next phase with new value
-					else if(totalMessages >= this.toleratedFaults + 1) {
-						this.value = BBConsensus.getActualValue(newValue,"(d,",")");
-						cleanUpForNewPhase();
-						this.parent.getBroadcast().broadcast(this.icid, this.cid, this.pid, 3* this.phase +this.round, value);
-					}
-				}
-				else{
-					this.value = coin_toss();
-					cleanUpForNewPhase();
-					this.parent.getBroadcast().broadcast(this.icid, this.cid, this.pid, 3* this.phase +this.round, value);
-				}
+				//go to next phase with new value
+				if(getTotalValidatedMessages(bid, decided) >= this.toleratedFaults + 1)
+					this.value = BinaryVote.valueOf(decided);
+				else
+					this.value = coin.toss(this.icid, this.cid, this.phase);
+				
+				this.phase++;
+				this.round = 0;
+				broadcast(3* this.phase +this.round);
 			}
 			else{
 				throw new RuntimeException("There is no 4th round in the Consensus protocol");
 			}
 		}
 	}
+	
+	/**
+	 * Reports the decision of this instance, which is final; the instance
+	 * does not broadcast any further messages.
+	 */
+	private void terminate(byte decided) {
+		this.value = BinaryVote.valueOf(decided);
+		this.terminated = true;
+		
+		if(GlobalVariables.HIGH_VERBOSE)
+			System.out.println("[BBConsensus, Node: " + pid + "]: In phase " + phase + ", with value " + BinaryVote.toString(value) + ", the Consensus is terminating...");
+		
+		//call the upper level since consensus concluded
+		this.parent.processConsensusResult(this.cid, BinaryVote.toValue(this.value));
+	}
 
-	private String coin_toss(){
-		SecureRandom random = new SecureRandom();
-		return ""+random.nextInt(2)+"";
+	/**
+	 * Sets the coin of the instances created from now on without one, e.g. a
+	 * {@link SeededCommonCoin} shared by all nodes.
+	 */
+	public static void setDefaultCoin(CommonCoin coin) {
+		defaultCoin = coin;
 	}
 	
-	private void cleanUpForNewPhase() {
-		this.phase++;
-		this.round = 0;
-		nonValidatedMessages.clear();
-		validatedMessages.clear();
+	public static CommonCoin getDefaultCoin() {
+		return defaultCoin;
 	}
-
-	public static String getActualValue(String newValue, String pattern1, String pattern2) {
-			Pattern p = Pattern.compile(Pattern.quote("(d,") + "(.*?)" + Pattern.quote(")"));
-			Matcher m = p.matcher(newValue);
-			if(newValue.contains(pattern1) && newValue.contains(pattern2)) {
-				m.find();
-				return m.group(1);
-			}
-			return newValue;
+	
+	/**
+	 * Returns the number of votes for a value in the first round of a phase
+	 * that lets a node decide the value at once, as in the one-step Consensus
+	 * of Bosco: more than (n+3t)/2. Any other correct node then sees a strict
+	 * majority for the value among the messages it waits for, adopts it and
+	 * decides it in the same phase. The messages of the first round need no
+	 * validation, so every correct node eventually sees the same votes and
+	 * takes the fast path as well. With n = 3t+1 the fast path needs all n
+	 * votes to agree. If GlobalVariables.ONE_STEP_CONSENSUS is not set, the
+	 * threshold cannot be reached.
+	 */
+	static int getFastThreshold(int numNodes, int toleratedFaults) {
+		if(!GlobalVariables.ONE_STEP_CONSENSUS)
+			return Integer.MAX_VALUE;
+		
+		return (numNodes + 3 * toleratedFaults) / 2 + 1;
 	}
-
+	
 	private boolean hasNminusTMessages() {
 		int bid =  3 * this.phase + this.round;
-	
-		if(!this.getValidatedMessage().containsKey(bid)){
+		
+		int[] counters = this.validatedMessages.get(bid);
+		if(counters == null){
 			return false;
 		}
 		
 		int size = 0;
-		if(!this.getValidatedMessage().get(bid).isEmpty()){
-			for(String value : this.getValidatedMessage().get(bid).keySet()) {
-				size += this.getValidatedMessage().get(bid).get(value).size();
-			}
-		}
+		for(int count : counters)
+			size += count;
 		
 		if(size >= this.numNodes - this.toleratedFaults)
 			return true;
 		return false;
 	}
 
-	private String getMajorityValue() {
-		int bid =  3 * this.phase + this.round;
+	private byte getMajorityValue() {
+		int[] counters = this.validatedMessages.get(3 * this.phase + this.round);
 		
-		int sizeMax = -1;
-		String maxValue = null;
-		
-		for(String value : this.getValidatedMessage().get(bid).keySet()) {
-			if(this.getValidatedMessage().get(bid).get(value).size() > sizeMax){
-				sizeMax = this.getValidatedMessage().get(bid).get(value).size();
-				maxValue = value;
-			}
+		byte maxValue = 0;
+		for(byte vote = 1; vote < BinaryVote.TOTAL_VOTES; ++vote) {
+			if(counters[vote] > counters[maxValue])
+				maxValue = vote;
 		}
 		
 		return maxValue;
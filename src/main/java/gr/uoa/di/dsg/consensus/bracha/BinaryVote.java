@@ -0,0 +1,159 @@
+/*******************************************************************************
+ * Copyright (C) 2019 DSG at University of Athens
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package gr.uoa.di.dsg.consensus.bracha;
+
+/**
+ * The vote of a node in a binary Consensus instance, packed into a single
+ * byte: the lowest bit holds the value and the next bit marks the value as
+ * <em>decided</em>, i.e. as supported by a majority in the second round of a
+ * phase. Votes are broadcast as a single character, '0' up to '3', so the
+ * undecided votes keep the plain "0" and "1" representation of the values.
+ */
+public final class BinaryVote {
+
+	/** The undecided vote for the value 0. */
+	public final static byte ZERO = 0;
+
+	/** The undecided vote for the value 1. */
+	public final static byte ONE = 1;
+
+	/** The flag of a decided vote. */
+	public final static byte DECIDED = 2;
+
+	/** The number of distinct votes, used to size per-vote counters. */
+	public final static int TOTAL_VOTES = 4;
+
+	/** Marks a broadcast value that does not encode a vote. */
+	public final static byte INVALID = -1;
+
+	private final static String[] ENCODED = { "0", "1", "2", "3" };
+
+	private BinaryVote() {
+	}
+
+	/**
+	 * @param vote a valid vote.
+	 * @return <em>true</em> if the vote is decided.
+	 */
+	public static boolean isDecided(byte vote) {
+		return (vote & DECIDED) != 0;
+	}
+
+	/**
+	 * @param vote a valid vote.
+	 * @return the decided vote for the value of the specified vote.
+	 */
+	public static byte decide(byte vote) {
+		return (byte) (vote | DECIDED);
+	}
+
+	/**
+	 * @param vote a valid vote.
+	 * @return the undecided vote for the value of the specified vote.
+	 */
+	public static byte valueOf(byte vote) {
+		return (byte) (vote & ONE);
+	}
+
+	/**
+	 * Parses a proposal of an application, which must be either "0" or "1".
+	 *
+	 * @param value the proposal.
+	 * @return the undecided vote for the proposal, or {@link #INVALID}.
+	 */
+	public static byte parse(String value) {
+		byte vote = decode(value);
+		return isDecided(vote) ? INVALID : vote;
+	}
+
+	/**
+	 * @param vote a valid vote.
+	 * @return the representation of the vote that is broadcast.
+	 */
+	public static String encode(byte vote) {
+		return ENCODED[vote];
+	}
+
+	/**
+	 * @param value the value of a broadcast.
+	 * @return the vote encoded by the value, or {@link #INVALID}.
+	 */
+	public static byte decode(String value) {
+		if(value == null || value.length() != 1)
+			return INVALID;
+
+		int vote = value.charAt(0) - '0';
+		if(vote < 0 || vote >= TOTAL_VOTES)
+			return INVALID;
+
+		return (byte) vote;
+	}
+
+	/**
+	 * Encodes the votes of the slots of a vectorised Consensus instance (see
+	 * {@link VectorBBConsensus}), one character per slot.
+	 *
+	 * @param votes the valid votes.
+	 * @return the representation of the votes that is broadcast.
+	 */
+	public static String encodeVector(byte[] votes) {
+		char[] chars = new char[votes.length];
+		for(int i = 0; i < votes.length; ++i)
+			chars[i] = (char) ('0' + votes[i]);
+
+		return new String(chars);
+	}
+
+	/**
+	 * @param value the value of a broadcast.
+	 * @param width the number of slots.
+	 * @return the votes encoded by the value, or <em>null</em> if the value
+	 *         does not encode exactly <code>width</code> valid votes.
+	 */
+	public static byte[] decodeVector(String value, int width) {
+		if(value == null || value.length() != width)
+			return null;
+
+		byte[] votes = new byte[width];
+		for(int i = 0; i < width; ++i) {
+			int vote = value.charAt(i) - '0';
+			if(vote < 0 || vote >= TOTAL_VOTES)
+				return null;
+			votes[i] = (byte) vote;
+		}
+
+		return votes;
+	}
+
+	/**
+	 * @param vote a valid vote.
+	 * @return the value of the vote, as reported to the application.
+	 */
+	public static String toValue(byte vote) {
+		return ENCODED[vote & ONE];
+	}
+
+	/**
+	 * @param vote a valid vote.
+	 * @return a readable representation of the vote, e.g. "(d,1)".
+	 */
+	public static String toString(byte vote) {
+		if(vote == INVALID)
+			return "invalid";
+		return isDecided(vote) ? "(d," + toValue(vote) + ")" : toValue(vote);
+	}
+}
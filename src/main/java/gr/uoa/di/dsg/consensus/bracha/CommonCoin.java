@@ -0,0 +1,36 @@
+/*******************************************************************************
+ * Copyright (C) 2019 DSG at University of Athens
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package gr.uoa.di.dsg.consensus.bracha;
+
+/**
+ * The coin that a binary Consensus instance tosses when a phase ends without
+ * a decided value being adopted. When all nodes toss the same coin for a
+ * phase, the nodes that adopt a decided value and those that toss the coin
+ * agree with probability 1/2, so the expected number of phases is constant.
+ */
+public interface CommonCoin {
+
+	/**
+	 * Tosses the coin of a phase.
+	 * 
+	 * @param icid the identifier of the application.
+	 * @param cid the identifier of the Consensus instance.
+	 * @param phase the phase that ends.
+	 * @return either {@link BinaryVote#ZERO} or {@link BinaryVote#ONE}.
+	 */
+	public byte toss(String icid, int cid, int phase);
+}
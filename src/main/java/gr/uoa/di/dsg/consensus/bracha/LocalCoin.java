@@ -0,0 +1,34 @@
+/*******************************************************************************
+ * Copyright (C) 2019 DSG at University of Athens
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package gr.uoa.di.dsg.consensus.bracha;
+
+import java.security.SecureRandom;
+
+/**
+ * A coin that every node tosses independently. The nodes agree on a coin
+ * only by chance, so with split proposals the expected number of phases
+ * grows exponentially with the number of nodes.
+ */
+public class LocalCoin implements CommonCoin {
+
+	private final SecureRandom random = new SecureRandom();
+
+	@Override
+	public byte toss(String icid, int cid, int phase) {
+		return (byte) random.nextInt(2);
+	}
+}
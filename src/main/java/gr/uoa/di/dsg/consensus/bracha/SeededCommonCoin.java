@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (C) 2019 DSG at University of Athens
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package gr.uoa.di.dsg.consensus.bracha;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * A coin derived from a seed that is dealt to all nodes in advance, along with
+ * their symmetric keys (see
+ * {@link gr.uoa.di.dsg.crypto.SecretKeysGenerator}). The coin of a phase is
+ * the lowest bit of the HMAC of the seed over the application, the Consensus
+ * instance and the phase, so all nodes toss the same coin.
+ * 
+ * The Byzantine nodes hold the seed as well and may predict the coin. This
+ * does not affect safety, but an adversary that also controls the scheduling
+ * could still delay termination; a threshold coin is needed to rule that out.
+ */
+public class SeededCommonCoin implements CommonCoin {
+
+	private final static String ALGORITHM = "HmacSHA256";
+
+	private final Key seed;
+
+	private final ThreadLocal<Mac> macs = new ThreadLocal<Mac>() {
+		@Override
+		protected Mac initialValue() {
+			try {
+				Mac mac = Mac.getInstance(ALGORITHM);
+				mac.init(seed);
+				return mac;
+			}
+			catch (GeneralSecurityException ex) {
+				throw new IllegalStateException("[SeededCommonCoin]: Cannot initialize " + ALGORITHM, ex);
+			}
+		}
+	};
+
+	public SeededCommonCoin(byte[] seed) {
+		this(new SecretKeySpec(seed, ALGORITHM));
+	}
+
+	public SeededCommonCoin(Key seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * Loads the seed written by
+	 * {@link gr.uoa.di.dsg.crypto.SecretKeysGenerator#generateCoinSeed(String)}.
+	 * 
+	 * @param filename the file of the seed.
+	 * @return the coin.
+	 */
+	public static SeededCommonCoin load(String filename) throws IOException, ClassNotFoundException {
+		try (ObjectInputStream in = new ObjectInputStream(new FileInputStream(filename))) {
+			return new SeededCommonCoin((Key) in.readObject());
+		}
+	}
+
+	@Override
+	public byte toss(String icid, int cid, int phase) {
+		byte[] applicationID = icid.getBytes(StandardCharsets.UTF_8);
+		ByteBuffer input = ByteBuffer.allocate(applicationID.length + 12);
+		input.putInt(applicationID.length).put(applicationID).putInt(cid).putInt(phase);
+
+		byte[] digest = macs.get().doFinal(input.array());
+		return (byte) (digest[0] & BinaryVote.ONE);
+	}
+}
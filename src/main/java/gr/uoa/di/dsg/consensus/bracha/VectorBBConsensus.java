@@ -0,0 +1,345 @@
+/*******************************************************************************
+ * Copyright (C) 2019 DSG at University of Athens
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package gr.uoa.di.dsg.consensus.bracha;
+
+import gr.uoa.di.dsg.broadcast.BroadcastAccept;
+import gr.uoa.di.dsg.ic.Application;
+import gr.uoa.di.dsg.utils.GlobalVariables;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs the binary Consensus instances of all slots of an application, e.g. one
+ * per node of an interactive consistency instance, as a single instance. Each
+ * node broadcasts one message per round, carrying its vote for every slot, so
+ * the number of broadcasts is divided by the number of slots. Every slot
+ * follows the rules of {@link BBConsensus} on its own: its votes are validated
+ * against the votes of the same slot in the previous round, it tosses its own
+ * coin and it decides independently, at which point
+ * {@link Application#processConsensusResult(int, String)} is called with the
+ * identifier of the slot.
+ * 
+ * A message is validated once the votes of all its slots are. The rounds
+ * advance in lockstep for all slots, and the instance stops broadcasting once
+ * all slots have been decided.
+ */
+public class VectorBBConsensus {
+
+	/** The consensus ID of the broadcasts of a vectorised instance. */
+	public final static int CONSENSUS_ID = -2;
+
+	/** A message of the instance, along with the number of its votes that are not validated yet. */
+	private static class PendingVector {
+		final int bid;
+		final byte[] votes;
+		int missing = 0;
+
+		PendingVector(int bid, byte[] votes) {
+			this.bid = bid;
+			this.votes = votes;
+		}
+	}
+
+	private final Application parent;
+	private final String icid;
+	private final int pid;
+	private final int[] slots;
+	private final int width;
+	private final int numNodes;
+	private final int toleratedFaults;
+	private final int firstRoundThreshold;
+	private final int decidedThreshold;
+	private final int fastThreshold;
+	private final CommonCoin coin;
+
+	/**
+	 * The messages that have not been validated yet, indexed by each dependency
+	 * they wait on: the broadcast ID of the previous round, the slot, the
+	 * threshold and the value bit (see {@link #getDependency(int, int, int, byte)}).
+	 */
+	private final Map<Long, List<PendingVector>> nonValidatedMessages = new HashMap<>();
+
+	/**
+	 * The number of validated votes per broadcast ID, indexed by slot and
+	 * {@link BinaryVote}. The last counter holds the number of validated
+	 * messages.
+	 */
+	private final Map<Integer, int[]> validatedMessages = new HashMap<>();
+
+	private int phase = -1;
+	private int round = -1;
+	private byte[] values = null;
+
+	/** The decided vote of each slot, see {@link BBConsensus} for the rule. */
+	private final byte[] decisions;
+	private final boolean[] reported;
+	private int pendingDecisions = 0;
+	private int reportedDecisions = 0;
+
+	public VectorBBConsensus(Application parent, String icid, int nodeID, List<Integer> slots, int numNodes) {
+		this(parent, icid, nodeID, slots, numNodes, BBConsensus.getDefaultCoin());
+	}
+
+	public VectorBBConsensus(Application parent, String icid, int nodeID, List<Integer> slots, int numNodes, CommonCoin coin) {
+		this.parent = parent;
+		this.icid = icid;
+		this.pid = nodeID;
+		this.width = slots.size();
+		this.slots = new int[width];
+		for(int i = 0; i < width; ++i)
+			this.slots[i] = slots.get(i);
+
+		this.numNodes = numNodes;
+		this.toleratedFaults = (numNodes - 1) / 3;
+		this.firstRoundThreshold = (int) Math.ceil( (numNodes - toleratedFaults) / 2.0);
+		this.decidedThreshold = (int) Math.floor(numNodes / 2.0) + 1;
+		this.fastThreshold = BBConsensus.getFastThreshold(numNodes, toleratedFaults);
+		this.coin = coin;
+
+		this.decisions = new byte[width];
+		Arrays.fill(this.decisions, BinaryVote.INVALID);
+		this.reported = new boolean[width];
+	}
+
+	/**
+	 * Starts the instance.
+	 * 
+	 * @param proposals the proposal of this node for each slot, either "0" or "1".
+	 */
+	public void start(List<String> proposals) {
+		if(proposals.size() != width)
+			throw new IllegalArgumentException("[VectorBBConsensus, Node: " + pid + "]: Expected " + width + " proposals, not " + proposals.size());
+
+		byte[] votes = new byte[width];
+		for(int i = 0; i < width; ++i) {
+			votes[i] = BinaryVote.parse(proposals.get(i));
+			if(votes[i] == BinaryVote.INVALID)
+				throw new IllegalArgumentException("[VectorBBConsensus, Node: " + pid + "]: The proposal of a binary Consensus must be either 0 or 1, not " + proposals.get(i));
+		}
+
+		this.values = votes;
+		this.phase = 0;
+		this.round = 0;
+
+		if(GlobalVariables.HIGH_VERBOSE)
+			System.out.println("[VectorBBConsensus, Node: " + pid + "]: Starting a broadcast for <" + icid + ", " + CONSENSUS_ID + ", 0, " + BinaryVote.encodeVector(values) + ">");
+
+		broadcast();
+		advance();
+	}
+
+	public void process(BroadcastAccept acc) {
+		if(GlobalVariables.HIGH_VERBOSE)
+			System.out.println("[VectorBBConsensus, Node: " + pid + "]: A BroadcastAccept message was received: " + acc.toString());
+
+		byte[] votes = BinaryVote.decodeVector(acc.getValue(), width);
+		if(votes == null || acc.getBroadcastID() < 0) {
+			if(GlobalVariables.HIGH_VERBOSE)
+				System.out.println("[VectorBBConsensus, Node: " + pid + "]: Ignoring a message that does not carry " + width + " binary votes: " + acc.toString());
+
+			return;
+		}
+
+		if(reportedDecisions == width)
+			return;
+
+		validateMessage(new PendingVector(acc.getBroadcastID(), votes));
+		advance();
+	}
+
+	/**
+	 * @return <em>true</em> if all slots have been decided.
+	 */
+	public boolean isTerminated() {
+		return reportedDecisions == width;
+	}
+
+	private void broadcast() {
+		this.parent.getBroadcast().broadcast(this.icid, CONSENSUS_ID, this.pid, 3 * this.phase + this.round, BinaryVote.encodeVector(this.values));
+	}
+
+	private void validateMessage(PendingVector msg) {
+		int messageRound = msg.bid % 3;
+		if(messageRound != 0) {
+			for(int slot = 0; slot < width; ++slot) {
+				byte vote = msg.votes[slot];
+				int threshold = 1;
+				if(messageRound == 1)
+					threshold = this.firstRoundThreshold;
+				else if(BinaryVote.isDecided(vote))
+					threshold = this.decidedThreshold;
+
+				byte value = BinaryVote.valueOf(vote);
+				if(getCount(msg.bid - 1, slot, value) >= threshold)
+					continue;
+
+				long dependency = getDependency(msg.bid - 1, slot, threshold, value);
+				List<PendingVector> waiting = nonValidatedMessages.get(dependency);
+				if(waiting == null) {
+					waiting = new ArrayList<>();
+					nonValidatedMessages.put(dependency, waiting);
+				}
+				waiting.add(msg);
+				msg.missing++;
+			}
+		}
+
+		if(msg.missing == 0)
+			addToValidatedMessages(msg);
+	}
+
+	private static long getDependency(int bid, int slot, int threshold, byte value) {
+		return ((long) bid << 42) | ((long) slot << 21) | ((long) threshold << 1) | value;
+	}
+
+	private int getCount(int bid, int slot, byte vote) {
+		int[] counters = validatedMessages.get(bid);
+		if(counters == null)
+			return 0;
+		return counters[slot * BinaryVote.TOTAL_VOTES + vote];
+	}
+
+	private void addToValidatedMessages(PendingVector msg) {
+		ArrayDeque<PendingVector> released = null;
+		while(msg != null) {
+			int[] counters = validatedMessages.get(msg.bid);
+			if(counters == null) {
+				counters = new int[width * BinaryVote.TOTAL_VOTES + 1];
+				validatedMessages.put(msg.bid, counters);
+			}
+			counters[width * BinaryVote.TOTAL_VOTES]++;
+
+			for(int slot = 0; slot < width; ++slot) {
+				byte vote = msg.votes[slot];
+				int count = ++counters[slot * BinaryVote.TOTAL_VOTES + vote];
+				if(BinaryVote.isDecided(vote)) {
+					if(msg.bid % 3 == 2 && count == 2 * this.toleratedFaults + 1 && decisions[slot] == BinaryVote.INVALID) {
+						decisions[slot] = vote;
+						pendingDecisions++;
+					}
+					continue;
+				}
+
+				if(msg.bid % 3 == 0 && count == this.fastThreshold && decisions[slot] == BinaryVote.INVALID) {
+					decisions[slot] = BinaryVote.decide(vote);
+					pendingDecisions++;
+				}
+
+				/* Only undecided votes are counted by the messages of the next round. */
+				if(nonValidatedMessages.isEmpty())
+					continue;
+
+				List<PendingVector> waiting = nonValidatedMessages.remove(getDependency(msg.bid, slot, count, vote));
+				if(waiting == null)
+					continue;
+
+				for(PendingVector pending: waiting) {
+					if(--pending.missing == 0) {
+						if(released == null)
+							released = new ArrayDeque<>();
+						released.add(pending);
+					}
+				}
+			}
+
+			msg = (released == null) ? null : released.poll();
+		}
+	}
+
+	/**
+	 * Reports the slots decided so far and moves through the rounds for which
+	 * enough messages have been validated, as {@link BBConsensus} does.
+	 */
+	private void advance() {
+		while(this.round >= 0 && reportedDecisions < width) {
+			if(pendingDecisions > 0) {
+				reportDecisions();
+				continue;
+			}
+
+			int bid = 3 * this.phase + this.round;
+			int[] counters = validatedMessages.get(bid);
+			if(counters == null || counters[width * BinaryVote.TOTAL_VOTES] < this.numNodes - this.toleratedFaults)
+				return;
+
+			for(int slot = 0; slot < width; ++slot) {
+				int offset = slot * BinaryVote.TOTAL_VOTES;
+				if(this.round == 0) {
+					byte newValue = getMajorityValue(counters, offset);
+					if(counters[offset + newValue] > counters[offset + values[slot]])
+						values[slot] = newValue;
+				}
+				else if(this.round == 1) {
+					byte newValue = getMajorityValue(counters, offset);
+					if(counters[offset + newValue] >= this.decidedThreshold)
+						values[slot] = BinaryVote.decide(newValue);
+				}
+				else {
+					/* Only one value can be decided in a phase, since it needs the votes of a majority in the previous round. */
+					byte decided = BinaryVote.decide(BinaryVote.ZERO);
+					if(counters[offset + BinaryVote.decide(BinaryVote.ONE)] > counters[offset + decided])
+						decided = BinaryVote.decide(BinaryVote.ONE);
+
+					if(counters[offset + decided] >= this.toleratedFaults + 1)
+						values[slot] = BinaryVote.valueOf(decided);
+					else
+						values[slot] = coin.toss(this.icid, this.slots[slot], this.phase);
+				}
+			}
+
+			if(this.round == 2) {
+				this.phase++;
+				this.round = 0;
+			}
+			else
+				this.round++;
+
+			broadcast();
+		}
+	}
+
+	private void reportDecisions() {
+		for(int slot = 0; slot < width && pendingDecisions > 0; ++slot) {
+			if(decisions[slot] == BinaryVote.INVALID || reported[slot])
+				continue;
+
+			reported[slot] = true;
+			pendingDecisions--;
+			reportedDecisions++;
+
+			if(GlobalVariables.HIGH_VERBOSE)
+				System.out.println("[VectorBBConsensus, Node: " + pid + "]: In phase " + phase + ", the Consensus of slot " + slots[slot] + " is terminating with value " + BinaryVote.toString(BinaryVote.valueOf(decisions[slot])));
+
+			this.parent.processConsensusResult(this.slots[slot], BinaryVote.toValue(decisions[slot]));
+		}
+	}
+
+	private byte getMajorityValue(int[] counters, int offset) {
+		byte maxValue = 0;
+		for(byte vote = 1; vote < BinaryVote.TOTAL_VOTES; ++vote) {
+			if(counters[offset + vote] > counters[offset + maxValue])
+				maxValue = vote;
+		}
+
+		return maxValue;
+	}
+}
@@ -19,22 +19,45 @@ package gr.uoa.di.dsg.consensus.multivalued;
 import gr.uoa.di.dsg.broadcast.BroadcastAccept;
 import gr.uoa.di.dsg.broadcast.BroadcastMessage;
 import gr.uoa.di.dsg.consensus.multivalued.messages.MVInitMessage;
-import gr.uoa.di.dsg.consensus.multivalued.messages.MVMessageType;
 import gr.uoa.di.dsg.consensus.multivalued.messages.MVVectorMessage;
 import gr.uoa.di.dsg.ic.Application;
 import gr.uoa.di.dsg.utils.BroadcastID;
 import gr.uoa.di.dsg.utils.GlobalVariables;
-import gr.uoa.di.dsg.utils.StringUtils;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.Map;
-import java.util.Set;
-
+import java.util.Base64;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The multi-valued consensus protocol. Each instance handles a single
+ * consensus ID of an interactive consistency instance (see
+ * {@link gr.uoa.di.dsg.ic.multivalued.MVInteractiveConsistency}), thus all of
+ * its state is indexed by the identifier of the sending node alone.
+ * <p>
+ * When {@link GlobalVariables#DIGEST_VECTORS} is set, the MVVector messages
+ * carry the digests of the MVInit values, instead of the values themselves, and
+ * are validated against the digests of the received MVInit values. The vectors
+ * that support the decided digest have been validated against MVInit messages
+ * that carry the decided value, thus the value is always held locally.
+ */
 public class MVConsensus {
 	
+	/** A MVVector message, along with the number of its values whose MVInit message has not been received yet. */
+	private static class PendingVector {
+		final MVVectorMessage message;
+		int missing = 0;
+		boolean invalid = false;
+		
+		PendingVector(MVVectorMessage message) {
+			this.message = message;
+		}
+	}
+	
 	/** The number of totalNodes in the system. */
 	private final int totalNodes;
 
@@ -50,32 +73,47 @@ public class MVConsensus {
 	/** The nodeID of this instance. */
 	private final int nodeID;
 	
+	/** The MVInit value of each node. */
+	private String[] initValues = null;
+	
 	/**
-	 * The node's vector of MVInit values for every running instance of
-	 * interactive consistency and consensus.
+	 * The entry of each node in the MVVector messages, i.e. its MVInit value,
+	 * or the digest of that value if the vectors carry digests.
 	 */
-	private Map<String, String[]> initValues = null;
+	private String[] initEntries = null;
+	
+	/** The message digest of the values, or <em>null</em> if the vectors carry the values themselves. */
+	private MessageDigest messageDigest = null;
+	
+	/** Marks the nodes whose MVInit message has been received. */
+	private boolean[] initReceived = null;
+	private int totalInitMessages = 0;
+
+	/** The MVVector "weighted" value of each node. */
+	private String[] weightedValues = null;
+	
+	/** Marks the nodes whose MVVector message has been validated. */
+	private boolean[] vectorReceived = null;
+	private int totalVectorMessages = 0;
+	
+	/** Marks the nodes whose MVVector message has been received. */
+	private boolean[] vectorSeen = null;
 
 	/**
-	 * The node's vector of MVVector "weighted" values for every running
-	 * instance of interactive consistency and consensus.
+	 * The non-validated MVVector messages, indexed by each node whose MVInit
+	 * message they wait for.
 	 */
-	private Map<String, String[]> weightedValues = null;
+	private List<List<PendingVector>> nonValidatedMessages = null;
 	
-	/** A set containing all binary Consensus instances the node has participated. */
-	private Set<String> votedForConsensus = null;
+	/** Whether the node has participated in the binary Consensus instance. */
+	private boolean votedForConsensus = false;
 	
 	/** The result of its binary Consensus instance. */
-	private Map<String, String> consensusResults = null;
+	private String consensusResult = null;
 
-	/** The node's set of incoming messages. */
-	private Map<String, Set<BroadcastMessage>> incomingMessages = null;
-
-	/** The node's set of non-validated MVVector messages. */
-	private Map<String, Set<BroadcastMessage>> nonValidatedMessages = null;
-
-	/** The set of all committed vectors. */
-	private Map<String, String> committedValues = null;
+	/** Whether the instance has committed a value, along with the value. */
+	private boolean committed = false;
+	private String committedValue = null;
 	
 	public MVConsensus(Application application, int nodeID, int totalNodes) {
 		this.application = application;
@@ -83,16 +121,29 @@ public class MVConsensus {
 		this.nodeID = nodeID;
 		
 		/* Initialize all data structures. */
-		this.initValues = new HashMap<String, String[]>();
-		this.weightedValues = new HashMap<String, String[]>();
-		this.incomingMessages = new HashMap<String, Set<BroadcastMessage>>();
-		this.nonValidatedMessages = new HashMap<String, Set<BroadcastMessage>>();
-		this.committedValues = new HashMap<String, String>();
-		this.consensusResults = new HashMap<String, String>();
-		this.votedForConsensus = new HashSet<String>();
+		this.initValues = new String[totalNodes];
+		this.initReceived = new boolean[totalNodes];
+		this.initEntries = this.initValues;
+		this.weightedValues = new String[totalNodes];
+		this.vectorReceived = new boolean[totalNodes];
+		this.vectorSeen = new boolean[totalNodes];
+		this.nonValidatedMessages = new ArrayList<>(totalNodes);
+		for(int i = 0; i < totalNodes; ++i)
+			this.nonValidatedMessages.add(null);
 		
 		/* Specify the maximum number of faults. */
 		this.faults = (int) Math.floor((totalNodes - 1) / 3.0);
+		
+		if(GlobalVariables.DIGEST_VECTORS) {
+			try {
+				this.messageDigest = MessageDigest.getInstance(GlobalVariables.DIGEST_ALGORITHM);
+				this.initEntries = new String[totalNodes];
+			}
+			catch (NoSuchAlgorithmException ex) {
+				/* Falling back to full vectors would make this node reject the digest vectors of the rest. */
+				throw new IllegalStateException("[MultiValuedConsensus, Node: " + nodeID + "]: Cannot initialize " + GlobalVariables.DIGEST_ALGORITHM, ex);
+			}
+		}
 	}
 	
 	public void start(String icid, int cid, String value) {
@@ -104,156 +155,109 @@ public class MVConsensus {
 	
 	public void clear(String ICID) {
 		/* Remove all messages/values regarding the MVInitMessages. */
-		String UUID = ICID + ":" + MVMessageType.MVINIT;
-		this.incomingMessages.remove(UUID);
-		this.initValues.remove(UUID);
+		this.initValues = null;
+		this.initEntries = null;
+		this.initReceived = null;
 		
 		/* Remove all messages/values regarding the MVVectorMessages. */
-		UUID = ICID + ":" + MVMessageType.MVVECTOR;
-		this.incomingMessages.remove(UUID);
-		this.initValues.remove(UUID);
-		this.weightedValues.remove(UUID);
-		this.nonValidatedMessages.remove(UUID);
+		this.weightedValues = null;
+		this.vectorReceived = null;
+		this.vectorSeen = null;
+		this.nonValidatedMessages = null;
 	}
-
+	
 	public void process(MVInitMessage initMsg) {
 		if(GlobalVariables.LOW_VERBOSE)
 			System.out.println("[MultiValuedConsensus, Node: " + nodeID + "]: A MVInitMessage was received: " + initMsg.toString() + " from Node " + initMsg.getNodeID());
 		
 		String ICID = initMsg.getApplicationID();
-		Integer CID = initMsg.getConsensusID();
-		Integer PID = initMsg.getNodeID();
+		int CID = initMsg.getConsensusID();
+		int PID = initMsg.getNodeID();
 		
 		/* Verify that the message satisfies its specification. */
 		//assert initMsg.getBroadcastID() == BroadcastID.MVINIT_BROADCAST_ID.getValue();
 		
 		/* Ignore the message if the Consensus instance for it has already been completed. */
-		String commitUUID = ICID + ":" + CID;
-		if(committedValues.containsKey(commitUUID))
+		if(committed)
 			return;
 
-		/* Create an identifier, based on the received message. */
-		String UUID = ICID + ":" + MVMessageType.MVINIT;
-
-		/* Get all received messages for that identifier. */
-		Set<BroadcastMessage> currentMsgs = incomingMessages.get(UUID);
-		if (currentMsgs == null)
-			currentMsgs = new HashSet<BroadcastMessage>();
-
-		/* Ignore duplicates. */
-		for(BroadcastMessage msg: currentMsgs) {
-			if(initMsg.isEqual(msg)) {
-				//logger.warn("Duplicate message detected: " + initMsg.toString());
-				return;
-			}
+		/* Ignore duplicates, along with messages of unknown nodes. */
+		if(PID < 0 || PID >= totalNodes || initReceived[PID]) {
+			//logger.warn("Duplicate message detected: " + initMsg.toString());
+			return;
 		}
 
-		/* Store the received message. */
-		currentMsgs.add(initMsg);
-		incomingMessages.put(UUID, currentMsgs);
-
 		/* Update the local vector of received values. */
-		String[] values = initValues.get(UUID);
-		if (values == null)
-			values = new String[totalNodes];
-
-		values[PID] = initMsg.getValue();
-		initValues.put(UUID, values);
+		String value = initMsg.getValue();
+		initReceived[PID] = true;
+		initValues[PID] = value;
+		if(messageDigest != null)
+			initEntries[PID] = digest(value);
+		totalInitMessages++;
+		
+		/* The MVVector messages refer to the value through its entry. */
+		value = initEntries[PID];
 
 		/* Check if the new message can validate any MVVector message. */
-		Set<BroadcastMessage> pendingMessages = nonValidatedMessages.get(UUID);
-		if (pendingMessages != null && pendingMessages.size() > 0)
-			validateMessages(ICID, CID);
+		List<PendingVector> pendingMessages = nonValidatedMessages.get(PID);
+		if (pendingMessages != null) {
+			nonValidatedMessages.set(PID, null);
+			for(PendingVector pending: pendingMessages) {
+				if(pending.invalid)
+					continue;
+				
+				/* The message reported a different value for this node, thus it can never be validated. */
+				if(!pending.message.getVectorOfValues()[PID].equals(value))
+					pending.invalid = true;
+				else if(--pending.missing == 0)
+					storeVectorMessage(pending.message);
+				
+				if(committed)
+					return;
+			}
+		}
 
 		/*
 		 * Check if the proper number of MVInit messages has been received, in
 		 * order to proceed to the second phase.
 		 */
-		if (currentMsgs.size() == (totalNodes - faults))
+		if (totalInitMessages == (totalNodes - faults))
 			proceedToNextPhase(ICID, CID);
 	}
 
-	private void validateMessages(String ICID, int CID) {
-		/* Create the appropriate identifiers. */
-		String phase1UUID = ICID + ":" + MVMessageType.MVINIT;
-		String phase2UUID = ICID + ":" + MVMessageType.MVVECTOR;
-
-		/* Find all non-validated messages. */
-		Set<BroadcastMessage> pendingMessages = nonValidatedMessages.get(phase2UUID);
-		Set<BroadcastMessage> currentMsgs = incomingMessages.get(phase1UUID);
-
-		/* Check if any message can be validated. */
-		for (Iterator<BroadcastMessage> ite = pendingMessages.iterator(); ite.hasNext();) {
-			BroadcastMessage msg = ite.next();
-			if (validateMessage(msg)) {
-				/* Remove the message from the non-validated set and store it. */
-				ite.remove();
-				currentMsgs.add(msg);
-			}
-		}
-
-		/* Update the current set of non-validated Messages. */
-		nonValidatedMessages.put(phase2UUID, pendingMessages);
-
-		/*
-		 * Check if the proper number of MVVector messages has been received, in
-		 * order to proceed to the final phase.
-		 */
-		if (currentMsgs.size() == (totalNodes - faults))
-			proceedToFinalPhase(ICID, CID);
-	}
-
-	private boolean validateMessage(BroadcastMessage message) {
-		/* Verify that only MVVector messages will be validated. */
-		//assert message.getClass().equals(MVVectorMessage.class);
-		
-		MVVectorMessage vectMessage = (MVVectorMessage) message;
-
-		String ICID = message.getApplicationID();
-		Integer CID = message.getConsensusID();
-
+	/**
+	 * Validates a MVVector message against the MVInit messages received so far.
+	 * 
+	 * @return the number of MVInit messages that the message waits for, or -1
+	 *         if the message can never be validated.
+	 */
+	private int validateMessage(MVVectorMessage vectMessage) {
 		/* Verify that the message satisfies its specification. */
 		//assert message.getBroadcastID() == BroadcastID.MVVECTOR_BROADCAST_ID.getValue();
 
-		/* Create an identifier, based on the received message. */
-		String UUID = ICID + ":" + MVMessageType.MVINIT;
-		
 		if(GlobalVariables.HIGH_VERBOSE)
-			System.out.println("[MultiValuedConsensus, Node: " + nodeID + "]: In validateMessage, incomingMessages: " + Arrays.asList(incomingMessages));
+			System.out.println("[MultiValuedConsensus, Node: " + nodeID + "]: In validateMessage, init values: " + Arrays.asList(initValues));
+
+		String[] vectorOfValues = vectMessage.getVectorOfValues();
+		if(vectorOfValues == null || vectorOfValues.length > totalNodes)
+			return -1;
 
-		Set<BroadcastMessage> currentMsgs = incomingMessages.get(UUID);
-		if (currentMsgs == null)
-			return false;
+		/* Verify that the "weighted" value is the appropriate. */
+		if (!Objects.equals(vectMessage.getValue(), calculateMajorityValue(vectorOfValues)))
+			return -1;
 
 		/* Verify that the appropriate MVInit messages have been received. */
-		String[] vectorOfValues = vectMessage.getVectorOfValues();
+		int missing = 0;
 		for (int i = 0; i < vectorOfValues.length; ++i) {
-			if (vectorOfValues[i] != null && !"null".equalsIgnoreCase(vectorOfValues[i])) {
-				MVInitMessage initMessage = new MVInitMessage(ICID, CID, i, BroadcastID.MVINIT_BROADCAST_ID.getValue(), vectorOfValues[i]);
-
-				/* Check if the appropriate MVInitMessage has been received. */
-				boolean found = false;
-				for(BroadcastMessage msg: currentMsgs) {
-					if(initMessage.isEqual(msg)) {
-						found = true;
-						break;
-					}
-				}
-				
-				if(!found)
-					return false;
+			if (vectorOfValues[i] != null) {
+				if(!initReceived[i])
+					missing++;
+				else if(!vectorOfValues[i].equals(initEntries[i]))
+					return -1;
 			}
 		}
 
-		/* Verify that the "weighted" value is the appropriate. */
-		String vectMsgWeightedValue = vectMessage.getValue();
-		if (vectMsgWeightedValue != null) {
-			String correctWeightedValue = calculateMajorityValue(vectMessage.getVectorOfValues());
-			if (vectMsgWeightedValue.equals(correctWeightedValue) == false)
-				return false;
-		}
-
-		return true;
+		return missing;
 	}
 
 	/* http://gregable.com/2013/10/majority-vote-algorithm-find-majority.html */
@@ -274,6 +278,9 @@ public class MVConsensus {
 			else
 				--count;
 		}
+		
+		if(candidate == null)
+			return null;
 
 		/* Count the references of the majority value. */
 		count = 0;
@@ -291,16 +298,12 @@ public class MVConsensus {
 			return null;
 	}
 
-	private void proceedToNextPhase(String ICID, Integer CID) {
-		/* Create an identifier, based on the received message. */
-		String UUID = ICID + ":" + MVMessageType.MVINIT;
-		
+	private void proceedToNextPhase(String ICID, int CID) {
 		/* Calculate the node's "weighted" value. */
-		String[] initialValues = initValues.get(UUID);
-		String majorityValue = calculateMajorityValue(initialValues);
+		String majorityValue = calculateMajorityValue(initEntries);
 
 		/* Broadcast a MVVectorMessage containing the "weighted" value. */
-		String value = majorityValue + ";" + StringUtils.arrayToString(initialValues);
+		String value = MVVectorMessage.encodeValue(majorityValue, initEntries);
 		this.application.getBroadcast().broadcast(ICID, CID, nodeID, BroadcastID.MVVECTOR_BROADCAST_ID.getValue(), value);
 	}
 
@@ -311,32 +314,43 @@ public class MVConsensus {
 		/* Verify that the message satisfies its specification. */
 		//assert vectorMsg.getBroadcastID() == BroadcastID.MVVECTOR_BROADCAST_ID.getValue();
 
-		String ICID = vectorMsg.getApplicationID();
-		Integer CID = vectorMsg.getConsensusID();
-		Integer PID = vectorMsg.getNodeID();
+		int PID = vectorMsg.getNodeID();
 		
 		/* Ignore the message if the Consensus instance for it has already been completed. */
-		String commitUUID = ICID + ":" + CID;
-		if(committedValues.containsKey(commitUUID))
+		if(committed)
 			return;
 
-		/* Create an identifier, based on the received message. */
-		String UUID = ICID + ":" + MVMessageType.MVVECTOR;
+		/* Ignore duplicates, along with messages of unknown nodes. */
+		if(PID < 0 || PID >= totalNodes || vectorSeen[PID]) {
+			//logger.warn("Duplicate message detected: " + vectorMsg.toString());
+			return;
+		}
+		vectorSeen[PID] = true;
 
 		/* Check if the message can be validated. */
-		if (!validateMessage(vectorMsg)) {
-			/* Add to non-validated messages. */
-			Set<BroadcastMessage> pendingMessages = nonValidatedMessages.get(UUID);
-			if (pendingMessages == null)
-				pendingMessages = new HashSet<BroadcastMessage>();
-
-			pendingMessages.add(vectorMsg);
-			nonValidatedMessages.put(UUID, pendingMessages);
-
-			//logger.warn("Couldn't validate message: " + vectorMsg.toString());
+		int missing = validateMessage(vectorMsg);
+		if (missing != 0) {
 			if(GlobalVariables.HIGH_VERBOSE)
 				System.out.println("[MultiValuedConsensus, Node " + nodeID + "]: Couldn't validate message: " + vectorMsg.toString()
-						+ ", with init values: " + Arrays.asList(initValues.get(ICID + ":" + MVMessageType.MVINIT)));
+						+ ", with init values: " + Arrays.asList(initValues));
+			
+			if(missing < 0)
+				return;
+			
+			/* Wait for the MVInit messages of the values that have not been received. */
+			PendingVector pending = new PendingVector(vectorMsg);
+			pending.missing = missing;
+			String[] vectorOfValues = vectorMsg.getVectorOfValues();
+			for (int i = 0; i < vectorOfValues.length; ++i) {
+				if (vectorOfValues[i] != null && !initReceived[i]) {
+					List<PendingVector> pendingMessages = nonValidatedMessages.get(i);
+					if (pendingMessages == null) {
+						pendingMessages = new ArrayList<>(2);
+						nonValidatedMessages.set(i, pendingMessages);
+					}
+					pendingMessages.add(pending);
+				}
+			}
 
 			return;
 		}
@@ -344,67 +358,55 @@ public class MVConsensus {
 		if(GlobalVariables.HIGH_VERBOSE)
 			System.out.println("[MultiValuedConsensus, Node " + nodeID + "]: Validated message: " + vectorMsg.toString());
 
-		Set<BroadcastMessage> currentMsgs = incomingMessages.get(UUID);
-		if (currentMsgs == null)
-			currentMsgs = new HashSet<BroadcastMessage>();
-
-		/* Ignore duplicates. */
-		for(BroadcastMessage msg: currentMsgs) {
-			if(vectorMsg.isEqual(msg)) {
-				//logger.warn("Duplicate message detected: " + vectorMsg.toString());
-				return;
-			}
-		}
-
-		/* Store the received message. */
-		currentMsgs.add(vectorMsg);
-		incomingMessages.put(UUID, currentMsgs);
+		storeVectorMessage(vectorMsg);
+	}
+	
+	private void storeVectorMessage(MVVectorMessage vectorMsg) {
+		int PID = vectorMsg.getNodeID();
+		
+		/* The instance may have been completed by a previous message. */
+		if(committed || vectorReceived[PID])
+			return;
 
 		/* Update the local vector of received "weighted" values. */
-		String[] values = weightedValues.get(UUID);
-		if (values == null)
-			values = new String[totalNodes];
-
-		values[PID] = vectorMsg.getValue();
-		weightedValues.put(UUID, values);
+		vectorReceived[PID] = true;
+		weightedValues[PID] = vectorMsg.getValue();
+		totalVectorMessages++;
 		
 		/*
 		 * Check if the proper number of MVVector messages has been received, in
-		 * order to proceed to the final phase.
+		 * order to proceed to the final phase. Once there, every further message
+		 * may complete the "weighted" majority that a decision of 1 waits for.
 		 */
-		if (currentMsgs.size() == (totalNodes - faults))
+		if (totalVectorMessages >= (totalNodes - faults))
 			proceedToFinalPhase(vectorMsg.getApplicationID(), vectorMsg.getConsensusID());
 	}
 
 	private void proceedToFinalPhase(String ICID, int CID) {
-		String UUID = ICID + ":" + MVMessageType.MVVECTOR;
-		String consensusUUID = ICID + ":" + CID;
-		
-		if(consensusResults.containsKey(consensusUUID))
+		if(consensusResult != null)
 			terminate(ICID, CID);
-		else if(votedForConsensus.contains(consensusUUID))
+		else if(votedForConsensus)
 			return;
 		else {
 			/* Calculate the node's consensus value. */
-			String value = calculateMajorityValue(weightedValues.get(UUID));
+			String value = calculateMajorityValue(weightedValues);
 			String consensusValue = (value == null) ? "0" : "1";
 			
 			/* Make an up-call with the proposed value. */
 			BroadcastMessage proposeMessage = new BroadcastAccept(ICID, CID, nodeID, BroadcastID.MVPROPOSE_BROADCAST_ID.getValue(), consensusValue);
-			votedForConsensus.add(consensusUUID);
+			votedForConsensus = true;
 			application.process(proposeMessage);
 		}
 	}
 	
 	public void processConsensusResult(String ICID, int CID, String value) {
 		/* Store the results of consensus. */
-		String consensusUUID = ICID + ":" + CID;
-		consensusResults.put(consensusUUID, value);
+		consensusResult = value;
 		
 		if(value.equalsIgnoreCase("0")) {
 			/* Make an up-call with the delivered message. */
 			BroadcastMessage acceptMessage = new BroadcastAccept(ICID, CID, nodeID, BroadcastID.MVACCEPT_BROADCAST_ID.getValue(), null);
-			committedValues.put(consensusUUID, null);
+			committed = true;
 			application.process(acceptMessage);
 		}
 		else {
@@ -414,19 +416,25 @@ public class MVConsensus {
 	}
 	
 	private void terminate(String ICID, int CID) {
-		String commitUUID = ICID + ":" + CID;
-		
-		if(committedValues.containsKey(commitUUID))
+		if(committed)
 			return;
 		
-		String UUID = ICID + ":" + MVMessageType.MVVECTOR;
-		String[] wValues = weightedValues.get(UUID);
-		String res = this.calculateMajorityValue(wValues);
+		String res = this.calculateMajorityValue(weightedValues);
+		
+		/* Look up the value of the decided digest among the MVInit values. */
+		if(res != null && messageDigest != null) {
+			String digest = res;
+			res = null;
+			for(int i = 0; i < totalNodes && res == null; ++i)
+				if(digest.equals(initEntries[i]))
+					res = initValues[i];
+		}
 		
 		if(res != null) {
 			/* Make an up-call with the delivered message. */
 			BroadcastAccept acceptMessage = new BroadcastAccept(ICID, CID, nodeID, BroadcastID.MVACCEPT_BROADCAST_ID.getValue(), res);
-			committedValues.put(commitUUID, res);
+			committed = true;
+			committedValue = res;
 			
 			/* Clear as much memory as possible. */
 			this.clear(ICID);
@@ -434,4 +442,11 @@ public class MVConsensus {
 			application.process(acceptMessage);
 		}
 	}
+	
+	/**
+	 * @return the Base64 encoding of the digest of the value.
+	 */
+	private String digest(String value) {
+		return Base64.getEncoder().encodeToString(messageDigest.digest(value.getBytes(StandardCharsets.UTF_8)));
+	}
 }
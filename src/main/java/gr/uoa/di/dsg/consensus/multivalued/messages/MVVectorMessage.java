@@ -20,9 +20,10 @@ import gr.uoa.di.dsg.broadcast.BroadcastAccept;
 import gr.uoa.di.dsg.broadcast.BroadcastMessage;
 import gr.uoa.di.dsg.communicator.GenericMessageType;
 import gr.uoa.di.dsg.utils.BroadcastID;
-import gr.uoa.di.dsg.utils.StringUtils;
+import gr.uoa.di.dsg.utils.VectorCodec;
 
 import java.util.Arrays;
+import java.util.Objects;
 
 import com.google.protobuf.InvalidProtocolBufferException;
 
@@ -54,6 +55,46 @@ public class MVVectorMessage extends BroadcastMessage {
 		this.vectorOfValues = null;
 	}
 	
+	/**
+	 * Decodes a delivered MVVector broadcast, whose value is encoded by
+	 * {@link #encodeValue(String, String[])}.
+	 * 
+	 * @return the message, whose vector of values is <em>null</em> if the
+	 *         value of the broadcast is malformed.
+	 */
+	public static MVVectorMessage fromBroadcast(BroadcastAccept msg) {
+		MVVectorMessage vectMsg = new MVVectorMessage(msg);
+		vectMsg.setValue(null);
+		
+		try {
+			String[] entries = VectorCodec.decode(msg.getValue());
+			if(entries.length > 0) {
+				vectMsg.setValue(entries[0]);
+				vectMsg.vectorOfValues = Arrays.copyOfRange(entries, 1, entries.length);
+			}
+		}
+		catch (IllegalArgumentException ex) {
+			System.err.println("[MVVectorMessage]: A malformed vector was received from node " + msg.getNodeID() + ": " + ex.getMessage());
+		}
+		
+		return vectMsg;
+	}
+	
+	/**
+	 * @param weightedValue
+	 *            the "weighted" value, or <em>null</em> if there is none.
+	 * @param vectorOfValues
+	 *            the vector of values that accompany the "weighted" value.
+	 * @return the encoding of both as a single value.
+	 */
+	public static String encodeValue(String weightedValue, String[] vectorOfValues) {
+		String[] entries = new String[vectorOfValues.length + 1];
+		entries[0] = weightedValue;
+		System.arraycopy(vectorOfValues, 0, entries, 1, vectorOfValues.length);
+		
+		return VectorCodec.encode(entries);
+	}
+	
 	public void setVectorOfValues(String[] values) {
 		this.vectorOfValues = values;
 	}
@@ -65,7 +106,7 @@ public class MVVectorMessage extends BroadcastMessage {
 	@Override
 	public String toString() {
 		return "MVVectorMessage <" + this.applicationID + ", " + this.consensusID + ", " + this.nodeID + ", " + this.broadcastID + ", "
-				+ this.value + ", <" + StringUtils.arrayToString(vectorOfValues) + ">>";
+				+ this.value + ", " + Arrays.toString(vectorOfValues) + ">";
 	}
 
 	@Override
@@ -78,10 +119,7 @@ public class MVVectorMessage extends BroadcastMessage {
 		MultiValueConsensusMessage.MVVector.Builder builder = MultiValueConsensusMessage.MVVector
 				.newBuilder().setBid(getBroadcastID())
 				.setCid(getConsensusID()).setPid(getNodeID())
-				.setIcid(getApplicationID()).setValue(getValue());
-		
-		for(int i = 0; i < vectorOfValues.length; ++i)
-			builder.addInitValues(vectorOfValues[i]);
+				.setIcid(getApplicationID()).setValue(encodeValue(getValue(), vectorOfValues));
 		
 		return builder.build().toByteArray();
 	}
@@ -91,11 +129,7 @@ public class MVVectorMessage extends BroadcastMessage {
 		
 		try {
 			MultiValueConsensusMessage.MVVector vectorMsg = MultiValueConsensusMessage.MVVector.parseFrom(rawData);
-			mvVectorMessage = new MVVectorMessage(vectorMsg.getIcid(), vectorMsg.getCid(), vectorMsg.getPid(), vectorMsg.getBid(), vectorMsg.getValue());
-			
-			mvVectorMessage.vectorOfValues = new String[vectorMsg.getInitValuesCount()];
-			for(int i = 0; i < vectorMsg.getInitValuesCount(); ++i)
-				mvVectorMessage.vectorOfValues[i] = vectorMsg.getInitValues(i);
+			mvVectorMessage = fromBroadcast(new BroadcastAccept(vectorMsg.getIcid(), vectorMsg.getCid(), vectorMsg.getPid(), vectorMsg.getBid(), vectorMsg.getValue()));
 		}
 		catch (InvalidProtocolBufferException ex) {
 			System.err.println("An InvalidProtocolBufferException was caught: " + ex.getMessage());
@@ -123,6 +157,6 @@ public class MVVectorMessage extends BroadcastMessage {
 				&& consensusID 	== other.consensusID
 				&& nodeID 	== other.nodeID
 				&& broadcastID 	== other.broadcastID
-				&& value.equals(other.value);
+				&& Objects.equals(value, other.value);
 	}
 }
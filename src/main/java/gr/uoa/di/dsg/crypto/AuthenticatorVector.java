@@ -0,0 +1,176 @@
+/*******************************************************************************
+ * Copyright (C) 2019 DSG at University of Athens
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package gr.uoa.di.dsg.crypto;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * The layout of an authenticator, i.e. of the vector of MACs that a node
+ * computes over the same data, one for every recipient.
+ * 
+ * A vector starts with a header: its format (one byte), the number of entries
+ * and the length of each MAC, both as varints. A <em>dense</em> vector holds the
+ * MACs of the nodes 0 up to the number of entries, in order, so the MAC of a
+ * node is found at a fixed offset. A <em>sparse</em> vector lists the varint
+ * identifiers of its nodes after the header. In both cases the MACs follow at
+ * a fixed stride, and any node identifier that fits in an integer is valid.
+ */
+public class AuthenticatorVector {
+	
+	private final static byte DENSE = 0;
+	
+	private final static byte SPARSE = 1;
+	
+	/**
+	 * Packs the MACs of the specified nodes into a single vector.
+	 * 
+	 * @param nodeIDs the identifiers of the recipients.
+	 * @param authenticators the MAC for each recipient, all of the same length.
+	 * @return the vector.
+	 */
+	public static byte[] encode(List<Integer> nodeIDs, List<byte[]> authenticators) {
+		int count = nodeIDs.size();
+		int stride = (count == 0) ? 0 : authenticators.get(0).length;
+		
+		boolean dense = true;
+		for(int i = 0; i < count; ++i) {
+			if(authenticators.get(i).length != stride)
+				throw new IllegalArgumentException("[AuthenticatorVector]: All authenticators must have the same length!");
+			if(nodeIDs.get(i) != i)
+				dense = false;
+		}
+		
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream(count * (stride + 1) + 8);
+		outputStream.write(dense ? DENSE : SPARSE);
+		writeVarint(outputStream, count);
+		writeVarint(outputStream, stride);
+		
+		if(!dense)
+			for(Integer nodeID: nodeIDs)
+				writeVarint(outputStream, nodeID);
+		
+		for(byte[] authenticator: authenticators)
+			outputStream.write(authenticator, 0, stride);
+		
+		return outputStream.toByteArray();
+	}
+	
+	/**
+	 * @param vector the vector.
+	 * @param nodeID the identifier of a recipient.
+	 * @return the offset of the MAC for the node in the vector, or -1 if the
+	 *         vector has no MAC for the node.
+	 * @throws IllegalArgumentException if the vector is malformed.
+	 */
+	public static int offsetOf(byte[] vector, int nodeID) {
+		int[] position = { 1 };
+		int count = readVarint(vector, position);
+		int stride = readVarint(vector, position);
+		
+		int index = -1;
+		if(vector[0] == DENSE) {
+			if(nodeID >= 0 && nodeID < count)
+				index = nodeID;
+		}
+		else {
+			for(int i = 0; i < count; ++i) {
+				if(readVarint(vector, position) == nodeID && index < 0)
+					index = i;
+			}
+		}
+		
+		if(index < 0)
+			return -1;
+		
+		long offset = position[0] + (long) index * stride;
+		if(offset + stride > vector.length)
+			throw new IllegalArgumentException("[AuthenticatorVector]: The vector is truncated!");
+		
+		return (int) offset;
+	}
+	
+	/**
+	 * @param vector the vector.
+	 * @return the length of every MAC in the vector.
+	 */
+	public static int getStride(byte[] vector) {
+		int[] position = { 1 };
+		readVarint(vector, position);
+		
+		return readVarint(vector, position);
+	}
+	
+	/**
+	 * Returns the MAC of a node as a read-only view over the vector, without
+	 * copying it.
+	 * 
+	 * @param vector the vector.
+	 * @param nodeID the identifier of a recipient.
+	 * @return the MAC for the node, or <em>null</em> if the vector has none.
+	 */
+	public static ByteBuffer slice(byte[] vector, int nodeID) {
+		int offset = offsetOf(vector, nodeID);
+		if(offset < 0)
+			return null;
+		
+		return ByteBuffer.wrap(vector, offset, getStride(vector)).slice().asReadOnlyBuffer();
+	}
+	
+	/**
+	 * @param vector the vector.
+	 * @param nodeID the identifier of a recipient.
+	 * @return a copy of the MAC for the node, or <em>null</em> if the vector has
+	 *         none.
+	 */
+	public static byte[] get(byte[] vector, int nodeID) {
+		ByteBuffer slice = slice(vector, nodeID);
+		if(slice == null)
+			return null;
+		
+		byte[] authenticator = new byte[slice.remaining()];
+		slice.get(authenticator);
+		
+		return authenticator;
+	}
+	
+	private static void writeVarint(ByteArrayOutputStream outputStream, int value) {
+		while((value & ~0x7F) != 0) {
+			outputStream.write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		
+		outputStream.write(value);
+	}
+	
+	private static int readVarint(byte[] data, int[] position) {
+		int value = 0;
+		
+		for(int shift = 0; shift < 32; shift += 7) {
+			if(position[0] >= data.length)
+				break;
+			
+			byte b = data[position[0]++];
+			value |= (b & 0x7F) << shift;
+			if((b & 0x80) == 0)
+				return value;
+		}
+		
+		throw new IllegalArgumentException("[AuthenticatorVector]: Malformed varint!");
+	}
+}
@@ -16,7 +16,9 @@
  ******************************************************************************/
 package gr.uoa.di.dsg.crypto;
 
+import java.nio.ByteBuffer;
 import java.security.Key;
+import java.util.List;
 
 public interface CryptographyModule {
 	public byte[] sign(String data, Key key);
@@ -25,5 +27,66 @@ public interface CryptographyModule {
 	public boolean verify(String data, Key key, byte[] signature);
 	public boolean verify(byte[] data, Key key, byte[] signature);
 	
+	/**
+	 * Signs the remaining bytes of the buffer, leaving its position untouched.
+	 * By default, the bytes are copied into an array; modules whose engines
+	 * accept buffers override it to avoid the copy.
+	 */
+	public default byte[] sign(ByteBuffer data, Key key) {
+		byte[] bytes = new byte[data.remaining()];
+		data.duplicate().get(bytes);
+		
+		return sign(bytes, key);
+	}
+	
+	/**
+	 * Verifies a signature over the remaining bytes of the buffer, leaving its
+	 * position untouched (see {@link #sign(ByteBuffer, Key)}).
+	 */
+	public default boolean verify(ByteBuffer data, Key key, byte[] signature) {
+		byte[] bytes = new byte[data.remaining()];
+		data.duplicate().get(bytes);
+		
+		return verify(bytes, key, signature);
+	}
+	
+	/**
+	 * Verifies all signatures of a quorum certificate over the same data. By
+	 * default, the signatures are verified one after the other, stopping at the
+	 * first invalid one; modules that support batch verification override it.
+	 * 
+	 * @param data the signed data.
+	 * @param keys the key of each signer.
+	 * @param signatures the signature of each signer, in the order of the keys.
+	 * @return <em>true</em> if all signatures are valid.
+	 */
+	public default boolean verifyBatch(byte[] data, List<Key> keys, List<byte[]> signatures) {
+		if(keys.size() != signatures.size())
+			return false;
+		
+		for(int i = 0; i < keys.size(); ++i) {
+			if(!verify(data, keys.get(i), signatures.get(i)))
+				return false;
+		}
+		
+		return true;
+	}
+	
+	public default boolean verifyBatch(String data, List<Key> keys, List<byte[]> signatures) {
+		return verifyBatch(data.getBytes(), keys, signatures);
+	}
+	
+	public default boolean verifyBatch(ByteBuffer data, List<Key> keys, List<byte[]> signatures) {
+		if(keys.size() != signatures.size())
+			return false;
+		
+		for(int i = 0; i < keys.size(); ++i) {
+			if(!verify(data, keys.get(i), signatures.get(i)))
+				return false;
+		}
+		
+		return true;
+	}
+	
 	public int getDigestLength();
 }
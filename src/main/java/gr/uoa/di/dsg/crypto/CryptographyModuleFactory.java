@@ -0,0 +1,49 @@
+/*******************************************************************************
+ * Copyright (C) 2019 DSG at University of Athens
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package gr.uoa.di.dsg.crypto;
+
+/**
+ * Creates the cryptography module that the executors select through their
+ * arguments.
+ */
+public class CryptographyModuleFactory {
+
+	/**
+	 * @param name
+	 *            the name of the module: <em>MAC</em> (or <em>true</em>, for
+	 *            authenticators), <em>RSA</em> (or <em>false</em>, for digital
+	 *            signatures), <em>ECDSA</em> or <em>EdDSA</em>.
+	 * @return the cryptography module, or <em>null</em> if the name is unknown.
+	 */
+	public static CryptographyModule create(String name) {
+		switch (name.toUpperCase()) {
+			case "TRUE":
+			case "MAC":
+				return new MacCryptographyModule();
+			case "FALSE":
+			case "RSA":
+				return new DigitalSignatureCryptographyModule();
+			case "ECDSA":
+				return new ECDSACryptographyModule();
+			case "EDDSA":
+			case "ED25519":
+				return new EdDSACryptographyModule();
+			default:
+				return null;
+		}
+	}
+}
@@ -16,17 +16,80 @@
  ******************************************************************************/
 package gr.uoa.di.dsg.crypto;
 
-import java.security.InvalidKeyException;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
 import java.security.Key;
-import java.security.NoSuchAlgorithmException;
 import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.security.Signature;
-import java.security.SignatureException;
 
 public class DigitalSignatureCryptographyModule implements CryptographyModule {
 
 	private final static String ALGORITHM = "SHA1withRSA";
+	
+	/**
+	 * The signature algorithm of this module.
+	 */
+	private final String algorithm;
+	
+	/**
+	 * The maximum number of keys, i.e. peers, whose engines each thread keeps.
+	 */
+	private final static int CACHE_CAPACITY = 256;
+	
+	/**
+	 * The Signature engines of each thread, initialized for signing, by
+	 * private key.
+	 */
+	private final KeyedEngineCache<Signature> signers;
+	
+	/**
+	 * The Signature engines of each thread, initialized for verification, by
+	 * public key.
+	 */
+	private final KeyedEngineCache<Signature> verifiers;
+
+	/**
+	 * Creates a module that uses RSA signatures (SHA1withRSA).
+	 */
+	public DigitalSignatureCryptographyModule() {
+		this(ALGORITHM);
+	}
+	
+	/**
+	 * Creates a module that uses the specified signature algorithm.
+	 * 
+	 * @param algorithm the standard name of the signature algorithm.
+	 */
+	protected DigitalSignatureCryptographyModule(String algorithm) {
+		this.algorithm = algorithm;
+		this.signers = new KeyedEngineCache<>(CACHE_CAPACITY, (Key key) -> {
+			Signature signature = Signature.getInstance(algorithm);
+			signature.initSign((PrivateKey) key);
+			return signature;
+		});
+		this.verifiers = new KeyedEngineCache<>(CACHE_CAPACITY, (Key key) -> {
+			Signature signature = Signature.getInstance(algorithm);
+			signature.initVerify((PublicKey) key);
+			return signature;
+		});
+	}
+	
+	/**
+	 * @return the signature algorithm of this module.
+	 */
+	public String getAlgorithm() {
+		return algorithm;
+	}
+	
+	/**
+	 * @return <em>true</em> if the nodes sign with the keys of their keystores,
+	 *         which hold RSA keys; otherwise, the nodes load the key pairs
+	 *         written by {@link KeyPairsGenerator}.
+	 */
+	public boolean usesKeyStore() {
+		return true;
+	}
 
 	@Override
 	public byte[] sign(String data, Key key) {
@@ -35,16 +98,32 @@ public class DigitalSignatureCryptographyModule implements CryptographyModule {
 	
 	@Override
 	public byte[] sign(byte[] data, Key key) {
-		Signature signSignature = null;
-		
 		try {
-			signSignature = Signature.getInstance(ALGORITHM);
-			signSignature.initSign((PrivateKey) key);
+			/* sign() resets the engine to the state right after initSign(). */
+			Signature signSignature = signers.get(key);
 			signSignature.update(data);
 			
 			return signSignature.sign();
 		}
-		catch (NoSuchAlgorithmException | InvalidKeyException | SignatureException ex) {
+		catch (GeneralSecurityException ex) {
+			signers.invalidate(key);
+			System.err.println("An exception " + ex.getClass() + " was caught: " + ex.getMessage());
+			ex.printStackTrace();
+		}
+		
+		return null;
+	}
+
+	@Override
+	public byte[] sign(ByteBuffer data, Key key) {
+		try {
+			Signature signSignature = signers.get(key);
+			signSignature.update(data.duplicate());
+			
+			return signSignature.sign();
+		}
+		catch (GeneralSecurityException ex) {
+			signers.invalidate(key);
 			System.err.println("An exception " + ex.getClass() + " was caught: " + ex.getMessage());
 			ex.printStackTrace();
 		}
@@ -59,17 +138,33 @@ public class DigitalSignatureCryptographyModule implements CryptographyModule {
 	
 	@Override
 	public boolean verify(byte[] data, Key key, byte[] signature) {
-		Signature verifySignature = null;
-		
 		try {
-			/* Verify the validity of the received message. */
-			verifySignature = Signature.getInstance(ALGORITHM);
-			verifySignature.initVerify((PublicKey) key);
+			/* Verify the validity of the received message. verify() resets the engine to the state right after initVerify(). */
+			Signature verifySignature = verifiers.get(key);
 			verifySignature.update(data);
 			
 			return verifySignature.verify(signature);
 		}
-		catch (NoSuchAlgorithmException | InvalidKeyException | SignatureException ex) {
+		catch (GeneralSecurityException ex) {
+			/* A malformed signature may leave the engine in an unknown state. */
+			verifiers.invalidate(key);
+			System.err.println("An exception " + ex.getClass() + " was caught: " + ex.getMessage());
+			ex.printStackTrace();
+		}
+		
+		return false;
+	}
+
+	@Override
+	public boolean verify(ByteBuffer data, Key key, byte[] signature) {
+		try {
+			Signature verifySignature = verifiers.get(key);
+			verifySignature.update(data.duplicate());
+			
+			return verifySignature.verify(signature);
+		}
+		catch (GeneralSecurityException ex) {
+			verifiers.invalidate(key);
 			System.err.println("An exception " + ex.getClass() + " was caught: " + ex.getMessage());
 			ex.printStackTrace();
 		}
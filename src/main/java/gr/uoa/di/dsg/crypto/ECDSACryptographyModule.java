@@ -0,0 +1,37 @@
+/*******************************************************************************
+ * Copyright (C) 2019 DSG at University of Athens
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package gr.uoa.di.dsg.crypto;
+
+/**
+ * ECDSA signatures over the NIST P-256 curve (SHA256withECDSA). Signing is
+ * considerably faster than with RSA keys of comparable strength, and the
+ * signatures are much shorter. The nodes must hold EC key pairs (see
+ * {@link KeyPairsGenerator}).
+ */
+public class ECDSACryptographyModule extends DigitalSignatureCryptographyModule {
+
+	private final static String ALGORITHM = "SHA256withECDSA";
+	
+	public ECDSACryptographyModule() {
+		super(ALGORITHM);
+	}
+	
+	@Override
+	public boolean usesKeyStore() {
+		return false;
+	}
+}
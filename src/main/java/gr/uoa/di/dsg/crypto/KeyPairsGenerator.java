@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * Copyright (C) 2019 DSG at University of Athens
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package gr.uoa.di.dsg.crypto;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.spec.ECGenParameterSpec;
+
+/**
+ * Generates the key pairs of the nodes for the digital signature modules:
+ * RSA for {@link DigitalSignatureCryptographyModule}, EC P-256 for
+ * {@link ECDSACryptographyModule} and Ed25519 for
+ * {@link EdDSACryptographyModule}. The keys of node <em>i</em> are stored as
+ * serialized objects in the files <em>private_i</em> and <em>public_i</em>.
+ * <p>
+ * The keystores of the nodes hold RSA keys only. Thus, for the ECDSA and
+ * EdDSA modules, the executors load these files instead, from the directory
+ * in the <em>KEY_PAIRS_PATH</em> environment variable: the public keys of all
+ * nodes and the private key of the local node, whose file need not be
+ * distributed to any other node.
+ */
+public class KeyPairsGenerator {
+
+	public static KeyPair generateKeyPair(String algorithm) throws GeneralSecurityException {
+		KeyPairGenerator keyGen = null;
+		
+		switch (algorithm.toUpperCase()) {
+			case "RSA":
+				keyGen = KeyPairGenerator.getInstance("RSA");
+				keyGen.initialize(1024);
+				break;
+			case "ECDSA":
+				keyGen = KeyPairGenerator.getInstance("EC");
+				keyGen.initialize(new ECGenParameterSpec("secp256r1"));
+				break;
+			case "EDDSA":
+			case "ED25519":
+				keyGen = KeyPairGenerator.getInstance("Ed25519");
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown signature algorithm: " + algorithm);
+		}
+		
+		return keyGen.generateKeyPair();
+	}
+	
+	public static void generateKeyPairs(String path, int totalNodes, String algorithm) throws IOException, GeneralSecurityException {
+		/* Create the appropriate directories. */
+		File file = new File(path);
+		if (!file.exists())
+			file.mkdirs();
+
+		for (int i = 0; i < totalNodes; ++i) {
+			KeyPair keyPair = generateKeyPair(algorithm);
+
+			ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(path + "private_" + i, false));
+			out.writeObject(keyPair.getPrivate());
+			out.close();
+
+			out = new ObjectOutputStream(new FileOutputStream(path + "public_" + i, false));
+			out.writeObject(keyPair.getPublic());
+			out.close();
+		}
+	}
+	
+	/**
+	 * Loads the public key of a node, written by
+	 * {@link #generateKeyPairs(String, int, String)}.
+	 * 
+	 * @param path the directory of the key pairs.
+	 * @param nodeID the ID of the node.
+	 * @return the public key of the node.
+	 */
+	public static PublicKey loadPublicKey(String path, int nodeID) throws IOException, ClassNotFoundException {
+		try (ObjectInputStream in = new ObjectInputStream(new FileInputStream(path + "public_" + nodeID))) {
+			return (PublicKey) in.readObject();
+		}
+	}
+	
+	/**
+	 * Loads the private key of a node, written by
+	 * {@link #generateKeyPairs(String, int, String)}.
+	 * 
+	 * @param path the directory of the key pairs.
+	 * @param nodeID the ID of the node.
+	 * @return the private key of the node.
+	 */
+	public static PrivateKey loadPrivateKey(String path, int nodeID) throws IOException, ClassNotFoundException {
+		try (ObjectInputStream in = new ObjectInputStream(new FileInputStream(path + "private_" + nodeID))) {
+			return (PrivateKey) in.readObject();
+		}
+	}
+	
+	public static void main(String[] args) throws GeneralSecurityException, IOException {
+		if(args.length != 3) {
+			System.err.println("Usage: <path> <totalNodes> <RSA|ECDSA|EdDSA>");
+			System.exit(-1);
+		}
+		
+		int nodes = Integer.valueOf(args[1]).intValue();
+		
+		/* Generate the key pairs. */
+		KeyPairsGenerator.generateKeyPairs(args[0], nodes, args[2]);
+	}
+}
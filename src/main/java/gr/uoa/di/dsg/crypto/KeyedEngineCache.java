@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright (C) 2019 DSG at University of Athens
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package gr.uoa.di.dsg.crypto;
+
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A per-thread cache of cryptographic engines (e.g. {@link javax.crypto.Mac}
+ * or {@link java.security.Signature} instances) that have already been
+ * initialized with a key. Both the provider lookup and the key schedule take
+ * place once per key and thread, instead of once per operation. Each thread
+ * keeps up to a fixed number of engines, evicting the least recently used.
+ *
+ * @param <E>
+ *            the type of the engines.
+ */
+class KeyedEngineCache<E> {
+
+	/**
+	 * Creates an engine initialized with a key.
+	 */
+	interface EngineFactory<E> {
+		public E create(Key key) throws GeneralSecurityException;
+	}
+
+	/**
+	 * The maximum number of engines that each thread keeps.
+	 */
+	private final int capacity;
+
+	/**
+	 * The factory of the engines.
+	 */
+	private final EngineFactory<E> factory;
+
+	/**
+	 * The engines of each thread, by key.
+	 */
+	private final ThreadLocal<Map<Key, E>> engines = new ThreadLocal<Map<Key, E>>() {
+		@Override
+		protected Map<Key, E> initialValue() {
+			return new LinkedHashMap<Key, E>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<Key, E> eldest) {
+					return size() > capacity;
+				}
+			};
+		}
+	};
+
+	/**
+	 * Constructor.
+	 *
+	 * @param capacity
+	 *            the maximum number of engines that each thread keeps.
+	 * @param factory
+	 *            the factory of the engines.
+	 */
+	KeyedEngineCache(int capacity, EngineFactory<E> factory) {
+		this.capacity = capacity;
+		this.factory = factory;
+	}
+
+	/**
+	 * @param key
+	 *            a key.
+	 * @return an engine of the current thread, initialized with the key.
+	 * @throws GeneralSecurityException
+	 *             if the engine could not be created.
+	 */
+	E get(Key key) throws GeneralSecurityException {
+		Map<Key, E> threadEngines = engines.get();
+		E engine = threadEngines.get(key);
+		if(engine == null) {
+			engine = factory.create(key);
+			threadEngines.put(key, engine);
+		}
+		return engine;
+	}
+
+	/**
+	 * Discards the engine of the current thread for a key, e.g. after a
+	 * failed operation left it in an unknown state.
+	 *
+	 * @param key
+	 *            the key.
+	 */
+	void invalidate(Key key) {
+		engines.get().remove(key);
+	}
+}
@@ -16,7 +16,8 @@
  ******************************************************************************/
 package gr.uoa.di.dsg.crypto;
 
-import java.security.InvalidKeyException;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
 import java.security.Key;
 import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
@@ -27,6 +28,35 @@ public class MacCryptographyModule implements CryptographyModule {
 
 	private final static String ALGORITHM = "HmacSha1";
 	
+	/**
+	 * The maximum number of keys, i.e. peers, whose engines each thread keeps.
+	 */
+	private final static int CACHE_CAPACITY = 256;
+	
+	/**
+	 * The initialized Mac engines of each thread, by key.
+	 */
+	private final KeyedEngineCache<Mac> macs = new KeyedEngineCache<>(CACHE_CAPACITY, (Key key) -> {
+		Mac mac = Mac.getInstance(ALGORITHM);
+		mac.init(key);
+		return mac;
+	});
+	
+	/**
+	 * The length of the produced MACs.
+	 */
+	private int digestLength = -1;
+	
+	public MacCryptographyModule() {
+		try {
+			digestLength = Mac.getInstance(ALGORITHM).getMacLength();
+		}
+		catch(NoSuchAlgorithmException ex) {
+			System.err.println("A NoSuchAlgorithmException was caught: " + ex.getMessage());
+			ex.printStackTrace();
+		}
+	}
+	
 	@Override
 	public byte[] sign(String data, Key key) {
 		return sign(data.getBytes(), key);
@@ -34,15 +64,29 @@ public class MacCryptographyModule implements CryptographyModule {
 	
 	@Override
 	public byte[] sign(byte[] data, Key key) {
-		Mac mac = null;
+		try {
+			/* doFinal() resets the engine, so it can be reused for the same key. */
+			return macs.get(key).doFinal(data);
+		}
+		catch (GeneralSecurityException ex) {
+			macs.invalidate(key);
+			System.err.println("An exception " + ex.getClass() + " was caught: " + ex.getMessage());
+			ex.printStackTrace();
+		}
 		
+		return null;
+	}
+
+	@Override
+	public byte[] sign(ByteBuffer data, Key key) {
 		try {
-			mac = Mac.getInstance(ALGORITHM);
-			mac.init(key);
+			Mac mac = macs.get(key);
+			mac.update(data.duplicate());
 			
-			return mac.doFinal(data);
+			return mac.doFinal();
 		}
-		catch (NoSuchAlgorithmException | InvalidKeyException ex) {
+		catch (GeneralSecurityException ex) {
+			macs.invalidate(key);
 			System.err.println("An exception " + ex.getClass() + " was caught: " + ex.getMessage());
 			ex.printStackTrace();
 		}
@@ -57,33 +101,19 @@ public class MacCryptographyModule implements CryptographyModule {
 	
 	@Override
 	public boolean verify(byte[] data, Key key, byte[] computedMac) {
-		Mac mac = null;
-		
-		try {
-			mac = Mac.getInstance(ALGORITHM);
-			mac.init(key);
-			
-			return Arrays.equals(mac.doFinal(data), computedMac);
-		}
-		catch (NoSuchAlgorithmException | InvalidKeyException ex) {
-			System.err.println("An exception " + ex.getClass() + " was caught: " + ex.getMessage());
-			ex.printStackTrace();
-		}
-		
-		return false;
+		byte[] mac = sign(data, key);
+		return mac != null && Arrays.equals(mac, computedMac);
+	}
+	
+	@Override
+	public boolean verify(ByteBuffer data, Key key, byte[] computedMac) {
+		byte[] mac = sign(data, key);
+		return mac != null && Arrays.equals(mac, computedMac);
 	}
 
 	@Override
 	public int getDigestLength() {
-		try {
-			return Mac.getInstance(ALGORITHM).getMacLength();
-		}
-		catch(NoSuchAlgorithmException ex) {
-			System.err.println("A NoSuchAlgorithmException was caught: " + ex.getMessage());
-			ex.printStackTrace();
-		}
-		
-		return -1;
+		return digestLength;
 	}
 
 }
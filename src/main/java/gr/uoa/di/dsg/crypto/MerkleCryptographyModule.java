@@ -0,0 +1,240 @@
+/*******************************************************************************
+ * Copyright (C) 2019 DSG at University of Athens
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package gr.uoa.di.dsg.crypto;
+
+import java.nio.ByteBuffer;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Digital signatures that are produced in batches: the signed data form the
+ * leaves of a Merkle tree, only the root of the tree is signed, and each
+ * signature carries the root signature along with the inclusion path of its
+ * leaf. A single private-key operation thus covers a whole batch (see
+ * {@link #signBatch(List, Key)}).
+ * 
+ * A signature is encoded as the depth of the tree (one byte), the index of the
+ * leaf (four bytes), the sibling hashes from the leaf up to the root and,
+ * finally, the signature of the root. Once the root of a signer has been
+ * verified, every other signature of the same batch only costs the hashes of
+ * its path.
+ */
+public class MerkleCryptographyModule extends DigitalSignatureCryptographyModule {
+
+	private final static String HASH_ALGORITHM = "SHA-256";
+	
+	private final static int HASH_LENGTH = 32;
+	
+	private final static int HEADER_LENGTH = 5;
+	
+	/**
+	 * The maximum number of verified roots that are remembered.
+	 */
+	private final static int ROOT_CACHE_CAPACITY = 4096;
+	
+	/**
+	 * The hash function of each thread.
+	 */
+	private final static ThreadLocal<MessageDigest> digests = ThreadLocal.withInitial(() -> {
+		try {
+			return MessageDigest.getInstance(HASH_ALGORITHM);
+		}
+		catch (NoSuchAlgorithmException ex) {
+			throw new RuntimeException(ex);
+		}
+	});
+	
+	/**
+	 * The roots whose signature has already been verified, along with the key
+	 * that verified them, in LRU order.
+	 */
+	private final Map<RootKey, Boolean> verifiedRoots = Collections.synchronizedMap(new LinkedHashMap<RootKey, Boolean>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<RootKey, Boolean> eldest) {
+			return size() > ROOT_CACHE_CAPACITY;
+		}
+	});
+	
+	/**
+	 * Creates a module that signs the roots with the specified signature
+	 * algorithm.
+	 * 
+	 * @param algorithm the standard name of the signature algorithm.
+	 */
+	public MerkleCryptographyModule(String algorithm) {
+		super(algorithm);
+	}
+	
+	@Override
+	public byte[] sign(byte[] data, Key key) {
+		List<byte[]> signatures = signBatch(Collections.singletonList(data), key);
+		return signatures == null ? null : signatures.get(0);
+	}
+	
+	@Override
+	public byte[] sign(ByteBuffer data, Key key) {
+		byte[] bytes = new byte[data.remaining()];
+		data.duplicate().get(bytes);
+		
+		return sign(bytes, key);
+	}
+	
+	/**
+	 * Signs a batch of data with a single signature over the root of their
+	 * Merkle tree.
+	 * 
+	 * @param data the data to be signed.
+	 * @param key the private key of the signer.
+	 * @return the signature of each data, in the same order, or <em>null</em>
+	 *         if the root couldn't be signed.
+	 */
+	public List<byte[]> signBatch(List<byte[]> data, Key key) {
+		MessageDigest digest = digests.get();
+		
+		/* Build the tree bottom-up; an odd node is paired with itself. */
+		List<byte[][]> levels = new ArrayList<>();
+		byte[][] level = new byte[data.size()][];
+		for(int i = 0; i < level.length; ++i)
+			level[i] = hashLeaf(digest, data.get(i));
+		levels.add(level);
+		
+		while(level.length > 1) {
+			byte[][] parent = new byte[(level.length + 1) / 2][];
+			for(int i = 0; i < parent.length; ++i)
+				parent[i] = hashNode(digest, level[2 * i], level[Math.min(2 * i + 1, level.length - 1)]);
+			
+			levels.add(parent);
+			level = parent;
+		}
+		
+		byte[] rootSignature = super.sign(level[0], key);
+		if(rootSignature == null)
+			return null;
+		
+		int depth = levels.size() - 1;
+		List<byte[]> signatures = new ArrayList<>(data.size());
+		for(int i = 0; i < data.size(); ++i) {
+			ByteBuffer buffer = ByteBuffer.allocate(HEADER_LENGTH + depth * HASH_LENGTH + rootSignature.length);
+			buffer.put((byte) depth).putInt(i);
+			
+			int index = i;
+			for(int d = 0; d < depth; ++d) {
+				byte[][] current = levels.get(d);
+				buffer.put(current[Math.min(index ^ 1, current.length - 1)]);
+				index >>= 1;
+			}
+			
+			buffer.put(rootSignature);
+			signatures.add(buffer.array());
+		}
+		
+		return signatures;
+	}
+	
+	@Override
+	public boolean verify(byte[] data, Key key, byte[] signature) {
+		return verify(ByteBuffer.wrap(data), key, signature);
+	}
+	
+	@Override
+	public boolean verify(ByteBuffer data, Key key, byte[] signature) {
+		if(signature == null || signature.length < HEADER_LENGTH)
+			return false;
+		
+		ByteBuffer buffer = ByteBuffer.wrap(signature);
+		int depth = buffer.get();
+		int index = buffer.getInt();
+		if(depth < 0 || depth > 31 || index < 0 || (index >> depth) != 0 || buffer.remaining() <= depth * HASH_LENGTH)
+			return false;
+		
+		/* Recompute the root from the leaf and its path. */
+		MessageDigest digest = digests.get();
+		byte[] hash = hashLeaf(digest, data);
+		byte[] sibling = new byte[HASH_LENGTH];
+		for(int d = 0; d < depth; ++d) {
+			buffer.get(sibling);
+			if(((index >> d) & 1) == 0)
+				hash = hashNode(digest, hash, sibling);
+			else
+				hash = hashNode(digest, sibling, hash);
+		}
+		
+		RootKey rootKey = new RootKey(key, hash);
+		if(verifiedRoots.get(rootKey) != null)
+			return true;
+		
+		byte[] rootSignature = Arrays.copyOfRange(signature, buffer.position(), signature.length);
+		if(!super.verify(hash, key, rootSignature))
+			return false;
+		
+		verifiedRoots.put(rootKey, Boolean.TRUE);
+		return true;
+	}
+	
+	private static byte[] hashLeaf(MessageDigest digest, byte[] data) {
+		return hashLeaf(digest, ByteBuffer.wrap(data));
+	}
+	
+	private static byte[] hashLeaf(MessageDigest digest, ByteBuffer data) {
+		digest.update((byte) 0);
+		digest.update(data.duplicate());
+		return digest.digest();
+	}
+	
+	private static byte[] hashNode(MessageDigest digest, byte[] left, byte[] right) {
+		digest.update((byte) 1);
+		digest.update(left);
+		return digest.digest(right);
+	}
+	
+	/**
+	 * A root of a tree, along with the public key of its signer.
+	 */
+	private static class RootKey {
+		private final Key key;
+		private final byte[] root;
+		
+		RootKey(Key key, byte[] root) {
+			this.key = key;
+			this.root = root;
+		}
+		
+		@Override
+		public int hashCode() {
+			return Objects.hash(key, Arrays.hashCode(root));
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if(!(obj instanceof RootKey))
+				return false;
+			
+			RootKey other = (RootKey) obj;
+			return key.equals(other.key) && Arrays.equals(root, other.root);
+		}
+	}
+}
@@ -50,6 +50,22 @@ public class SecretKeysGenerator {
 				out.close();
 			}
 		}
+		
+		generateCoinSeed(path);
+	}
+	
+	/**
+	 * Generates the seed of the common coin of the binary Consensus (see
+	 * {@link gr.uoa.di.dsg.consensus.bracha.SeededCommonCoin}), shared by all
+	 * nodes.
+	 */
+	public static void generateCoinSeed(String path) throws IOException, NoSuchAlgorithmException {
+		KeyGenerator keyGen = KeyGenerator.getInstance("HmacSHA256");
+		SecretKey seed = keyGen.generateKey();
+
+		ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(path + "coin", false));
+		out.writeObject(seed);
+		out.close();
 	}
 	
 	public static void main(String[] args) throws NoSuchAlgorithmException, IOException {
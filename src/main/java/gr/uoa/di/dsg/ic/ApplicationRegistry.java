@@ -0,0 +1,161 @@
+/*******************************************************************************
+ * Copyright (C) 2019 DSG at University of Athens
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package gr.uoa.di.dsg.ic;
+
+import gr.uoa.di.dsg.broadcast.CompletedBroadcasts;
+import gr.uoa.di.dsg.broadcast.IBroadcast;
+import gr.uoa.di.dsg.communicator.Message;
+import gr.uoa.di.dsg.ic.bracha.ICChunkMessage;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * The active applications (IC instances) of an executor. An application is
+ * created on its first use and is evicted once it has been released, which
+ * the executors do after the instance has produced its result and a grace
+ * period has passed, so that slower nodes are still able to complete it.
+ * <p>
+ * An evicted application leaves only a tombstone behind: its ID is recorded
+ * as released (see {@link CompletedBroadcasts#release(String)}, which folds
+ * consecutive IDs into a low watermark) and every later lookup returns a
+ * shared application that drops all messages, instead of recreating the
+ * state of the instance. The registry of a shard only folds the IDs that
+ * the shard owns, i.e. every <em>S</em>-th one (see
+ * {@link gr.uoa.di.dsg.broadcast.ShardedEngine#getShard(String)}).
+ * <p>
+ * A registry is accessed by a single thread, but its number of live
+ * instances may be read by any thread, e.g. a monitor.
+ */
+public class ApplicationRegistry {
+	
+	/**
+	 * The application returned for the released IDs. It ignores every message
+	 * that arrives late for an evicted instance.
+	 */
+	public final static Application RELEASED_APPLICATION = new ReleasedApplication();
+	
+	private final Map<String, Application> activeApps = new HashMap<>();
+	
+	private final CompletedBroadcasts releasedApps;
+	
+	private volatile int liveInstances = 0;
+	
+	/**
+	 * Creates the registry of an executor that is not sharded.
+	 */
+	public ApplicationRegistry() {
+		this(1, 0);
+	}
+	
+	/**
+	 * Creates the registry of a shard.
+	 * 
+	 * @param numShards
+	 *            the number of shards.
+	 * @param shard
+	 *            the index of the shard.
+	 */
+	public ApplicationRegistry(int numShards, int shard) {
+		this.releasedApps = new CompletedBroadcasts(numShards, shard);
+	}
+	
+	/**
+	 * @param appID
+	 *            the ID of the application.
+	 * @param factory
+	 *            creates the application, if it is not active yet.
+	 * @return the active application, or {@link #RELEASED_APPLICATION} if the
+	 *         application has been released.
+	 */
+	public Application get(String appID, Function<String, Application> factory) {
+		Application app = activeApps.get(appID);
+		if(app != null)
+			return app;
+		
+		if(releasedApps.isReleased(appID))
+			return RELEASED_APPLICATION;
+		
+		app = factory.apply(appID);
+		activeApps.put(appID, app);
+		liveInstances = activeApps.size();
+		
+		return app;
+	}
+	
+	/**
+	 * Evicts an application and marks it as released.
+	 * 
+	 * @param appID
+	 *            the ID of the application.
+	 */
+	public void release(String appID) {
+		activeApps.remove(appID);
+		releasedApps.release(appID);
+		liveInstances = activeApps.size();
+	}
+	
+	/**
+	 * @return the number of released IDs that could not be folded into the
+	 *         low watermark yet.
+	 */
+	public int getTotalTombstones() {
+		return releasedApps.getTotalReleasedAboveWatermark();
+	}
+	
+	/**
+	 * @return the number of applications that are currently active.
+	 */
+	public int getLiveInstances() {
+		return liveInstances;
+	}
+	
+	private static class ReleasedApplication implements Application {
+		
+		@Override
+		public void process(Message msg) {
+		}
+
+		@Override
+		public void processConsensusResult(int cid, String value) {
+		}
+
+		@Override
+		public IBroadcast getBroadcast() {
+			return null;
+		}
+
+		@Override
+		public void start(int nodeID, String value) {
+		}
+
+		@Override
+		public void start() {
+		}
+
+		@Override
+		public void processDatumChunk(ICChunkMessage icChunkMessage) {
+		}
+
+		/* The broadcast modules drop the messages of released instances on their own. */
+		@Override
+		public boolean verifyDatum(String hashAsHexString, int sourceNodeID) {
+			return true;
+		}
+	}
+}
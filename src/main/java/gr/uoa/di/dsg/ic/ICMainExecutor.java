@@ -21,7 +21,7 @@ public class ICMainExecutor {
 	public static void main(String[] args) {
 		if(args.length < 12 || args.length > 14) {
 			System.out.println("Usage: <mode> <enable-datum> <nodeID> <totalNodes> <num_of_instances> <execution> <configuration_file> <isCrashed> <timeout> "
-					+ "<useAuthenticators> <enable-asynchronous-work> <data-size-in-bytes> [High] [Low]");
+					+ "<crypto: true|false|MAC|RSA|ECDSA|EdDSA> <enable-asynchronous-work> <data-size-in-bytes> [High] [Low]");
 			System.exit(-1);
 		}
 		
@@ -16,7 +16,10 @@
  ******************************************************************************/
 package gr.uoa.di.dsg.ic;
 
+import gr.uoa.di.dsg.broadcast.CryptoExecutor;
 import gr.uoa.di.dsg.broadcast.IBroadcast;
+import gr.uoa.di.dsg.broadcast.ShardedEngine;
+import gr.uoa.di.dsg.broadcast.avid.AVIDBroadcast;
 import gr.uoa.di.dsg.broadcast.bracha.BrachaBroadcast;
 import gr.uoa.di.dsg.broadcast.consistent.ConsistentBroadcast;
 import gr.uoa.di.dsg.broadcast.multicast.Multicast;
@@ -24,9 +27,13 @@ import gr.uoa.di.dsg.broadcast.reliable.ReliableBroadcastWithSignatures;
 import gr.uoa.di.dsg.communicator.Message;
 import gr.uoa.di.dsg.communicator.NettyCommunicator;
 import gr.uoa.di.dsg.communicator.Node;
+import gr.uoa.di.dsg.consensus.bracha.BBConsensus;
+import gr.uoa.di.dsg.consensus.bracha.SeededCommonCoin;
 import gr.uoa.di.dsg.crypto.CryptographyModule;
+import gr.uoa.di.dsg.crypto.CryptographyModuleFactory;
 import gr.uoa.di.dsg.crypto.DigitalSignatureCryptographyModule;
-import gr.uoa.di.dsg.crypto.MacCryptographyModule;
+import gr.uoa.di.dsg.crypto.KeyPairsGenerator;
+import gr.uoa.di.dsg.crypto.MerkleCryptographyModule;
 import gr.uoa.di.dsg.ic.bracha.BBInteractiveConsistency;
 import gr.uoa.di.dsg.ic.experiments.ExperimentCompleteMessage;
 import gr.uoa.di.dsg.ic.experiments.ExperimentInformationMessage;
@@ -42,6 +49,7 @@ import gr.uoa.di.dsg.ic.recovery.RecoveryMessageType;
 import gr.uoa.di.dsg.ic.recovery.RecoveryRequestMessage;
 import gr.uoa.di.dsg.ic.recovery.RecoveryResponseMessage;
 import gr.uoa.di.dsg.monitoring.CPUMonitor;
+import gr.uoa.di.dsg.monitoring.InstancesMonitor;
 import gr.uoa.di.dsg.monitoring.MemoryMonitor;
 import gr.uoa.di.dsg.monitoring.Monitor;
 import gr.uoa.di.dsg.monitoring.NetworkMonitor;
@@ -52,9 +60,9 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
-import java.util.HashMap;
+import java.security.PrivateKey;
+import java.security.PublicKey;
 import java.util.List;
-import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.TimeUnit;
 
@@ -68,6 +76,8 @@ public class ICMainExecutorParallel extends ICBaseSlaveParallel {
 		private String ip = null;
 		private int port = 0;
 		private String nodeGroup = null;
+		private PublicKey publicKey = null;
+		private PrivateKey privateKey = null;
 		
 		public ICNode(int id, String ip, int port, String nodeGroup) {
 			super(id);
@@ -102,10 +112,46 @@ public class ICMainExecutorParallel extends ICBaseSlaveParallel {
 		public String[] getGroups() {
 			return new String[] {nodeGroup};
 		}
+		
+		/**
+		 * Replaces the keys of the keystore with the specified ones.
+		 * 
+		 * @param publicKey the public key of the node.
+		 * @param privateKey the private key of the node, or <em>null</em> if it is unknown.
+		 */
+		public void setKeyPair(PublicKey publicKey, PrivateKey privateKey) {
+			this.publicKey = publicKey;
+			this.privateKey = privateKey;
+		}
+		
+		@Override
+		public PublicKey getPublicKey() {
+			return (publicKey != null) ? publicKey : super.getPublicKey();
+		}
+		
+		@Override
+		public PrivateKey getPrivateKey() {
+			return (privateKey != null) ? privateKey : super.getPrivateKey();
+		}
 	}
 
-	private IBroadcast constBroadcast = null;
-	private IBroadcast relBroadcast = null;
+	/**
+	 * The broadcast modules and the active applications of a shard. Unless the
+	 * node is sharded, there is a single shard, run by the dispatch thread of
+	 * the communicator.
+	 */
+	private static class Shard {
+		private IBroadcast constBroadcast = null;
+		private IBroadcast relBroadcast = null;
+		private final ApplicationRegistry activeApps;
+		
+		Shard(int numShards, int index) {
+			this.activeApps = new ApplicationRegistry(numShards, index);
+		}
+	}
+	
+	private Shard[] shards = null;
+	private ShardedEngine engine = null;
 	private ICResult resultProcessor = null;
 	private ICFirstPhase firstPhaseProcessor = null;
 	private ApplicationGetter applicationGetter = null;
@@ -114,8 +160,10 @@ public class ICMainExecutorParallel extends ICBaseSlaveParallel {
 
 	private int warmupCounter = 0;
 	private int instanceCounter = 0;
-	
-	private Map<String, Application> activeApps = new HashMap<>();
+
+	/* Variables related to the pipelined execution. */
+	private PipelineWindow pipeline = null;
+	private int nextApplicationID = 0;
 
 	/* Variables related to monitoring. */
 	private String monitoringMode;
@@ -166,6 +214,24 @@ public class ICMainExecutorParallel extends ICBaseSlaveParallel {
 		this.nodes[icMainExe.N] = new ICNode(icMainExe.N, ip, port, GlobalVariables.ICMASTER_GROUP);
 	}
 
+	/**
+	 * Loads the key pairs written by {@link KeyPairsGenerator} into the
+	 * ICWorker nodes, in place of the RSA keys of their keystores: the public
+	 * keys of all nodes and the private key of this node.
+	 * 
+	 * @param path the directory of the key pairs.
+	 */
+	private void loadKeyPairs(String path) {
+		try {
+			for (int i = 0; i < icMainExe.N; i++)
+				((ICNode) this.nodes[i]).setKeyPair(KeyPairsGenerator.loadPublicKey(path, i), (i == this.nodeId) ? KeyPairsGenerator.loadPrivateKey(path, i) : null);
+		}
+		catch (IOException | ClassNotFoundException ex) {
+			System.err.println("Cannot load the key pairs of the nodes: " + ex.getMessage());
+			System.exit(-1);
+		}
+	}
+
 	private void exchangeHelloMessages() {
 //		try {
 //			if(nodeId == 0)
@@ -222,23 +288,74 @@ public class ICMainExecutorParallel extends ICBaseSlaveParallel {
 			}
 		}
 		
+		if(pipeline != null) {
+			/* Keep only a window of instances in flight; the rest are started as those complete. */
+			synchronized (pipeline) {
+				nextApplicationID = totalExecutedOperations - operationsInEachExecution;
+			}
+			startPendingInstances();
+			return;
+		}
+		
 		int applicationID = totalExecutedOperations - operationsInEachExecution;
-		for (int i = 0; i < operationsInEachExecution; ++i, ++applicationID) {
-			
-			Application app = applicationGetter.getApp(String.valueOf(applicationID));
-			if(!inWarmupPhase)
-				markStartTime(applicationID - warmupRounds + 1);
-			
-			app.start(this.nodeId, Integer.toString(applicationID * this.N + this.nodeId));
+		for (int i = 0; i < operationsInEachExecution; ++i, ++applicationID)
+			startInstance(applicationID);
+	}
+	
+	private void startInstance(int applicationID) {
+		String appID = String.valueOf(applicationID);
+		String value = Integer.toString(applicationID * this.N + this.nodeId);
+		if(!inWarmupPhase)
+			markStartTime(applicationID - warmupRounds + 1);
+		
+		runInShard(appID, () -> applicationGetter.getApp(appID).start(this.nodeId, value));
+	}
+	
+	/**
+	 * Starts the instances of the current execution that have not been
+	 * started yet, for as long as the window of the pipeline admits them.
+	 * The instances that have already completed, because the rest nodes
+	 * drove them to completion before the window admitted them, are skipped;
+	 * their applications may even be released by now.
+	 */
+	private void startPendingInstances() {
+		synchronized (pipeline) {
+			while(nextApplicationID < totalExecutedOperations) {
+				String appID = String.valueOf(nextApplicationID);
+				if(pipeline.skipCompleted(appID))
+					++nextApplicationID;
+				else if(pipeline.tryStart(appID))
+					startInstance(nextApplicationID++);
+				else
+					break;
+			}
 		}
 	}
 	
+	/**
+	 * @return <em>true</em> if the queue of the cryptographic tasks holds
+	 *         more than half of its capacity.
+	 */
+	private boolean isCryptoCongested() {
+		CryptoExecutor cryptoExecutor = CryptoExecutor.getExecutor(this.comm);
+		return cryptoExecutor != null && (cryptoExecutor.isSaturated() || cryptoExecutor.getQueueDepth() > GlobalVariables.CRYPTO_QUEUE_CAPACITY / 2);
+	}
+	
 	public void processResult(String applicationID, List<String> res) {
+		/* Release the broadcasts of this instance, once the rest nodes had the time to complete it as well. */
+		releaseApplication(applicationID);
+		
 		if(!inWarmupPhase)
 			markDataPoint(Integer.valueOf(applicationID) - warmupRounds + 1);
 		else
 			System.out.println("Completing interactive consistency " + applicationID + " for node " + this.nodeId + " [" + StringUtils.listToString(res) + "]");
 		
+		/* Start the next instance in the freed slot of the pipeline. */
+		if(pipeline != null) {
+			pipeline.complete(applicationID, isCryptoCongested());
+			startPendingInstances();
+		}
+		
 		/* Verify the values of the IC vector. */
 		/*for(int i = 0; i < this.N; ++i) {
 			if(res.get(i) == null || res.get(i).equalsIgnoreCase("null"))
@@ -254,6 +371,10 @@ public class ICMainExecutorParallel extends ICBaseSlaveParallel {
 				// Notify the ICMaster process that I have terminated my execution.
 				comm.send(nodes[this.N], new ExperimentCompleteMessage());
 				
+				// Only the steady state of the measured instances makes up the curve of the pipeline.
+				if(pipeline != null)
+					pipeline.resetStatistics();
+				
 				System.out.println("[Node " + nodeId + "]: Completed all instances of IC in the warm-up phase...");
 			}
 		}
@@ -281,6 +402,16 @@ public class ICMainExecutorParallel extends ICBaseSlaveParallel {
 					}
 				}
 
+				if (pipeline != null) {
+					System.out.println("[Node " + nodeId + "]: The steady-state throughput/latency curve of the pipeline:\n" + pipeline.getCurve());
+					System.out.println("[Node " + nodeId + "]: Instances completed before the pipeline admitted them: " + pipeline.getUnadmittedCompletions());
+					try {
+						pipeline.print(new String(outputDirectory + "/" + N + "." + K + "." + nodeId + "." + algorithm + ".parallel"));
+					} catch (IOException ex) {
+						System.err.println("Error while persisting the curve of the pipeline due to: " + ex.getMessage());
+					}
+				}
+
 				// Notify the ICMaster process that I have terminated my execution.
 				comm.send(nodes[this.N], new ExperimentCompleteMessage());
 
@@ -289,37 +420,91 @@ public class ICMainExecutorParallel extends ICBaseSlaveParallel {
 		}
 	}
 
+	/**
+	 * Releases all information that the broadcast modules keep for the
+	 * specified application and evicts the application itself, leaving only
+	 * a tombstone behind, after a timeout has expired. Until then, the
+	 * node keeps participating in the application's broadcasts, so that
+	 * slower nodes are able to complete the same instance.
+	 * 
+	 * @param applicationID the application to be released.
+	 */
+	private void releaseApplication(String applicationID) {
+		comm.setTimeout(GlobalVariables.TIMEOUT, () -> runInShard(applicationID, () -> {
+			Shard shard = getShard(applicationID);
+			shard.activeApps.release(applicationID);
+			if(shard.relBroadcast != null)
+				shard.relBroadcast.releaseApplication(applicationID);
+			if(shard.constBroadcast != null)
+				shard.constBroadcast.releaseApplication(applicationID);
+		}));
+	}
+	
+	/**
+	 * @return the number of IC instances that the shards keep alive.
+	 */
+	private int getLiveInstances() {
+		int liveInstances = 0;
+		for(Shard shard: shards)
+			liveInstances += shard.activeApps.getLiveInstances();
+		return liveInstances;
+	}
+	
+	/**
+	 * @param applicationID an application.
+	 * @return the shard that owns the application.
+	 */
+	private Shard getShard(String applicationID) {
+		if(engine == null)
+			return shards[0];
+		return shards[engine.getShard(applicationID)];
+	}
+	
+	/**
+	 * Runs a task on the event loop of the shard that owns the specified
+	 * application, or directly if the node is not sharded.
+	 * 
+	 * @param applicationID the application.
+	 * @param task the task.
+	 */
+	private void runInShard(String applicationID, Runnable task) {
+		if(engine == null)
+			task.run();
+		else
+			engine.execute(applicationID, task);
+	}
+	
+	/**
+	 * Runs a task on the dispatch thread of the communicator, which owns the
+	 * state of the experiment, or directly if the node is not sharded.
+	 * 
+	 * @param task the task.
+	 */
+	private void runOnDispatcher(Runnable task) {
+		if(engine == null)
+			task.run();
+		else
+			engine.executeOnDispatcher(task);
+	}
+	
 	public void processFirstPhaseCompletion(String applicationID) {
 		if(!inWarmupPhase)
 			markFirstPhaseEndTime(Integer.valueOf(applicationID) - warmupRounds + 1);
 	}
 
 	private Application getICBApplication(String appID) {
-		Application app = activeApps.get(appID);
-		if (app == null) {
-			app = new BBInteractiveConsistency(appID, this.nodeId, this.N, this.relBroadcast, this.constBroadcast, this.resultProcessor, this.firstPhaseProcessor, GlobalVariables.ICWORKERS_GROUP);
-			activeApps.put(appID, app);
-		}
-		return app;
+		Shard shard = getShard(appID);
+		return shard.activeApps.get(appID, (String id) -> new BBInteractiveConsistency(appID, this.nodeId, this.N, shard.relBroadcast, shard.constBroadcast, this.resultProcessor, this.firstPhaseProcessor, GlobalVariables.ICWORKERS_GROUP));
 	}
 	
 	private Application getICMApplication(String appID) {
-		Application app = activeApps.get(appID);
-		if (app == null) {
-			app = new MVInteractiveConsistency(appID, this.nodeId, this.N, this.constBroadcast, this.relBroadcast, this.resultProcessor, this.firstPhaseProcessor, GlobalVariables.ICWORKERS_GROUP);
-			activeApps.put(appID, app);
-		}
-		return app;
+		Shard shard = getShard(appID);
+		return shard.activeApps.get(appID, (String id) -> new MVInteractiveConsistency(appID, this.nodeId, this.N, shard.constBroadcast, shard.relBroadcast, this.resultProcessor, this.firstPhaseProcessor, GlobalVariables.ICWORKERS_GROUP));
 	}
 	
 	private Application getSynchronousICApplication(String appID) {
-		Application app = activeApps.get(appID);
-		if (app == null) {
-			app = new SynchronousIC(appID, this.relBroadcast, resultProcessor);
-			activeApps.put(appID, app);
-		}
-		
-		return app;
+		Shard shard = getShard(appID);
+		return shard.activeApps.get(appID, (String id) -> new SynchronousIC(appID, shard.relBroadcast, resultProcessor));
 	}
 	
 	private void processExperimentInformationMessage(ExperimentInformationMessage experimentInformationMsg, Node source) {
@@ -365,6 +550,9 @@ public class ICMainExecutorParallel extends ICBaseSlaveParallel {
 				} else if ("Network".equalsIgnoreCase(monitoringMode)) {
 					/* Start a new thread that monitors the network traffic. */
 					monitoringRunnable = new NetworkMonitor(sigar);
+				} else if ("Instances".equalsIgnoreCase(monitoringMode)) {
+					/* Start a new thread that monitors the number of live IC instances. */
+					monitoringRunnable = new InstancesMonitor(() -> getLiveInstances());
 				}
 
 				if (monitoringRunnable != null) {
@@ -390,13 +578,93 @@ public class ICMainExecutorParallel extends ICBaseSlaveParallel {
 		if(GlobalVariables.HIGH_VERBOSE)
 			System.out.println("[Node " + nodeId + "]: An ExperimentTerminationMessage was received from Node " + source.getNodeId());
 		
+		CryptoExecutor cryptoExecutor = CryptoExecutor.getExecutor(this.comm);
+		if(cryptoExecutor != null)
+			System.out.println("[Node " + nodeId + "]: " + cryptoExecutor.report());
+		
 		this.comm.stop();
 		System.exit(0);
 	}
 
+	/**
+	 * Creates and initializes the broadcast modules of a shard.
+	 * 
+	 * @param shard the shard.
+	 * @param configuration the configuration of the IC algorithm.
+	 * @param cryptoModule the cryptography module of the broadcasts.
+	 */
+	private void initializeShard(Shard shard, String configuration, CryptographyModule cryptoModule) {
+		switch (configuration) {
+			case "MVBB":
+				applicationGetter = (String appID)->getICMApplication(appID);
+				shard.constBroadcast = new Multicast();
+				shard.relBroadcast = new BrachaBroadcast();
+				shard.constBroadcast.initialize(comm, applicationGetter, GlobalVariables.ICWORKERS_GROUP, N);
+				shard.relBroadcast.initialize(comm, applicationGetter, GlobalVariables.ICWORKERS_GROUP, N);
+				break;
+			case "MVBBD":
+				applicationGetter = (String appID)->getICMApplication(appID);
+				shard.constBroadcast = new Multicast();
+				shard.relBroadcast = new BrachaBroadcast(true);
+				shard.constBroadcast.initialize(comm, applicationGetter, GlobalVariables.ICWORKERS_GROUP, N);
+				shard.relBroadcast.initialize(comm, applicationGetter, GlobalVariables.ICWORKERS_GROUP, N);
+				break;
+			case "MVAV":
+				applicationGetter = (String appID)->getICMApplication(appID);
+				shard.constBroadcast = new Multicast();
+				shard.relBroadcast = new AVIDBroadcast();
+				shard.constBroadcast.initialize(comm, applicationGetter, GlobalVariables.ICWORKERS_GROUP, N);
+				shard.relBroadcast.initialize(comm, applicationGetter, GlobalVariables.ICWORKERS_GROUP, N);
+				break;
+			case "MVRB":
+				applicationGetter = (String appID)->getICMApplication(appID);
+				shard.constBroadcast = new Multicast();
+				shard.relBroadcast = new ReliableBroadcastWithSignatures(cryptoModule);
+				shard.constBroadcast.initialize(comm, applicationGetter, GlobalVariables.ICWORKERS_GROUP, N);
+				shard.relBroadcast.initialize(comm, applicationGetter, GlobalVariables.ICWORKERS_GROUP, N);
+				break;
+			case "BCBB":
+				applicationGetter = (String appID)->getICBApplication(appID);
+				shard.constBroadcast = new ConsistentBroadcast(cryptoModule);
+				shard.relBroadcast = new BrachaBroadcast();
+				shard.constBroadcast.initialize(comm, applicationGetter, GlobalVariables.ICWORKERS_GROUP, N);
+				shard.relBroadcast.initialize(comm, applicationGetter, GlobalVariables.ICWORKERS_GROUP, N);
+				break;
+			case "BCBBD":
+				applicationGetter = (String appID)->getICBApplication(appID);
+				shard.constBroadcast = new ConsistentBroadcast(cryptoModule);
+				shard.relBroadcast = new BrachaBroadcast(true);
+				shard.constBroadcast.initialize(comm, applicationGetter, GlobalVariables.ICWORKERS_GROUP, N);
+				shard.relBroadcast.initialize(comm, applicationGetter, GlobalVariables.ICWORKERS_GROUP, N);
+				break;
+			case "BCAV":
+				applicationGetter = (String appID)->getICBApplication(appID);
+				shard.constBroadcast = new ConsistentBroadcast(cryptoModule);
+				shard.relBroadcast = new AVIDBroadcast();
+				shard.constBroadcast.initialize(comm, applicationGetter, GlobalVariables.ICWORKERS_GROUP, N);
+				shard.relBroadcast.initialize(comm, applicationGetter, GlobalVariables.ICWORKERS_GROUP, N);
+				break;
+			case "BCRB":
+				applicationGetter = (String appID)->getICBApplication(appID);
+				shard.constBroadcast = new ConsistentBroadcast(cryptoModule);
+				shard.relBroadcast = new ReliableBroadcastWithSignatures(cryptoModule);
+				shard.constBroadcast.initialize(comm, applicationGetter, GlobalVariables.ICWORKERS_GROUP, N);
+				shard.relBroadcast.initialize(comm, applicationGetter, GlobalVariables.ICWORKERS_GROUP, N);
+				break;
+			case "LAMP":
+				applicationGetter = (String appID) -> getSynchronousICApplication(appID);
+				shard.relBroadcast = new SynchronousICBroadcast();
+				shard.relBroadcast.initialize(comm, applicationGetter, GlobalVariables.ICWORKERS_GROUP, N);
+				break;
+			default:
+				System.out.println("Unknown configuration: " + configuration);
+				System.exit(-1);
+		}
+	}
+
 	public static void main(String[] args) {
 		if(args.length < 11 || args.length > 13) {
-			System.out.println("Usage: <nodeID> <totalNodes> <num_of_instances> <execution> <configuration_file> <isCrashed> <timeout> <useAuthenticators> "
+			System.out.println("Usage: <nodeID> <totalNodes> <num_of_instances> <execution> <configuration_file> <isCrashed> <timeout> <crypto: true|false|MAC|RSA|ECDSA|EdDSA> "
 					+ "<enable-asynchronous-work> <data-size-in-bytes> [High] [Low]");
 			System.exit(-1);
 		}
@@ -412,18 +680,16 @@ public class ICMainExecutorParallel extends ICBaseSlaveParallel {
 		String configuration = args[3];
 		GlobalVariables.TIMEOUT = Integer.parseInt(args[6]);
 		
-		/* Check whether to use digital signatures or authenticators. */
-		boolean useAuthenticators = Boolean.parseBoolean(args[7]);
-		CryptographyModule cryptoModule = null;
-		
-		if(useAuthenticators)
-			cryptoModule = new MacCryptographyModule();
-		else
-			cryptoModule = new DigitalSignatureCryptographyModule();
+		/* Select authenticators (true, MAC) or a digital signature scheme (false, RSA, ECDSA, EdDSA). */
+		CryptographyModule cryptoModule = CryptographyModuleFactory.create(args[7]);
+		if(cryptoModule == null) {
+			System.err.println("Unknown cryptography module: " + args[7]);
+			System.exit(-1);
+		}
 		
 		icMainExe.instantiateNodes(args[4]);
-		icMainExe.resultProcessor = (String appId, List<String> res)-> icMainExe.processResult(appId, res);
-		icMainExe.firstPhaseProcessor = (String appId) -> icMainExe.processFirstPhaseCompletion(appId);
+		icMainExe.resultProcessor = (String appId, List<String> res)-> icMainExe.runOnDispatcher(() -> icMainExe.processResult(appId, res));
+		icMainExe.firstPhaseProcessor = (String appId) -> icMainExe.runOnDispatcher(() -> icMainExe.processFirstPhaseCompletion(appId));
 		
 		//icMainExe.comm = new SSLThreadedCommunicator(icMainExe.nodes[nodeID], icMainExe.nodes);
 		//icMainExe.comm = new TcpCommunicator(icMainExe.nodes[nodeID], icMainExe.nodes);
@@ -443,6 +709,65 @@ public class ICMainExecutorParallel extends ICBaseSlaveParallel {
 		
 		GlobalVariables.ENABLE_ASYNC_WORK = Boolean.parseBoolean(args[8]);
 		
+		/* Batch the messages of the broadcasts over a window of BATCH_WINDOW milliseconds. */
+		if(System.getenv("BATCH_WINDOW") != null)
+			GlobalVariables.BATCH_WINDOW = Integer.parseInt(System.getenv("BATCH_WINDOW"));
+		
+		/* Verify the signatures of each certificate in parallel. */
+		if(System.getenv("PARALLEL_VERIFICATION") != null)
+			GlobalVariables.PARALLEL_VERIFICATION = Boolean.parseBoolean(System.getenv("PARALLEL_VERIFICATION"));
+		
+		/* Sign the echoes of a window of SIGNING_BATCH_WINDOW milliseconds with a single signature. */
+		if(System.getenv("SIGNING_BATCH_WINDOW") != null)
+			GlobalVariables.SIGNING_BATCH_WINDOW = Integer.parseInt(System.getenv("SIGNING_BATCH_WINDOW"));
+		
+		/* Run the cryptographic work on a dedicated pool of CRYPTO_THREADS threads. */
+		if(System.getenv("CRYPTO_THREADS") != null)
+			GlobalVariables.CRYPTO_THREADS = Integer.parseInt(System.getenv("CRYPTO_THREADS"));
+		if(System.getenv("CRYPTO_QUEUE_CAPACITY") != null)
+			GlobalVariables.CRYPTO_QUEUE_CAPACITY = Integer.parseInt(System.getenv("CRYPTO_QUEUE_CAPACITY"));
+		
+		/* Run the binary Consensus instances of each IC instance as a single vectorised instance. */
+		if(System.getenv("VECTOR_CONSENSUS") != null)
+			GlobalVariables.VECTOR_CONSENSUS = Boolean.parseBoolean(System.getenv("VECTOR_CONSENSUS"));
+		
+		/* Decide the binary Consensus instances in their first round when the votes agree. */
+		if(System.getenv("ONE_STEP_CONSENSUS") != null)
+			GlobalVariables.ONE_STEP_CONSENSUS = Boolean.parseBoolean(System.getenv("ONE_STEP_CONSENSUS"));
+		
+		/* Carry the digests of the values, instead of the values, in the vectors of the multi-valued Consensus. */
+		if(System.getenv("DIGEST_VECTORS") != null)
+			GlobalVariables.DIGEST_VECTORS = Boolean.parseBoolean(System.getenv("DIGEST_VECTORS"));
+		
+		/* Keep a window of PIPELINE_WINDOW instances in flight, adapted to the observed latency, instead of starting all at once. */
+		if(System.getenv("PIPELINE_WINDOW") != null)
+			GlobalVariables.PIPELINE_WINDOW = Integer.parseInt(System.getenv("PIPELINE_WINDOW"));
+		if(GlobalVariables.PIPELINE_WINDOW > 0)
+			icMainExe.pipeline = new PipelineWindow(GlobalVariables.PIPELINE_WINDOW, icMainExe.K);
+		
+		/* Toss a common coin, derived from the seed dealt along with the symmetric keys, in the binary Consensus. */
+		if(System.getenv("COMMON_COIN_SEED") != null) {
+			try {
+				BBConsensus.setDefaultCoin(SeededCommonCoin.load(System.getenv("COMMON_COIN_SEED")));
+			}
+			catch (IOException | ClassNotFoundException ex) {
+				System.err.println("Cannot load the seed of the common coin: " + ex.getMessage());
+				System.exit(-1);
+			}
+		}
+		
+		/* The keystores hold RSA keys, so the ECDSA and EdDSA modules sign with the key pairs dealt by KeyPairsGenerator. */
+		if(cryptoModule instanceof DigitalSignatureCryptographyModule && !((DigitalSignatureCryptographyModule) cryptoModule).usesKeyStore()) {
+			if(System.getenv("KEY_PAIRS_PATH") == null) {
+				System.err.println("The KEY_PAIRS_PATH environment variable must point to the key pairs of the nodes for " + args[7] + " signatures.");
+				System.exit(-1);
+			}
+			icMainExe.loadKeyPairs(System.getenv("KEY_PAIRS_PATH"));
+		}
+		
+		if(GlobalVariables.SIGNING_BATCH_WINDOW > 0 && cryptoModule instanceof DigitalSignatureCryptographyModule)
+			cryptoModule = new MerkleCryptographyModule(((DigitalSignatureCryptographyModule) cryptoModule).getAlgorithm());
+		
 		icMainExe.monitoringMode = args[10];
 		
 		/* Check for debugging flags. */
@@ -472,43 +797,28 @@ public class ICMainExecutorParallel extends ICBaseSlaveParallel {
 			GlobalVariables.LOW_VERBOSE = true;
 		}
 		
-		switch (configuration) {
-			case "MVBB":
-				icMainExe.applicationGetter = (String appID)->icMainExe.getICMApplication(appID);
-				icMainExe.constBroadcast = new Multicast();
-				icMainExe.relBroadcast = new BrachaBroadcast();
-				icMainExe.constBroadcast.initialize(icMainExe.comm, icMainExe.applicationGetter, GlobalVariables.ICWORKERS_GROUP, icMainExe.N);
-				icMainExe.relBroadcast.initialize(icMainExe.comm, icMainExe.applicationGetter, GlobalVariables.ICWORKERS_GROUP, icMainExe.N);
-				break;
-			case "MVRB":
-				icMainExe.applicationGetter = (String appID)->icMainExe.getICMApplication(appID);
-				icMainExe.constBroadcast = new Multicast();
-				icMainExe.relBroadcast = new ReliableBroadcastWithSignatures(cryptoModule);
-				icMainExe.constBroadcast.initialize(icMainExe.comm, icMainExe.applicationGetter, GlobalVariables.ICWORKERS_GROUP, icMainExe.N);
-				icMainExe.relBroadcast.initialize(icMainExe.comm, icMainExe.applicationGetter, GlobalVariables.ICWORKERS_GROUP, icMainExe.N);
-				break;
-			case "BCBB":
-				icMainExe.applicationGetter = (String appID)->icMainExe.getICBApplication(appID);
-				icMainExe.constBroadcast = new ConsistentBroadcast(cryptoModule);
-				icMainExe.relBroadcast = new BrachaBroadcast();
-				icMainExe.constBroadcast.initialize(icMainExe.comm, icMainExe.applicationGetter, GlobalVariables.ICWORKERS_GROUP, icMainExe.N);
-				icMainExe.relBroadcast.initialize(icMainExe.comm, icMainExe.applicationGetter, GlobalVariables.ICWORKERS_GROUP, icMainExe.N);
-				break;
-			case "BCRB":
-				icMainExe.applicationGetter = (String appID)->icMainExe.getICBApplication(appID);
-				icMainExe.constBroadcast = new ConsistentBroadcast(cryptoModule);
-				icMainExe.relBroadcast = new ReliableBroadcastWithSignatures(cryptoModule);
-				icMainExe.constBroadcast.initialize(icMainExe.comm, icMainExe.applicationGetter, GlobalVariables.ICWORKERS_GROUP, icMainExe.N);
-				icMainExe.relBroadcast.initialize(icMainExe.comm, icMainExe.applicationGetter, GlobalVariables.ICWORKERS_GROUP, icMainExe.N);
-				break;
-			case "LAMP":
-				icMainExe.applicationGetter = (String appID) -> icMainExe.getSynchronousICApplication(appID);
-				icMainExe.relBroadcast = new SynchronousICBroadcast();
-				icMainExe.relBroadcast.initialize(icMainExe.comm, icMainExe.applicationGetter, GlobalVariables.ICWORKERS_GROUP, icMainExe.N);
-				break;
-			default:
-				System.out.println("Unknown configuration: " + configuration);
-				System.exit(-1);
+		/* Partition the instances across SHARDS event loops, each with its own broadcast modules. */
+		int numShards = 1;
+		if(System.getenv("SHARDS") != null)
+			numShards = Integer.parseInt(System.getenv("SHARDS"));
+		
+		if(numShards > 1 && configuration.equals("LAMP")) {
+			System.err.println("The LAMP configuration does not support sharding; using a single shard.");
+			numShards = 1;
+		}
+		
+		if(numShards > 1)
+			icMainExe.engine = ShardedEngine.createEngine(icMainExe.comm, numShards);
+		
+		icMainExe.shards = new Shard[numShards];
+		final CryptographyModule shardCryptoModule = cryptoModule;
+		for(int i = 0; i < numShards; ++i) {
+			Shard shard = new Shard(numShards, i);
+			icMainExe.shards[i] = shard;
+			if(icMainExe.engine == null)
+				icMainExe.initializeShard(shard, configuration, shardCryptoModule);
+			else
+				icMainExe.engine.initializeShard(i, () -> icMainExe.initializeShard(shard, configuration, shardCryptoModule));
 		}
 		
 		icMainExe.algorithm = configuration;
@@ -525,16 +835,18 @@ public class ICMainExecutorParallel extends ICBaseSlaveParallel {
 
 		// Register all necessary handlers for the recovery phase.
 		icMainExe.comm.registerMessage(RecoveryMessageType.REQUEST.getValue(), (byte[] data) -> RecoveryRequestMessage.deserialize(data),
-				(Message msg, Node source) -> {
-					BBInteractiveConsistency app = (BBInteractiveConsistency) icMainExe.applicationGetter.getApp(msg.getApplicationID());
-					app.processRecoveryRequestMessage((RecoveryRequestMessage) msg, source);
-				});
+				(Message msg, Node source) -> icMainExe.runInShard(msg.getApplicationID(), () -> {
+					Application app = icMainExe.applicationGetter.getApp(msg.getApplicationID());
+					if(app instanceof BBInteractiveConsistency)
+						((BBInteractiveConsistency) app).processRecoveryRequestMessage((RecoveryRequestMessage) msg, source);
+				}));
 				
 		icMainExe.comm.registerMessage(RecoveryMessageType.RESPONSE.getValue(), (byte[] data) -> RecoveryResponseMessage.deserialize(data),
-				(Message msg, Node source) -> {
-					BBInteractiveConsistency app = (BBInteractiveConsistency) icMainExe.applicationGetter.getApp(msg.getApplicationID());
-					app.processRecoveryResponseMessage((RecoveryResponseMessage) msg, source);
-				});
+				(Message msg, Node source) -> icMainExe.runInShard(msg.getApplicationID(), () -> {
+					Application app = icMainExe.applicationGetter.getApp(msg.getApplicationID());
+					if(app instanceof BBInteractiveConsistency)
+						((BBInteractiveConsistency) app).processRecoveryResponseMessage((RecoveryResponseMessage) msg, source);
+				}));
 		
 		icMainExe.executeTest();
 	}
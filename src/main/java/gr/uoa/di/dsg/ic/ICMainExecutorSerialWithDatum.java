@@ -16,7 +16,9 @@
  ******************************************************************************/
 package gr.uoa.di.dsg.ic;
 
+import gr.uoa.di.dsg.broadcast.CryptoExecutor;
 import gr.uoa.di.dsg.broadcast.IBroadcast;
+import gr.uoa.di.dsg.broadcast.avid.AVIDBroadcast;
 import gr.uoa.di.dsg.broadcast.bracha.BrachaBroadcast;
 import gr.uoa.di.dsg.broadcast.consistent.ConsistentBroadcast;
 import gr.uoa.di.dsg.broadcast.reliable.ReliableBroadcastWithSignatures;
@@ -24,9 +26,13 @@ import gr.uoa.di.dsg.communicator.HelloMessage;
 import gr.uoa.di.dsg.communicator.Message;
 import gr.uoa.di.dsg.communicator.NettyCommunicator;
 import gr.uoa.di.dsg.communicator.Node;
+import gr.uoa.di.dsg.consensus.bracha.BBConsensus;
+import gr.uoa.di.dsg.consensus.bracha.SeededCommonCoin;
 import gr.uoa.di.dsg.crypto.CryptographyModule;
+import gr.uoa.di.dsg.crypto.CryptographyModuleFactory;
 import gr.uoa.di.dsg.crypto.DigitalSignatureCryptographyModule;
-import gr.uoa.di.dsg.crypto.MacCryptographyModule;
+import gr.uoa.di.dsg.crypto.KeyPairsGenerator;
+import gr.uoa.di.dsg.crypto.MerkleCryptographyModule;
 import gr.uoa.di.dsg.ic.bracha.BBInteractiveConsistencyDatum;
 import gr.uoa.di.dsg.ic.bracha.ICChunkMessage;
 import gr.uoa.di.dsg.ic.bracha.ICMessageType;
@@ -41,6 +47,7 @@ import gr.uoa.di.dsg.ic.recovery.ICChunkRecoveryMessage;
 import gr.uoa.di.dsg.ic.recovery.RecoveryMessageType;
 import gr.uoa.di.dsg.ic.recovery.RecoveryRequestMessage;
 import gr.uoa.di.dsg.monitoring.CPUMonitor;
+import gr.uoa.di.dsg.monitoring.InstancesMonitor;
 import gr.uoa.di.dsg.monitoring.MemoryMonitor;
 import gr.uoa.di.dsg.monitoring.Monitor;
 import gr.uoa.di.dsg.monitoring.NetworkMonitor;
@@ -51,6 +58,8 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -68,6 +77,8 @@ public class ICMainExecutorSerialWithDatum extends ICBaseSlaveSerial {
 		private String ip = null;
 		private int port = 0;
 		private String nodeGroup = null;
+		private PublicKey publicKey = null;
+		private PrivateKey privateKey = null;
 		
 		public ICNode(int id, String ip, int port, String nodeGroup) {
 			super(id);
@@ -102,6 +113,27 @@ public class ICMainExecutorSerialWithDatum extends ICBaseSlaveSerial {
 		public String[] getGroups() {
 			return new String[] {nodeGroup};
 		}
+		
+		/**
+		 * Replaces the keys of the keystore with the specified ones.
+		 * 
+		 * @param publicKey the public key of the node.
+		 * @param privateKey the private key of the node, or <em>null</em> if it is unknown.
+		 */
+		public void setKeyPair(PublicKey publicKey, PrivateKey privateKey) {
+			this.publicKey = publicKey;
+			this.privateKey = privateKey;
+		}
+		
+		@Override
+		public PublicKey getPublicKey() {
+			return (publicKey != null) ? publicKey : super.getPublicKey();
+		}
+		
+		@Override
+		public PrivateKey getPrivateKey() {
+			return (privateKey != null) ? privateKey : super.getPrivateKey();
+		}
 	}
 
 	private IBroadcast constBroadcast = null;
@@ -115,7 +147,7 @@ public class ICMainExecutorSerialWithDatum extends ICBaseSlaveSerial {
 	private int warmupCounter = 0;
 	private int instanceCounter = 0;
 	
-	private Map<String, Application> activeApps = new HashMap<>();
+	private ApplicationRegistry activeApps = new ApplicationRegistry();
 	
 	/* Variables related to monitoring. */
 	private String monitoringMode;
@@ -188,6 +220,24 @@ public class ICMainExecutorSerialWithDatum extends ICBaseSlaveSerial {
 		this.nodes[icMainExe.N] = new ICNode(icMainExe.N, ip, port, GlobalVariables.ICMASTER_GROUP);
 	}
 
+	/**
+	 * Loads the key pairs written by {@link KeyPairsGenerator} into the
+	 * ICWorker nodes, in place of the RSA keys of their keystores: the public
+	 * keys of all nodes and the private key of this node.
+	 * 
+	 * @param path the directory of the key pairs.
+	 */
+	private void loadKeyPairs(String path) {
+		try {
+			for (int i = 0; i < icMainExe.N; i++)
+				((ICNode) this.nodes[i]).setKeyPair(KeyPairsGenerator.loadPublicKey(path, i), (i == this.nodeId) ? KeyPairsGenerator.loadPrivateKey(path, i) : null);
+		}
+		catch (IOException | ClassNotFoundException ex) {
+			System.err.println("Cannot load the key pairs of the nodes: " + ex.getMessage());
+			System.exit(-1);
+		}
+	}
+
 	private void exchangeHelloMessages() {
 //		try {
 //			if(nodeId == 0)
@@ -261,6 +311,9 @@ public class ICMainExecutorSerialWithDatum extends ICBaseSlaveSerial {
 	
 	public void processResult(String applicationID, List<String> res) {
 		
+		/* Release the broadcasts of this instance, once the rest nodes had the time to complete it as well. */
+		releaseApplication(applicationID);
+		
 		if(!inWarmupPhase)
 			markDataPoint(instanceCounter);
 		
@@ -298,6 +351,35 @@ public class ICMainExecutorSerialWithDatum extends ICBaseSlaveSerial {
 		}
 	}
 
+	/**
+	 * Releases all information that the broadcast modules keep for the
+	 * specified application and evicts the application itself, leaving only
+	 * a tombstone behind, after a timeout has expired. Until then, the
+	 * node keeps participating in the application's broadcasts, so that
+	 * slower nodes are able to complete the same instance.
+	 * 
+	 * @param applicationID the application to be released.
+	 */
+	private void releaseApplication(String applicationID) {
+		comm.setTimeout(GlobalVariables.TIMEOUT, () -> {
+			activeApps.release(applicationID);
+			dataOffsetPerApp.remove(applicationID);
+			for(int i = 0; i < this.N; ++i)
+				chunkData.remove(applicationID + ":" + i);
+			if(relBroadcast != null)
+				relBroadcast.releaseApplication(applicationID);
+			if(constBroadcast != null)
+				constBroadcast.releaseApplication(applicationID);
+		});
+	}
+	
+	/**
+	 * @return the number of IC instances that the node keeps alive.
+	 */
+	private int getLiveInstances() {
+		return activeApps.getLiveInstances();
+	}
+	
 	public void processFirstPhaseCompletion(String applicationID) {
 		if(!inWarmupPhase)
 			markFirstPhaseEndTime(instanceCounter);
@@ -328,6 +410,9 @@ public class ICMainExecutorSerialWithDatum extends ICBaseSlaveSerial {
 				} else if ("Network".equalsIgnoreCase(monitoringMode)) {
 					/* Start a new thread that monitors the network traffic. */
 					monitoringRunnable = new NetworkMonitor(sigar);
+				} else if ("Instances".equalsIgnoreCase(monitoringMode)) {
+					/* Start a new thread that monitors the number of live IC instances. */
+					monitoringRunnable = new InstancesMonitor(() -> getLiveInstances());
 				}
 
 				if (monitoringRunnable != null) {
@@ -408,26 +493,25 @@ public class ICMainExecutorSerialWithDatum extends ICBaseSlaveSerial {
 	}
 
 	public Application getICBApplication(String appID) {
-		Application app = activeApps.get(appID);
-		if (app == null) {
-			app = new BBInteractiveConsistencyDatum(appID, this.nodeId, this.N, this.relBroadcast, this.constBroadcast, this.resultProcessor, this.firstPhaseProcessor,
-					GlobalVariables.ICWORKERS_GROUP, chunkID -> getNextChunk(appID, chunkID), (msg, source) -> storeChunk((ICChunkMessage) msg, source), nodeID -> getStoredChunks(appID, nodeID));
-			activeApps.put(appID, app);
-		}
-		return app;
+		return activeApps.get(appID, (String id) -> new BBInteractiveConsistencyDatum(appID, this.nodeId, this.N, this.relBroadcast, this.constBroadcast, this.resultProcessor, this.firstPhaseProcessor,
+				GlobalVariables.ICWORKERS_GROUP, chunkID -> getNextChunk(appID, chunkID), (msg, source) -> storeChunk((ICChunkMessage) msg, source), nodeID -> getStoredChunks(appID, nodeID)));
 	}
 	
 	private void processExperimentTerminationMessage(ExperimentTerminationMessage experimentTerminationMsg, Node source) {
 		if(GlobalVariables.HIGH_VERBOSE)
 			System.out.println("[Node " + nodeId + "]: An ExperimentTerminationMessage was received from Node " + source.getNodeId());
 		
+		CryptoExecutor cryptoExecutor = CryptoExecutor.getExecutor(this.comm);
+		if(cryptoExecutor != null)
+			System.out.println("[Node " + nodeId + "]: " + cryptoExecutor.report());
+		
 		this.comm.stop();
 		System.exit(0);
 	}
 	
 	public static void main(String[] args) {
 		if(args.length < 11 || args.length > 13) {
-			System.out.println("Usage: <nodeID> <totalNodes> <num_of_instances> <execution> <configuration_file> <isCrashed> <timeout> <useAuthenticators> "
+			System.out.println("Usage: <nodeID> <totalNodes> <num_of_instances> <execution> <configuration_file> <isCrashed> <timeout> <crypto: true|false|MAC|RSA|ECDSA|EdDSA> "
 					+ "<enable-asynchronous-work> <data-size-in-bytes> <monitoring-mode> [High] [Low]");
 			System.exit(-1);
 		}
@@ -443,14 +527,12 @@ public class ICMainExecutorSerialWithDatum extends ICBaseSlaveSerial {
 		String configuration = args[3];
 		GlobalVariables.TIMEOUT = Integer.parseInt(args[6]);
 		
-		/* Check whether to use digital signatures or authenticators. */
-		boolean useAuthenticators = Boolean.parseBoolean(args[7]);
-		CryptographyModule cryptoModule = null;
-		
-		if(useAuthenticators)
-			cryptoModule = new MacCryptographyModule();
-		else
-			cryptoModule = new DigitalSignatureCryptographyModule();
+		/* Select authenticators (true, MAC) or a digital signature scheme (false, RSA, ECDSA, EdDSA). */
+		CryptographyModule cryptoModule = CryptographyModuleFactory.create(args[7]);
+		if(cryptoModule == null) {
+			System.err.println("Unknown cryptography module: " + args[7]);
+			System.exit(-1);
+		}
 		
 		icMainExe.instantiateNodes(args[4], Integer.parseInt(args[9]));
 		icMainExe.resultProcessor = (String appId, List<String> res)-> icMainExe.processResult(appId, res);
@@ -474,6 +556,59 @@ public class ICMainExecutorSerialWithDatum extends ICBaseSlaveSerial {
 		
 		GlobalVariables.ENABLE_ASYNC_WORK = Boolean.parseBoolean(args[8]);
 		
+		/* Batch the messages of the broadcasts over a window of BATCH_WINDOW milliseconds. */
+		if(System.getenv("BATCH_WINDOW") != null)
+			GlobalVariables.BATCH_WINDOW = Integer.parseInt(System.getenv("BATCH_WINDOW"));
+		
+		/* Verify the signatures of each certificate in parallel. */
+		if(System.getenv("PARALLEL_VERIFICATION") != null)
+			GlobalVariables.PARALLEL_VERIFICATION = Boolean.parseBoolean(System.getenv("PARALLEL_VERIFICATION"));
+		
+		/* Sign the echoes of a window of SIGNING_BATCH_WINDOW milliseconds with a single signature. */
+		if(System.getenv("SIGNING_BATCH_WINDOW") != null)
+			GlobalVariables.SIGNING_BATCH_WINDOW = Integer.parseInt(System.getenv("SIGNING_BATCH_WINDOW"));
+		
+		/* Run the cryptographic work on a dedicated pool of CRYPTO_THREADS threads. */
+		if(System.getenv("CRYPTO_THREADS") != null)
+			GlobalVariables.CRYPTO_THREADS = Integer.parseInt(System.getenv("CRYPTO_THREADS"));
+		if(System.getenv("CRYPTO_QUEUE_CAPACITY") != null)
+			GlobalVariables.CRYPTO_QUEUE_CAPACITY = Integer.parseInt(System.getenv("CRYPTO_QUEUE_CAPACITY"));
+		
+		/* Run the binary Consensus instances of each IC instance as a single vectorised instance. */
+		if(System.getenv("VECTOR_CONSENSUS") != null)
+			GlobalVariables.VECTOR_CONSENSUS = Boolean.parseBoolean(System.getenv("VECTOR_CONSENSUS"));
+		
+		/* Decide the binary Consensus instances in their first round when the votes agree. */
+		if(System.getenv("ONE_STEP_CONSENSUS") != null)
+			GlobalVariables.ONE_STEP_CONSENSUS = Boolean.parseBoolean(System.getenv("ONE_STEP_CONSENSUS"));
+		
+		/* Carry the digests of the values, instead of the values, in the vectors of the multi-valued Consensus. */
+		if(System.getenv("DIGEST_VECTORS") != null)
+			GlobalVariables.DIGEST_VECTORS = Boolean.parseBoolean(System.getenv("DIGEST_VECTORS"));
+		
+		/* Toss a common coin, derived from the seed dealt along with the symmetric keys, in the binary Consensus. */
+		if(System.getenv("COMMON_COIN_SEED") != null) {
+			try {
+				BBConsensus.setDefaultCoin(SeededCommonCoin.load(System.getenv("COMMON_COIN_SEED")));
+			}
+			catch (IOException | ClassNotFoundException ex) {
+				System.err.println("Cannot load the seed of the common coin: " + ex.getMessage());
+				System.exit(-1);
+			}
+		}
+		
+		/* The keystores hold RSA keys, so the ECDSA and EdDSA modules sign with the key pairs dealt by KeyPairsGenerator. */
+		if(cryptoModule instanceof DigitalSignatureCryptographyModule && !((DigitalSignatureCryptographyModule) cryptoModule).usesKeyStore()) {
+			if(System.getenv("KEY_PAIRS_PATH") == null) {
+				System.err.println("The KEY_PAIRS_PATH environment variable must point to the key pairs of the nodes for " + args[7] + " signatures.");
+				System.exit(-1);
+			}
+			icMainExe.loadKeyPairs(System.getenv("KEY_PAIRS_PATH"));
+		}
+		
+		if(GlobalVariables.SIGNING_BATCH_WINDOW > 0 && cryptoModule instanceof DigitalSignatureCryptographyModule)
+			cryptoModule = new MerkleCryptographyModule(((DigitalSignatureCryptographyModule) cryptoModule).getAlgorithm());
+		
 		icMainExe.monitoringMode = args[10];
 		
 		/* Check for debugging flags. */
@@ -505,11 +640,13 @@ public class ICMainExecutorSerialWithDatum extends ICBaseSlaveSerial {
 		
 		switch (configuration) {
 			case "MVBB":
-				System.out.println("The configuration: " + configuration + " does not support the datum expansion!");
-				System.exit(-1);
+			case "MVBBD":
+			case "MVAV":
 			case "MVRB":
+			case "LAMP":
 				System.out.println("The configuration: " + configuration + " does not support the datum expansion!");
 				System.exit(-1);
+				break;
 			case "BCBB":
 				icMainExe.applicationGetter = (String appID)->icMainExe.getICBApplication(appID);
 				icMainExe.constBroadcast = new ConsistentBroadcast(cryptoModule);
@@ -517,6 +654,20 @@ public class ICMainExecutorSerialWithDatum extends ICBaseSlaveSerial {
 				icMainExe.constBroadcast.initialize(icMainExe.comm, icMainExe.applicationGetter, GlobalVariables.ICWORKERS_GROUP, icMainExe.N);
 				icMainExe.relBroadcast.initialize(icMainExe.comm, icMainExe.applicationGetter, GlobalVariables.ICWORKERS_GROUP, icMainExe.N);
 				break;
+			case "BCBBD":
+				icMainExe.applicationGetter = (String appID)->icMainExe.getICBApplication(appID);
+				icMainExe.constBroadcast = new ConsistentBroadcast(cryptoModule);
+				icMainExe.relBroadcast = new BrachaBroadcast(true);
+				icMainExe.constBroadcast.initialize(icMainExe.comm, icMainExe.applicationGetter, GlobalVariables.ICWORKERS_GROUP, icMainExe.N);
+				icMainExe.relBroadcast.initialize(icMainExe.comm, icMainExe.applicationGetter, GlobalVariables.ICWORKERS_GROUP, icMainExe.N);
+				break;
+			case "BCAV":
+				icMainExe.applicationGetter = (String appID)->icMainExe.getICBApplication(appID);
+				icMainExe.constBroadcast = new ConsistentBroadcast(cryptoModule);
+				icMainExe.relBroadcast = new AVIDBroadcast();
+				icMainExe.constBroadcast.initialize(icMainExe.comm, icMainExe.applicationGetter, GlobalVariables.ICWORKERS_GROUP, icMainExe.N);
+				icMainExe.relBroadcast.initialize(icMainExe.comm, icMainExe.applicationGetter, GlobalVariables.ICWORKERS_GROUP, icMainExe.N);
+				break;
 			case "BCRB":
 				icMainExe.applicationGetter = (String appID)->icMainExe.getICBApplication(appID);
 				icMainExe.constBroadcast = new ConsistentBroadcast(cryptoModule);
@@ -524,9 +675,6 @@ public class ICMainExecutorSerialWithDatum extends ICBaseSlaveSerial {
 				icMainExe.constBroadcast.initialize(icMainExe.comm, icMainExe.applicationGetter, GlobalVariables.ICWORKERS_GROUP, icMainExe.N);
 				icMainExe.relBroadcast.initialize(icMainExe.comm, icMainExe.applicationGetter, GlobalVariables.ICWORKERS_GROUP, icMainExe.N);
 				break;
-			case "LAMP":
-				System.out.println("The configuration: " + configuration + " does not support the datum expansion!");
-				System.exit(-1);
 			default:
 				System.out.println("Unknown configuration: " + configuration);
 				System.exit(-1);
@@ -543,21 +691,24 @@ public class ICMainExecutorSerialWithDatum extends ICBaseSlaveSerial {
 		// Register all necessary handlers for the recovery phase.
 		icMainExe.comm.registerMessage(RecoveryMessageType.REQUEST.getValue(), (byte[] data) -> RecoveryRequestMessage.deserialize(data),
 				(Message msg, Node source) -> {
-					BBInteractiveConsistencyDatum app = (BBInteractiveConsistencyDatum) icMainExe.applicationGetter.getApp(msg.getApplicationID());
-					app.processRecoveryRequestMessage((RecoveryRequestMessage) msg, source);
+					Application app = icMainExe.applicationGetter.getApp(msg.getApplicationID());
+					if(app instanceof BBInteractiveConsistencyDatum)
+						((BBInteractiveConsistencyDatum) app).processRecoveryRequestMessage((RecoveryRequestMessage) msg, source);
 				});
 
 		/* Register the necessary handlers to support the datum expansion. */
 		icMainExe.comm.registerMessage(ICMessageType.IC_CHUNK.getValue(), (byte[] data) -> ICChunkMessage.deserialize(data),
 				(Message msg, Node source) -> {
-					BBInteractiveConsistencyDatum app = (BBInteractiveConsistencyDatum) icMainExe.applicationGetter.getApp(msg.getApplicationID());
-					app.OnICChunkMessage((ICChunkMessage) msg, source);
+					Application app = icMainExe.applicationGetter.getApp(msg.getApplicationID());
+					if(app instanceof BBInteractiveConsistencyDatum)
+						((BBInteractiveConsistencyDatum) app).OnICChunkMessage((ICChunkMessage) msg, source);
 				});
 		
 		icMainExe.comm.registerMessage(ICMessageType.IC_CHUNK_RECOVERY_RESPONSE.getValue(), (byte[] data) -> ICChunkRecoveryMessage.deserialize(data),
 				(Message msg, Node source) -> {
-					BBInteractiveConsistencyDatum app = (BBInteractiveConsistencyDatum) icMainExe.applicationGetter.getApp(msg.getApplicationID());
-					app.processICChunkRecoveryMessage((ICChunkRecoveryMessage) msg, source);
+					Application app = icMainExe.applicationGetter.getApp(msg.getApplicationID());
+					if(app instanceof BBInteractiveConsistencyDatum)
+						((BBInteractiveConsistencyDatum) app).processICChunkRecoveryMessage((ICChunkRecoveryMessage) msg, source);
 				});
 		
 		icMainExe.executeTest();
@@ -0,0 +1,285 @@
+/*******************************************************************************
+ * Copyright (C) 2019 DSG at University of Athens
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package gr.uoa.di.dsg.ic;
+
+import gr.uoa.di.dsg.broadcast.CryptoExecutor.Histogram;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * The window of the pipelined execution, i.e. the number of IC instances
+ * that a node keeps in flight. A new instance is started each time a
+ * previous one completes, as long as fewer instances than the window are
+ * in flight.
+ * <p>
+ * The window adapts to the observed latency, once per epoch of
+ * <em>window</em> completions, in the spirit of TCP Vegas: the lowest mean
+ * latency of an epoch serves as the latency of an unloaded node, and the
+ * instances that the window holds beyond those needed to sustain the
+ * throughput, i.e. <em>window * (1 - baseLatency / latency)</em>, are
+ * considered to be queued. The window grows by one while fewer than
+ * {@link #MIN_QUEUED} instances are queued and shrinks by one when more
+ * than {@link #MAX_QUEUED} are. If the queue of the cryptographic tasks is
+ * congested, the window is halved instead.
+ * <p>
+ * Only the completions observed while the window is full are sampled, so
+ * that the ramp-up and the drain of the pipeline do not distort the
+ * measurements; for each window size, the samples make up a point of the
+ * steady-state throughput/latency curve.
+ * <p>
+ * The rest nodes may start an instance, and even complete it, before the
+ * window admits it locally. Such an instance is remembered at its
+ * completion, so that it is skipped instead of occupying a slot that no
+ * completion would ever free.
+ * <p>
+ * The methods of a window may be called by any thread.
+ */
+public class PipelineWindow {
+
+	/**
+	 * The number of queued instances below which the window grows.
+	 */
+	public final static double MIN_QUEUED = 1;
+
+	/**
+	 * The number of queued instances above which the window shrinks.
+	 */
+	public final static double MAX_QUEUED = 3;
+
+	/**
+	 * The measurements of the pipeline for a single window size.
+	 */
+	private static class Point {
+		private final Histogram latency = new Histogram();
+		private long elapsedNanos = 0;
+	}
+
+	private final int maxWindow;
+	private int window;
+	private int inFlight = 0;
+
+	private final Map<String, Long> startTimes = new HashMap<>();
+	private final Set<String> unadmittedCompletions = new HashSet<>();
+	private long totalUnadmittedCompletions = 0;
+	private final TreeMap<Integer, Point> curve = new TreeMap<>();
+	private long lastCompletion = 0;
+
+	/* The state of the current epoch. */
+	private int epochSamples = 0;
+	private long epochLatency = 0;
+	private boolean epochCongested = false;
+	private double baseLatency = Double.MAX_VALUE;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param initialWindow
+	 *            the initial number of instances in flight.
+	 * @param maxWindow
+	 *            the largest number of instances in flight.
+	 */
+	public PipelineWindow(int initialWindow, int maxWindow) {
+		this.maxWindow = Math.max(maxWindow, 1);
+		this.window = Math.min(Math.max(initialWindow, 1), this.maxWindow);
+	}
+
+	/**
+	 * Admits a new instance, if fewer instances than the window are in
+	 * flight and the instance has not completed already.
+	 * 
+	 * @param applicationID
+	 *            the ID of the instance.
+	 * @return <em>true</em> if the instance may be started.
+	 */
+	public synchronized boolean tryStart(String applicationID) {
+		if(inFlight >= window || unadmittedCompletions.contains(applicationID))
+			return false;
+
+		++inFlight;
+		startTimes.put(applicationID, System.nanoTime());
+		return true;
+	}
+
+	/**
+	 * Skips an instance that completed before it was admitted.
+	 * 
+	 * @param applicationID
+	 *            the ID of the instance.
+	 * @return <em>true</em> if the instance has already completed, and thus,
+	 *         must not be started.
+	 */
+	public synchronized boolean skipCompleted(String applicationID) {
+		return unadmittedCompletions.remove(applicationID);
+	}
+
+	/**
+	 * Completes an instance and adapts the window. The completion of an
+	 * instance that was not admitted by {@link #tryStart(String)} frees no
+	 * slot, but prevents the instance from being admitted later.
+	 * 
+	 * @param applicationID
+	 *            the ID of the instance.
+	 * @param congested
+	 *            <em>true</em> if the queue of the cryptographic tasks is
+	 *            congested.
+	 */
+	public synchronized void complete(String applicationID, boolean congested) {
+		Long startTime = startTimes.remove(applicationID);
+		if(startTime == null) {
+			unadmittedCompletions.add(applicationID);
+			++totalUnadmittedCompletions;
+			return;
+		}
+
+		complete(System.nanoTime() - startTime, congested);
+	}
+
+	/**
+	 * Completes an instance with the specified latency.
+	 * 
+	 * @param latencyNanos
+	 *            the latency of the instance, in nanoseconds.
+	 * @param congested
+	 *            <em>true</em> if the queue of the cryptographic tasks is
+	 *            congested.
+	 */
+	synchronized void complete(long latencyNanos, boolean congested) {
+		long now = System.nanoTime();
+		boolean full = (inFlight >= window);
+		inFlight = Math.max(inFlight - 1, 0);
+
+		if(full) {
+			Point point = curve.computeIfAbsent(window, (Integer size) -> new Point());
+			point.latency.record(latencyNanos);
+			if(lastCompletion != 0)
+				point.elapsedNanos += now - lastCompletion;
+
+			epochLatency += latencyNanos;
+			epochCongested |= congested;
+			if(++epochSamples >= window)
+				adapt();
+		}
+
+		lastCompletion = now;
+	}
+
+	private void adapt() {
+		double latency = (double) epochLatency / epochSamples;
+		baseLatency = Math.min(baseLatency, latency);
+
+		if(epochCongested)
+			window = Math.max(window / 2, 1);
+		else {
+			double queued = window * (1 - baseLatency / latency);
+			if(queued < MIN_QUEUED)
+				window = Math.min(window + 1, maxWindow);
+			else if(queued > MAX_QUEUED)
+				window = Math.max(window - 1, 1);
+		}
+
+		epochSamples = 0;
+		epochLatency = 0;
+		epochCongested = false;
+	}
+
+	/**
+	 * @return the current number of instances that may be in flight.
+	 */
+	public synchronized int getWindow() {
+		return window;
+	}
+
+	/**
+	 * @return the number of instances in flight.
+	 */
+	public synchronized int getInFlight() {
+		return inFlight;
+	}
+
+	/**
+	 * @return the number of instances that completed before they were
+	 *         admitted.
+	 */
+	public synchronized long getUnadmittedCompletions() {
+		return totalUnadmittedCompletions;
+	}
+
+	/**
+	 * Discards the measurements taken so far, e.g. those of the warmup
+	 * phase, but keeps the window and the instances in flight.
+	 */
+	public synchronized void resetStatistics() {
+		curve.clear();
+		lastCompletion = 0;
+	}
+
+	/**
+	 * @param window
+	 *            a window size.
+	 * @return the number of completions sampled with the window size.
+	 */
+	public synchronized long getSamples(int window) {
+		Point point = curve.get(window);
+		return (point == null) ? 0 : point.latency.getCount();
+	}
+
+	/**
+	 * @return the steady-state throughput/latency curve, one line per window
+	 *         size, in CSV format.
+	 */
+	public synchronized String getCurve() {
+		StringBuilder builder = new StringBuilder("Window,Instances,Throughput,MeanLatency,P99Latency\n");
+		for(Map.Entry<Integer, Point> entry: curve.entrySet()) {
+			Point point = entry.getValue();
+			double throughput = (point.elapsedNanos == 0) ? 0 : point.latency.getCount() * 1e9 / point.elapsedNanos;
+			builder.append(String.format("%d,%d,%.1f,%.1f,%d\n", entry.getKey(), point.latency.getCount(), throughput, point.latency.getMean(), point.latency.getPercentile(99)));
+		}
+
+		return builder.toString();
+	}
+
+	/**
+	 * Appends the steady-state throughput/latency curve to the file
+	 * <em>prefix.pipeline.data</em>. The throughput is measured in instances
+	 * per second and the latencies in microseconds.
+	 * 
+	 * @param prefix
+	 *            the prefix of the output file.
+	 * @throws IOException
+	 *             if the file cannot be written.
+	 */
+	public void print(String prefix) throws IOException {
+		String outputFilename = prefix + ".pipeline.data";
+		File outputFile = new File(outputFilename);
+
+		/* Create the file, if not exists. */
+		if (!outputFile.exists())
+			outputFile.createNewFile();
+
+		PrintWriter outputWriter = new PrintWriter(new FileOutputStream(outputFilename, true));
+		outputWriter.print(getCurve());
+		outputWriter.close();
+	}
+}
@@ -18,12 +18,14 @@ package gr.uoa.di.dsg.ic.bracha;
 
 import gr.uoa.di.dsg.broadcast.BroadcastAccept;
 import gr.uoa.di.dsg.broadcast.IBroadcast;
+import gr.uoa.di.dsg.broadcast.ShardedEngine;
 import gr.uoa.di.dsg.broadcast.consistent.ConsistentBroadcast;
 import gr.uoa.di.dsg.broadcast.consistent.ConsistentBroadcastAccept;
 import gr.uoa.di.dsg.communicator.AbstractCommunicator;
 import gr.uoa.di.dsg.communicator.Message;
 import gr.uoa.di.dsg.communicator.Node;
 import gr.uoa.di.dsg.consensus.bracha.BBConsensus;
+import gr.uoa.di.dsg.consensus.bracha.VectorBBConsensus;
 import gr.uoa.di.dsg.crypto.CryptographyModule;
 import gr.uoa.di.dsg.crypto.DigitalSignatureCryptographyModule;
 import gr.uoa.di.dsg.ic.Application;
@@ -34,6 +36,7 @@ import gr.uoa.di.dsg.ic.recovery.RecoveryResponseMessage;
 import gr.uoa.di.dsg.utils.BroadcastID;
 import gr.uoa.di.dsg.utils.GlobalVariables;
 
+import java.nio.ByteBuffer;
 import java.security.Key;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -55,6 +58,8 @@ public class BBInteractiveConsistency implements Application {
 	
 	protected Map<Integer, BBConsensus> activeConsensus = new HashMap<>();
 	protected Map<Integer, String> completedConsensus = new HashMap<>();
+	/** The single instance that runs all binary Consensus instances, if GlobalVariables.VECTOR_CONSENSUS is set. */
+	protected VectorBBConsensus vectorConsensus = null;
 	
 	protected IBroadcast constBroadcast = null;
 	protected final int defaultConsensusID = -1;
@@ -83,7 +88,7 @@ public class BBInteractiveConsistency implements Application {
 	
 	@Override
 	public void start(int pid, String value) {
-		timeout = this.constBroadcast.getCommunicator().setTimeout(GlobalVariables.TIMEOUT, ()->onTimeout() );
+		timeout = this.constBroadcast.getCommunicator().setTimeout(GlobalVariables.TIMEOUT, ShardedEngine.bind(()->onTimeout()));
 		constBroadcast.broadcast(this.id, defaultConsensusID, pid, BroadcastID.CB_BROADCAST_ID.getValue(), value);
 	}
 	
@@ -144,6 +149,9 @@ public class BBInteractiveConsistency implements Application {
 				beginConsensus();
 			}
 		}
+		else if(acc.getConsensusID() == VectorBBConsensus.CONSENSUS_ID) {
+			getVectorConsensus().process(acc);
+		}
 		else {
 			if(completedConsensus.containsKey(acc.getConsensusID()))
 				return;
@@ -161,7 +169,24 @@ public class BBInteractiveConsistency implements Application {
 		/* Mark the completion of the first phase. */
 		this.firstPhaseProcessor.processFirstPhaseCompletion(this.id);
 
+		startConsensus();
+	}
+	
+	/**
+	 * Starts a binary Consensus instance for the value of each node, proposing
+	 * 1 for the values that have been received.
+	 */
+	protected void startConsensus() {
 		List<Integer> nodeIDs = this.relBroadcast.getCommunicator().getNodeIDsOfGroup(nodeGroup);
+		if(GlobalVariables.VECTOR_CONSENSUS) {
+			List<String> proposals = new ArrayList<>(nodeIDs.size());
+			for (Integer nodeID: nodeIDs)
+				proposals.add(nodeValue.containsKey(nodeID) ? "1" : "0");
+
+			getVectorConsensus().start(proposals);
+			return;
+		}
+		
 		for (Integer nodeID: nodeIDs) {
 			BBConsensus cons = activeConsensus.get(nodeID);
 			if (cons == null) {
@@ -176,6 +201,13 @@ public class BBInteractiveConsistency implements Application {
 			cons.start(value);
 		}
 	}
+	
+	protected VectorBBConsensus getVectorConsensus() {
+		if(vectorConsensus == null)
+			vectorConsensus = new VectorBBConsensus(this, this.id, this.nodeID, this.relBroadcast.getCommunicator().getNodeIDsOfGroup(nodeGroup), numberOfNodes);
+		
+		return vectorConsensus;
+	}
 
 	@Override
 	public void processConsensusResult(int cid, String value)
@@ -255,28 +287,27 @@ public class BBInteractiveConsistency implements Application {
 			
 		CryptographyModule cryptoModule = ((ConsistentBroadcast) constBroadcast).getCryptoModule();
 		AbstractCommunicator communicator = constBroadcast.getCommunicator();
-		String content = recoveryResponseMessage.getContent(defaultConsensusID);
-		Key key = null;
+		ByteBuffer content = recoveryResponseMessage.getContent(defaultConsensusID);
+		List<Key> keys = new ArrayList<>();
+		List<byte[]> signatures = new ArrayList<>();
 		
 		for(Integer currentNodeID: recoveryResponseMessage.getNodeIDsInSignature()) {
-			byte[] signature = null;
-			
 			if(cryptoModule instanceof DigitalSignatureCryptographyModule) {
-				key = communicator.getOtherNode(currentNodeID).getPublicKey();
-				signature = recoveryResponseMessage.getSignature(currentNodeID);
+				keys.add(communicator.getOtherNode(currentNodeID).getPublicKey());
+				signatures.add(recoveryResponseMessage.getSignature(currentNodeID));
 			}
 			else {
-				key = communicator.getCurrentNode().getSymmetricKey(currentNodeID);
-				signature = recoveryResponseMessage.getSignature(currentNodeID, consensusID, cryptoModule.getDigestLength());
-			}
-
-			if(!cryptoModule.verify(content, key, signature)) {
-				System.err.println("[BBInteractiveConsistency, Node: " + nodeID + ", ICID: " + id + "]: The RecoveryResponseMessage: " + recoveryResponseMessage.toString()
-						+ " received from Node " + source.getNodeId() + " couldn't be verified!");
-				return;
+				keys.add(communicator.getCurrentNode().getSymmetricKey(currentNodeID));
+				signatures.add(recoveryResponseMessage.getSignature(currentNodeID, consensusID, cryptoModule.getDigestLength()));
 			}
 		}
 		
+		if(!cryptoModule.verifyBatch(content, keys, signatures)) {
+			System.err.println("[BBInteractiveConsistency, Node: " + nodeID + ", ICID: " + id + "]: The RecoveryResponseMessage: " + recoveryResponseMessage.toString()
+					+ " received from Node " + source.getNodeId() + " couldn't be verified!");
+			return;
+		}
+		
 		// Accept the new value and check if the IC vector is now complete.
 		if(GlobalVariables.HIGH_VERBOSE)
 			System.out.println("[BBInteractiveConsistency, Node: " + nodeID + ", ICID: " + id + "]: Accepting the value " + recoveryResponseMessage.getValue() + " for consensus ID " + consensusID);
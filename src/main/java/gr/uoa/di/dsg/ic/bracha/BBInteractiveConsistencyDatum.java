@@ -17,10 +17,10 @@
 package gr.uoa.di.dsg.ic.bracha;
 
 import gr.uoa.di.dsg.broadcast.IBroadcast;
+import gr.uoa.di.dsg.broadcast.ShardedEngine;
 import gr.uoa.di.dsg.broadcast.consistent.ConsistentBroadcast;
 import gr.uoa.di.dsg.communicator.AbstractCommunicator;
 import gr.uoa.di.dsg.communicator.Node;
-import gr.uoa.di.dsg.consensus.bracha.BBConsensus;
 import gr.uoa.di.dsg.crypto.CryptographyModule;
 import gr.uoa.di.dsg.crypto.DigitalSignatureCryptographyModule;
 import gr.uoa.di.dsg.ic.ICFirstPhase;
@@ -32,6 +32,7 @@ import gr.uoa.di.dsg.utils.BroadcastID;
 import gr.uoa.di.dsg.utils.GlobalUtils;
 import gr.uoa.di.dsg.utils.GlobalVariables;
 
+import java.nio.ByteBuffer;
 import java.security.Key;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
@@ -97,7 +98,7 @@ public class BBInteractiveConsistencyDatum extends BBInteractiveConsistency {
 		if (GlobalVariables.HIGH_VERBOSE)
 			System.out.println("TIMEOUT = " + GlobalVariables.TIMEOUT);
 		
-		this.timeout = constBroadcast.getCommunicator().setTimeout(GlobalVariables.TIMEOUT, () -> onTimeout());
+		this.timeout = constBroadcast.getCommunicator().setTimeout(GlobalVariables.TIMEOUT, ShardedEngine.bind(() -> onTimeout()));
 		getProcessor.getNextChunk(getNextChunkIDPerNode(nodeID));
 	}
 	
@@ -111,20 +112,7 @@ public class BBInteractiveConsistencyDatum extends BBInteractiveConsistency {
 		// Remove any remains from the datum expansion during the value dissemination phase.
 		datumCleanupBeforeConsensus();
 		
-		List<Integer> nodeIDs = this.relBroadcast.getCommunicator().getNodeIDsOfGroup(nodeGroup);
-		for (Integer nodeID: nodeIDs) {
-			BBConsensus cons = activeConsensus.get(nodeID);
-			if (cons == null) {
-				cons = new BBConsensus(this, this.id, this.nodeID, nodeID, numberOfNodes);
-				activeConsensus.put(nodeID, cons);
-			}
-
-			String value = "0";
-			if (nodeValue.containsKey(nodeID))
-				value = "1";
-
-			cons.start(value);
-		}
+		startConsensus();
 	}
 
 	@Override
@@ -483,8 +471,9 @@ public class BBInteractiveConsistencyDatum extends BBInteractiveConsistency {
 		
 		CryptographyModule cryptoModule = ((ConsistentBroadcast) constBroadcast).getCryptoModule();
 		AbstractCommunicator communicator = constBroadcast.getCommunicator();
-		String content = icChunkRecoveryMessage.getContent(defaultConsensusID, value);
-		Key key = null;
+		ByteBuffer content = icChunkRecoveryMessage.getContent(defaultConsensusID, value);
+		List<Key> keys = new ArrayList<>();
+		List<byte[]> signatures = new ArrayList<>();
 		
 		/* If the ICChunkRecoveryMessage does not contain signatures, it means
 		 * that the final ICChunkRecoveryMessage for the specified consensusID has already
@@ -494,24 +483,22 @@ public class BBInteractiveConsistencyDatum extends BBInteractiveConsistency {
 			icChunkRecoveryMessage.setSignatures(nodeValueSignaturesRecovery.get(UID));
 		
 		for(Integer currentNodeID: icChunkRecoveryMessage.getNodeIDsInSignature()) {
-			byte[] signature = null;
-			
 			if(cryptoModule instanceof DigitalSignatureCryptographyModule) {
-				key = communicator.getOtherNode(currentNodeID).getPublicKey();
-				signature = icChunkRecoveryMessage.getSignature(currentNodeID);
+				keys.add(communicator.getOtherNode(currentNodeID).getPublicKey());
+				signatures.add(icChunkRecoveryMessage.getSignature(currentNodeID));
 			}
 			else {
-				key = communicator.getCurrentNode().getSymmetricKey(currentNodeID);
-				signature = icChunkRecoveryMessage.getSignature(currentNodeID, consensusID, cryptoModule.getDigestLength());
-			}
-
-			if(!cryptoModule.verify(content, key, signature)) {
-				System.err.println("[BBInteractiveConsistencyDatum, Node: " + nodeID + ", ICID: " + id + "]: The ICChunkRecoveryMessage: " + icChunkRecoveryMessage.toString()
-						+ " received from Node " + source.getNodeId() + " couldn't be verified!");
-				return;
+				keys.add(communicator.getCurrentNode().getSymmetricKey(currentNodeID));
+				signatures.add(icChunkRecoveryMessage.getSignature(currentNodeID, consensusID, cryptoModule.getDigestLength()));
 			}
 		}
 		
+		if(!cryptoModule.verifyBatch(content, keys, signatures)) {
+			System.err.println("[BBInteractiveConsistencyDatum, Node: " + nodeID + ", ICID: " + id + "]: The ICChunkRecoveryMessage: " + icChunkRecoveryMessage.toString()
+					+ " received from Node " + source.getNodeId() + " couldn't be verified!");
+			return;
+		}
+		
 		// Accept the new value and check if the IC vector is now complete.
 		if(GlobalVariables.HIGH_VERBOSE)
 			System.out.println("[BBInteractiveConsistencyDatum, Node: " + nodeID + ", ICID: " + id + "]: Accepting the value " + value + " for consensus ID " + consensusID);
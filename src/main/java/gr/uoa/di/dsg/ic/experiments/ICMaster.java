@@ -95,7 +95,7 @@ public class ICMaster {
 		builder.append("Usage: java -jar ICMaster.jar <N> <K> <algorithm> <outputFolder> <executionMode> <configurationFile> [warmupRounds] [rendezvousTime]\n");
 		builder.append("\t<N> is the number of replicas\n");
 		builder.append("\t<K> is the number of algorithm instances that will be run\n");
-		builder.append("\t<algorithm> is the algorithm that the slaves will run (MVBB,MVRB,BCBB,BCRB)\n");
+		builder.append("\t<algorithm> is the algorithm that the slaves will run (MVBB,MVRB,BCBB,BCRB,MVBBD,BCBBD,MVAV,BCAV)\n");
 		builder.append("\t<outputFolder> is the directory where the log file must be placed\n");
 		builder.append("\t<executionMode> is the mode of execution and must belong in {serial, parallel}\n");
 		builder.append("\t<configurationFile> is the configuration file that contains connection information for every node\n");
@@ -164,7 +164,7 @@ public class ICMaster {
 		}
 		
 		icMaster.algorithm = args[2];
-		if (!icMaster.algorithm.equals("MVBB") && !icMaster.algorithm.equals("MVRB") && !icMaster.algorithm.equals("BCBB") && !icMaster.algorithm.equals("BCRB") && !icMaster.algorithm.equals("LAMP")) {
+		if (!icMaster.algorithm.equals("MVBB") && !icMaster.algorithm.equals("MVRB") && !icMaster.algorithm.equals("BCBB") && !icMaster.algorithm.equals("BCRB") && !icMaster.algorithm.equals("MVBBD") && !icMaster.algorithm.equals("BCBBD") && !icMaster.algorithm.equals("MVAV") && !icMaster.algorithm.equals("BCAV") && !icMaster.algorithm.equals("LAMP")) {
 			System.err.println("Master: Invalid value specified for the algorithm that will be executed!");
 			System.exit(-1);
 		}
@@ -20,6 +20,7 @@ import gr.uoa.di.dsg.communicator.GenericMessageType;
 import gr.uoa.di.dsg.communicator.Message;
 import gr.uoa.di.dsg.utils.StringUtils;
 
+import java.util.Arrays;
 import java.util.List;
 
 public class ICDeliverMessage extends Message {
@@ -52,6 +53,6 @@ public class ICDeliverMessage extends Message {
 
 	@Override
 	public String toString() {
-		return "ICDeliverMessage <" + applicationID + ", " + StringUtils.arrayToString(values) + ">";
+		return "ICDeliverMessage <" + applicationID + ", " + Arrays.toString(values) + ">";
 	}
 }
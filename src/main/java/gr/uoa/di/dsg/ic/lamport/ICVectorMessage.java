@@ -19,8 +19,10 @@ package gr.uoa.di.dsg.ic.lamport;
 import gr.uoa.di.dsg.communicator.GenericMessageType;
 import gr.uoa.di.dsg.communicator.Message;
 import gr.uoa.di.dsg.utils.StringUtils;
+import gr.uoa.di.dsg.utils.VectorCodec;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import com.google.protobuf.InvalidProtocolBufferException;
@@ -97,21 +99,22 @@ public class ICVectorMessage extends Message {
 
 	@Override
 	public String toString() {
-		return "ICVectorMessage <" + applicationID + ", " + round + ", " + processID + ", " + StringUtils.listToString(values) + ">";
+		return "ICVectorMessage <" + applicationID + ", " + round + ", " + processID + ", " + values + ">";
 	}
 
 	public int getType() {
 		return messageType.getValue();
 	}
 
+	/**
+	 * The vector is carried, encoded by {@link VectorCodec}, as the single
+	 * element of the values of the serialized message, so that its nulls
+	 * survive the serialization.
+	 */
 	public byte[] serialize() {
-		InteractiveConsistencyMessage.ICVector.Builder builder = InteractiveConsistencyMessage.ICVector.newBuilder()
-				.setIcid(applicationID).setRound(round).setPid(processID);
-		
-		for(int i = 0; i < values.size(); ++i)
-			builder.addValues(values.get(i) != null ? values.get(i) : "null");
-		
-		return builder.build().toByteArray();
+		return InteractiveConsistencyMessage.ICVector.newBuilder()
+				.setIcid(applicationID).setRound(round).setPid(processID)
+				.addValues(VectorCodec.encode(values)).build().toByteArray();
 	}
 
 	public static ICVectorMessage deserialize(byte[] rawData) {
@@ -119,15 +122,20 @@ public class ICVectorMessage extends Message {
 		
 		try {
 			InteractiveConsistencyMessage.ICVector vectorMsg = InteractiveConsistencyMessage.ICVector.parseFrom(rawData);
-			icVectorMessage = new ICVectorMessage(vectorMsg.getIcid(), vectorMsg.getRound(), vectorMsg.getPid());
+			if(vectorMsg.getValuesCount() != 1)
+				throw new IllegalArgumentException("The vector is expected as a single encoded value!");
 			
-			for(int i = 0; i < vectorMsg.getValuesCount(); ++i)
-				icVectorMessage.addValue(vectorMsg.getValues(i));
+			icVectorMessage = new ICVectorMessage(vectorMsg.getIcid(), vectorMsg.getRound(), vectorMsg.getPid());
+			icVectorMessage.setValues(new ArrayList<>(Arrays.asList(VectorCodec.decode(vectorMsg.getValues(0)))));
 		}
 		catch (InvalidProtocolBufferException ex) {
 			System.err.println("An InvalidProtocolBufferException was caught: " + ex.getMessage());
 			ex.printStackTrace();
 		}
+		catch (IllegalArgumentException ex) {
+			System.err.println("A malformed ICVectorMessage was received: " + ex.getMessage());
+			icVectorMessage = null;
+		}
 		
 		return icVectorMessage;
 	}
@@ -16,6 +16,7 @@
  ******************************************************************************/
 package gr.uoa.di.dsg.ic.lamport;
 
+import gr.uoa.di.dsg.broadcast.CompletedBroadcasts;
 import gr.uoa.di.dsg.broadcast.IBroadcast;
 import gr.uoa.di.dsg.communicator.AbstractCommunicator;
 import gr.uoa.di.dsg.communicator.Message;
@@ -60,6 +61,9 @@ public class SynchronousICBroadcast implements IBroadcast {
 	/** The timeout information maintained for this broadcast mechanism. */
 	private Map<String, Object> timeoutPerApp = null;
 
+	/** The applications that have been released. */
+	private CompletedBroadcasts completedBroadcasts = null;
+
 	/** The timeout value for each individual round. */
 	private final int TIMEOUT_VALUE = GlobalVariables.TIMEOUT;
 	
@@ -82,6 +86,7 @@ public class SynchronousICBroadcast implements IBroadcast {
 		this.currentRoundPerApp = new HashMap<>();
 		this.timeoutPerApp = new HashMap<>();
 		this.startTimePerApp = new HashMap<>();
+		this.completedBroadcasts = CompletedBroadcasts.forShard(comm);
 		
 		/* Specify the maximum number of faults. */
 		this.faults = (int) Math.floor((totalNodes - 1) / 3.0);
@@ -134,6 +139,10 @@ public class SynchronousICBroadcast implements IBroadcast {
 		
 		String ICID = message.getApplicationID();
 		int roundID = message.getRound();
+		
+		/* Ignore messages of released applications. */
+		if(completedBroadcasts.isReleased(ICID))
+			return;
 		int PID = message.getProcessID();
 		
 		assert roundID <= (faults + 1);
@@ -200,6 +209,10 @@ public class SynchronousICBroadcast implements IBroadcast {
 		String ICID = message.getApplicationID();
 		Integer roundID = message.getRound();
 		
+		/* Ignore messages of released applications. */
+		if(completedBroadcasts.isReleased(ICID))
+			return;
+		
 		assert roundID <= (faults + 1);
 		
 		/* Create an identifier, based on the received message. */
@@ -324,4 +337,20 @@ public class SynchronousICBroadcast implements IBroadcast {
 	public AbstractCommunicator getCommunicator() {
 		return this.communicator;
 	}
+	
+	@Override
+	public void releaseApplication(String icid) {
+		this.completedBroadcasts.release(icid);
+		
+		Object timeout = timeoutPerApp.remove(icid);
+		if(timeout != null)
+			communicator.cancelTimeout(timeout);
+		
+		this.currentRoundPerApp.remove(icid);
+		this.vectorOfValues.remove(icid);
+		this.startTimePerApp.remove(icid);
+		
+		String prefix = icid + ":";
+		this.receivedMessages.keySet().removeIf(UUID -> UUID.startsWith(prefix));
+	}
 }
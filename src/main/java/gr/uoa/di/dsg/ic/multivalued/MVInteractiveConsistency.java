@@ -18,8 +18,10 @@ package gr.uoa.di.dsg.ic.multivalued;
 
 import gr.uoa.di.dsg.broadcast.BroadcastAccept;
 import gr.uoa.di.dsg.broadcast.IBroadcast;
+import gr.uoa.di.dsg.broadcast.ShardedEngine;
 import gr.uoa.di.dsg.communicator.Message;
 import gr.uoa.di.dsg.consensus.bracha.BBConsensus;
+import gr.uoa.di.dsg.consensus.bracha.BinaryVote;
 import gr.uoa.di.dsg.consensus.multivalued.MVConsensus;
 import gr.uoa.di.dsg.consensus.multivalued.messages.MVInitMessage;
 import gr.uoa.di.dsg.consensus.multivalued.messages.MVVectorMessage;
@@ -29,7 +31,7 @@ import gr.uoa.di.dsg.ic.ICResult;
 import gr.uoa.di.dsg.ic.bracha.ICChunkMessage;
 import gr.uoa.di.dsg.utils.BroadcastID;
 import gr.uoa.di.dsg.utils.GlobalVariables;
-import gr.uoa.di.dsg.utils.StringUtils;
+import gr.uoa.di.dsg.utils.VectorCodec;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -101,7 +103,7 @@ public class MVInteractiveConsistency implements Application {
 	
 	@Override
 	public void start(int nodeId, String value) {
-		timeout = this.multicastModule.getCommunicator().setTimeout(GlobalVariables.TIMEOUT, ()-> onTimeout());
+		timeout = this.multicastModule.getCommunicator().setTimeout(GlobalVariables.TIMEOUT, ShardedEngine.bind(()-> onTimeout()));
 		
 		if(GlobalVariables.HIGH_VERBOSE)
 			System.out.println("[MVInteractiveConsistency, Node: " + nodeId + "]: Starting one MVIC for <" + value + ">");
@@ -152,11 +154,8 @@ public class MVInteractiveConsistency implements Application {
 				activeMultiValuedConsensus.put(nodeId, mvConsensus);
 			}
 			
-			String value = initialValues.get(nodeId);
-			if(value == null)
-				value = "null";
-			
-			mvConsensus.start(ICID, nodeId, value);
+			/* A missing initial value is proposed explicitly, so that it is never confused with a real value. */
+			mvConsensus.start(ICID, nodeId, VectorCodec.encodeValue(initialValues.get(nodeId)));
 		}
 	}
 
@@ -219,16 +218,8 @@ public class MVInteractiveConsistency implements Application {
 					activeMultiValuedConsensus.put(acceptMsg.getConsensusID(), mvConsensus);
 				}
 				
-				MVVectorMessage vectMsg = new MVVectorMessage(acceptMsg);
-				String[] splitValues = acceptMsg.getValue().split(";");
-				
-				/* Verify that the value of the message has the proper form. */
-				//assert splitValues.length == 2;
-				
-				vectMsg.setVectorOfValues(StringUtils.stringToArray(splitValues[1]));
-				vectMsg.setValue(splitValues[0]);
-				
-				mvConsensus.process(vectMsg);
+				/* A malformed vector is left empty and ignored by the instance. */
+				mvConsensus.process(MVVectorMessage.fromBroadcast(acceptMsg));
 			}
 			else if(acceptMsg.getBroadcastID() == BroadcastID.MVPROPOSE_BROADCAST_ID.getValue()) {
 				BBConsensus consensus = activeBinaryConsensus.get(acceptMsg.getConsensusID());
@@ -236,14 +227,15 @@ public class MVInteractiveConsistency implements Application {
 					consensus = new BBConsensus(this, ICID, this.nodeID, acceptMsg.getConsensusID(), totalNodes);
 					activeBinaryConsensus.put(acceptMsg.getConsensusID(), consensus);
 				}
-				consensus.start(acceptMsg.getValue());
+				/* The proposal is delivered by all correct nodes alike, so a malformed one is uniformly taken as 0. */
+				consensus.start(BinaryVote.parse(acceptMsg.getValue()) == BinaryVote.ONE ? "1" : "0");
 			}
 			else if(acceptMsg.getBroadcastID() == BroadcastID.MVACCEPT_BROADCAST_ID.getValue()) {
 				
 				if(GlobalVariables.HIGH_VERBOSE)
 					System.out.println("[MVInteractiveConsistency, Node: " + nodeID + "]: An MVConsensus instance has terminated: <" + acceptMsg.getApplicationID() + ", " + acceptMsg.getConsensusID() + ">");
 				
-				completedMultiValuedConsensus.put(acceptMsg.getConsensusID(), acceptMsg.getValue());
+				completedMultiValuedConsensus.put(acceptMsg.getConsensusID(), decodeResult(acceptMsg.getValue()));
 				
 				if(completedMultiValuedConsensus.size() == this.totalNodes)
 					this.resultProcessor.processResult(this.ICID, new ArrayList<String>(completedMultiValuedConsensus.values()));
@@ -272,6 +264,25 @@ public class MVInteractiveConsistency implements Application {
 		}
 	}
 
+	/**
+	 * @param value
+	 *            the value decided by a MultiValued Consensus instance.
+	 * @return the initial value of the node, or <em>null</em> if the instance
+	 *         decided no value, the node's value was missing, or the decided
+	 *         proposal is malformed, which all correct nodes observe alike.
+	 */
+	private String decodeResult(String value) {
+		if(value == null)
+			return null;
+		
+		try {
+			return VectorCodec.decodeValue(value);
+		}
+		catch (IllegalArgumentException ex) {
+			return null;
+		}
+	}
+
 	@Override
 	public void processConsensusResult(int cid, String value) {
 		if(GlobalVariables.HIGH_VERBOSE)
@@ -16,13 +16,16 @@
  ******************************************************************************/
 package gr.uoa.di.dsg.ic.recovery;
 
+import gr.uoa.di.dsg.broadcast.SigningPayload;
 import gr.uoa.di.dsg.communicator.GenericMessageType;
 import gr.uoa.di.dsg.communicator.Message;
+import gr.uoa.di.dsg.crypto.AuthenticatorVector;
 import gr.uoa.di.dsg.ic.bracha.ICDatumMessage.ICChunkRecovery;
 import gr.uoa.di.dsg.ic.bracha.ICDatumMessage.ICChunkRecovery.OwnerAndSignatureTuple;
 import gr.uoa.di.dsg.ic.bracha.ICMessageType;
 import gr.uoa.di.dsg.utils.BroadcastID;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
@@ -79,23 +82,11 @@ public class ICChunkRecoveryMessage extends Message {
 	}
 	
 	public byte[] getSignature(int origNodeID, int selfNodeID, int digestLength) {
-		byte[] origSignature = signatures.get(origNodeID);
+		byte[] nodeSignature = AuthenticatorVector.get(signatures.get(origNodeID), selfNodeID);
+		if(nodeSignature == null || nodeSignature.length != digestLength)
+			throw new RuntimeException("[RecoveryResponseMessage]: The nodeID " + selfNodeID + " was not found in the array of signatures!");
 		
-		int offset = 0;
-		
-		while(offset < origSignature.length) {
-			int currentNodeID = (int) origSignature[offset];
-			if(currentNodeID == selfNodeID) {
-				byte[] nodeSignature = new byte[digestLength];
-				System.arraycopy(origSignature, offset + 1, nodeSignature, 0, digestLength);
-				
-				return nodeSignature;
-			}
-			
-			offset += (digestLength + 1);
-		}
-		
-		throw new RuntimeException("[RecoveryResponseMessage]: The nodeID " + selfNodeID + " was not found in the array of signatures!");
+		return nodeSignature;
 	}
 	
 	public Map<Integer, byte[]> getSignatures() {
@@ -106,8 +97,12 @@ public class ICChunkRecoveryMessage extends Message {
 		this.signatures = signatures;
 	}
 	
-	public String getContent(int defaultValue, String value) {
-		return applicationID + ":" + defaultValue + ":" + consensusID + ":" + BroadcastID.CB_BROADCAST_ID.getValue() + value; 
+	/**
+	 * Returns the content that the nodes signed for the consistent broadcast
+	 * of the recovered value (see {@link SigningPayload}).
+	 */
+	public ByteBuffer getContent(int defaultValue, String value) {
+		return SigningPayload.encode(applicationID, defaultValue, consensusID, BroadcastID.CB_BROADCAST_ID.getValue(), value);
 	}
 
 	@Override
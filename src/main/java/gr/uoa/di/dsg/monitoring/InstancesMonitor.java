@@ -0,0 +1,78 @@
+/*******************************************************************************
+ * Copyright (C) 2019 DSG at University of Athens
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package gr.uoa.di.dsg.monitoring;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntSupplier;
+
+import gr.uoa.di.dsg.utils.GlobalVariables;
+
+/**
+ * Samples the number of IC instances that the node keeps alive, i.e. the
+ * instances that have been created but not evicted yet.
+ */
+public class InstancesMonitor implements Monitor {
+
+	private IntSupplier liveInstances;
+	private volatile boolean running = true;
+	private List<Integer> liveInstancesList;
+
+	public InstancesMonitor(IntSupplier liveInstances) {
+		this.liveInstances = liveInstances;
+		this.liveInstancesList = new ArrayList<>();
+	}
+
+	@Override
+	public void terminate() {
+		running = false;
+	}
+
+	@Override
+	public void run() {
+		while (running) {
+			try {
+				Thread.sleep(GlobalVariables.MONITOR_FREQUENCY);
+				liveInstancesList.add(liveInstances.getAsInt());
+			} catch (InterruptedException ex) {
+				// For now, ignore any exceptions.
+			}
+		}
+	}
+
+	@Override
+	public void print(String prefix) throws IOException {
+		String outputFilename = prefix + ".instances.data";
+		File outputFile = new File(outputFilename);
+
+		/* Create the file, if not exists. */
+		if (!outputFile.exists())
+			outputFile.createNewFile();
+
+		PrintWriter outputWriter = new PrintWriter(new FileOutputStream(outputFilename, true));
+
+		outputWriter.println("SequenceID,LiveInstances");
+		for (int i = 0; i < liveInstancesList.size(); ++i)
+			outputWriter.println(i + "," + liveInstancesList.get(i));
+
+		outputWriter.close();
+	}
+}
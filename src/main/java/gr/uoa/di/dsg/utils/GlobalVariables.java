@@ -26,4 +26,15 @@ public class GlobalVariables {
 	public static final String ICMASTER_GROUP = "ICMaster";
 	public static final int DATUM_CHUNK_SIZE = 60 * 1024;
 	public static final int MONITOR_FREQUENCY = 50; // milliseconds.
+	public static int BATCH_WINDOW = 0; // milliseconds; zero disables batching.
+	public static final int BATCH_SIZE = 64 * 1024; // bytes.
+	public static boolean PARALLEL_VERIFICATION = false; // verify the signatures of a certificate in parallel.
+	public static int SIGNING_BATCH_WINDOW = 0; // milliseconds; zero signs every echo on its own.
+	public static final int SIGNING_BATCH_SIZE = 64; // echoes per Merkle tree.
+	public static int CRYPTO_THREADS = 0; // zero runs the cryptographic work as background tasks of the communicator.
+	public static int CRYPTO_QUEUE_CAPACITY = 4096; // queued cryptographic tasks before new broadcasts are held back.
+	public static boolean VECTOR_CONSENSUS = false; // run the binary Consensus instances of an IC instance as one.
+	public static boolean ONE_STEP_CONSENSUS = false; // decide a binary Consensus in its first round when the votes agree.
+	public static boolean DIGEST_VECTORS = false; // the MVVector messages carry the digests of the values, instead of the values.
+	public static int PIPELINE_WINDOW = 0; // the initial number of IC instances in flight in the pipelined mode; 0 starts all instances at once.
 }
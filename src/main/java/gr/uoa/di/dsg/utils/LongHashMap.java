@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * Copyright (C) 2019 DSG at University of Athens
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package gr.uoa.di.dsg.utils;
+
+import java.util.Arrays;
+
+/**
+ * A map from primitive <code>long</code> keys to objects, implemented as an
+ * open addressing hash table with linear probing, like {@link LongHashSet}.
+ * Neither lookups, insertions nor removals allocate any objects, apart from
+ * growing the table.
+ * 
+ * @param <V> the type of the values.
+ */
+public class LongHashMap<V> {
+	
+	/** The key that marks an empty slot. */
+	private static final long EMPTY = Long.MIN_VALUE;
+	
+	private long[] keys;
+	private Object[] values;
+	private int size = 0;
+	
+	/** The value of the key that coincides with {@link #EMPTY}, if present. */
+	private boolean containsEmpty = false;
+	private Object emptyValue = null;
+	
+	public LongHashMap() {
+		this(16);
+	}
+	
+	public LongHashMap(int expectedSize) {
+		int capacity = 16;
+		while(capacity < expectedSize * 2)
+			capacity <<= 1;
+		
+		this.keys = new long[capacity];
+		this.values = new Object[capacity];
+		Arrays.fill(keys, EMPTY);
+	}
+	
+	/**
+	 * @return the value of the specified key, or <em>null</em> if the map
+	 *         does not contain the key.
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(long key) {
+		if(key == EMPTY)
+			return (V) emptyValue;
+		
+		int mask = keys.length - 1;
+		for(int i = index(key, mask); ; i = (i + 1) & mask) {
+			if(keys[i] == EMPTY)
+				return null;
+			if(keys[i] == key)
+				return (V) values[i];
+		}
+	}
+	
+	/**
+	 * Associates the specified value with the specified key.
+	 * @return the previous value of the key, or <em>null</em> if there was none.
+	 */
+	@SuppressWarnings("unchecked")
+	public V put(long key, V value) {
+		if(key == EMPTY) {
+			Object previous = emptyValue;
+			if(!containsEmpty) {
+				containsEmpty = true;
+				++size;
+			}
+			emptyValue = value;
+			return (V) previous;
+		}
+		
+		int mask = keys.length - 1;
+		int i = index(key, mask);
+		while(keys[i] != EMPTY) {
+			if(keys[i] == key) {
+				Object previous = values[i];
+				values[i] = value;
+				return (V) previous;
+			}
+			i = (i + 1) & mask;
+		}
+		
+		keys[i] = key;
+		values[i] = value;
+		if(++size * 2 > keys.length)
+			resize();
+		
+		return null;
+	}
+	
+	/**
+	 * Removes the specified key from the map.
+	 * @return the value of the key, or <em>null</em> if there was none.
+	 */
+	@SuppressWarnings("unchecked")
+	public V remove(long key) {
+		if(key == EMPTY) {
+			Object previous = emptyValue;
+			if(containsEmpty) {
+				containsEmpty = false;
+				emptyValue = null;
+				--size;
+			}
+			return (V) previous;
+		}
+		
+		int mask = keys.length - 1;
+		int i = index(key, mask);
+		while(keys[i] != key) {
+			if(keys[i] == EMPTY)
+				return null;
+			i = (i + 1) & mask;
+		}
+		
+		Object previous = values[i];
+		--size;
+		
+		/* Shift back the entries that follow, so that no probe sequence is broken. */
+		for(int j = (i + 1) & mask; keys[j] != EMPTY; j = (j + 1) & mask) {
+			int home = index(keys[j], mask);
+			if(((j - home) & mask) >= ((j - i) & mask)) {
+				keys[i] = keys[j];
+				values[i] = values[j];
+				i = j;
+			}
+		}
+		
+		keys[i] = EMPTY;
+		values[i] = null;
+		return (V) previous;
+	}
+	
+	public int size() {
+		return size;
+	}
+	
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	
+	private void resize() {
+		long[] oldKeys = keys;
+		Object[] oldValues = values;
+		keys = new long[oldKeys.length * 2];
+		values = new Object[oldKeys.length * 2];
+		Arrays.fill(keys, EMPTY);
+		
+		int mask = keys.length - 1;
+		for(int j = 0; j < oldKeys.length; ++j) {
+			if(oldKeys[j] == EMPTY)
+				continue;
+			
+			int i = index(oldKeys[j], mask);
+			while(keys[i] != EMPTY)
+				i = (i + 1) & mask;
+			keys[i] = oldKeys[j];
+			values[i] = oldValues[j];
+		}
+	}
+	
+	private static int index(long key, int mask) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32)) & mask;
+	}
+}
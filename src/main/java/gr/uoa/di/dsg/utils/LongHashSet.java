@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright (C) 2019 DSG at University of Athens
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package gr.uoa.di.dsg.utils;
+
+import java.util.Arrays;
+
+/**
+ * A set of primitive <code>long</code> values, implemented as an open
+ * addressing hash table with linear probing. Contrary to a
+ * <code>HashSet&lt;Long&gt;</code>, neither lookups nor insertions allocate
+ * any objects, apart from growing the table.
+ */
+public class LongHashSet {
+	
+	/** The value that marks an empty slot. */
+	private static final long EMPTY = Long.MIN_VALUE;
+	
+	private long[] table;
+	private int size = 0;
+	private boolean containsEmpty = false;
+	
+	public LongHashSet() {
+		this(16);
+	}
+	
+	public LongHashSet(int expectedSize) {
+		int capacity = 16;
+		while(capacity < expectedSize * 2)
+			capacity <<= 1;
+		
+		this.table = new long[capacity];
+		Arrays.fill(table, EMPTY);
+	}
+	
+	public boolean contains(long value) {
+		if(value == EMPTY)
+			return containsEmpty;
+		
+		int mask = table.length - 1;
+		for(int i = index(value, mask); ; i = (i + 1) & mask) {
+			if(table[i] == EMPTY)
+				return false;
+			if(table[i] == value)
+				return true;
+		}
+	}
+	
+	/**
+	 * Adds the specified value to the set.
+	 * @return <em>true</em> if the value was not already contained in the set.
+	 */
+	public boolean add(long value) {
+		if(value == EMPTY) {
+			if(containsEmpty)
+				return false;
+			containsEmpty = true;
+			++size;
+			return true;
+		}
+		
+		int mask = table.length - 1;
+		int i = index(value, mask);
+		while(table[i] != EMPTY) {
+			if(table[i] == value)
+				return false;
+			i = (i + 1) & mask;
+		}
+		
+		table[i] = value;
+		if(++size * 2 > table.length)
+			resize();
+		
+		return true;
+	}
+	
+	public int size() {
+		return size;
+	}
+	
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	
+	private void resize() {
+		long[] oldTable = table;
+		table = new long[oldTable.length * 2];
+		Arrays.fill(table, EMPTY);
+		
+		int mask = table.length - 1;
+		for(long value: oldTable) {
+			if(value == EMPTY)
+				continue;
+			
+			int i = index(value, mask);
+			while(table[i] != EMPTY)
+				i = (i + 1) & mask;
+			table[i] = value;
+		}
+	}
+	
+	private static int index(long value, int mask) {
+		long h = value * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32)) & mask;
+	}
+}
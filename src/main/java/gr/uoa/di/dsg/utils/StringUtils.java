@@ -24,14 +24,14 @@ public class StringUtils {
 	private final static String DELIM = ",";
 	
 	public static String arrayToString(String[] values) {
-		String str = "";
+		StringBuilder str = new StringBuilder();
 		
 		for(int i = 0; i < values.length - 1; ++i)
-			str += (values[i] + ",");
+			str.append(values[i]).append(DELIM);
 		
-		str += values[values.length - 1];
+		str.append(values[values.length - 1]);
 		
-		return str;
+		return str.toString();
 	}
 	
 	public static String[] stringToArray(String str) {
@@ -39,17 +39,17 @@ public class StringUtils {
 	}
 	
 	public static String listToString(List<String> list) {
-		String str = "";
+		StringBuilder str = new StringBuilder();
 		
 		if(list.size() <= 0)
-			return str;
+			return str.toString();
 		
 		for(int i = 0; i < list.size() - 1; ++i)
-			str += (list.get(i) + ",");
+			str.append(list.get(i)).append(DELIM);
 		
-		str += list.get(list.size() - 1);
+		str.append(list.get(list.size() - 1));
 		
-		return str;
+		return str.toString();
 	}
 	
 	public static List<String> arrayToList(String[] array) {
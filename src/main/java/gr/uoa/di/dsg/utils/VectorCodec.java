@@ -0,0 +1,164 @@
+/*******************************************************************************
+ * Copyright (C) 2019 DSG at University of Athens
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package gr.uoa.di.dsg.utils;
+
+import java.util.List;
+
+/**
+ * A length-prefixed encoding of a vector of values into a single string, so
+ * that it can be carried as the value of a broadcast or in a string field of
+ * a message. The encoding starts with the number of entries and every entry is
+ * either the null marker, or the length of the value followed by the value
+ * itself:
+ * 
+ * <pre>
+ * vector := count '|' entry*
+ * entry  := '-' | length '|' characters
+ * </pre>
+ * 
+ * Unlike {@link StringUtils}, the values may contain any character, nulls are
+ * kept apart from the value "null", and both encoding and decoding take a
+ * single pass over the vector.
+ */
+public class VectorCodec {
+	
+	private final static char SEPARATOR = '|';
+	private final static char NULL_MARKER = '-';
+	
+	/**
+	 * @return the encoding of the vector.
+	 */
+	public static String encode(String[] values) {
+		int length = Integer.toString(values.length).length() + 1;
+		for(String value: values)
+			length += (value == null) ? 1 : Integer.toString(value.length()).length() + 1 + value.length();
+		
+		StringBuilder builder = new StringBuilder(length);
+		builder.append(values.length).append(SEPARATOR);
+		for(String value: values)
+			append(builder, value);
+		
+		return builder.toString();
+	}
+	
+	/**
+	 * @return the encoding of the vector.
+	 */
+	public static String encode(List<String> values) {
+		return encode(values.toArray(new String[values.size()]));
+	}
+	
+	/**
+	 * @param encoded
+	 *            the encoding of a vector.
+	 * @return the vector.
+	 * @throws IllegalArgumentException
+	 *             if the encoding is malformed.
+	 */
+	public static String[] decode(String encoded) {
+		int[] position = new int[] { 0 };
+		int count = readLength(encoded, position);
+		
+		/* Every entry takes at least one character. */
+		if(count > encoded.length() - position[0])
+			throw new IllegalArgumentException("[VectorCodec]: The vector has fewer entries than its count!");
+		
+		String[] values = new String[count];
+		for(int i = 0; i < count; ++i) {
+			if(position[0] < encoded.length() && encoded.charAt(position[0]) == NULL_MARKER) {
+				position[0]++;
+				continue;
+			}
+			
+			int length = readLength(encoded, position);
+			if(length > encoded.length() - position[0])
+				throw new IllegalArgumentException("[VectorCodec]: The vector is truncated!");
+			
+			values[i] = encoded.substring(position[0], position[0] + length);
+			position[0] += length;
+		}
+		
+		if(position[0] != encoded.length())
+			throw new IllegalArgumentException("[VectorCodec]: The vector has trailing characters!");
+		
+		return values;
+	}
+	
+	/**
+	 * Encodes a single value as an entry of a vector, i.e. without the count.
+	 * 
+	 * @param value
+	 *            the value, or <em>null</em> if it is missing.
+	 * @return the encoding of the value.
+	 */
+	public static String encodeValue(String value) {
+		StringBuilder builder = new StringBuilder();
+		append(builder, value);
+		return builder.toString();
+	}
+	
+	/**
+	 * @param encoded
+	 *            the encoding of a single value.
+	 * @return the value, or <em>null</em> if it is missing.
+	 * @throws IllegalArgumentException
+	 *             if the encoding is malformed.
+	 */
+	public static String decodeValue(String encoded) {
+		if(encoded.length() == 1 && encoded.charAt(0) == NULL_MARKER)
+			return null;
+		
+		int[] position = new int[] { 0 };
+		int length = readLength(encoded, position);
+		if(length != encoded.length() - position[0])
+			throw new IllegalArgumentException("[VectorCodec]: The value does not match its length!");
+		
+		return encoded.substring(position[0]);
+	}
+	
+	private static void append(StringBuilder builder, String value) {
+		if(value == null)
+			builder.append(NULL_MARKER);
+		else
+			builder.append(value.length()).append(SEPARATOR).append(value);
+	}
+	
+	/**
+	 * Reads a non-negative length, terminated by the separator, and advances
+	 * the position past the separator.
+	 */
+	private static int readLength(String encoded, int[] position) {
+		int length = 0;
+		int start = position[0];
+		int index = start;
+		
+		while(index < encoded.length() && encoded.charAt(index) != SEPARATOR) {
+			char c = encoded.charAt(index);
+			if(c < '0' || c > '9' || index - start >= 9)
+				throw new IllegalArgumentException("[VectorCodec]: Malformed length at position " + index + "!");
+			
+			length = 10 * length + (c - '0');
+			index++;
+		}
+		
+		if(index == start || index == encoded.length())
+			throw new IllegalArgumentException("[VectorCodec]: Malformed length at position " + index + "!");
+		
+		position[0] = index + 1;
+		return length;
+	}
+}
@@ -0,0 +1,81 @@
+package gr.uoa.di.dsg.broadcast;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import gr.uoa.di.dsg.broadcast.bracha.InitMessage;
+import gr.uoa.di.dsg.utils.BroadcastID;
+import gr.uoa.di.dsg.utils.LongHashMap;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TestActiveBroadcasts {
+
+	private static BroadcastMessage message(String icid, int cid, int pid, int bid) {
+		return new InitMessage(icid, cid, pid, bid, "value");
+	}
+
+	@Test
+	public void testLookups() {
+		ActiveBroadcasts<String> active = new ActiveBroadcasts<>();
+		active.put(message("0", 0, 1, BroadcastID.RB_BROADCAST_ID.getValue()), "a");
+		active.put(message("0", 0, 2, BroadcastID.RB_BROADCAST_ID.getValue()), "b");
+		active.put(message("1", 0, 1, BroadcastID.RB_BROADCAST_ID.getValue()), "c");
+
+		/* Keys that cannot be packed are kept apart. */
+		active.put(message("1", 0, 70000, 0), "d");
+		active.put(message("1", 0, 1, 40000), "e");
+		assertEquals(5, active.size());
+
+		assertEquals("a", active.get(message("0", 0, 1, BroadcastID.RB_BROADCAST_ID.getValue())));
+		assertEquals("c", active.get(message("1", 0, 1, BroadcastID.RB_BROADCAST_ID.getValue())));
+		assertEquals("d", active.get(message("1", 0, 70000, 0)));
+		assertEquals("e", active.get(message("1", 0, 1, 40000)));
+		assertNull(active.get(message("0", 1, 1, BroadcastID.RB_BROADCAST_ID.getValue())));
+		assertNull(active.get(message("2", 0, 1, BroadcastID.RB_BROADCAST_ID.getValue())));
+
+		assertEquals("b", active.remove(message("0", 0, 2, BroadcastID.RB_BROADCAST_ID.getValue())));
+		assertNull(active.remove(message("0", 0, 2, BroadcastID.RB_BROADCAST_ID.getValue())));
+		assertEquals(4, active.size());
+
+		/* Releasing an application drops all of its broadcasts. */
+		active.release("1");
+		assertEquals(1, active.size());
+		assertNull(active.get(message("1", 0, 70000, 0)));
+		assertEquals("a", active.get(message("0", 0, 1, BroadcastID.RB_BROADCAST_ID.getValue())));
+	}
+
+	@Test
+	public void testLongHashMap() {
+		Random random = new Random(7);
+		LongHashMap<Long> map = new LongHashMap<>();
+		Map<Long, Long> expected = new HashMap<>();
+
+		/* A narrow range of keys, so that the removals break many probe sequences. */
+		for(int i = 0; i < 200000; ++i) {
+			long key = random.nextInt(512) - 256;
+			if(i % 97 == 0)
+				key = Long.MIN_VALUE;
+
+			if(random.nextBoolean())
+				assertEquals(expected.put(key, (long) i), map.put(key, (long) i));
+			else
+				assertEquals(expected.remove(key), map.remove(key));
+
+			assertEquals(expected.size(), map.size());
+		}
+
+		for(long key = -256; key < 256; ++key)
+			assertEquals(expected.get(key), map.get(key));
+		assertEquals(expected.get(Long.MIN_VALUE), map.get(Long.MIN_VALUE));
+
+		Long value = 1L;
+		map.put(3, value);
+		assertSame(value, map.get(3));
+	}
+}
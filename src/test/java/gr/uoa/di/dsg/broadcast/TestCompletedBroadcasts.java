@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * Copyright (C) 2019 DSG at University of Athens
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package gr.uoa.di.dsg.broadcast;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import gr.uoa.di.dsg.utils.BroadcastID;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.junit.runner.JUnitCore;
+
+public class TestCompletedBroadcasts {
+
+	private static int TOTAL_INSTANCES = 1000000;
+	private int TOTAL_NODES = 4;
+	private int WINDOW = 64;
+	private int CHECKPOINT = 100000;
+	
+	@Test
+	public void testLateMessagesAreRejected() {
+		CompletedBroadcasts completed = new CompletedBroadcasts();
+		
+		completed.add(new BroadcastKey("0", 0, 1, -7));
+		completed.add(new BroadcastKey("2", 0, 1, -7));
+		assertTrue(completed.contains(new BroadcastKey("0", 0, 1, -7)));
+		assertFalse(completed.contains(new BroadcastKey("0", 0, 2, -7)));
+		
+		/* Release out of order; the watermark waits for the missing ID. */
+		completed.release("2");
+		assertEquals(0, completed.getLowWatermark());
+		assertTrue(completed.contains(new BroadcastKey("2", 0, 3, -7)));
+		assertFalse(completed.contains(new BroadcastKey("1", 0, 1, -7)));
+		
+		completed.release("0");
+		completed.release("1");
+		assertEquals(3, completed.getLowWatermark());
+		assertEquals(0, completed.getTotalStoredBroadcasts());
+		assertEquals(0, completed.getTotalReleasedAboveWatermark());
+		
+		/* Every message of a released application is rejected. */
+		assertTrue(completed.contains(new BroadcastKey("0", 0, 2, -7)));
+		assertTrue(completed.contains(new BroadcastKey("1", 5, 0, 3)));
+		completed.add(new BroadcastKey("1", 5, 0, 3));
+		assertEquals(0, completed.getTotalStoredBroadcasts());
+		
+		/* Non-numeric IDs are released explicitly. */
+		completed.add(new BroadcastKey("app", 0, 1, -7));
+		completed.release("app");
+		assertTrue(completed.contains(new BroadcastKey("app", 0, 2, -7)));
+		assertFalse(completed.contains(new BroadcastKey("0app", 0, 2, -7)));
+	}
+	
+	@Test
+	public void testStride() {
+		/* The tracker of shard 1 out of 4 folds the IDs 1, 5, 9, etc. */
+		CompletedBroadcasts completed = new CompletedBroadcasts(4, 1);
+		assertEquals(1, completed.getLowWatermark());
+		
+		completed.release("5");
+		assertEquals(1, completed.getLowWatermark());
+		assertTrue(completed.isReleased("5"));
+		assertFalse(completed.isReleased("1"));
+		
+		completed.release("1");
+		assertEquals(9, completed.getLowWatermark());
+		assertEquals(0, completed.getTotalReleasedAboveWatermark());
+		assertTrue(completed.isReleased("1"));
+		assertFalse(completed.isReleased("9"));
+		
+		/* The IDs of the other shards are not folded, but still remembered. */
+		assertFalse(completed.isReleased("2"));
+		completed.release("2");
+		assertTrue(completed.isReleased("2"));
+		assertFalse(completed.isReleased("3"));
+		assertEquals(9, completed.getLowWatermark());
+		assertEquals(1, completed.getTotalReleasedAboveWatermark());
+	}
+	
+	@Test
+	public void testKeysThatCannotBePacked() {
+		CompletedBroadcasts completed = new CompletedBroadcasts();
+		
+		BroadcastKey key = new BroadcastKey("0", 1, 0x10001, -7);
+		assertFalse(key.isPackable());
+		
+		completed.add(key);
+		assertTrue(completed.contains(new BroadcastKey("0", 1, 0x10001, -7)));
+		assertFalse(completed.contains(new BroadcastKey("0", 1, 1, -7)));
+		assertEquals(1, completed.getTotalStoredBroadcasts());
+		
+		/* Negative broadcast IDs must not collide with the node ID. */
+		completed.add(new BroadcastKey("0", 1, 2, -1));
+		assertFalse(completed.contains(new BroadcastKey("0", 1, 3, -1)));
+		assertFalse(completed.contains(new BroadcastKey("0", 1, 2, 0xFFFF)));
+		
+		completed.release("0");
+		assertEquals(0, completed.getTotalStoredBroadcasts());
+	}
+	
+	@Test
+	public void testSoak() {
+		CompletedBroadcasts completed = new CompletedBroadcasts();
+		Random random = new Random(1);
+		
+		List<Integer> pending = new ArrayList<>();
+		
+		for(int appID = 0; appID < TOTAL_INSTANCES; ++appID) {
+			String icid = String.valueOf(appID);
+			
+			/* Every node broadcasts its value and a few consensus messages. */
+			for(int pid = 0; pid < TOTAL_NODES; ++pid) {
+				completed.add(new BroadcastKey(icid, 0, pid, BroadcastID.RB_BROADCAST_ID.getValue()));
+				completed.add(new BroadcastKey(icid, pid, pid, 0));
+			}
+			
+			/* Instances run in batches and each batch is released out of order. */
+			pending.add(appID);
+			if(pending.size() == WINDOW) {
+				Collections.shuffle(pending, random);
+				for(Integer pendingID: pending)
+					completed.release(String.valueOf(pendingID));
+				pending.clear();
+			}
+			
+			/* Late messages of released instances must still be rejected. */
+			if(completed.getLowWatermark() > 0)
+				assertTrue(completed.contains(new BroadcastKey("0", 0, 0, BroadcastID.RB_BROADCAST_ID.getValue())));
+			
+			if((appID + 1) % CHECKPOINT == 0) {
+				/* The heap is only logged; System.gc() is a hint, so it cannot be asserted reliably. */
+				long heap = usedHeap();
+				System.out.println("Instances: " + (appID + 1) + ", stored keys: " + completed.getTotalStoredBroadcasts()
+						+ ", watermark: " + completed.getLowWatermark() + ", used heap: " + (heap / 1024) + " KB");
+			}
+			
+			assertTrue(completed.getTotalStoredBroadcasts() <= WINDOW * TOTAL_NODES * 2);
+			assertTrue(completed.getTotalReleasedAboveWatermark() <= WINDOW);
+		}
+		
+		for(Integer appID: pending)
+			completed.release(String.valueOf(appID));
+		
+		assertEquals(TOTAL_INSTANCES, completed.getLowWatermark());
+		assertEquals(0, completed.getTotalStoredBroadcasts());
+		assertEquals(0, completed.getTotalReleasedAboveWatermark());
+	}
+	
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for(int i = 0; i < 3; ++i)
+			System.gc();
+		
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+	
+	public static void main(String[] args) throws Exception {
+		if(args.length == 1)
+			TOTAL_INSTANCES = Integer.valueOf(args[0]);
+		
+		JUnitCore.main("gr.uoa.di.dsg.broadcast.TestCompletedBroadcasts");
+	}
+}
@@ -0,0 +1,108 @@
+package gr.uoa.di.dsg.broadcast;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import gr.uoa.di.dsg.broadcast.CryptoExecutor.Priority;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class TestCryptoExecutor {
+
+	private CryptoExecutor executor = null;
+
+	/**
+	 * Occupies the thread of a single-threaded executor until the latch is
+	 * released, so that the tasks submitted next are queued.
+	 */
+	private void block(CountDownLatch blocked) throws InterruptedException {
+		CountDownLatch started = new CountDownLatch(1);
+		executor.execute(Priority.SIGN_ECHO, () -> {
+			started.countDown();
+			try {
+				blocked.await();
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		assertTrue(started.await(10, TimeUnit.SECONDS));
+	}
+
+	@After
+	public void tearDown() {
+		if(executor != null)
+			executor.shutdown();
+	}
+
+	@Test
+	public void testPriorities() throws InterruptedException {
+		executor = new CryptoExecutor(1, 100);
+		CountDownLatch blocked = new CountDownLatch(1);
+		CountDownLatch done = new CountDownLatch(6);
+		List<String> order = Collections.synchronizedList(new ArrayList<>());
+
+		block(blocked);
+
+		executor.execute(Priority.SIGN_ECHO, () -> { order.add("sign-1"); done.countDown(); });
+		executor.execute(Priority.VERIFY_ECHO, () -> { order.add("echo-1"); done.countDown(); });
+		executor.execute(Priority.SIGN_ECHO, () -> { order.add("sign-2"); done.countDown(); });
+		executor.execute(Priority.VERIFY_FINAL, () -> { order.add("final-1"); done.countDown(); });
+		executor.execute(Priority.VERIFY_ECHO, () -> { order.add("echo-2"); done.countDown(); });
+		executor.execute(Priority.VERIFY_FINAL, () -> { order.add("final-2"); done.countDown(); });
+		assertEquals(6, executor.getQueueDepth());
+
+		blocked.countDown();
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+		assertEquals(Arrays.asList("final-1", "final-2", "echo-1", "echo-2", "sign-1", "sign-2"), order);
+		assertEquals(2, executor.getServiceTime(Priority.VERIFY_FINAL).getCount());
+		assertEquals(3, executor.getQueueWait(Priority.SIGN_ECHO).getCount());
+	}
+
+	@Test
+	public void testSaturation() throws InterruptedException {
+		executor = new CryptoExecutor(1, 4);
+		CountDownLatch blocked = new CountDownLatch(1);
+		CountDownLatch drained = new CountDownLatch(1);
+
+		block(blocked);
+		for(int i = 0; i < 4; ++i)
+			executor.execute(Priority.SIGN_ECHO, () -> {});
+		assertTrue(executor.isSaturated());
+
+		executor.onDrained(() -> drained.countDown());
+		assertEquals(1, drained.getCount());
+
+		blocked.countDown();
+		assertTrue(drained.await(10, TimeUnit.SECONDS));
+		assertFalse(executor.isSaturated());
+
+		/* Once drained, a listener runs immediately. */
+		CountDownLatch immediate = new CountDownLatch(1);
+		executor.onDrained(() -> immediate.countDown());
+		assertEquals(0, immediate.getCount());
+	}
+
+	@Test
+	public void testHistogram() {
+		CryptoExecutor.Histogram histogram = new CryptoExecutor.Histogram();
+		for(int i = 0; i < 99; ++i)
+			histogram.record(10 * 1000L);
+		histogram.record(5 * 1000 * 1000L);
+
+		assertEquals(100, histogram.getCount());
+		assertEquals(15, histogram.getPercentile(50));
+		assertEquals(15, histogram.getPercentile(99));
+		assertEquals(5000.0, histogram.getMax(), 0.001);
+		assertTrue(histogram.getPercentile(100) >= 5000);
+	}
+}
@@ -0,0 +1,133 @@
+package gr.uoa.di.dsg.broadcast;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import gr.uoa.di.dsg.broadcast.bracha.BrachaBroadcast;
+import gr.uoa.di.dsg.communicator.AbstractTestNode;
+import gr.uoa.di.dsg.communicator.DummyCommunicator;
+import gr.uoa.di.dsg.communicator.EndMessage;
+import gr.uoa.di.dsg.communicator.Message;
+import gr.uoa.di.dsg.ic.Application;
+import gr.uoa.di.dsg.ic.bracha.ICChunkMessage;
+import gr.uoa.di.dsg.utils.GlobalVariables;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestMessageBatcher {
+	private int numNodes = 4;
+	private int numInstances = 20;
+	private AbstractTestNode[] allNodes = new AbstractTestNode[numNodes];
+	
+	private class TestNode extends AbstractTestNode implements Application {
+		
+		public TestNode(int nodeId, int port) {
+			super(nodeId, port);
+			this.communicator = new DummyCommunicator(this, allNodes);
+		}
+		
+		private int delivered = 0;
+		private BrachaBroadcast relBroadcast = new BrachaBroadcast();
+		
+		public void run() {
+			relBroadcast.initialize(communicator, (String appID)->getApplication(appID), GlobalVariables.ICWORKERS_GROUP, allNodes.length);
+			communicator.start( ()->init() );
+		}
+
+		public void init(){
+			for(int i = 0; i < numInstances; i++)
+				relBroadcast.broadcast(Integer.toString(i), 0, this.nodeId, 0, "Value" + i);
+		}
+		
+		public Application getApplication(String appID)
+		{
+			return this;
+		}
+
+		@Override
+		public void process(Message msg) {
+			if(++delivered == numInstances * numNodes) {
+				/* Send the pending messages before stopping, since other nodes may depend on them. */
+				MessageBatcher.getBatcher(this.communicator).flush();
+				this.communicator.send(this.communicator.getCurrentNode(), new EndMessage());
+			}
+		}
+
+		@Override
+		public void processConsensusResult(int cid, String value) {
+		}
+
+		@Override
+		public IBroadcast getBroadcast() {
+			return relBroadcast;
+		}
+
+		@Override
+		public void start(int nodeID, String value) {
+		}
+
+		@Override
+		public void start() {
+		}
+		
+		@Override
+		public void processDatumChunk(ICChunkMessage icChunkMessage) {
+		}
+		
+		@Override
+		public boolean verifyDatum(String value, int sourceNodeID) {
+			throw new RuntimeException("Operation not supported");
+		}
+	}
+	
+	@Before
+	public void setUp() throws Exception {
+		GlobalVariables.BATCH_WINDOW = 5;
+		for( int i = 0; i < numNodes; i++ ) {
+			allNodes[i] = new TestNode(i, 3000+i);
+		}
+	}
+	
+	@After
+	public void tearDown() {
+		GlobalVariables.BATCH_WINDOW = 0;
+	}
+	
+	@Test
+	public void testSerialization() {
+		List<Integer> types = new ArrayList<>(Arrays.asList(1, 2, 1));
+		List<byte[]> messages = new ArrayList<>(Arrays.asList(new byte[] {1, 2, 3}, new byte[0], new byte[] {4}));
+		
+		BatchMessage msg = BatchMessage.deserialize(new BatchMessage(types, messages).serialize());
+		assertEquals(types, msg.getTypes());
+		assertEquals(messages.size(), msg.getMessages().size());
+		for(int i = 0; i < messages.size(); i++)
+			assertArrayEquals(messages.get(i), msg.getMessages().get(i));
+	}
+
+	@Test
+	public void testBatchedBroadcasts() {
+		Thread[] threads = new Thread[numNodes];
+		for(int i=0; i<numNodes; i++) {
+			threads[i] = new Thread(allNodes[i]);
+			threads[i].start();
+		}
+		
+		for(int i=0; i<numNodes; i++) {
+			try {
+				threads[i].join();
+			} catch (InterruptedException e) {
+				e.printStackTrace();
+			}
+		}
+		
+		for(int i=0; i<numNodes; i++)
+			assertEquals(numInstances * numNodes, ((TestNode) allNodes[i]).delivered);
+	}
+}
@@ -0,0 +1,187 @@
+package gr.uoa.di.dsg.broadcast;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import gr.uoa.di.dsg.broadcast.bracha.BrachaBroadcast;
+import gr.uoa.di.dsg.communicator.AbstractTestNode;
+import gr.uoa.di.dsg.communicator.DummyCommunicator;
+import gr.uoa.di.dsg.communicator.EndMessage;
+import gr.uoa.di.dsg.communicator.Message;
+import gr.uoa.di.dsg.ic.Application;
+import gr.uoa.di.dsg.ic.bracha.ICChunkMessage;
+import gr.uoa.di.dsg.utils.GlobalVariables;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestShardedEngine {
+	private int numNodes = 4;
+	private int numShards = 3;
+	private int numInstances = 30;
+	private AbstractTestNode[] allNodes = new AbstractTestNode[numNodes];
+	
+	private class TestNode extends AbstractTestNode {
+		
+		public TestNode(int nodeId, int port) {
+			super(nodeId, port);
+			this.communicator = new DummyCommunicator(this, allNodes);
+		}
+		
+		private ShardedEngine engine = null;
+		private BrachaBroadcast[] relBroadcasts = new BrachaBroadcast[numShards];
+		private TestApplication[] applications = new TestApplication[numInstances];
+		private AtomicInteger delivered = new AtomicInteger();
+		private AtomicInteger misrouted = new AtomicInteger();
+		
+		public void run() {
+			engine = ShardedEngine.createEngine(communicator, numShards);
+			for(int i = 0; i < numShards; i++) {
+				final int shard = i;
+				relBroadcasts[i] = new BrachaBroadcast();
+				engine.initializeShard(i, () -> relBroadcasts[shard].initialize(communicator, (String appID) -> applications[Integer.parseInt(appID)], GlobalVariables.ICWORKERS_GROUP, allNodes.length));
+			}
+			for(int i = 0; i < numInstances; i++)
+				applications[i] = new TestApplication(this, Integer.toString(i));
+			
+			communicator.start( ()->init() );
+			engine.shutdown();
+		}
+
+		public void init(){
+			for(int i = 0; i < numInstances; i++) {
+				String appID = Integer.toString(i);
+				engine.execute(appID, () -> relBroadcasts[engine.getShard(appID)].broadcast(appID, 0, this.nodeId, 0, "Value" + appID));
+			}
+		}
+	}
+	
+	private class TestApplication implements Application {
+		private TestNode node = null;
+		private String appID = null;
+		private int delivered = 0;
+		
+		public TestApplication(TestNode node, String appID) {
+			this.node = node;
+			this.appID = appID;
+		}
+
+		@Override
+		public void process(Message msg) {
+			/* Only the event loop of the shard touches the state of the application. */
+			if(!Thread.currentThread().getName().endsWith("-" + node.engine.getShard(appID)))
+				node.misrouted.incrementAndGet();
+			
+			++delivered;
+			if(node.delivered.incrementAndGet() == numInstances * numNodes)
+				node.getCommunicator().send(node.getCommunicator().getCurrentNode(), new EndMessage());
+		}
+
+		@Override
+		public void processConsensusResult(int cid, String value) {
+		}
+
+		@Override
+		public IBroadcast getBroadcast() {
+			return node.relBroadcasts[node.engine.getShard(appID)];
+		}
+
+		@Override
+		public void start(int nodeID, String value) {
+		}
+
+		@Override
+		public void start() {
+		}
+		
+		@Override
+		public void processDatumChunk(ICChunkMessage icChunkMessage) {
+		}
+		
+		@Override
+		public boolean verifyDatum(String value, int sourceNodeID) {
+			throw new RuntimeException("Operation not supported");
+		}
+	}
+	
+	@Before
+	public void setUp() throws Exception {
+		for( int i = 0; i < numNodes; i++ ) {
+			allNodes[i] = new TestNode(i, 3000+i);
+		}
+	}
+	
+	@Test
+	public void testShardedBroadcasts() {
+		Thread[] threads = new Thread[numNodes];
+		for(int i=0; i<numNodes; i++) {
+			threads[i] = new Thread(allNodes[i]);
+			threads[i].start();
+		}
+		
+		for(int i=0; i<numNodes; i++) {
+			try {
+				threads[i].join();
+			} catch (InterruptedException e) {
+				e.printStackTrace();
+			}
+		}
+		
+		for(int i=0; i<numNodes; i++) {
+			TestNode node = (TestNode) allNodes[i];
+			assertEquals(numInstances * numNodes, node.delivered.get());
+			assertEquals(0, node.misrouted.get());
+			for(TestApplication app : node.applications)
+				assertEquals(numNodes, app.delivered);
+		}
+	}
+	
+	@Test
+	public void testApplicationsAreSpreadAcrossShards() {
+		ShardedEngine engine = ShardedEngine.createEngine(allNodes[0].getCommunicator(), numShards);
+		int[] perShard = new int[numShards];
+		for(int i = 0; i < numInstances; i++)
+			perShard[engine.getShard(Integer.toString(i))]++;
+		engine.shutdown();
+		
+		for(int i = 0; i < numShards; i++)
+			assertTrue(perShard[i] > 0);
+	}
+	
+	@Test
+	public void testReleasedIDsFoldPerShard() {
+		ShardedEngine engine = ShardedEngine.createEngine(allNodes[0].getCommunicator(), numShards);
+		CompletedBroadcasts[] completed = new CompletedBroadcasts[numShards];
+		for(int i = 0; i < numShards; i++) {
+			final int shard = i;
+			engine.initializeShard(i, () -> completed[shard] = CompletedBroadcasts.forShard(allNodes[0].getCommunicator()));
+		}
+		engine.shutdown();
+		
+		/* Consecutive IDs are interleaved across the shards and released slightly out of order. */
+		int totalIDs = 30000;
+		for(int window = 0; window < totalIDs; window += 10) {
+			for(int i = window + 9; i >= window; i--) {
+				String appID = Integer.toString(i);
+				completed[engine.getShard(appID)].release(appID);
+			}
+			
+			for(int shard = 0; shard < numShards; shard++)
+				assertTrue(completed[shard].getTotalReleasedAboveWatermark() < 10);
+		}
+		
+		for(int shard = 0; shard < numShards; shard++) {
+			assertEquals(totalIDs + shard, completed[shard].getLowWatermark());
+			assertEquals(0, completed[shard].getTotalReleasedAboveWatermark());
+			assertTrue(completed[shard].isReleased(Integer.toString(totalIDs - numShards + shard)));
+		}
+		
+		/* Outside the initialization of a shard, the tracker folds every ID. */
+		CompletedBroadcasts unsharded = CompletedBroadcasts.forShard(allNodes[0].getCommunicator());
+		unsharded.release("0");
+		unsharded.release("1");
+		assertEquals(2, unsharded.getLowWatermark());
+	}
+}
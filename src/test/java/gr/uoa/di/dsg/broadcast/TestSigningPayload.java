@@ -0,0 +1,70 @@
+package gr.uoa.di.dsg.broadcast;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import gr.uoa.di.dsg.broadcast.consistent.CBEchoMessage;
+import gr.uoa.di.dsg.broadcast.consistent.CBFinalMessage;
+import gr.uoa.di.dsg.ic.recovery.RecoveryResponseMessage;
+import gr.uoa.di.dsg.utils.BroadcastID;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class TestSigningPayload {
+
+	@Test
+	public void testLayout() {
+		ByteBuffer payload = SigningPayload.encode("IC_1", 2, 3, -6, "αB");
+
+		assertEquals(4, payload.getInt());
+		byte[] applicationID = new byte[4];
+		payload.get(applicationID);
+		assertArrayEquals("IC_1".getBytes(StandardCharsets.UTF_8), applicationID);
+		assertEquals(2, payload.getInt());
+		assertEquals(3, payload.getInt());
+		assertEquals(-6, payload.getInt());
+		assertEquals(3, payload.getInt());
+		byte[] value = new byte[3];
+		payload.get(value);
+		assertArrayEquals("αB".getBytes(StandardCharsets.UTF_8), value);
+		assertFalse(payload.hasRemaining());
+	}
+
+	@Test
+	public void testFieldsAreSeparated() {
+		/* The concatenation of the UUID with the value could not tell these apart. */
+		byte[] first = SigningPayload.toByteArray(SigningPayload.encode("IC_1", 0, 1, 1, "1"));
+		byte[] second = SigningPayload.toByteArray(SigningPayload.encode("IC_1", 0, 1, 11, ""));
+		assertFalse(Arrays.equals(first, second));
+	}
+
+	@Test
+	public void testLargeValuesAndReuse() {
+		char[] chars = new char[64 * 1024];
+		Arrays.fill(chars, 'A');
+		String value = new String(chars);
+
+		byte[] large = SigningPayload.toByteArray(SigningPayload.encode("IC_1", 0, 1, -6, value));
+		assertEquals(4 + 4 + 12 + 4 + value.length(), large.length);
+
+		/* A smaller payload reuses the grown buffer of the thread. */
+		byte[] small = SigningPayload.toByteArray(SigningPayload.encode("IC_1", 0, 1, -6, "A"));
+		assertEquals(4 + 4 + 12 + 4 + 1, small.length);
+	}
+
+	@Test
+	public void testRecoveryContentMatchesBroadcast() {
+		CBEchoMessage echoMessage = new CBEchoMessage("IC_1", 0, 2, BroadcastID.CB_BROADCAST_ID.getValue(), "value");
+		CBFinalMessage finalMessage = new CBFinalMessage("IC_1", 0, 2, BroadcastID.CB_BROADCAST_ID.getValue(), "value");
+		RecoveryResponseMessage recoveryMessage = new RecoveryResponseMessage("IC_1", 2, "value");
+
+		byte[] echo = SigningPayload.toByteArray(echoMessage.getSigningPayload());
+		assertArrayEquals(echo, SigningPayload.toByteArray(finalMessage.getSigningPayload()));
+		assertArrayEquals(echo, SigningPayload.toByteArray(recoveryMessage.getContent(0)));
+	}
+}
@@ -0,0 +1,141 @@
+/*******************************************************************************
+ * Copyright (C) 2019 DSG at University of Athens
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package gr.uoa.di.dsg.broadcast.avid;
+
+import static org.junit.Assert.assertEquals;
+
+import gr.uoa.di.dsg.broadcast.BroadcastAccept;
+import gr.uoa.di.dsg.broadcast.IBroadcast;
+import gr.uoa.di.dsg.communicator.AbstractTestNode;
+import gr.uoa.di.dsg.communicator.DummyCommunicator;
+import gr.uoa.di.dsg.communicator.EndMessage;
+import gr.uoa.di.dsg.communicator.Message;
+import gr.uoa.di.dsg.ic.Application;
+import gr.uoa.di.dsg.ic.bracha.ICChunkMessage;
+import gr.uoa.di.dsg.utils.GlobalVariables;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class AVIDBroadcastTest {
+
+	private AbstractTestNode[] allNodes = null;
+	private AtomicInteger pending = null;
+	private String value = null;
+	
+	private class TestNode extends AbstractTestNode implements Application {
+		
+		public TestNode(int nodeId, int port) {
+			super(nodeId, port);
+			this.communicator = new DummyCommunicator(this, allNodes);
+		}
+		
+		private String delivered = null;
+		private AVIDBroadcast relBroadcast = new AVIDBroadcast();
+		
+		public void run() {
+			relBroadcast.initialize(communicator, (String appID)->getApplication(appID), GlobalVariables.ICWORKERS_GROUP, allNodes.length);
+			communicator.start( ()->init() );
+		}
+
+		public void init(){
+			if(this.nodeId == 0)
+				relBroadcast.broadcast("0", 0, this.nodeId, 0, value);
+		}
+		
+		public Application getApplication(String appID)
+		{
+			return this;
+		}
+
+		@Override
+		public void process(Message msg) {
+			this.delivered = ((BroadcastAccept) msg).getValue();
+			
+			/* Stop every node once all of them have delivered. */
+			if(pending.decrementAndGet() == 0)
+				for(AbstractTestNode node : allNodes)
+					this.communicator.send(node.getCommunicator().getCurrentNode(), new EndMessage());
+		}
+
+		@Override
+		public void processConsensusResult(int cid, String value) {
+		}
+
+		@Override
+		public IBroadcast getBroadcast() {
+			return relBroadcast;
+		}
+
+		@Override
+		public void start(int nodeID, String value) {
+		}
+
+		@Override
+		public void start() {
+		}
+		
+		@Override
+		public void processDatumChunk(ICChunkMessage icChunkMessage) {
+		}
+		
+		@Override
+		public boolean verifyDatum(String value, int sourceNodeID) {
+			throw new RuntimeException("Operation not supported");
+		}
+	}
+	
+	private void run(int numNodes, String value) {
+		this.value = value;
+		this.allNodes = new AbstractTestNode[numNodes];
+		this.pending = new AtomicInteger(numNodes);
+		for( int i = 0; i < numNodes; i++ )
+			allNodes[i] = new TestNode(i, 3000+i);
+		
+		Thread[] threads = new Thread[numNodes];
+		for(int i=0; i<numNodes; i++) {
+			threads[i] = new Thread(allNodes[i]);
+			threads[i].start();
+		}
+		
+		for(int i=0; i<numNodes; i++) {
+			try {
+				threads[i].join();
+			} catch (InterruptedException e) {
+				e.printStackTrace();
+			}
+		}
+		
+		for(int i=0; i<numNodes; i++)
+			assertEquals(value, ((TestNode) allNodes[i]).delivered);
+	}
+
+	@Test
+	public void testHappyPath() {
+		run(4, "A");
+	}
+	
+	@Test
+	public void testLargeValue() {
+		StringBuilder builder = new StringBuilder();
+		for(int i = 0; i < 10000; ++i)
+			builder.append(i).append(';');
+		
+		run(7, builder.toString());
+	}
+}
@@ -0,0 +1,224 @@
+/*******************************************************************************
+ * Copyright (C) 2019 DSG at University of Athens
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package gr.uoa.di.dsg.broadcast.avid;
+
+import gr.uoa.di.dsg.broadcast.IBroadcast;
+import gr.uoa.di.dsg.broadcast.bracha.BrachaBroadcast;
+import gr.uoa.di.dsg.broadcast.bracha.EchoMessage;
+import gr.uoa.di.dsg.broadcast.bracha.InitMessage;
+import gr.uoa.di.dsg.broadcast.bracha.ReadyMessage;
+import gr.uoa.di.dsg.communicator.AbstractTestNode;
+import gr.uoa.di.dsg.communicator.DummyCommunicator;
+import gr.uoa.di.dsg.communicator.EndMessage;
+import gr.uoa.di.dsg.communicator.Message;
+import gr.uoa.di.dsg.ic.Application;
+import gr.uoa.di.dsg.ic.bracha.ICChunkMessage;
+import gr.uoa.di.dsg.utils.GlobalVariables;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.Test;
+import org.junit.runner.JUnitCore;
+
+/**
+ * Compares {@link AVIDBroadcast} against {@link BrachaBroadcast}. For every
+ * number of nodes and value size it reports:
+ * <ul>
+ * <li>the bytes that a single broadcast puts on the network, computed from the
+ * serialized size of every message of a failure-free run,</li>
+ * <li>the time needed for encoding and rebuilding a value, and</li>
+ * <li>the latency of a broadcast over the in-process DummyCommunicator, as
+ * long as the traffic of BrachaBroadcast stays within TRAFFIC_LIMIT bytes,
+ * since every message is materialized in this JVM.</li>
+ * </ul>
+ * The main function accepts the lists of node counts and value sizes, e.g.
+ * <em>4,8,16,32,64 1024,102400,1048576,10485760</em>.
+ */
+public class TestAVIDBroadcastPerformance {
+
+	private static int[] NODES = { 4, 16, 64 };
+	private static int[] SIZES = { 1024, 65536, 1048576 };
+	private static long TRAFFIC_LIMIT = 1L << 30;
+	
+	private AbstractTestNode[] allNodes = null;
+	private AtomicInteger pending = null;
+	private long lastDelivery = 0;
+	
+	private class TestNode extends AbstractTestNode implements Application {
+		
+		private IBroadcast relBroadcast = null;
+		private String value = null;
+		private long start = 0;
+		
+		public TestNode(int nodeId, int port, IBroadcast relBroadcast, String value) {
+			super(nodeId, port);
+			this.communicator = new DummyCommunicator(this, allNodes);
+			this.relBroadcast = relBroadcast;
+			this.value = value;
+		}
+		
+		public void run() {
+			relBroadcast.initialize(communicator, (String appID) -> this, GlobalVariables.ICWORKERS_GROUP, allNodes.length);
+			communicator.start( ()->init() );
+		}
+
+		public void init(){
+			if(this.nodeId == 0) {
+				start = System.nanoTime();
+				relBroadcast.broadcast("0", 0, this.nodeId, 0, value);
+			}
+		}
+
+		@Override
+		public void process(Message msg) {
+			if(pending.decrementAndGet() == 0) {
+				lastDelivery = System.nanoTime();
+				for(AbstractTestNode node : allNodes)
+					this.communicator.send(node.getCommunicator().getCurrentNode(), new EndMessage());
+			}
+		}
+
+		@Override
+		public void processConsensusResult(int cid, String value) {
+		}
+
+		@Override
+		public IBroadcast getBroadcast() {
+			return relBroadcast;
+		}
+
+		@Override
+		public void start(int nodeID, String value) {
+		}
+
+		@Override
+		public void start() {
+		}
+		
+		@Override
+		public void processDatumChunk(ICChunkMessage icChunkMessage) {
+		}
+		
+		@Override
+		public boolean verifyDatum(String value, int sourceNodeID) {
+			throw new RuntimeException("Operation not supported");
+		}
+	}
+
+	@Test
+	public void test() throws Exception {
+		MessageDigest digest = MessageDigest.getInstance(GlobalVariables.DIGEST_ALGORITHM);
+		
+		System.out.println("N\tsize(B)\tBracha(B)\tAVID(B)\tratio\tencode(ms)\tdecode(ms)\tBracha(ms)\tAVID(ms)");
+		for(int n : NODES) {
+			int f = (n - 1) / 3;
+			ReedSolomonCodec codec = new ReedSolomonCodec(n - 2 * f, n);
+			
+			for(int size : SIZES) {
+				String value = createValue(size);
+				byte[] data = value.getBytes(StandardCharsets.UTF_8);
+				
+				/* Bracha: one Init to every node, then one Echo and one Ready from every node to every node. */
+				long brachaBytes = (long) n * new InitMessage("0", 0, 0, 0, value).serialize().length
+						+ (long) n * n * (new EchoMessage("0", 0, 0, 0, value).serialize().length + new ReadyMessage("0", 0, 0, 0, value).serialize().length);
+				
+				long start = System.nanoTime();
+				byte[][] fragments = codec.encode(data);
+				MerkleTree tree = new MerkleTree(fragments, digest);
+				long encodeTime = System.nanoTime() - start;
+				
+				/* AVID: one Disperse to every node, then every node echoes its fragment and sends one Ready to every node. */
+				long avidBytes = (long) n * n * new AVIDReadyMessage("0", 0, 0, 0, tree.getRoot()).serialize().length;
+				for(int i = 0; i < n; ++i) {
+					int length = new AVIDFragmentMessage(AVIDMessageType.ECHO, "0", 0, 0, 0, tree.getRoot(), i, fragments[i], tree.getProof(i)).serialize().length;
+					avidBytes += (long) (n + 1) * length;
+				}
+				
+				/* Rebuild from the parity fragments, which is the most expensive case. */
+				byte[][] received = new byte[n][];
+				for(int i = 2 * f; i < n; ++i)
+					received[i] = fragments[i];
+				start = System.nanoTime();
+				byte[] rebuilt = codec.decode(received);
+				long decodeTime = System.nanoTime() - start;
+				assert Arrays.equals(data, rebuilt);
+				
+				String brachaLatency = "-", avidLatency = "-";
+				if(brachaBytes <= TRAFFIC_LIMIT) {
+					brachaLatency = String.format("%.2f", run(n, value, () -> new BrachaBroadcast()) / 1e6);
+					avidLatency = String.format("%.2f", run(n, value, () -> new AVIDBroadcast()) / 1e6);
+				}
+				
+				System.out.println(n + "\t" + size + "\t" + brachaBytes + "\t" + avidBytes + "\t" + String.format("%.2f", brachaBytes / (double) avidBytes)
+						+ "\t" + String.format("%.2f", encodeTime / 1e6) + "\t" + String.format("%.2f", decodeTime / 1e6) + "\t" + brachaLatency + "\t" + avidLatency);
+			}
+		}
+	}
+	
+	/**
+	 * Runs a single broadcast of node 0 over the DummyCommunicator and returns
+	 * the nanoseconds until the last node delivered it.
+	 */
+	private long run(int numNodes, String value, Supplier<IBroadcast> broadcastCreator) {
+		allNodes = new AbstractTestNode[numNodes];
+		pending = new AtomicInteger(numNodes);
+		for(int i = 0; i < numNodes; i++)
+			allNodes[i] = new TestNode(i, 3000 + i, broadcastCreator.get(), value);
+		
+		Thread[] threads = new Thread[numNodes];
+		for(int i = 0; i < numNodes; i++) {
+			threads[i] = new Thread(allNodes[i]);
+			threads[i].start();
+		}
+		
+		for(int i = 0; i < numNodes; i++) {
+			try {
+				threads[i].join();
+			} catch (InterruptedException e) {
+				e.printStackTrace();
+			}
+		}
+		
+		assert pending.get() == 0;
+		return lastDelivery - ((TestNode) allNodes[0]).start;
+	}
+	
+	private static String createValue(int size) {
+		char[] value = new char[size];
+		for(int i = 0; i < size; ++i)
+			value[i] = (char) ('a' + (i * 31 + i / 7) % 26);
+		
+		return new String(value);
+	}
+	
+	private static int[] parse(String list) {
+		return Arrays.stream(list.split(",")).mapToInt(Integer::parseInt).toArray();
+	}
+
+	public static void main(String[] args) throws Exception {
+		if(args.length >= 1)
+			NODES = parse(args[0]);
+		if(args.length >= 2)
+			SIZES = parse(args[1]);
+		
+		JUnitCore.main("gr.uoa.di.dsg.broadcast.avid.TestAVIDBroadcastPerformance");
+	}
+}
@@ -0,0 +1,98 @@
+/*******************************************************************************
+ * Copyright (C) 2019 DSG at University of Athens
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package gr.uoa.di.dsg.broadcast.avid;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import gr.uoa.di.dsg.utils.GlobalVariables;
+
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TestReedSolomonCodec {
+
+	private Random random = new Random(42);
+	
+	@Test
+	public void testField() {
+		for(int a = 1; a < 256; ++a) {
+			assertEquals(1, GF256.mul(a, GF256.inv(a)));
+			for(int b = 1; b < 256; b += 7)
+				assertEquals(a, GF256.div(GF256.mul(a, b), b));
+		}
+	}
+	
+	@Test
+	public void testAnySubsetRebuildsTheValue() {
+		int[] totalNodes = { 1, 4, 7, 10, 16, 64 };
+		int[] sizes = { 0, 1, 5, 1000, 65536 };
+		
+		for(int n : totalNodes) {
+			int f = (n - 1) / 3;
+			ReedSolomonCodec codec = new ReedSolomonCodec(n - 2 * f, n);
+			for(int size : sizes) {
+				byte[] data = new byte[size];
+				random.nextBytes(data);
+				byte[][] fragments = codec.encode(data);
+				assertEquals(n, fragments.length);
+				
+				/* Keep a random subset of n - 2f fragments. */
+				List<Integer> positions = new ArrayList<>();
+				for(int i = 0; i < n; ++i)
+					positions.add(i);
+				Collections.shuffle(positions, random);
+				
+				byte[][] received = new byte[n][];
+				for(int i = 0; i < n - 2 * f; ++i)
+					received[positions.get(i)] = fragments[positions.get(i)];
+				
+				assertArrayEquals(data, codec.decode(received));
+				
+				if(n - 2 * f > 1) {
+					received[positions.get(0)] = null;
+					assertNull(codec.decode(received));
+				}
+			}
+		}
+	}
+	
+	@Test
+	public void testMerkleProofs() throws Exception {
+		MessageDigest digest = MessageDigest.getInstance(GlobalVariables.DIGEST_ALGORITHM);
+		ReedSolomonCodec codec = new ReedSolomonCodec(3, 7);
+		byte[][] fragments = codec.encode("A value".getBytes());
+		MerkleTree tree = new MerkleTree(fragments, digest);
+		
+		for(int i = 0; i < fragments.length; ++i)
+			assertTrue(MerkleTree.verify(tree.getRoot(), fragments.length, i, fragments[i], tree.getProof(i), digest));
+		
+		assertFalse(MerkleTree.verify(tree.getRoot(), fragments.length, 1, fragments[0], tree.getProof(0), digest));
+		assertFalse(MerkleTree.verify(tree.getRoot(), fragments.length, 7, fragments[0], tree.getProof(0), digest));
+		
+		fragments[2][0] ^= 1;
+		assertFalse(MerkleTree.verify(tree.getRoot(), fragments.length, 2, fragments[2], tree.getProof(2), digest));
+	}
+}
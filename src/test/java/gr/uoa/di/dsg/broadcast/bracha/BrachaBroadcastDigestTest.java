@@ -0,0 +1,209 @@
+package gr.uoa.di.dsg.broadcast.bracha;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import gr.uoa.di.dsg.broadcast.BroadcastAccept;
+import gr.uoa.di.dsg.broadcast.IBroadcast;
+import gr.uoa.di.dsg.communicator.AbstractTestNode;
+import gr.uoa.di.dsg.communicator.DummyCommunicator;
+import gr.uoa.di.dsg.communicator.EndMessage;
+import gr.uoa.di.dsg.communicator.Message;
+import gr.uoa.di.dsg.communicator.Node;
+import gr.uoa.di.dsg.ic.Application;
+import gr.uoa.di.dsg.ic.bracha.ICChunkMessage;
+import gr.uoa.di.dsg.utils.GlobalVariables;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Base64;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class BrachaBroadcastDigestTest {
+
+	private int numNodes = 4;
+	private AbstractTestNode[] allNodes = new AbstractTestNode[numNodes];
+	
+	private class TestNode extends AbstractTestNode implements Application {
+		
+		public TestNode(int nodeId, int port) {
+			super(nodeId, port);
+			this.communicator = new DummyCommunicator(this, allNodes);
+		}
+		
+		private String value = "A";
+		private String delivered = null;
+		private boolean stopOnDelivery = true;
+		private BrachaBroadcast relBroadcast = new BrachaBroadcast(true);
+		
+		public void run() {
+			relBroadcast.initialize(communicator, (String appID)->getApplication(appID), GlobalVariables.ICWORKERS_GROUP, allNodes.length);
+			communicator.start( ()->init() );
+		}
+
+		public void init(){
+			if(this.nodeId == 0)
+				relBroadcast.broadcast("0", 0, this.nodeId, 0, value);
+		}
+		
+		public Application getApplication(String appID)
+		{
+			return this;
+		}
+
+		@Override
+		public void process(Message msg) {
+			this.delivered = ((BroadcastAccept) msg).getValue();
+			if(stopOnDelivery)
+				this.communicator.send(this.communicator.getCurrentNode(), new EndMessage());
+		}
+
+		@Override
+		public void processConsensusResult(int cid, String value) {
+		}
+
+		@Override
+		public IBroadcast getBroadcast() {
+			return relBroadcast;
+		}
+
+		@Override
+		public void start(int nodeID, String value) {
+		}
+
+		@Override
+		public void start() {
+		}
+		
+		@Override
+		public void processDatumChunk(ICChunkMessage icChunkMessage) {
+		}
+		
+		@Override
+		public boolean verifyDatum(String value, int sourceNodeID) {
+			throw new RuntimeException("Operation not supported");
+		}
+	}
+	
+	@Before
+	public void setUp() throws Exception {
+		for( int i = 0; i < numNodes; i++ ) {
+			allNodes[i] = new TestNode(i, 3000+i);
+		}
+	}
+
+	@Test
+	public void testHappyPath() {
+		Thread[] threads = new Thread[numNodes];
+		for(int i=0; i<numNodes; i++) {
+			threads[i] = new Thread(allNodes[i]);
+			threads[i].start();
+		}
+		
+		for(int i=0; i<numNodes; i++) {
+			try {
+				threads[i].join();
+			} catch (InterruptedException e) {
+				e.printStackTrace();
+			}
+		}
+		
+		for(int i=0; i<numNodes; i++)
+			assertEquals("A", ((TestNode) allNodes[i]).delivered);
+	}
+	
+	@Test
+	public void testValueIsFetched() throws Exception {
+		TestNode node = (TestNode) allNodes[0];
+		BrachaBroadcast broadcast = node.relBroadcast;
+		broadcast.initialize(node.getCommunicator(), (String appID) -> node, "BenchmarkGroup", numNodes);
+		
+		String digest = Base64.getEncoder().encodeToString(MessageDigest.getInstance(GlobalVariables.DIGEST_ALGORITHM).digest("A".getBytes(StandardCharsets.UTF_8)));
+		Node[] sources = new Node[numNodes];
+		for(int i = 0; i < numNodes; i++)
+			sources[i] = allNodes[i].getCommunicator().getCurrentNode();
+		
+		/* The node gathers the Echo and Ready quorums without the Init message. */
+		for(int i = 1; i < numNodes; i++)
+			broadcast.OnEchoMessage(new EchoDigestMessage("0", 0, 1, 0, digest), sources[i]);
+		for(int i = 1; i < numNodes; i++)
+			broadcast.OnReadyMessage(new ReadyDigestMessage("0", 0, 1, 0, digest), sources[i]);
+		assertNull(node.delivered);
+		
+		/* A value that does not match the digest is rejected. */
+		broadcast.OnValueResponseMessage(new ValueResponseMessage("0", 0, 1, 0, "B"), sources[2]);
+		assertNull(node.delivered);
+		
+		broadcast.OnValueResponseMessage(new ValueResponseMessage("0", 0, 1, 0, "A"), sources[3]);
+		assertEquals("A", node.delivered);
+	}
+	
+	private String digest(String value) throws Exception {
+		return Base64.getEncoder().encodeToString(MessageDigest.getInstance(GlobalVariables.DIGEST_ALGORITHM).digest(value.getBytes(StandardCharsets.UTF_8)));
+	}
+	
+	/*
+	 * Node 0 is faulty and silent and only node 2 has received the Init
+	 * message. Nodes 1 and 3 gather their Ready quorums without the value:
+	 * node 1 from nodes 0, 1 and 3 and node 3 from nodes 0, 1 and 2, so the
+	 * first toleratedFaults + 1 Ready senders of each node are the faulty
+	 * node and the other node that waits for the value.
+	 */
+	private void testFetchFromLaggingNodes(int[] echoSenders) throws Exception {
+		Node[] sources = new Node[numNodes];
+		for(int i = 0; i < numNodes; i++) {
+			TestNode node = (TestNode) allNodes[i];
+			node.relBroadcast.initialize(node.getCommunicator(), (String appID) -> node, GlobalVariables.ICWORKERS_GROUP, numNodes);
+			sources[i] = node.getCommunicator().getCurrentNode();
+		}
+		
+		String digest = digest("A");
+		
+		/* Node 2 keeps answering the value requests after its own delivery. */
+		((TestNode) allNodes[2]).stopOnDelivery = false;
+		((TestNode) allNodes[2]).relBroadcast.OnInitMessage(new InitMessage("0", 0, 0, 0, "A"), sources[0]);
+		
+		TestNode lagging = (TestNode) allNodes[1];
+		lagging.relBroadcast.OnEchoMessage(new EchoDigestMessage("0", 0, 0, 0, digest), sources[0]);
+		lagging.relBroadcast.OnEchoMessage(new EchoDigestMessage("0", 0, 0, 0, digest), sources[3]);
+		for(int i: new int[] {0, 3, 1})
+			lagging.relBroadcast.OnReadyMessage(new ReadyDigestMessage("0", 0, 0, 0, digest), sources[i]);
+		assertNull(lagging.delivered);
+		
+		TestNode node = (TestNode) allNodes[3];
+		for(int sender: echoSenders)
+			node.relBroadcast.OnEchoMessage(new EchoDigestMessage("0", 0, 0, 0, digest), sources[sender]);
+		for(int i = 0; i < 3; i++)
+			node.relBroadcast.OnReadyMessage(new ReadyDigestMessage("0", 0, 0, 0, digest), sources[i]);
+		assertNull(node.delivered);
+		
+		/* Node 0 stays silent, while the rest nodes answer the value requests. */
+		Thread[] threads = new Thread[numNodes];
+		for(int i = 1; i < numNodes; i++) {
+			AbstractTestNode current = allNodes[i];
+			threads[i] = new Thread(() -> current.getCommunicator().start(() -> {}));
+			threads[i].start();
+		}
+		
+		threads[1].join();
+		threads[3].join();
+		allNodes[2].getCommunicator().stop();
+		threads[2].join();
+		
+		assertEquals("A", lagging.delivered);
+		assertEquals("A", node.delivered);
+	}
+	
+	@Test
+	public void testValueIsFetchedFromEchoSenders() throws Exception {
+		testFetchFromLaggingNodes(new int[] {0, 2});
+	}
+	
+	@Test
+	public void testValueIsFetchedFromAllNodesOnTimeout() throws Exception {
+		/* Neither of the nodes requested first holds the value. */
+		testFetchFromLaggingNodes(new int[] {0, 1});
+	}
+}
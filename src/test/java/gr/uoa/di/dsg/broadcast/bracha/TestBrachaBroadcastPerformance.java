@@ -0,0 +1,166 @@
+/*******************************************************************************
+ * Copyright (C) 2019 DSG at University of Athens
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package gr.uoa.di.dsg.broadcast.bracha;
+
+import gr.uoa.di.dsg.broadcast.IBroadcast;
+import gr.uoa.di.dsg.communicator.AbstractTestNode;
+import gr.uoa.di.dsg.communicator.DummyCommunicator;
+import gr.uoa.di.dsg.communicator.Message;
+import gr.uoa.di.dsg.communicator.Node;
+import gr.uoa.di.dsg.ic.Application;
+import gr.uoa.di.dsg.ic.bracha.ICChunkMessage;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.JUnitCore;
+
+/**
+ * Measures the time and the memory allocated by the handlers of the Echo and
+ * Ready messages of {@link BrachaBroadcast}. The handlers are invoked directly
+ * on a single node; the messages sent by that node are addressed to a group
+ * without members, so that only the handlers themselves are measured.
+ */
+public class TestBrachaBroadcastPerformance {
+
+	private int numNodes = 4;
+	private static int REPETITIONS = 200000;
+	private int WARMUP = 50000;
+	private AbstractTestNode[] allNodes = new AbstractTestNode[numNodes];
+	private Node[] sources = new Node[numNodes];
+	private int delivered = 0;
+	
+	private class TestNode extends AbstractTestNode implements Application {
+		
+		public TestNode(int nodeId, int port) {
+			super(nodeId, port);
+			this.communicator = new DummyCommunicator(this, allNodes);
+		}
+		
+		private BrachaBroadcast relBroadcast = new BrachaBroadcast();
+		
+		public void run() {}
+
+		@Override
+		public void process(Message msg) {
+			++delivered;
+		}
+
+		@Override
+		public void processConsensusResult(int cid, String value) {
+		}
+
+		@Override
+		public IBroadcast getBroadcast() {
+			return relBroadcast;
+		}
+
+		@Override
+		public void start(int nodeID, String value) {
+		}
+
+		@Override
+		public void start() {
+		}
+		
+		@Override
+		public void processDatumChunk(ICChunkMessage icChunkMessage) {
+		}
+		
+		@Override
+		public boolean verifyDatum(String value, int sourceNodeID) {
+			throw new RuntimeException("Operation not supported");
+		}
+	}
+	
+	@Before
+	public void setUp() throws Exception {
+		for( int i = 0; i < numNodes; i++ )
+			allNodes[i] = new TestNode(i, 3000+i);
+		
+		for( int i = 0; i < numNodes; i++ )
+			sources[i] = allNodes[i].getCommunicator().getCurrentNode();
+	}
+
+	@Test
+	public void test() {
+		TestNode node = (TestNode) allNodes[0];
+		BrachaBroadcast broadcast = node.relBroadcast;
+		broadcast.initialize(node.getCommunicator(), (String appID) -> node, "BenchmarkGroup", numNodes);
+		
+		/* Let the JIT compile the handlers first. */
+		run(broadcast, 0, WARMUP);
+		
+		delivered = 0;
+		com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long threadID = Thread.currentThread().getId();
+		
+		long allocated = threadBean.getThreadAllocatedBytes(threadID);
+		long start = System.nanoTime();
+		long messageAllocations = run(broadcast, WARMUP, REPETITIONS);
+		long end = System.nanoTime();
+		allocated = threadBean.getThreadAllocatedBytes(threadID) - allocated - messageAllocations;
+		
+		long totalMessages = 2L * numNodes * REPETITIONS;
+		System.out.println("Delivered broadcasts: " + delivered + "/" + REPETITIONS);
+		System.out.println("Echo/Ready handling: " + ((end - start) / (double) totalMessages) + " nanoseconds per message!");
+		System.out.println("Echo/Ready handling: " + (allocated / (double) totalMessages) + " bytes allocated per message!");
+		
+		assert delivered == REPETITIONS;
+	}
+	
+	/**
+	 * Delivers all Echo and Ready messages of the specified broadcasts to the
+	 * handlers and returns the bytes allocated for creating the messages, so
+	 * that they can be excluded from the measurements.
+	 */
+	private long run(BrachaBroadcast broadcast, int first, int total) {
+		com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long threadID = Thread.currentThread().getId();
+		long messageAllocations = 0;
+		
+		EchoMessage[] echoes = new EchoMessage[numNodes];
+		ReadyMessage[] readies = new ReadyMessage[numNodes];
+		for(int i = first; i < first + total; ++i) {
+			String icid = String.valueOf(i);
+			
+			long allocated = threadBean.getThreadAllocatedBytes(threadID);
+			for(int j = 0; j < numNodes; ++j) {
+				echoes[j] = new EchoMessage(icid, 0, 1, 0, "A");
+				readies[j] = new ReadyMessage(icid, 0, 1, 0, "A");
+			}
+			messageAllocations += threadBean.getThreadAllocatedBytes(threadID) - allocated;
+			
+			for(int j = 0; j < numNodes; ++j)
+				broadcast.OnEchoMessage(echoes[j], sources[j]);
+			for(int j = 0; j < numNodes; ++j)
+				broadcast.OnReadyMessage(readies[j], sources[j]);
+			
+			broadcast.releaseApplication(icid);
+		}
+		
+		return messageAllocations;
+	}
+
+	public static void main(String[] args) throws Exception {
+		if(args.length == 1)
+			REPETITIONS = Integer.valueOf(args[0]);
+		
+		JUnitCore.main("gr.uoa.di.dsg.broadcast.bracha.TestBrachaBroadcastPerformance");
+	}
+}
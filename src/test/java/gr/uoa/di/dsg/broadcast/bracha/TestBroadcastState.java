@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * Copyright (C) 2019 DSG at University of Athens
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package gr.uoa.di.dsg.broadcast.bracha;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class TestBroadcastState {
+
+	private int TOTAL_NODES = 4;
+	
+	@Test
+	public void testDuplicateSendersAreNotCounted() {
+		BroadcastState state = new BroadcastState(TOTAL_NODES);
+		BroadcastInfo info = state.add("a", 0);
+		
+		assertTrue(state.addEcho(info, 1));
+		assertFalse(state.addEcho(info, 1));
+		assertEquals(1, info.getNumberOfEchoM());
+		
+		assertTrue(state.addReady(info, 2));
+		assertFalse(state.addReady(info, 2));
+		assertEquals(1, info.getNumberOfReadyM());
+	}
+	
+	@Test
+	public void testSenderMovesBetweenValues() {
+		BroadcastState state = new BroadcastState(TOTAL_NODES);
+		BroadcastInfo first = state.add("a", 0);
+		BroadcastInfo second = state.add("b", 0);
+		
+		state.addEcho(first, 1);
+		state.addEcho(first, 2);
+		state.addEcho(second, 1);
+		assertEquals(1, first.getNumberOfEchoM());
+		assertEquals(1, second.getNumberOfEchoM());
+		assertFalse(first.getEchoNodes().get(1));
+		assertTrue(second.getEchoNodes().get(1));
+		
+		state.addReady(first, 3);
+		state.addReady(second, 3);
+		assertEquals(0, first.getNumberOfReadyM());
+		assertEquals(1, second.getNumberOfReadyM());
+	}
+	
+	@Test
+	public void testHighestStep() {
+		BroadcastState state = new BroadcastState(TOTAL_NODES);
+		BroadcastInfo first = state.add("a", 0);
+		BroadcastInfo second = state.add("b", 0);
+		assertEquals(1, state.getHighestStep());
+		
+		state.setStep(second, 3);
+		state.setStep(first, 2);
+		assertEquals(3, state.getHighestStep());
+		assertEquals(2, first.getStep());
+	}
+}
@@ -1,5 +1,7 @@
 package gr.uoa.di.dsg.broadcast.consistent;
 
+import static org.junit.Assert.assertEquals;
+
 import gr.uoa.di.dsg.broadcast.IBroadcast;
 import gr.uoa.di.dsg.communicator.AbstractTestNode;
 import gr.uoa.di.dsg.communicator.DummyCommunicator;
@@ -108,4 +110,39 @@ public class TestConsistentBroadcastWithAuthenticators {
 		}
 		System.out.println("Too fast termination...");
 	}
+
+	@Test
+	public void testParallelVerification() {
+		GlobalVariables.ENABLE_ASYNC_WORK = true;
+		GlobalVariables.PARALLEL_VERIFICATION = true;
+		try {
+			testHappyPath();
+		}
+		finally {
+			GlobalVariables.ENABLE_ASYNC_WORK = false;
+			GlobalVariables.PARALLEL_VERIFICATION = false;
+		}
+		
+		for (int i = 0; i < numNodes; i++)
+			assertEquals(TOTAL_EXECUTIONS * numNodes, ((TestNode) allNodes[i]).counter);
+	}
+	
+	@Test
+	public void testCryptoExecutor() {
+		GlobalVariables.ENABLE_ASYNC_WORK = true;
+		GlobalVariables.CRYPTO_THREADS = 2;
+		/* A tiny queue holds back most of the broadcasts of every node. */
+		GlobalVariables.CRYPTO_QUEUE_CAPACITY = 1;
+		try {
+			testHappyPath();
+		}
+		finally {
+			GlobalVariables.ENABLE_ASYNC_WORK = false;
+			GlobalVariables.CRYPTO_THREADS = 0;
+			GlobalVariables.CRYPTO_QUEUE_CAPACITY = 4096;
+		}
+		
+		for (int i = 0; i < numNodes; i++)
+			assertEquals(TOTAL_EXECUTIONS * numNodes, ((TestNode) allNodes[i]).counter);
+	}
 }
@@ -5,11 +5,16 @@ import gr.uoa.di.dsg.communicator.AbstractTestNode;
 import gr.uoa.di.dsg.communicator.DummyCommunicator;
 import gr.uoa.di.dsg.communicator.EndMessage;
 import gr.uoa.di.dsg.communicator.Message;
+import gr.uoa.di.dsg.crypto.CryptographyModule;
+import gr.uoa.di.dsg.crypto.DigitalSignatureCryptographyModule;
+import gr.uoa.di.dsg.crypto.MerkleCryptographyModule;
 import gr.uoa.di.dsg.ic.Application;
 import gr.uoa.di.dsg.ic.bracha.ICChunkMessage;
 import gr.uoa.di.dsg.utils.BroadcastID;
 import gr.uoa.di.dsg.utils.GlobalVariables;
 
+import static org.junit.Assert.assertEquals;
+
 import org.junit.Before;
 import org.junit.Test;
 
@@ -24,11 +29,11 @@ public class TestConsistentBroadcastWithDigitalSignatures {
 		private IBroadcast broadcastModule = null;
 		private int counter = 0;
 		
-		public TestNode(int nodeId, int port) {
+		public TestNode(int nodeId, int port, CryptographyModule cryptoModule) {
 			super(nodeId, port);
 			this.communicator = new DummyCommunicator(this, allNodes);
 			this.value = String.valueOf(nodeId);
-			this.broadcastModule = new ConsistentBroadcast();
+			this.broadcastModule = new ConsistentBroadcast(cryptoModule);
 		}
 		
 		public void run() {
@@ -86,7 +91,7 @@ public class TestConsistentBroadcastWithDigitalSignatures {
 	@Before
 	public void setUp() throws Exception {
 		for (int i = 0; i < numNodes; i++) {
-			allNodes[i] = new TestNode(i, 3000+i);
+			allNodes[i] = new TestNode(i, 3000+i, new DigitalSignatureCryptographyModule());
 		}
 	}
 
@@ -107,4 +112,22 @@ public class TestConsistentBroadcastWithDigitalSignatures {
 		}
 		System.out.println("Too fast termination...");
 	}
+	
+	@Test
+	public void testMerkleBatchedSigning() {
+		TOTAL_EXECUTIONS = 10;
+		for (int i = 0; i < numNodes; i++)
+			allNodes[i] = new TestNode(i, 3000+i, new MerkleCryptographyModule("SHA1withRSA"));
+		
+		GlobalVariables.SIGNING_BATCH_WINDOW = 5;
+		try {
+			testHappyPath();
+		}
+		finally {
+			GlobalVariables.SIGNING_BATCH_WINDOW = 0;
+		}
+		
+		for (int i = 0; i < numNodes; i++)
+			assertEquals(TOTAL_EXECUTIONS * numNodes, ((TestNode) allNodes[i]).counter);
+	}
 }
@@ -0,0 +1,55 @@
+package gr.uoa.di.dsg.broadcast.reliable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import gr.uoa.di.dsg.broadcast.consistent.CBFinalMessage;
+import gr.uoa.di.dsg.broadcast.consistent.RBSFinalMessage;
+import gr.uoa.di.dsg.utils.BroadcastID;
+
+import org.junit.Test;
+
+public class TestVerifiedCertificateCache {
+
+	private CBFinalMessage createMessage(String value, int totalSigners, byte tamper) {
+		CBFinalMessage message = new RBSFinalMessage("0", 0, 1, BroadcastID.RB_BROADCAST_ID.getValue(), value);
+		for(int i = 0; i < totalSigners; ++i)
+			message.addSignature(i, new byte[] {(byte) i, 1, 2, 3});
+		message.getSignature(0)[1] += tamper;
+		
+		return message;
+	}
+	
+	@Test
+	public void testRelayedCopiesHit() {
+		VerifiedCertificateCache cache = new VerifiedCertificateCache(16);
+		
+		assertFalse(cache.isVerified(createMessage("A", 3, (byte) 0)));
+		cache.markVerified(createMessage("A", 3, (byte) 0));
+		
+		/* An identical copy needs no verification. */
+		assertTrue(cache.isVerified(createMessage("A", 3, (byte) 0)));
+		
+		/* A different value, signer set or signature must be verified. */
+		assertFalse(cache.isVerified(createMessage("B", 3, (byte) 0)));
+		assertFalse(cache.isVerified(createMessage("A", 4, (byte) 0)));
+		assertFalse(cache.isVerified(createMessage("A", 3, (byte) 1)));
+		
+		assertEquals(1, cache.getHits());
+		assertEquals(4, cache.getMisses());
+	}
+	
+	@Test
+	public void testCapacityIsBounded() {
+		VerifiedCertificateCache cache = new VerifiedCertificateCache(2);
+		
+		cache.markVerified(createMessage("A", 3, (byte) 0));
+		cache.markVerified(createMessage("B", 3, (byte) 0));
+		cache.markVerified(createMessage("C", 3, (byte) 0));
+		
+		assertEquals(2, cache.size());
+		assertFalse(cache.isVerified(createMessage("A", 3, (byte) 0)));
+		assertTrue(cache.isVerified(createMessage("C", 3, (byte) 0)));
+	}
+}
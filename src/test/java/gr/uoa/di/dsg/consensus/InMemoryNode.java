@@ -0,0 +1,176 @@
+package gr.uoa.di.dsg.consensus;
+
+import gr.uoa.di.dsg.broadcast.BroadcastAccept;
+import gr.uoa.di.dsg.broadcast.IBroadcast;
+import gr.uoa.di.dsg.communicator.AbstractCommunicator;
+import gr.uoa.di.dsg.communicator.Message;
+import gr.uoa.di.dsg.ic.Application;
+import gr.uoa.di.dsg.ic.ApplicationGetter;
+import gr.uoa.di.dsg.ic.bracha.ICChunkMessage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * The application and the broadcast module of a single node of the Consensus
+ * tests, without any communicator. The node records its broadcasts, the
+ * messages delivered to its application and its Consensus results. The
+ * broadcasts of a node that belongs to an {@link InMemoryScheduler} are
+ * delivered to all nodes of the scheduler.
+ */
+public class InMemoryNode implements Application, IBroadcast {
+
+	private final InMemoryScheduler scheduler;
+	private Consumer<BroadcastAccept> receiver = null;
+
+	private final List<BroadcastAccept> broadcasts = new ArrayList<>();
+	private final Map<Integer, String> accepted = new HashMap<>();
+	private final Map<Integer, String> results = new HashMap<>();
+	private int totalResults = 0;
+
+	/**
+	 * Creates a node whose broadcasts are only recorded.
+	 */
+	public InMemoryNode() {
+		this(null);
+	}
+
+	/**
+	 * @param scheduler
+	 *            the scheduler that delivers the broadcasts of the node.
+	 */
+	public InMemoryNode(InMemoryScheduler scheduler) {
+		this.scheduler = scheduler;
+		if(scheduler != null)
+			scheduler.add(this);
+	}
+
+	/**
+	 * @param receiver
+	 *            processes the broadcasts delivered to this node, e.g. a
+	 *            Consensus instance.
+	 */
+	public void setReceiver(Consumer<BroadcastAccept> receiver) {
+		this.receiver = receiver;
+	}
+
+	void receive(BroadcastAccept acc) {
+		if(receiver != null)
+			receiver.accept(acc);
+	}
+
+	/**
+	 * @return the broadcasts of this node, in order.
+	 */
+	public List<BroadcastAccept> getBroadcasts() {
+		return broadcasts;
+	}
+
+	/**
+	 * @return the ID of the last broadcast of this node, or -1 if none.
+	 */
+	public int getLastBroadcastID() {
+		return broadcasts.isEmpty() ? -1 : broadcasts.get(broadcasts.size() - 1).getBroadcastID();
+	}
+
+	/**
+	 * @return the value of the last broadcast with the specified ID, or
+	 *         <em>null</em> if none.
+	 */
+	public String getBroadcastValue(int bid) {
+		for(int i = broadcasts.size() - 1; i >= 0; --i) {
+			if(broadcasts.get(i).getBroadcastID() == bid)
+				return broadcasts.get(i).getValue();
+		}
+
+		return null;
+	}
+
+	/**
+	 * @return the value of the last message with the specified broadcast ID
+	 *         that was delivered to the application, or <em>null</em> if none.
+	 */
+	public String getAccepted(int bid) {
+		return accepted.get(bid);
+	}
+
+	/**
+	 * @return the first result of the specified Consensus instance, or
+	 *         <em>null</em> if it has not decided.
+	 */
+	public String getResult(int cid) {
+		return results.get(cid);
+	}
+
+	/**
+	 * @return the first result of each decided Consensus instance.
+	 */
+	public Map<Integer, String> getResults() {
+		return results;
+	}
+
+	/**
+	 * @return the number of results, including the repeated ones.
+	 */
+	public int getTotalResults() {
+		return totalResults;
+	}
+
+	@Override
+	public void broadcast(String icid, int cid, int pid, int bid, String value) {
+		BroadcastAccept acc = new BroadcastAccept(icid, cid, pid, bid, value);
+		broadcasts.add(acc);
+		if(scheduler != null)
+			scheduler.broadcast(acc);
+	}
+
+	@Override
+	public void process(Message msg) {
+		BroadcastAccept acc = (BroadcastAccept) msg;
+		accepted.put(acc.getBroadcastID(), acc.getValue());
+	}
+
+	@Override
+	public void processConsensusResult(int cid, String value) {
+		totalResults++;
+		results.putIfAbsent(cid, value);
+	}
+
+	@Override
+	public IBroadcast getBroadcast() {
+		return this;
+	}
+
+	@Override
+	public void initialize(AbstractCommunicator comm, ApplicationGetter appGetter, String nodeGroup, int numNodes) {
+	}
+
+	@Override
+	public AbstractCommunicator getCommunicator() {
+		return null;
+	}
+
+	@Override
+	public void releaseApplication(String icid) {
+	}
+
+	@Override
+	public void start(int nodeID, String value) {
+	}
+
+	@Override
+	public void start() {
+	}
+
+	@Override
+	public void processDatumChunk(ICChunkMessage icChunkMessage) {
+	}
+
+	@Override
+	public boolean verifyDatum(String hashAsHexString, int sourceNodeID) {
+		return false;
+	}
+}
@@ -0,0 +1,75 @@
+package gr.uoa.di.dsg.consensus;
+
+import gr.uoa.di.dsg.broadcast.BroadcastAccept;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Delivers the broadcasts of a set of {@link InMemoryNode}s to each node
+ * separately and in a random order, so that the nodes observe the messages
+ * as they would over an asynchronous network.
+ */
+public class InMemoryScheduler {
+
+	private static class Delivery {
+		final InMemoryNode recipient;
+		final BroadcastAccept acc;
+
+		Delivery(InMemoryNode recipient, BroadcastAccept acc) {
+			this.recipient = recipient;
+			this.acc = acc;
+		}
+	}
+
+	private final Random random;
+	private final List<InMemoryNode> nodes = new ArrayList<>();
+	private final List<Delivery> pending = new ArrayList<>();
+
+	/**
+	 * @param random
+	 *            selects the next delivery; a seeded generator makes the runs
+	 *            reproducible.
+	 */
+	public InMemoryScheduler(Random random) {
+		this.random = random;
+	}
+
+	void add(InMemoryNode node) {
+		nodes.add(node);
+	}
+
+	void broadcast(BroadcastAccept acc) {
+		for(InMemoryNode node: nodes)
+			pending.add(new Delivery(node, acc));
+	}
+
+	/**
+	 * Delivers a random pending broadcast, without shifting the rest.
+	 *
+	 * @return the recipient of the broadcast, or <em>null</em> if no broadcast
+	 *         is pending.
+	 */
+	public InMemoryNode deliverNext() {
+		if(pending.isEmpty())
+			return null;
+
+		int index = random.nextInt(pending.size());
+		Delivery delivery = pending.get(index);
+		pending.set(index, pending.get(pending.size() - 1));
+		pending.remove(pending.size() - 1);
+
+		delivery.recipient.receive(delivery.acc);
+		return delivery.recipient;
+	}
+
+	/**
+	 * Delivers the pending broadcasts, including those that they cause, until
+	 * none is left.
+	 */
+	public void deliverAll() {
+		while(deliverNext() != null)
+			;
+	}
+}
@@ -48,7 +48,7 @@ public class ParallelBrachaConsensusTest {
 			for(int i=0; i<TotalParallelConsensus; i++){
 				BBConsensus cons = new BBConsensus(this, "0", this.nodeId, i, numNodes);
 				activeConsensus.put(i, cons);
-				cons.start("" + i + "");
+				cons.start("" + (i % 2) + "");
 			}
 		}
 		
@@ -89,7 +89,7 @@ public class SerialBrachaConsensusTest {
 				BBConsensus cons = new BBConsensus(this, "0", this.nodeId, counter, numNodes);
 				activeConsensus.put(counter, cons);
 				if(this.nodeId > 3)
-					cons.start("2");
+					cons.start("0");
 				else
 					cons.start("1");
 			}
@@ -0,0 +1,100 @@
+package gr.uoa.di.dsg.consensus.bracha;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import gr.uoa.di.dsg.broadcast.BroadcastAccept;
+import gr.uoa.di.dsg.consensus.InMemoryNode;
+import gr.uoa.di.dsg.utils.GlobalVariables;
+
+import org.junit.Test;
+
+public class TestBBConsensusValidation {
+
+	private static final int NUM_NODES = 4;
+
+	private void deliver(BBConsensus cons, int bid, byte vote, int... nodeIDs) {
+		for(int nodeID: nodeIDs)
+			cons.process(new BroadcastAccept("IC_1", 0, nodeID, bid, BinaryVote.encode(vote)));
+	}
+
+	@Test
+	public void testOutOfOrderDelivery() {
+		/* The instance is never started, so it validates messages without broadcasting. */
+		BBConsensus cons = new BBConsensus(null, "IC_1", 0, 0, NUM_NODES);
+		byte decided = BinaryVote.decide(BinaryVote.ONE);
+
+		deliver(cons, 2, decided, 0, 1, 2);
+		deliver(cons, 1, BinaryVote.ONE, 0, 1, 2);
+		assertNull(cons.getValidatedMessage().get(1));
+		assertNull(cons.getValidatedMessage().get(2));
+
+		deliver(cons, 0, BinaryVote.ONE, 0);
+		assertNull(cons.getValidatedMessage().get(1));
+
+		/* A second vote satisfies the first round, which in turn satisfies the decided votes. */
+		deliver(cons, 0, BinaryVote.ONE, 1);
+		assertEquals(3, cons.getValidatedMessage().get(1)[BinaryVote.ONE]);
+		assertEquals(3, cons.getValidatedMessage().get(2)[decided]);
+	}
+
+	@Test
+	public void testUnsupportedVotesStayPending() {
+		BBConsensus cons = new BBConsensus(null, "IC_1", 0, 0, NUM_NODES);
+
+		deliver(cons, 0, BinaryVote.ONE, 0, 1, 2);
+		deliver(cons, 1, BinaryVote.ZERO, 3);
+		deliver(cons, 2, BinaryVote.ZERO, 3);
+		assertEquals(3, cons.getValidatedMessage().get(0)[BinaryVote.ONE]);
+		assertNull(cons.getValidatedMessage().get(1));
+		assertNull(cons.getValidatedMessage().get(2));
+	}
+
+	@Test
+	public void testNegativeIDsBelongToNoRound() {
+		GlobalVariables.ONE_STEP_CONSENSUS = true;
+		try {
+			InMemoryNode node = new InMemoryNode();
+			BBConsensus cons = new BBConsensus(node, "IC_1", 0, 0, NUM_NODES);
+			cons.start("1");
+
+			/* A multiple of 3 below zero is not a first round, even when all n nodes vote on it. */
+			deliver(cons, -3, BinaryVote.ONE, 0, 1, 2, 3);
+			assertNull(cons.getValidatedMessage().get(-3));
+			assertNull(cons.getValidatedMessage().get(0));
+			assertNull(node.getResult(0));
+		}
+		finally {
+			GlobalVariables.ONE_STEP_CONSENSUS = false;
+		}
+	}
+
+	private InMemoryNode runFirstRound(boolean oneStep, byte lastVote) {
+		GlobalVariables.ONE_STEP_CONSENSUS = oneStep;
+		try {
+			InMemoryNode node = new InMemoryNode();
+			BBConsensus cons = new BBConsensus(node, "IC_1", 0, 0, NUM_NODES);
+			cons.start("1");
+			deliver(cons, 0, BinaryVote.ONE, 0, 1, 2);
+			deliver(cons, 0, lastVote, 3);
+			return node;
+		}
+		finally {
+			GlobalVariables.ONE_STEP_CONSENSUS = false;
+		}
+	}
+
+	@Test
+	public void testOneStepDecision() {
+		/* All n votes of the first round agree, so the value is decided before the second round completes. */
+		InMemoryNode node = runFirstRound(true, BinaryVote.ONE);
+		assertEquals("1", node.getResult(0));
+		assertEquals(2, node.getBroadcasts().size());
+
+		/* A single dissenting vote falls back to the full protocol. */
+		assertNull(runFirstRound(true, BinaryVote.ZERO).getResult(0));
+
+		/* The fast path is disabled by default. */
+		assertNull(runFirstRound(false, BinaryVote.ONE).getResult(0));
+	}
+}
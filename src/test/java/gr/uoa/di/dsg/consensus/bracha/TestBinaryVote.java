@@ -0,0 +1,49 @@
+package gr.uoa.di.dsg.consensus.bracha;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import gr.uoa.di.dsg.broadcast.BroadcastAccept;
+
+import org.junit.Test;
+
+public class TestBinaryVote {
+
+	@Test
+	public void testEncoding() {
+		for(byte vote = 0; vote < BinaryVote.TOTAL_VOTES; ++vote)
+			assertEquals(vote, BinaryVote.decode(BinaryVote.encode(vote)));
+
+		/* Undecided votes keep the plain representation of the values. */
+		assertEquals("0", BinaryVote.encode(BinaryVote.ZERO));
+		assertEquals("1", BinaryVote.encode(BinaryVote.ONE));
+
+		byte decided = BinaryVote.decide(BinaryVote.ONE);
+		assertTrue(BinaryVote.isDecided(decided));
+		assertFalse(BinaryVote.isDecided(BinaryVote.valueOf(decided)));
+		assertEquals("1", BinaryVote.toValue(decided));
+		assertEquals("(d,1)", BinaryVote.toString(decided));
+	}
+
+	@Test
+	public void testInvalidValues() {
+		assertEquals(BinaryVote.INVALID, BinaryVote.decode(null));
+		assertEquals(BinaryVote.INVALID, BinaryVote.decode(""));
+		assertEquals(BinaryVote.INVALID, BinaryVote.decode("4"));
+		assertEquals(BinaryVote.INVALID, BinaryVote.decode("(d,1)"));
+
+		/* Only undecided votes are valid proposals. */
+		assertEquals(BinaryVote.ONE, BinaryVote.parse("1"));
+		assertEquals(BinaryVote.INVALID, BinaryVote.parse("3"));
+	}
+
+	@Test
+	public void testAcceptCachesVote() {
+		BroadcastAccept acc = new BroadcastAccept("IC_1", 0, 1, 2, "3");
+		assertEquals(BinaryVote.decide(BinaryVote.ONE), acc.getVote());
+
+		acc.setValue("0");
+		assertEquals(BinaryVote.ZERO, acc.getVote());
+	}
+}
@@ -0,0 +1,56 @@
+package gr.uoa.di.dsg.consensus.bracha;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import gr.uoa.di.dsg.crypto.SecretKeysGenerator;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import org.junit.Test;
+
+public class TestCommonCoin {
+
+	private static final int PHASES = 1000;
+
+	@Test
+	public void testSeededCoinIsShared() throws Exception {
+		File directory = Files.createTempDirectory("coin").toFile();
+		String path = directory.getPath() + File.separator;
+		SecretKeysGenerator.generateCoinSeed(path);
+
+		/* Every node loads its own copy of the seed. */
+		CommonCoin first = SeededCommonCoin.load(path + "coin");
+		CommonCoin second = SeededCommonCoin.load(path + "coin");
+
+		int ones = 0;
+		for(int phase = 0; phase < PHASES; ++phase) {
+			byte coin = first.toss("IC_1", 3, phase);
+			assertEquals(coin, second.toss("IC_1", 3, phase));
+			assertTrue(coin == BinaryVote.ZERO || coin == BinaryVote.ONE);
+			ones += coin;
+		}
+
+		/* The coin is unbiased, allowing for more than 6 standard deviations. */
+		assertTrue(Math.abs(ones - PHASES / 2) < 100);
+
+		new File(path + "coin").delete();
+		directory.delete();
+	}
+
+	@Test
+	public void testSeededCoinDependsOnInstance() {
+		CommonCoin coin = new SeededCommonCoin(new byte[32]);
+
+		int differences = 0;
+		for(int phase = 0; phase < PHASES; ++phase) {
+			if(coin.toss("IC_1", 3, phase) != coin.toss("IC_2", 3, phase))
+				differences++;
+			if(coin.toss("IC_1", 3, phase) != coin.toss("IC_1", 4, phase))
+				differences++;
+		}
+
+		assertTrue(differences > PHASES / 2);
+	}
+}
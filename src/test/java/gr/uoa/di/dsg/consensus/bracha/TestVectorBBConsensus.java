@@ -0,0 +1,109 @@
+package gr.uoa.di.dsg.consensus.bracha;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import gr.uoa.di.dsg.broadcast.BroadcastAccept;
+import gr.uoa.di.dsg.consensus.InMemoryNode;
+import gr.uoa.di.dsg.consensus.InMemoryScheduler;
+import gr.uoa.di.dsg.utils.GlobalVariables;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TestVectorBBConsensus {
+
+	private static final int INSTANCES = 200;
+
+	private final Random random = new Random(11);
+
+	private void runInstance(int instance, int numNodes) {
+		List<Integer> slots = new ArrayList<>();
+		for(int i = 0; i < numNodes; ++i)
+			slots.add(100 + i);
+
+		/* The first slots are unanimous, the rest are split among the nodes. */
+		int unanimous = numNodes / 2;
+		InMemoryScheduler scheduler = new InMemoryScheduler(random);
+		InMemoryNode[] nodes = new InMemoryNode[numNodes];
+		VectorBBConsensus[] consensus = new VectorBBConsensus[numNodes];
+		for(int i = 0; i < numNodes; ++i) {
+			nodes[i] = new InMemoryNode(scheduler);
+			consensus[i] = new VectorBBConsensus(nodes[i], "IC_" + instance, i, slots, numNodes, new LocalCoin());
+			nodes[i].setReceiver(consensus[i]::process);
+		}
+
+		for(int i = 0; i < numNodes; ++i) {
+			List<String> proposals = new ArrayList<>();
+			for(int slot = 0; slot < numNodes; ++slot)
+				proposals.add((slot < unanimous) ? String.valueOf(slot % 2) : String.valueOf(random.nextInt(2)));
+			consensus[i].start(proposals);
+		}
+
+		scheduler.deliverAll();
+
+		for(int i = 0; i < numNodes; ++i) {
+			InMemoryNode node = nodes[i];
+			assertTrue(consensus[i].isTerminated());
+			assertEquals(numNodes, node.getResults().size());
+			assertEquals(numNodes, node.getTotalResults());
+			for(int slot = 0; slot < numNodes; ++slot) {
+				String value = node.getResult(100 + slot);
+				assertNotNull(value);
+				assertEquals(nodes[0].getResult(100 + slot), value);
+				if(slot < unanimous)
+					assertEquals(String.valueOf(slot % 2), value);
+			}
+
+			/* A single message per round, for all slots. */
+			int broadcastID = -1;
+			for(BroadcastAccept acc: node.getBroadcasts()) {
+				assertEquals(VectorBBConsensus.CONSENSUS_ID, acc.getConsensusID());
+				assertTrue(acc.getBroadcastID() > broadcastID);
+				broadcastID = acc.getBroadcastID();
+			}
+			assertEquals(node.getLastBroadcastID() + 1, node.getBroadcasts().size());
+		}
+	}
+
+	@Test
+	public void testAgreementPerSlot() {
+		for(int i = 0; i < INSTANCES; ++i) {
+			runInstance(i, 4);
+			runInstance(i, 7);
+		}
+	}
+
+	@Test
+	public void testAgreementPerSlotWithOneStep() {
+		GlobalVariables.ONE_STEP_CONSENSUS = true;
+		try {
+			for(int i = 0; i < INSTANCES; ++i) {
+				runInstance(i, 4);
+				runInstance(i, 7);
+			}
+		}
+		finally {
+			GlobalVariables.ONE_STEP_CONSENSUS = false;
+		}
+	}
+
+	@Test
+	public void testMalformedVectorsAreIgnored() {
+		InMemoryNode node = new InMemoryNode();
+
+		List<Integer> slots = new ArrayList<>();
+		slots.add(0);
+		slots.add(1);
+		VectorBBConsensus consensus = new VectorBBConsensus(node, "IC_1", 0, slots, 4, new LocalCoin());
+
+		consensus.process(new BroadcastAccept("IC_1", VectorBBConsensus.CONSENSUS_ID, 1, 0, "1"));
+		consensus.process(new BroadcastAccept("IC_1", VectorBBConsensus.CONSENSUS_ID, 1, 0, "14"));
+		consensus.process(new BroadcastAccept("IC_1", VectorBBConsensus.CONSENSUS_ID, 1, 0, null));
+		assertEquals(0, node.getResults().size());
+	}
+}
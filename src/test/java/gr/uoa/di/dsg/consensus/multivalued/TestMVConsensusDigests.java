@@ -0,0 +1,98 @@
+package gr.uoa.di.dsg.consensus.multivalued;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import gr.uoa.di.dsg.broadcast.BroadcastAccept;
+import gr.uoa.di.dsg.consensus.InMemoryNode;
+import gr.uoa.di.dsg.consensus.multivalued.messages.MVInitMessage;
+import gr.uoa.di.dsg.consensus.multivalued.messages.MVVectorMessage;
+import gr.uoa.di.dsg.utils.BroadcastID;
+import gr.uoa.di.dsg.utils.GlobalVariables;
+
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestMVConsensusDigests {
+
+	private static final int NUM_NODES = 4;
+
+	private String vector(InMemoryNode node) {
+		return node.getBroadcastValue(BroadcastID.MVVECTOR_BROADCAST_ID.getValue());
+	}
+
+	private String proposal(InMemoryNode node) {
+		return node.getAccepted(BroadcastID.MVPROPOSE_BROADCAST_ID.getValue());
+	}
+
+	private String largeValue() {
+		char[] chars = new char[4096];
+		Arrays.fill(chars, 'V');
+		return new String(chars);
+	}
+
+	private MVInitMessage initMessage(int pid, String value) {
+		return new MVInitMessage("IC_MV", 0, pid, BroadcastID.MVINIT_BROADCAST_ID.getValue(), value);
+	}
+
+	private MVVectorMessage vectorMessage(int pid, String value) {
+		return MVVectorMessage.fromBroadcast(new BroadcastAccept("IC_MV", 0, pid, BroadcastID.MVVECTOR_BROADCAST_ID.getValue(), value));
+	}
+
+	@Before
+	public void setUp() {
+		GlobalVariables.DIGEST_VECTORS = true;
+	}
+
+	@After
+	public void tearDown() {
+		GlobalVariables.DIGEST_VECTORS = false;
+	}
+
+	@Test
+	public void testVectorCarriesDigests() {
+		String value = largeValue();
+		InMemoryNode node = new InMemoryNode();
+		MVConsensus consensus = new MVConsensus(node, 0, NUM_NODES);
+		for(int i = 0; i < NUM_NODES - 1; ++i)
+			consensus.process(initMessage(i, value));
+
+		assertTrue(vector(node).length() < 4 * 64);
+		assertFalse(vector(node).contains(value));
+
+		/* The vector is validated against the digests of the values, and the value itself is delivered. */
+		for(int i = 0; i < NUM_NODES - 1; ++i)
+			consensus.process(vectorMessage(i, vector(node)));
+		assertEquals("1", proposal(node));
+
+		consensus.processConsensusResult("IC_MV", 0, "1");
+		assertEquals(value, node.getAccepted(BroadcastID.MVACCEPT_BROADCAST_ID.getValue()));
+	}
+
+	@Test
+	public void testMismatchingDigestIsIgnored() {
+		String value = largeValue();
+		InMemoryNode node = new InMemoryNode();
+		MVConsensus consensus = new MVConsensus(node, 0, NUM_NODES);
+		for(int i = 0; i < NUM_NODES - 1; ++i)
+			consensus.process(initMessage(i, value));
+		consensus.process(initMessage(NUM_NODES - 1, "W"));
+
+		/* The vector of node 3 reports a different value for node 2. */
+		MVVectorMessage honest = vectorMessage(0, vector(node));
+		String[] forged = honest.getVectorOfValues();
+		forged[2] = "W";
+		consensus.process(new MVVectorMessage("IC_MV", 0, 3, BroadcastID.MVVECTOR_BROADCAST_ID.getValue(), honest.getValue(), forged));
+		consensus.process(vectorMessage(0, vector(node)));
+		consensus.process(vectorMessage(1, vector(node)));
+		assertNull(proposal(node));
+
+		consensus.process(vectorMessage(2, vector(node)));
+		assertEquals("1", proposal(node));
+	}
+}
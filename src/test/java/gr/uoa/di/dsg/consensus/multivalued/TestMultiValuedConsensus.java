@@ -105,6 +105,21 @@ public class TestMultiValuedConsensus {
 
 	@Test
 	public void test() {
+		run();
+	}
+
+	@Test
+	public void testDigestVectors() {
+		GlobalVariables.DIGEST_VECTORS = true;
+		try {
+			run();
+		}
+		finally {
+			GlobalVariables.DIGEST_VECTORS = false;
+		}
+	}
+
+	private void run() {
 		Thread[] threads = new Thread[numNodes];
 		
 		for (int i = 0; i < numNodes; i++)
@@ -0,0 +1,76 @@
+package gr.uoa.di.dsg.crypto;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TestAuthenticatorVector {
+
+	private static final int DIGEST_LENGTH = 20;
+
+	private byte[] authenticator(int nodeID) {
+		byte[] authenticator = new byte[DIGEST_LENGTH];
+		Arrays.fill(authenticator, (byte) nodeID);
+		authenticator[0] = (byte) (nodeID >> 8);
+		return authenticator;
+	}
+
+	@Test
+	public void testDenseVector() {
+		int totalNodes = 300;
+		List<Integer> nodeIDs = new ArrayList<>();
+		List<byte[]> authenticators = new ArrayList<>();
+		for(int i = 0; i < totalNodes; ++i) {
+			nodeIDs.add(i);
+			authenticators.add(authenticator(i));
+		}
+
+		byte[] vector = AuthenticatorVector.encode(nodeIDs, authenticators);
+		assertEquals(DIGEST_LENGTH, AuthenticatorVector.getStride(vector));
+
+		/* The MACs of nodes above 127 are no longer confused with others. */
+		for(int i = 0; i < totalNodes; ++i)
+			assertArrayEquals(authenticator(i), AuthenticatorVector.get(vector, i));
+
+		assertNull(AuthenticatorVector.get(vector, totalNodes));
+		assertNull(AuthenticatorVector.get(vector, -1));
+	}
+
+	@Test
+	public void testSparseVector() {
+		List<Integer> nodeIDs = Arrays.asList(3, 128, 1000, 70000);
+		List<byte[]> authenticators = new ArrayList<>();
+		for(Integer nodeID: nodeIDs)
+			authenticators.add(authenticator(nodeID));
+
+		byte[] vector = AuthenticatorVector.encode(nodeIDs, authenticators);
+		for(Integer nodeID: nodeIDs)
+			assertArrayEquals(authenticator(nodeID), AuthenticatorVector.get(vector, nodeID));
+
+		assertNull(AuthenticatorVector.get(vector, 0));
+		assertNull(AuthenticatorVector.get(vector, 129));
+	}
+
+	@Test
+	public void testSlice() {
+		byte[] vector = AuthenticatorVector.encode(Arrays.asList(0, 1), Arrays.asList(authenticator(0), authenticator(1)));
+
+		ByteBuffer slice = AuthenticatorVector.slice(vector, 1);
+		assertEquals(DIGEST_LENGTH, slice.remaining());
+		for(int i = 0; i < DIGEST_LENGTH; ++i)
+			assertEquals(authenticator(1)[i], slice.get(i));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTruncatedVector() {
+		byte[] vector = AuthenticatorVector.encode(Arrays.asList(0, 1), Arrays.asList(authenticator(0), authenticator(1)));
+		AuthenticatorVector.get(Arrays.copyOf(vector, vector.length - 1), 1);
+	}
+}
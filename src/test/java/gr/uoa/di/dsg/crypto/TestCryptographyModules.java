@@ -0,0 +1,131 @@
+package gr.uoa.di.dsg.crypto;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyPair;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+public class TestCryptographyModules {
+
+	private static final int TOTAL_KEYS = 4;
+	private static final String DATA = "IC_VECTOR_0_1_2_3";
+
+	private void testModule(CryptographyModule cryptoModule, String algorithm) throws GeneralSecurityException {
+		List<KeyPair> keyPairs = new ArrayList<>();
+		for(int i = 0; i < TOTAL_KEYS; ++i)
+			keyPairs.add(KeyPairsGenerator.generateKeyPair(algorithm));
+
+		List<Key> keys = new ArrayList<>();
+		List<byte[]> signatures = new ArrayList<>();
+		for(KeyPair keyPair: keyPairs) {
+			keys.add(keyPair.getPublic());
+			signatures.add(cryptoModule.sign(DATA, keyPair.getPrivate()));
+		}
+
+		/* A single signature of the batch is produced by a different key. */
+		List<byte[]> forged = new ArrayList<>(signatures);
+		forged.set(TOTAL_KEYS - 1, signatures.get(0));
+		assertFalse(cryptoModule.verifyBatch(DATA, keys, forged));
+
+		for(int i = 0; i < TOTAL_KEYS; ++i) {
+			assertTrue(cryptoModule.verify(DATA, keys.get(i), signatures.get(i)));
+			assertFalse(cryptoModule.verify(DATA + "_4", keys.get(i), signatures.get(i)));
+		}
+
+		assertTrue(cryptoModule.verifyBatch(DATA, keys, signatures));
+		assertFalse(cryptoModule.verifyBatch(DATA + "_4", keys, signatures));
+		assertFalse(cryptoModule.verifyBatch(DATA, keys, signatures.subList(0, TOTAL_KEYS - 1)));
+	}
+
+	@Test
+	public void testRSA() throws GeneralSecurityException {
+		testModule(new DigitalSignatureCryptographyModule(), "RSA");
+	}
+
+	@Test
+	public void testECDSA() throws GeneralSecurityException {
+		testModule(new ECDSACryptographyModule(), "ECDSA");
+	}
+
+	@Test
+	public void testEdDSA() throws GeneralSecurityException {
+		try {
+			KeyPairsGenerator.generateKeyPair("EdDSA");
+		}
+		catch (NoSuchAlgorithmException ex) {
+			Assume.assumeNoException("Ed25519 is not supported by this JVM", ex);
+		}
+
+		testModule(new EdDSACryptographyModule(), "EdDSA");
+	}
+
+	@Test
+	public void testMerkle() throws GeneralSecurityException {
+		MerkleCryptographyModule cryptoModule = new MerkleCryptographyModule("SHA256withECDSA");
+		testModule(cryptoModule, "ECDSA");
+		
+		KeyPair keyPair = KeyPairsGenerator.generateKeyPair("ECDSA");
+		List<byte[]> data = new ArrayList<>();
+		for(int i = 0; i < 11; ++i)
+			data.add((DATA + "_" + i).getBytes());
+		
+		List<byte[]> signatures = cryptoModule.signBatch(data, keyPair.getPrivate());
+		for(int i = 0; i < data.size(); ++i) {
+			assertTrue(cryptoModule.verify(data.get(i), keyPair.getPublic(), signatures.get(i)));
+			assertFalse(cryptoModule.verify(data.get((i + 1) % data.size()), keyPair.getPublic(), signatures.get(i)));
+		}
+		
+		/* A tampered inclusion path leads to a different root. */
+		byte[] tampered = signatures.get(3).clone();
+		tampered[5] ^= 1;
+		assertFalse(cryptoModule.verify(data.get(3), keyPair.getPublic(), tampered));
+		
+		/* A root verified under one key is not accepted under another. */
+		KeyPair otherKeyPair = KeyPairsGenerator.generateKeyPair("ECDSA");
+		assertFalse(cryptoModule.verify(data.get(0), otherKeyPair.getPublic(), signatures.get(0)));
+	}
+	
+	@Test
+	public void testKeyPairFiles() throws GeneralSecurityException, IOException, ClassNotFoundException {
+		File directory = Files.createTempDirectory("keys").toFile();
+		String path = directory.getPath() + File.separator;
+		KeyPairsGenerator.generateKeyPairs(path, 2, "ECDSA");
+		
+		/* The nodes sign with the key pairs of the files, not with the RSA keys of their keystores. */
+		ECDSACryptographyModule cryptoModule = new ECDSACryptographyModule();
+		assertFalse(cryptoModule.usesKeyStore());
+		assertTrue(new DigitalSignatureCryptographyModule().usesKeyStore());
+		
+		byte[] signature = cryptoModule.sign(DATA, KeyPairsGenerator.loadPrivateKey(path, 0));
+		assertTrue(cryptoModule.verify(DATA, KeyPairsGenerator.loadPublicKey(path, 0), signature));
+		assertFalse(cryptoModule.verify(DATA, KeyPairsGenerator.loadPublicKey(path, 1), signature));
+		
+		for(File file: directory.listFiles())
+			file.delete();
+		directory.delete();
+	}
+	
+	@Test
+	public void testFactory() {
+		assertEquals(MacCryptographyModule.class, CryptographyModuleFactory.create("true").getClass());
+		assertEquals(MacCryptographyModule.class, CryptographyModuleFactory.create("MAC").getClass());
+		assertEquals(DigitalSignatureCryptographyModule.class, CryptographyModuleFactory.create("false").getClass());
+		assertEquals(DigitalSignatureCryptographyModule.class, CryptographyModuleFactory.create("RSA").getClass());
+		assertEquals(ECDSACryptographyModule.class, CryptographyModuleFactory.create("ecdsa").getClass());
+		assertEquals(EdDSACryptographyModule.class, CryptographyModuleFactory.create("EdDSA").getClass());
+		assertNull(CryptographyModuleFactory.create("DSA"));
+	}
+}
@@ -0,0 +1,79 @@
+package gr.uoa.di.dsg.ic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import gr.uoa.di.dsg.broadcast.BroadcastAccept;
+import gr.uoa.di.dsg.ic.lamport.SynchronousIC;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TestApplicationRegistry {
+
+	private final List<String> created = new ArrayList<>();
+
+	private Application create(String appID) {
+		created.add(appID);
+		return new SynchronousIC(appID, null, null);
+	}
+
+	@Test
+	public void testEviction() {
+		ApplicationRegistry registry = new ApplicationRegistry();
+		Application first = registry.get("0", this::create);
+		assertSame(first, registry.get("0", this::create));
+		registry.get("1", this::create);
+		registry.get("IC_A", this::create);
+		assertEquals(3, registry.getLiveInstances());
+
+		registry.release("1");
+		registry.release("IC_A");
+		assertEquals(1, registry.getLiveInstances());
+
+		/* Late messages of an evicted instance reach the tombstone, without recreating the instance. */
+		assertSame(ApplicationRegistry.RELEASED_APPLICATION, registry.get("1", this::create));
+		assertSame(ApplicationRegistry.RELEASED_APPLICATION, registry.get("IC_A", this::create));
+		ApplicationRegistry.RELEASED_APPLICATION.process(new BroadcastAccept("1", 0, 0, 0, "0"));
+
+		registry.release("0");
+		assertSame(ApplicationRegistry.RELEASED_APPLICATION, registry.get("0", this::create));
+		assertEquals(0, registry.getLiveInstances());
+
+		/* Instances that have not been released yet are still created on demand. */
+		assertNotSame(ApplicationRegistry.RELEASED_APPLICATION, registry.get("2", this::create));
+		assertEquals(1, registry.getLiveInstances());
+
+		List<String> expected = new ArrayList<>();
+		expected.add("0");
+		expected.add("1");
+		expected.add("IC_A");
+		expected.add("2");
+		assertEquals(expected, created);
+	}
+
+	@Test
+	public void testShardedTombstonesFold() {
+		int numShards = 4;
+		ApplicationRegistry[] registries = new ApplicationRegistry[numShards];
+		for(int i = 0; i < numShards; i++)
+			registries[i] = new ApplicationRegistry(numShards, i);
+
+		/* Consecutive IDs are spread round-robin across the shards, as the sharded engine routes them. */
+		for(int i = 0; i < 10000; i++) {
+			ApplicationRegistry registry = registries[i % numShards];
+			registry.get(String.valueOf(i), this::create);
+			registry.release(String.valueOf(i));
+		}
+
+		for(int i = 0; i < numShards; i++) {
+			assertEquals(0, registries[i].getLiveInstances());
+			assertEquals(0, registries[i].getTotalTombstones());
+			assertSame(ApplicationRegistry.RELEASED_APPLICATION, registries[i].get(String.valueOf(9996 + i), this::create));
+		}
+		assertEquals(10000, created.size());
+	}
+}
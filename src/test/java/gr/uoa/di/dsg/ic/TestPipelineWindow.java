@@ -0,0 +1,115 @@
+package gr.uoa.di.dsg.ic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class TestPipelineWindow {
+
+	private int nextID = 0;
+
+	/* Fills the window and completes a whole epoch of instances with the same latency. */
+	private void runEpoch(PipelineWindow pipeline, long latencyNanos, boolean congested) {
+		refill(pipeline);
+
+		int window = pipeline.getWindow();
+		for(int i = 0; i < window; ++i) {
+			pipeline.complete(latencyNanos, congested);
+			refill(pipeline);
+		}
+	}
+
+	private void refill(PipelineWindow pipeline) {
+		while(pipeline.tryStart(String.valueOf(nextID)))
+			++nextID;
+	}
+
+	@Test
+	public void testAdmission() {
+		PipelineWindow pipeline = new PipelineWindow(2, 10);
+		assertTrue(pipeline.tryStart("0"));
+		assertTrue(pipeline.tryStart("1"));
+		assertFalse(pipeline.tryStart("2"));
+		assertEquals(2, pipeline.getInFlight());
+
+		pipeline.complete("0", false);
+		assertEquals(1, pipeline.getInFlight());
+		assertTrue(pipeline.tryStart("2"));
+
+		/* An instance that was never admitted does not free a slot. */
+		pipeline.complete("3", false);
+		assertEquals(2, pipeline.getInFlight());
+	}
+
+	@Test
+	public void testCompletionBeforeAdmission() {
+		PipelineWindow pipeline = new PipelineWindow(1, 10);
+		assertTrue(pipeline.tryStart("0"));
+
+		/* The rest nodes drive instance 1 to completion before the window admits it. */
+		pipeline.complete("1", false);
+		assertEquals(1, pipeline.getUnadmittedCompletions());
+		assertEquals(1, pipeline.getInFlight());
+
+		/* Once a slot is freed, the completed instance is not admitted, but skipped. */
+		pipeline.complete("0", false);
+		assertFalse(pipeline.tryStart("1"));
+		assertTrue(pipeline.skipCompleted("1"));
+		assertFalse(pipeline.skipCompleted("1"));
+		assertEquals(0, pipeline.getInFlight());
+
+		/* The slot remains available to the next instance. */
+		assertFalse(pipeline.skipCompleted("2"));
+		assertTrue(pipeline.tryStart("2"));
+		pipeline.complete("2", false);
+		assertEquals(0, pipeline.getInFlight());
+		assertEquals(1, pipeline.getUnadmittedCompletions());
+	}
+
+	@Test
+	public void testAdaptation() {
+		PipelineWindow pipeline = new PipelineWindow(4, 8);
+
+		/* The latency stays flat, so the window grows up to its limit. */
+		for(int i = 0; i < 6; ++i)
+			runEpoch(pipeline, 1000000, false);
+		assertEquals(8, pipeline.getWindow());
+
+		/* The latency doubles, so half of the window is queued and the window shrinks. */
+		runEpoch(pipeline, 2000000, false);
+		assertEquals(7, pipeline.getWindow());
+
+		/* A congested queue of cryptographic tasks halves the window. */
+		runEpoch(pipeline, 1000000, true);
+		assertEquals(3, pipeline.getWindow());
+
+		pipeline = new PipelineWindow(1, 8);
+		for(int i = 0; i < 3; ++i)
+			runEpoch(pipeline, 1000000, true);
+		assertEquals(1, pipeline.getWindow());
+	}
+
+	@Test
+	public void testCurve() {
+		PipelineWindow pipeline = new PipelineWindow(2, 2);
+		runEpoch(pipeline, 1000000, false);
+		runEpoch(pipeline, 3000000, false);
+		assertEquals(4, pipeline.getSamples(2));
+
+		/* Completions while the window is not full, e.g. at the drain of the pipeline, are not sampled. */
+		pipeline.complete(1000000, false);
+		pipeline.complete(1000000, false);
+		assertEquals(5, pipeline.getSamples(2));
+
+		String[] lines = pipeline.getCurve().split("\n");
+		assertEquals("Window,Instances,Throughput,MeanLatency,P99Latency", lines[0]);
+		assertEquals(2, lines.length);
+		assertTrue(lines[1].startsWith("2,5,"));
+
+		pipeline.resetStatistics();
+		assertEquals(0, pipeline.getSamples(2));
+		assertEquals(1, pipeline.getCurve().split("\n").length);
+	}
+}
@@ -15,6 +15,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import static org.junit.Assert.assertEquals;
+
 import org.junit.Before;
 import org.junit.Test;
 
@@ -42,6 +44,7 @@ public class TestBinaryIC {
 		private ApplicationGetter applicationGetter = null;
 		private int instancesCounter = 0;
 		private Map<String, Application> activeApps = new HashMap<>();
+		private List<String> result = null;
 		
 		public void init() {
 			Application app = applicationGetter.getApp(String.valueOf(instancesCounter));
@@ -55,6 +58,7 @@ public class TestBinaryIC {
 				System.out.print(ress + " ");
 			System.out.println();
 			
+			this.result = res;
 			this.activeApps.remove(appID);
 			this.communicator.stop();
 		}
@@ -112,5 +116,36 @@ public class TestBinaryIC {
 			}
 		}
 	}
-
+	
+	@Test
+	public void testVectorConsensus() {
+		GlobalVariables.VECTOR_CONSENSUS = true;
+		try {
+			test();
+		}
+		finally {
+			GlobalVariables.VECTOR_CONSENSUS = false;
+		}
+		
+		for(int i = 0; i < numNodes; i++) {
+			assertEquals(numNodes, allNodes[i].result.size());
+			assertEquals(allNodes[0].result, allNodes[i].result);
+		}
+	}
+	
+	@Test
+	public void testOneStepConsensus() {
+		GlobalVariables.ONE_STEP_CONSENSUS = true;
+		try {
+			test();
+		}
+		finally {
+			GlobalVariables.ONE_STEP_CONSENSUS = false;
+		}
+		
+		for(int i = 0; i < numNodes; i++) {
+			assertEquals(numNodes, allNodes[i].result.size());
+			assertEquals(allNodes[0].result, allNodes[i].result);
+		}
+	}
 }
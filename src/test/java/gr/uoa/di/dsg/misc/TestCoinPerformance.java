@@ -0,0 +1,135 @@
+package gr.uoa.di.dsg.misc;
+
+import static org.junit.Assert.assertEquals;
+
+import gr.uoa.di.dsg.consensus.InMemoryNode;
+import gr.uoa.di.dsg.consensus.InMemoryScheduler;
+import gr.uoa.di.dsg.consensus.bracha.BBConsensus;
+import gr.uoa.di.dsg.consensus.bracha.CommonCoin;
+import gr.uoa.di.dsg.consensus.bracha.LocalCoin;
+import gr.uoa.di.dsg.consensus.bracha.SeededCommonCoin;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+import org.junit.runner.JUnitCore;
+
+/**
+ * Runs binary Consensus instances with split proposals, half of the nodes
+ * proposing 0, and reports the distribution of the number of phases until all
+ * nodes decide. The broadcasts are delivered in memory, to each node
+ * separately and in a random order, so the local coins of the nodes diverge
+ * as they would over the network.
+ */
+public class TestCoinPerformance {
+
+	private static int INSTANCES = 10000;
+	private static final int MAX_PHASES = 64;
+
+	private final Random random = new Random(42);
+
+	/** Records the phase in which the node decided. */
+	private class SimulatedNode extends InMemoryNode {
+		int decidedPhase = -1;
+
+		SimulatedNode(InMemoryScheduler scheduler) {
+			super(scheduler);
+		}
+
+		@Override
+		public void processConsensusResult(int cid, String value) {
+			if(getResult(cid) == null)
+				decidedPhase = getLastBroadcastID() / 3 + 1;
+
+			super.processConsensusResult(cid, value);
+		}
+	}
+
+	/**
+	 * @return the number of phases until all nodes decided, or -1 if the
+	 *         instance stalled.
+	 */
+	private int runInstance(int cid, int numNodes, CommonCoin coin) {
+		InMemoryScheduler scheduler = new InMemoryScheduler(random);
+		SimulatedNode[] nodes = new SimulatedNode[numNodes];
+		BBConsensus[] consensus = new BBConsensus[numNodes];
+		for(int i = 0; i < numNodes; ++i) {
+			nodes[i] = new SimulatedNode(scheduler);
+			consensus[i] = new BBConsensus(nodes[i], "IC_COIN", i, cid, numNodes, coin);
+			nodes[i].setReceiver(consensus[i]::process);
+		}
+
+		for(int i = 0; i < numNodes; ++i)
+			consensus[i].start((i < numNodes / 2) ? "0" : "1");
+
+		InMemoryNode recipient;
+		while((recipient = scheduler.deliverNext()) != null) {
+			if(recipient.getLastBroadcastID() / 3 >= MAX_PHASES)
+				return -1;
+		}
+
+		int phases = 0;
+		for(SimulatedNode node: nodes) {
+			if(node.getResult(cid) == null)
+				return -1;
+
+			assertEquals(nodes[0].getResult(cid), node.getResult(cid));
+			phases = Math.max(phases, node.decidedPhase);
+		}
+
+		return phases;
+	}
+
+	private void measure(String name, int numNodes, CommonCoin coin) {
+		int[] phases = new int[INSTANCES];
+		int stalled = 0;
+		int completed = 0;
+		long start = System.nanoTime();
+		for(int i = 0; i < INSTANCES; ++i) {
+			int result = runInstance(i, numNodes, coin);
+			if(result < 0)
+				stalled++;
+			else
+				phases[completed++] = result;
+		}
+		long elapsed = System.nanoTime() - start;
+
+		Arrays.sort(phases, 0, completed);
+		double mean = 0;
+		for(int i = 0; i < completed; ++i)
+			mean += phases[i];
+		mean = (completed == 0) ? 0 : mean / completed;
+
+		System.out.println(String.format("%-8s n=%-3d mean=%6.3f p50=%3d p99=%3d p99.9=%3d max=%3d stalled=%d (%d ms)", name, numNodes, mean,
+				percentile(phases, completed, 0.5), percentile(phases, completed, 0.99), percentile(phases, completed, 0.999),
+				(completed == 0) ? 0 : phases[completed - 1], stalled, elapsed / 1000000));
+	}
+
+	private int percentile(int[] sorted, int length, double percentile) {
+		if(length == 0)
+			return 0;
+		return sorted[(int) Math.min(length - 1, Math.ceil(percentile * length) - 1)];
+	}
+
+	@Test
+	public void testPhaseDistribution() {
+		byte[] seed = new byte[32];
+		new Random(7).nextBytes(seed);
+		CommonCoin commonCoin = new SeededCommonCoin(seed);
+		CommonCoin localCoin = new LocalCoin();
+
+		System.out.println("Phases until all nodes decide, over " + INSTANCES + " instances with split proposals:");
+		for(int numNodes: new int[] { 4, 7, 10, 16 }) {
+			measure("local", numNodes, localCoin);
+			measure("common", numNodes, commonCoin);
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		if(args.length > 0)
+			INSTANCES = Integer.parseInt(args[0]);
+
+		JUnitCore.main("gr.uoa.di.dsg.misc.TestCoinPerformance");
+	}
+}
@@ -1,17 +1,25 @@
 package gr.uoa.di.dsg.misc;
 
+import gr.uoa.di.dsg.broadcast.SigningPayload;
+import gr.uoa.di.dsg.broadcast.consistent.CBEchoMessage;
 import gr.uoa.di.dsg.crypto.CryptographyModule;
 import gr.uoa.di.dsg.crypto.DigitalSignatureCryptographyModule;
 import gr.uoa.di.dsg.crypto.MacCryptographyModule;
 
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
 import java.security.KeyPair;
 import java.security.KeyPairGenerator;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.crypto.KeyGenerator;
+import javax.crypto.Mac;
 import javax.crypto.SecretKey;
 
 import org.junit.Before;
@@ -26,6 +34,7 @@ public class TestCryptoPerformance {
 	private int MIN = 4;
 	private static int MAX = 20;
 	private int REPETITIONS = 200;
+	private int MEASUREMENT_MILLIS = 300;
 	
 	@Before
 	public void before() throws NoSuchAlgorithmException {
@@ -114,6 +123,150 @@ public class TestCryptoPerformance {
 		}
 	}
 
+	/**
+	 * Reports the throughput, in operations per second, of producing the
+	 * authenticator vector of an echo message (one MAC per node) and of
+	 * verifying an RSA signature, by number of nodes and by number of threads.
+	 * The "uncached" rows create and initialize a new engine per operation, as
+	 * the cryptography modules used to.
+	 */
+	@Test
+	public void testThroughput() throws Exception {
+		byte[] data = new byte[256];
+		new Random().nextBytes(data);
+		
+		CryptographyModule macModule = new MacCryptographyModule();
+		CryptographyModule signatureModule = new DigitalSignatureCryptographyModule();
+		byte[] signature = signatureModule.sign(data, keyPairs.get(0).getPrivate());
+		int maxThreads = Runtime.getRuntime().availableProcessors();
+		
+		System.out.println("nodes\tthreads\tuncached MAC vectors/s\tcached MAC vectors/s\tuncached RSA verify/s\tcached RSA verify/s");
+		for(int nodes = MIN; nodes <= MAX; nodes *= 2) {
+			final int totalNodes = nodes;
+			for(int threads = 1; threads <= maxThreads; threads *= 2) {
+				double uncachedMac = measure(threads, () -> {
+					for(int i = 0; i < totalNodes; ++i) {
+						Mac mac = Mac.getInstance("HmacSha1");
+						mac.init(secretKeys.get(i));
+						mac.doFinal(data);
+					}
+				});
+				double cachedMac = measure(threads, () -> {
+					for(int i = 0; i < totalNodes; ++i)
+						macModule.sign(data, secretKeys.get(i));
+				});
+				double uncachedRsa = measure(threads, () -> {
+					java.security.Signature verifier = java.security.Signature.getInstance("SHA1withRSA");
+					verifier.initVerify(keyPairs.get(0).getPublic());
+					verifier.update(data);
+					assert verifier.verify(signature);
+				});
+				double cachedRsa = measure(threads, () -> {
+					assert signatureModule.verify(data, keyPairs.get(0).getPublic(), signature);
+				});
+				
+				System.out.println(String.format("%d\t%d\t%.0f\t%.0f\t%.0f\t%.0f", nodes, threads, uncachedMac, cachedMac, uncachedRsa, cachedRsa));
+			}
+		}
+	}
+	
+	/**
+	 * Reports the bytes allocated, and the time spent, to produce the
+	 * authenticator vector of an echo message for values up to 64 KB: once
+	 * with the signed content built as the UUID concatenated with the value
+	 * (as the broadcasts used to), and once with the canonical encoding of
+	 * {@link SigningPayload}, which is written into a reused buffer.
+	 */
+	@Test
+	public void testSigningPayload() throws Exception {
+		CryptographyModule macModule = new MacCryptographyModule();
+		com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long threadID = Thread.currentThread().getId();
+		int nodes = MAX;
+		
+		System.out.println("value bytes	string bytes/vector	payload bytes/vector	string us/vector	payload us/vector");
+		for(int valueLength = 1024; valueLength <= 64 * 1024; valueLength *= 4) {
+			char[] chars = new char[valueLength];
+			Arrays.fill(chars, 'A');
+			CBEchoMessage message = new CBEchoMessage("IC_0", 0, 1, -6, new String(chars));
+			
+			for(int warmup = 0; warmup < REPETITIONS; ++warmup) {
+				String content = message.getUUID() + message.getValue();
+				for(int i = 0; i < nodes; ++i)
+					macModule.sign(content, secretKeys.get(i));
+				
+				ByteBuffer payload = message.getSigningPayload();
+				for(int i = 0; i < nodes; ++i)
+					macModule.sign(payload, secretKeys.get(i));
+			}
+			
+			long allocated = threadBean.getThreadAllocatedBytes(threadID);
+			long start = System.nanoTime();
+			for(int j = 0; j < REPETITIONS; ++j) {
+				String content = message.getUUID() + message.getValue();
+				for(int i = 0; i < nodes; ++i)
+					macModule.sign(content, secretKeys.get(i));
+			}
+			long stringTime = System.nanoTime() - start;
+			long stringBytes = threadBean.getThreadAllocatedBytes(threadID) - allocated;
+			
+			allocated = threadBean.getThreadAllocatedBytes(threadID);
+			start = System.nanoTime();
+			for(int j = 0; j < REPETITIONS; ++j) {
+				ByteBuffer payload = message.getSigningPayload();
+				for(int i = 0; i < nodes; ++i)
+					macModule.sign(payload, secretKeys.get(i));
+			}
+			long payloadTime = System.nanoTime() - start;
+			long payloadBytes = threadBean.getThreadAllocatedBytes(threadID) - allocated;
+			
+			System.out.println(String.format("%d\t%d\t%d\t%.1f\t%.1f", valueLength, stringBytes / REPETITIONS, payloadBytes / REPETITIONS,
+					stringTime / 1000.0 / REPETITIONS, payloadTime / 1000.0 / REPETITIONS));
+		}
+	}
+	
+	private interface Operation {
+		public void run() throws Exception;
+	}
+	
+	/**
+	 * Runs an operation repeatedly on a number of threads, after a warm-up of
+	 * the same duration.
+	 * 
+	 * @return the operations per second, over all threads.
+	 */
+	private double measure(int threads, Operation operation) throws InterruptedException {
+		AtomicLong operations = new AtomicLong();
+		CountDownLatch done = new CountDownLatch(threads);
+		
+		for(int t = 0; t < threads; ++t) {
+			new Thread(() -> {
+				try {
+					long warmupEnd = System.nanoTime() + MEASUREMENT_MILLIS * 1000000L;
+					while(System.nanoTime() < warmupEnd)
+						operation.run();
+					
+					long count = 0;
+					long end = System.nanoTime() + MEASUREMENT_MILLIS * 1000000L;
+					while(System.nanoTime() < end) {
+						operation.run();
+						++count;
+					}
+					operations.addAndGet(count);
+				}
+				catch(Exception ex) {
+					ex.printStackTrace();
+				}
+				finally {
+					done.countDown();
+				}
+			}).start();
+		}
+		
+		done.await();
+		return operations.get() * 1000.0 / MEASUREMENT_MILLIS;
+	}
+
 	public static void main(String[] args) throws Exception {
 		if(args.length == 1)
 			MAX = Integer.valueOf(args[0]);
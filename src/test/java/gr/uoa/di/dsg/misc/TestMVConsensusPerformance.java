@@ -0,0 +1,86 @@
+package gr.uoa.di.dsg.misc;
+
+import static org.junit.Assert.assertEquals;
+
+import gr.uoa.di.dsg.consensus.InMemoryNode;
+import gr.uoa.di.dsg.consensus.multivalued.MVConsensus;
+import gr.uoa.di.dsg.consensus.multivalued.messages.MVInitMessage;
+import gr.uoa.di.dsg.consensus.multivalued.messages.MVVectorMessage;
+import gr.uoa.di.dsg.utils.BroadcastID;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.junit.runner.JUnitCore;
+
+/**
+ * Feeds a single node's multi-valued Consensus instance with the MVInit and
+ * MVVector messages of all nodes and reports the time spent per instance. The
+ * MVVector messages are delivered either after all MVInit messages, or before
+ * them, in which case every one of them waits for validation.
+ */
+public class TestMVConsensusPerformance {
+
+	private static int ITERATIONS = 2000;
+	private static final String VALUE = "IC_VALUE_0123456789ABCDEF";
+
+	private void runInstance(int numNodes, boolean vectorsFirst) {
+		String[] values = new String[numNodes];
+		Arrays.fill(values, VALUE);
+
+		MVInitMessage[] initMessages = new MVInitMessage[numNodes];
+		MVVectorMessage[] vectorMessages = new MVVectorMessage[numNodes];
+		for(int i = 0; i < numNodes; ++i) {
+			initMessages[i] = new MVInitMessage("IC_MV", 0, i, BroadcastID.MVINIT_BROADCAST_ID.getValue(), VALUE);
+			vectorMessages[i] = new MVVectorMessage("IC_MV", 0, i, BroadcastID.MVVECTOR_BROADCAST_ID.getValue(), VALUE, values);
+		}
+
+		InMemoryNode node = new InMemoryNode();
+		MVConsensus consensus = new MVConsensus(node, 0, numNodes);
+		if(vectorsFirst) {
+			for(MVVectorMessage vectorMessage: vectorMessages)
+				consensus.process(vectorMessage);
+			for(MVInitMessage initMessage: initMessages)
+				consensus.process(initMessage);
+		}
+		else {
+			for(MVInitMessage initMessage: initMessages)
+				consensus.process(initMessage);
+			for(MVVectorMessage vectorMessage: vectorMessages)
+				consensus.process(vectorMessage);
+		}
+
+		consensus.processConsensusResult("IC_MV", 0, "1");
+		assertEquals(VALUE, node.getAccepted(BroadcastID.MVACCEPT_BROADCAST_ID.getValue()));
+	}
+
+	private void measure(int numNodes, boolean vectorsFirst) {
+		/* Warm up the JIT before measuring. */
+		for(int i = 0; i < ITERATIONS / 10; ++i)
+			runInstance(numNodes, vectorsFirst);
+
+		long start = System.nanoTime();
+		for(int i = 0; i < ITERATIONS; ++i)
+			runInstance(numNodes, vectorsFirst);
+		long elapsed = System.nanoTime() - start;
+
+		System.out.println(String.format("n=%-4d %-14s %10.1f us/instance", numNodes, vectorsFirst ? "vectors-first" : "inits-first",
+				elapsed / 1000.0 / ITERATIONS));
+	}
+
+	@Test
+	public void testInstanceCost() {
+		System.out.println("Time to process the messages of one multi-valued Consensus instance, over " + ITERATIONS + " instances:");
+		for(int numNodes: new int[] { 16, 64, 128 }) {
+			measure(numNodes, false);
+			measure(numNodes, true);
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		if(args.length > 0)
+			ITERATIONS = Integer.parseInt(args[0]);
+
+		JUnitCore.main("gr.uoa.di.dsg.misc.TestMVConsensusPerformance");
+	}
+}
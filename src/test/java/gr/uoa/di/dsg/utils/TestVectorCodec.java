@@ -0,0 +1,76 @@
+package gr.uoa.di.dsg.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import gr.uoa.di.dsg.consensus.multivalued.messages.MVVectorMessage;
+import gr.uoa.di.dsg.ic.lamport.ICVectorMessage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TestVectorCodec {
+
+	private static final String[] VALUES = new String[] { "a,b;c", null, "null", "", "12|3-", "αβγ", null };
+
+	@Test
+	public void testRoundTrip() {
+		assertArrayEquals(VALUES, VectorCodec.decode(VectorCodec.encode(VALUES)));
+		assertArrayEquals(VALUES, VectorCodec.decode(VectorCodec.encode(Arrays.asList(VALUES))));
+		assertArrayEquals(new String[0], VectorCodec.decode(VectorCodec.encode(new String[0])));
+		assertEquals("3|1|a-0|", VectorCodec.encode(new String[] { "a", null, "" }));
+	}
+
+	@Test
+	public void testMalformedVectors() {
+		String encoded = VectorCodec.encode(VALUES);
+		for(String malformed: new String[] { "", "|", "x|", "2|-", "1|5|abc", "1|-extra", "1|999999999999|a", encoded.substring(0, encoded.length() - 1) }) {
+			try {
+				VectorCodec.decode(malformed);
+				throw new AssertionError("A malformed vector was decoded: " + malformed);
+			}
+			catch (IllegalArgumentException ex) {
+				assertTrue(ex.getMessage().startsWith("[VectorCodec]"));
+			}
+		}
+	}
+
+	@Test
+	public void testSingleValues() {
+		for(String value: VALUES)
+			assertEquals(value, VectorCodec.decodeValue(VectorCodec.encodeValue(value)));
+
+		/* A missing value and the value "null" are encoded apart. */
+		assertEquals("-", VectorCodec.encodeValue(null));
+		assertEquals("4|null", VectorCodec.encodeValue("null"));
+
+		for(String malformed: new String[] { "", "-x", "null", "5|null", "3|null" }) {
+			try {
+				VectorCodec.decodeValue(malformed);
+				throw new AssertionError("A malformed value was decoded: " + malformed);
+			}
+			catch (IllegalArgumentException ex) {
+				assertTrue(ex.getMessage().startsWith("[VectorCodec]"));
+			}
+		}
+	}
+
+	@Test
+	public void testMessages() {
+		MVVectorMessage vectorMsg = new MVVectorMessage("IC_1", 1, 2, BroadcastID.MVVECTOR_BROADCAST_ID.getValue(), null, VALUES);
+		MVVectorMessage copyOfVectorMsg = MVVectorMessage.deserialize(vectorMsg.serialize());
+		assertNull(copyOfVectorMsg.getValue());
+		assertArrayEquals(VALUES, copyOfVectorMsg.getVectorOfValues());
+		assertTrue(vectorMsg.isEqual(copyOfVectorMsg));
+
+		List<String> values = new ArrayList<>(Arrays.asList(VALUES));
+		ICVectorMessage icVectorMsg = new ICVectorMessage("IC_1", 1, 2);
+		icVectorMsg.setValues(values);
+		assertEquals(values, ICVectorMessage.deserialize(icVectorMsg.serialize()).getValues());
+	}
+}